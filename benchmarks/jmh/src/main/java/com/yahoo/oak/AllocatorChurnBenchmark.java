@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import com.yahoo.oak.common.integer.OakIntSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the allocator under release/re-allocation churn.
+ * - allocateFree: direct allocate/free of mixed sizes on a NativeMemoryAllocator
+ * - putRemove: the WorkloadMemoryTest map configuration (100 items per chunk, 100B keys, 1000B values,
+ *   200 keys), but with removals, so values are continuously released and re-allocated via the free list.
+ * To compare allocator implementations, run this benchmark on both revisions.
+ */
+public class AllocatorChurnBenchmark {
+
+    static final int KEY_SIZE = 100;
+    static final int VALUE_SIZE = 1000;
+    static final int NUM_OF_ENTRIES = 200;
+    static final long ALLOCATOR_CAPACITY = 4L * 1024 * 1024 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class AllocatorState {
+
+        NativeMemoryAllocator allocator;
+        MemoryManager memoryManager;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            allocator = new NativeMemoryAllocator(ALLOCATOR_CAPACITY);
+            memoryManager = new SeqExpandMemoryManager(allocator);
+        }
+
+        @TearDown(Level.Iteration)
+        public void closeAllocator() {
+            allocator.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        @Param({"1024"})
+        private int liveSlices;
+
+        @Param({"16", "1024"})
+        private int maxSize;
+
+        private Random random;
+        private Slice[] slices;
+
+        @Setup(Level.Iteration)
+        public void setup(AllocatorState state) {
+            random = new Random(Thread.currentThread().getId());
+            slices = new Slice[liveSlices];
+            for (int i = 0; i < liveSlices; i++) {
+                slices[i] = state.memoryManager.getEmptySlice();
+                state.allocator.allocate(slices[i], nextSize());
+            }
+        }
+
+        int nextSize() {
+            return 1 + random.nextInt(maxSize);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MapState {
+
+        @Param({"ORDERED", "HASH"})
+        String mapType;
+
+        ConcurrentZCMap<Integer, Integer> oak;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setOrderedChunkMaxItems(100)
+                    .setHashChunkMaxItems(100)
+                    .setKeySerializer(new OakIntSerializer(KEY_SIZE))
+                    .setValueSerializer(new OakIntSerializer(VALUE_SIZE));
+            oak = mapType.equals("ORDERED") ? builder.buildOrderedMap() : builder.buildHashMap();
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                oak.zc().put(i, i);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void closeOak() {
+            oak.close();
+        }
+    }
+
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Threads(4)
+    @Benchmark
+    public void allocateFree(Blackhole blackhole, AllocatorState state, ThreadState threadState) {
+        int i = threadState.random.nextInt(threadState.liveSlices);
+        Slice s = threadState.slices[i];
+        state.allocator.free(s);
+        blackhole.consume(state.allocator.allocate(s, threadState.nextSize()));
+    }
+
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Threads(4)
+    @Benchmark
+    public void putRemove(Blackhole blackhole, MapState state) {
+        Random random = ThreadLocalRandom.current();
+        Integer key = random.nextInt(NUM_OF_ENTRIES);
+        if (random.nextBoolean()) {
+            state.oak.zc().put(key, key);
+        } else {
+            blackhole.consume(state.oak.zc().remove(key));
+        }
+    }
+
+    //java -jar -Xmx8g -XX:MaxDirectMemorySize=8g ./benchmarks/target/benchmarks.jar AllocatorChurnBenchmark
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(AllocatorChurnBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the zero-copy batch operations of OakMap (multiGet and putAll of sorted keys)
+ * to the same operations done key by key.
+ */
+public class BatchBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState {
+
+        @Param({"1000000"})
+        private int numRows;
+
+        // the number of consecutive keys in a batch
+        @Param({"1000"})
+        private int batchSize;
+
+        private List<List<Integer>> batches;
+        private List<Map<Integer, Integer>> sortedBatches;
+        private OakUnscopedBuffer[] values;
+
+        @Setup
+        public void setup() {
+            batches = new ArrayList<>();
+            sortedBatches = new ArrayList<>();
+            for (int start = 0; start < numRows; start += batchSize) {
+                List<Integer> keys = new ArrayList<>(batchSize);
+                Map<Integer, Integer> batch = new TreeMap<>();
+                for (int key = start; key < Math.min(start + batchSize, numRows); key++) {
+                    keys.add(key);
+                    batch.put(key, key);
+                }
+                batches.add(keys);
+                sortedBatches.add(batch);
+            }
+            values = new OakUnscopedBuffer[batchSize];
+        }
+    }
+
+    // the map of the get benchmarks, holding all the keys
+    @State(Scope.Benchmark)
+    public static class FullMapState {
+
+        private OakMap<Integer, Integer> oakMap;
+
+        @Setup
+        public void setup(BenchmarkState state) {
+            oakMap = OakCommonBuildersFactory.getDefaultIntBuilder().buildOrderedMap();
+            for (Map<Integer, Integer> batch : state.sortedBatches) {
+                oakMap.putAll(batch);
+            }
+        }
+
+        @TearDown
+        public void closeOak() {
+            oakMap.close();
+        }
+    }
+
+    // the map of the put benchmarks, which is empty before each invocation
+    @State(Scope.Benchmark)
+    public static class EmptyMapState {
+
+        private OakMap<Integer, Integer> oakMap;
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            oakMap = OakCommonBuildersFactory.getDefaultIntBuilder().buildOrderedMap();
+        }
+
+        @TearDown(Level.Invocation)
+        public void closeOak() {
+            oakMap.close();
+        }
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void getOneByOne(Blackhole blackhole, BenchmarkState state, FullMapState map) {
+        for (List<Integer> keys : state.batches) {
+            for (Integer key : keys) {
+                blackhole.consume(map.oakMap.zc().get(key));
+            }
+        }
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void multiGet(Blackhole blackhole, BenchmarkState state, FullMapState map) {
+        for (List<Integer> keys : state.batches) {
+            map.oakMap.zc().multiGet(keys, state.values);
+            blackhole.consume(state.values);
+        }
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void putOneByOne(Blackhole blackhole, BenchmarkState state, EmptyMapState map) {
+        for (Map<Integer, Integer> batch : state.sortedBatches) {
+            for (Map.Entry<Integer, Integer> e : batch.entrySet()) {
+                map.oakMap.zc().put(e.getKey(), e.getValue());
+            }
+        }
+        blackhole.consume(map.oakMap);
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void putAll(Blackhole blackhole, BenchmarkState state, EmptyMapState map) {
+        for (Map<Integer, Integer> batch : state.sortedBatches) {
+            map.oakMap.zc().putAll(batch);
+        }
+        blackhole.consume(map.oakMap);
+    }
+
+    //java -jar -Xmx8g -XX:MaxDirectMemorySize=8g ./benchmarks/target/benchmarks.jar BatchBenchmark -p batchSize=100
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(BatchBenchmark.class.getSimpleName())
+                .forks(0)
+                .threads(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building an OakMap from sorted entries by OakMapBuilder.bulkLoad() to putting the entries one by one.
+ */
+public class BulkLoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState {
+
+        @Param({"1000000"})
+        private int numRows;
+
+        private TreeMap<Integer, Integer> entries;
+        private OakMap<Integer, Integer> oakMap;
+
+        @Setup
+        public void setup() {
+            entries = new TreeMap<>();
+            for (int key = 0; key < numRows; key++) {
+                entries.put(key, key);
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void closeOak() {
+            oakMap.close();
+        }
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void putOneByOne(BenchmarkState state) {
+        state.oakMap = OakCommonBuildersFactory.getDefaultIntBuilder().buildOrderedMap();
+        for (Map.Entry<Integer, Integer> e : state.entries.entrySet()) {
+            state.oakMap.zc().put(e.getKey(), e.getValue());
+        }
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void bulkLoad(BenchmarkState state) {
+        state.oakMap = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .bulkLoad(state.entries.entrySet().iterator());
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void parallelBulkLoad(BenchmarkState state) {
+        state.oakMap = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .bulkLoad(state.entries.entrySet().spliterator());
+    }
+
+    //java -jar -Xmx8g -XX:MaxDirectMemorySize=8g ./benchmarks/target/benchmarks.jar BulkLoadBenchmark
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(BulkLoadBenchmark.class.getSimpleName())
+                .forks(0)
+                .threads(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -41,11 +41,15 @@ public class GetBenchmark {
 
         @Param({"500000"})
         private int numRows;
+
+        @Param({"false", "true"})
+        private boolean colocateKeysAndValues;
         private ArrayList<String> keys;
 
         @Setup()
         public void setup() {
-            OakMapBuilder<String, String> builder = OakCommonBuildersFactory.getDefaultStringBuilder();
+            OakMapBuilder<String, String> builder = OakCommonBuildersFactory.getDefaultStringBuilder()
+                    .setColocateKeysAndValues(colocateKeysAndValues);
             oakMap = builder.buildOrderedMap();
 
             keys = new ArrayList<>(numRows);
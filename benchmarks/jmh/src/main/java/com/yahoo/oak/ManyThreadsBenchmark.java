@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a map with many more threads than processors, as a thread-per-request server does.
+ * Each invocation runs numOfTasks tasks concurrently, each task on its own thread, doing a mix of
+ * puts, gets and removes. The tasks run on virtual threads when the JVM supports them (Java 21 and up),
+ * and on a cached pool of platform threads otherwise.
+ */
+public class ManyThreadsBenchmark {
+
+    static final int NUM_OF_ENTRIES = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState {
+
+        @Param({"ORDERED", "HASH"})
+        String mapType;
+
+        @Param({"10000"})
+        int numOfTasks;
+
+        @Param({"100"})
+        int opsPerTask;
+
+        ConcurrentZCMap<Integer, Integer> oak;
+        ExecutorService executor;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder();
+            oak = mapType.equals("ORDERED") ? builder.buildOrderedMap() : builder.buildHashMap();
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                oak.zc().put(i, i);
+            }
+            executor = newExecutor();
+        }
+
+        @TearDown(Level.Trial)
+        public void closeOak() {
+            executor.shutdownNow();
+            oak.close();
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively, as Oak is built for Java 8
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    static void runTask(ConcurrentZCMap<Integer, Integer> oak, int ops) {
+        Random random = ThreadLocalRandom.current();
+        for (int i = 0; i < ops; i++) {
+            Integer key = random.nextInt(NUM_OF_ENTRIES);
+            int op = random.nextInt(10);
+            if (op == 0) {
+                oak.zc().put(key, key);
+            } else if (op == 1) {
+                oak.zc().remove(key);
+            } else {
+                oak.zc().get(key);
+            }
+        }
+    }
+
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void mixedOps(BenchmarkState state) throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>(state.numOfTasks);
+        for (int i = 0; i < state.numOfTasks; i++) {
+            futures.add(state.executor.submit(() -> runTask(state.oak, state.opsPerTask)));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+    }
+
+    //java -jar -Xmx8g -XX:MaxDirectMemorySize=8g ./benchmarks/target/benchmarks.jar ManyThreadsBenchmark
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ManyThreadsBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
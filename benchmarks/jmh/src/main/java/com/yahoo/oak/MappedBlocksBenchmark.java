@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the get and scan throughput of a map whose blocks are taken from the native blocks pool,
+ * with a map whose blocks are backed by a memory mapped file (MappedFileBlocksProvider).
+ * The directory of the backing file is given via the mappedDirectory parameter (e.g., a tmpfs or an NVMe mount).
+ */
+public class MappedBlocksBenchmark {
+
+    public static final int KEY_SIZE_BYTES = 64;
+    public static final int VALUE_SIZE_BYTES = 64;
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState {
+
+        private OakMap<String, String> oakMap;
+        private MappedFileBlocksProvider blocksProvider;
+
+        @Param({"NATIVE", "MAPPED"})
+        private String blocksType;
+
+        @Param({"/tmp"})
+        private String mappedDirectory;
+
+        @Param({"500000"})
+        private int numRows;
+        private ArrayList<String> keys;
+
+        @Setup()
+        public void setup() throws IOException {
+            OakMapBuilder<String, String> builder = OakCommonBuildersFactory.getDefaultStringBuilder();
+            if (blocksType.equals("MAPPED")) {
+                blocksProvider = new MappedFileBlocksProvider(Paths.get(mappedDirectory));
+                builder.setBlocksProvider(blocksProvider);
+            }
+            oakMap = builder.buildOrderedMap();
+
+            keys = new ArrayList<>(numRows);
+            for (int i = 0; i < numRows; ++i) {
+                String key = String.format("%0$" + KEY_SIZE_BYTES / Character.BYTES + "s",
+                        String.valueOf(i));
+
+                String val = String.format("%0$-" + VALUE_SIZE_BYTES / Character.BYTES + "s",
+                        String.valueOf(i));
+
+                oakMap.zc().put(key, val);
+                keys.add(key);
+            }
+        }
+
+        @TearDown
+        public void closeOak() throws IOException {
+            oakMap.close();
+            if (blocksProvider != null) {
+                blocksProvider.close();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int i = 0;
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Threads(8)
+    @Benchmark
+    public void get(Blackhole blackhole, BenchmarkState state, ThreadState threadState) {
+        String key = state.keys.get(threadState.i++ % state.numRows);
+        blackhole.consume(state.oakMap.get(key));
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Threads(8)
+    @Benchmark
+    public void scan(Blackhole blackhole, BenchmarkState state) {
+        Iterator<OakUnscopedBuffer> iterator = state.oakMap.zc().keyStreamSet().iterator();
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+
+    //java -jar -Xmx8g -XX:MaxDirectMemorySize=8g ./benchmarks/target/benchmarks.jar MappedBlocksBenchmark
+    // -p mappedDirectory=/mnt/nvme
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(MappedBlocksBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
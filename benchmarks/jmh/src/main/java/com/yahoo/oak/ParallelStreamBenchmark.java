@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sequential and parallel streams over the zero-copy views of OakMap and OakHashMap.
+ */
+public class ParallelStreamBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState {
+
+        @Param({"1000000"})
+        private int numRows;
+
+        private OakMap<Integer, Integer> oakMap;
+        private OakHashMap<Integer, Integer> oakHash;
+
+        @Setup
+        public void setup() {
+            oakMap = OakCommonBuildersFactory.getDefaultIntBuilder().buildOrderedMap();
+            oakHash = OakCommonBuildersFactory.getDefaultIntBuilder().buildHashMap();
+            for (int key = 0; key < numRows; key++) {
+                oakMap.zc().put(key, key);
+                oakHash.zc().put(key, key);
+            }
+        }
+
+        @TearDown
+        public void closeOak() {
+            oakMap.close();
+            oakHash.close();
+        }
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void mapStream(Blackhole blackhole, BenchmarkState state) {
+        blackhole.consume(state.oakMap.zc().valuesStream().stream().mapToLong(v -> v.getInt(0)).sum());
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void mapParallelStream(Blackhole blackhole, BenchmarkState state) {
+        blackhole.consume(state.oakMap.zc().valuesStream().parallelStream().mapToLong(v -> v.getInt(0)).sum());
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void hashStream(Blackhole blackhole, BenchmarkState state) {
+        blackhole.consume(state.oakHash.zc().valuesStream().stream().mapToLong(v -> v.getInt(0)).sum());
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void hashParallelStream(Blackhole blackhole, BenchmarkState state) {
+        blackhole.consume(state.oakHash.zc().valuesStream().parallelStream().mapToLong(v -> v.getInt(0)).sum());
+    }
+
+    //java -jar -Xmx8g -XX:MaxDirectMemorySize=8g ./benchmarks/target/benchmarks.jar ParallelStreamBenchmark
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ParallelStreamBenchmark.class.getSimpleName())
+                .forks(0)
+                .threads(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
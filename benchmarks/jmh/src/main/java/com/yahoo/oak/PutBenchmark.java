@@ -43,9 +43,14 @@ public class PutBenchmark {
 
         private OakMap<String, String> oakMap;
 
+        // 0 disables the thread local allocation buffers
+        @Param({"0", "65536"})
+        private int threadLocalBufferSize;
+
         @Setup(Level.Iteration)
         public void setup() {
-            OakMapBuilder<String, String> builder = OakCommonBuildersFactory.getDefaultStringBuilder();
+            OakMapBuilder<String, String> builder = OakCommonBuildersFactory.getDefaultStringBuilder()
+                    .setThreadLocalBufferSize(threadLocalBufferSize);
             oakMap = builder.buildOrderedMap();
         }
 
@@ -118,6 +123,7 @@ public class PutBenchmark {
 
 
     //java -jar -Xmx8g -XX:MaxDirectMemorySize=8g ./benchmarks/target/benchmarks.jar put -p numRows=500000 -prof stack
+    //java -jar -Xmx8g -XX:MaxDirectMemorySize=8g ./benchmarks/target/benchmarks.jar put -t 32 -p numRows=50000
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
                 .include(PutBenchmark.class.getSimpleName())
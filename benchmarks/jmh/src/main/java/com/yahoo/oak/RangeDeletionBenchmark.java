@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the removal of a range of keys of OakMap by removeRange, which drops the chunks of the range at once,
+ * to the removal of the same keys one by one.
+ */
+public class RangeDeletionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState {
+
+        @Param({"1000000"})
+        private int numRows;
+
+        // the percentage of the keys that are removed (from the middle of the map)
+        @Param({"10", "90"})
+        private int rangePercentage;
+
+        private TreeMap<Integer, Integer> entries;
+        private OakMap<Integer, Integer> oakMap;
+        private int fromKey;
+        private int toKey;
+
+        @Setup
+        public void setupEntries() {
+            entries = new TreeMap<>();
+            for (int key = 0; key < numRows; key++) {
+                entries.put(key, key);
+            }
+        }
+
+        // the map is loaded before each invocation, as it is emptied by the invocation
+        @Setup(Level.Invocation)
+        public void setup() {
+            oakMap = OakCommonBuildersFactory.getDefaultIntBuilder().bulkLoad(entries.entrySet().iterator());
+            int rangeSize = (int) ((long) numRows * rangePercentage / 100);
+            fromKey = (numRows - rangeSize) / 2;
+            toKey = fromKey + rangeSize;
+        }
+
+        @TearDown(Level.Invocation)
+        public void closeOak() {
+            oakMap.close();
+        }
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void removeOneByOne(Blackhole blackhole, BenchmarkState state) {
+        for (int key = state.fromKey; key < state.toKey; key++) {
+            state.oakMap.zc().remove(key);
+        }
+        blackhole.consume(state.oakMap);
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Benchmark
+    public void removeRange(Blackhole blackhole, BenchmarkState state) {
+        state.oakMap.removeRange(state.fromKey, state.toKey);
+        blackhole.consume(state.oakMap);
+    }
+
+    //java -jar -Xmx8g -XX:MaxDirectMemorySize=8g ./benchmarks/target/benchmarks.jar RangeDeletionBenchmark
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(RangeDeletionBenchmark.class.getSimpleName())
+                .forks(0)
+                .threads(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compact and the extended encodings of the key references (see SeqExpandMemoryManager),
+ * for the operations that decode many key references: lookups and scans.
+ */
+public class ReferenceEncodingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState {
+
+        @Param({"false", "true"})
+        boolean extendedReferences;
+
+        @Param({"1000000"})
+        int numRows;
+
+        OakMap<Integer, Integer> oakMap;
+
+        @Setup
+        public void setup() {
+            oakMap = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setExtendedReferences(extendedReferences)
+                    .buildOrderedMap();
+            for (int i = 0; i < numRows; i++) {
+                oakMap.zc().put(i, i);
+            }
+        }
+
+        @TearDown
+        public void closeOak() {
+            oakMap.close();
+        }
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Fork(value = 1)
+    @Threads(8)
+    @Benchmark
+    public void get(Blackhole blackhole, BenchmarkState state) {
+        Integer key = ThreadLocalRandom.current().nextInt(state.numRows);
+        blackhole.consume(state.oakMap.zc().get(key));
+    }
+
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1)
+    @Threads(8)
+    @Benchmark
+    public void bufferViewScan(Blackhole blackhole, BenchmarkState state) {
+        Iterator<OakUnscopedBuffer> iterator = state.oakMap.zc().keySet().iterator();
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+
+    //java -jar -Xmx8g -XX:MaxDirectMemorySize=8g ./benchmarks/target/benchmarks.jar ReferenceEncodingBenchmark
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ReferenceEncodingBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -85,9 +85,6 @@ public class OakMyBufferHash<K extends MyBuffer, V extends MyBuffer> implements
 
     private void buildHash() {
         ma = new NativeMemoryAllocator(OAK_MAX_OFF_MEMORY);
-        if (Parameters.confDetailedStats) {
-            ma.collectStats();
-        }
         minKey = new MyBuffer(Integer.BYTES);
         minKey.buffer.putInt(0, Integer.MIN_VALUE);
         builder =
@@ -153,10 +150,10 @@ public class OakMyBufferHash<K extends MyBuffer, V extends MyBuffer> implements
     @Override
     public void printMemStats() {
         NativeMemoryAllocator.Stats stats = ma.getStats();
-        System.out.printf("\tReleased buffers: \t\t%d\n", stats.releasedBuffers);
-        System.out.printf("\tReleased bytes: \t\t%d\n", stats.releasedBytes);
-        System.out.printf("\tReclaimed buffers: \t\t%d\n", stats.reclaimedBuffers);
-        System.out.printf("\tReclaimed bytes: \t\t%d\n", stats.reclaimedBytes);
+        System.out.printf("\tReleased buffers: \t\t%d\n", stats.getReleasedBuffers());
+        System.out.printf("\tReleased bytes: \t\t%d\n", stats.getReleasedBytes());
+        System.out.printf("\tReclaimed buffers: \t\t%d\n", stats.getReclaimedBuffers());
+        System.out.printf("\tReclaimed bytes: \t\t%d\n", stats.getReclaimedBytes());
 
     }
 }
@@ -23,9 +23,6 @@ public class OakMyBufferMap<K extends MyBuffer, V extends MyBuffer> implements C
 
     public OakMyBufferMap() {
         ma = new NativeMemoryAllocator(OAK_MAX_OFF_MEMORY);
-        if (Parameters.confDetailedStats) {
-            ma.collectStats();
-        }
         minKey = new MyBuffer(Integer.BYTES);
         minKey.buffer.putInt(0, Integer.MIN_VALUE);
         builder =
@@ -130,9 +127,6 @@ public class OakMyBufferMap<K extends MyBuffer, V extends MyBuffer> implements C
         oak.close();
 
         ma = new NativeMemoryAllocator(OAK_MAX_OFF_MEMORY);
-        if (Parameters.confDetailedStats) {
-            ma.collectStats();
-        }
         minKey = new MyBuffer(Integer.BYTES);
         minKey.buffer.putInt(0, Integer.MIN_VALUE);
         builder =
@@ -156,10 +150,10 @@ public class OakMyBufferMap<K extends MyBuffer, V extends MyBuffer> implements C
     @Override
     public void printMemStats() {
         NativeMemoryAllocator.Stats stats = ma.getStats();
-        System.out.printf("\tReleased buffers: \t\t%d\n", stats.releasedBuffers);
-        System.out.printf("\tReleased bytes: \t\t%d\n", stats.releasedBytes);
-        System.out.printf("\tReclaimed buffers: \t\t%d\n", stats.reclaimedBuffers);
-        System.out.printf("\tReclaimed bytes: \t\t%d\n", stats.reclaimedBytes);
+        System.out.printf("\tReleased buffers: \t\t%d\n", stats.getReleasedBuffers());
+        System.out.printf("\tReleased bytes: \t\t%d\n", stats.getReleasedBytes());
+        System.out.printf("\tReclaimed buffers: \t\t%d\n", stats.getReclaimedBuffers());
+        System.out.printf("\tReclaimed bytes: \t\t%d\n", stats.getReclaimedBytes());
 
     }
 }
@@ -210,12 +210,27 @@ abstract class BasicChunk<K, V> {
      */
     abstract boolean finalizeDeletion(ThreadContext ctx);
 
+    /**
+     * See concrete implementation for more information
+     */
+    abstract boolean readValueFromEntryIndex(ValueBuffer value, int ei);
+
     /*-------------- Methods for managing existing value (for ValueUtils) --------------*/
     boolean overwriteExistingValueForMove(ThreadContext ctx, V newVal) {
         // given old entry index (inside ctx) and new value, while old value is locked,
         // allocate new value, new value is going to be locked as well, write the new value
         allocateValue(ctx, newVal, true);
+        return linkMovedValue(ctx);
+    }
 
+    /**
+     * Links the new value of the context (allocated for a move, thus locked) to the entry instead of the old value.
+     * If the linking fails, the new value is released.
+     *
+     * @param ctx holds the entry index, the old (locked) value and the new value
+     * @return true if the entry refers to the new value
+     */
+    boolean linkMovedValue(ThreadContext ctx) {
         // in order to connect/overwrite the old entry to point to new value
         // we need to publish as in the normal write process
         if (!publish()) {
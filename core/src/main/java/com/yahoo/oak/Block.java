@@ -6,6 +6,7 @@
 
 package com.yahoo.oak;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 class Block {
@@ -15,22 +16,55 @@ class Block {
     private final int capacity;
     private final AtomicLong allocated = new AtomicLong(0);
     private int id; // placeholder might need to be set in the future
+    // whether the block's memory is known to be all zeroes, meaningful only while the block is not in use
+    private boolean zeroed;
+    // the time (in System.nanoTime() terms) the block was last put in its pool, meaningful only while in the pool
+    private long idleSince;
+    // the number of bytes of this block that are in use (allocated and not yet freed), maintained by the allocator
+    private final AtomicInteger liveBytes = new AtomicInteger(0);
+    // whether the block is being evacuated by the compaction, so its free space must not be reused
+    private volatile boolean evacuating = false;
+    // kept reachable by the slices associated with the block's cuts, replaced whenever the block is added to an
+    // allocator, and dropped by the compaction before the block is returned (see NativeMemoryAllocator.compact())
+    private volatile Object lease = null;
 
     Block(long capacity) {
+        this(capacity, true);
+    }
+
+    // input param: zeroMemory - whether to zero the block's memory eagerly.
+    // If not, the memory pages are touched (and committed by the OS) only once they are allocated.
+    Block(long capacity, boolean zeroMemory) {
         assert capacity > 0;
         assert capacity <= Integer.MAX_VALUE; // This is exactly 2GiB
         this.capacity = (int) capacity;
         this.id = NativeMemoryAllocator.INVALID_BLOCK_ID;
-        // Pay attention in allocateDirect the data is *zero'd out*
-        // which has an overhead in clearing and you end up touching every page
-        this.blockMemAddress  = UnsafeUtils.allocateMemory(capacity);
-        UnsafeUtils.setMemory(this.blockMemAddress, capacity, (byte) 0); // zero block's memory
+        this.blockMemAddress  = DirectMemory.allocate(capacity);
+        this.zeroed = false;
+        if (zeroMemory) {
+            // Pay attention the zeroing has an overhead in clearing and you end up touching every page
+            zeroMemory();
+        }
+    }
+
+    // A block over an existing memory region, which is allocated (and released on clean()) by the subclass.
+    // input param: zeroed - whether the given memory is known to be all zeroes
+    protected Block(long blockMemAddress, int capacity, boolean zeroed) {
+        assert capacity > 0;
+        this.capacity = capacity;
+        this.id = NativeMemoryAllocator.INVALID_BLOCK_ID;
+        this.blockMemAddress = blockMemAddress;
+        this.zeroed = zeroed;
     }
 
     void setID(int id) {
         this.id = id;
     }
 
+    int getID() {
+        return id;
+    }
+
     // Block manages its linear allocation. Thread safe.
     // The returned buffer doesn't have all zero bytes.
     boolean allocate(BlockAllocationSlice s, final int size) {
@@ -42,15 +76,40 @@ class Block {
         if (offset + size > this.capacity) {
             throw new OakOutOfMemoryException(String.format("Block %d is out of memory", id));
         }
-        s.associateBlockAllocation(id, (int) offset, size, blockMemAddress );
+        s.associateBlockAllocation(id, (int) offset, size, blockMemAddress, lease);
         return true;
     }
 
     // use when this Block is no longer in any use, not thread safe
-    // It sets the limit to the capacity and the position to zero, and zeroes the memory
-    void reset() {
-        UnsafeUtils.setMemory(this.blockMemAddress, capacity, (byte) 0); // zero block's memory
+    // It sets the limit to the capacity and the position to zero, and zeroes the memory if requested
+    void reset(boolean zeroMemory) {
         allocated.set(0);
+        liveBytes.set(0);
+        evacuating = false;
+        zeroed = false;
+        if (zeroMemory) {
+            zeroMemory();
+        }
+    }
+
+    // zeroes the block's memory (if it is not known to be zero already), not thread safe
+    void zeroMemory() {
+        if (!zeroed) {
+            UnsafeUtils.setMemory(this.blockMemAddress, capacity, (byte) 0); // zero block's memory
+            zeroed = true;
+        }
+    }
+
+    boolean isZeroed() {
+        return zeroed;
+    }
+
+    void setIdleSince(long idleSince) {
+        this.idleSince = idleSince;
+    }
+
+    long getIdleSince() {
+        return idleSince;
     }
 
     // return upperbound of bytes actually allocated for this block only, thread safe
@@ -60,9 +119,42 @@ class Block {
         return allocated.get();
     }
 
+    // adds the given (possibly negative) number of bytes to the block's live bytes, thread safe
+    void addLiveBytes(int delta) {
+        liveBytes.addAndGet(delta);
+    }
+
+    int getLiveBytes() {
+        return liveBytes.get();
+    }
+
+    boolean isEvacuating() {
+        return evacuating;
+    }
+
+    void setEvacuating(boolean evacuating) {
+        this.evacuating = evacuating;
+    }
+
+    // use when this Block is added to an allocator, not thread safe
+    void renewLease() {
+        lease = new Object();
+    }
+
+    Object getLease() {
+        return lease;
+    }
+
+    // returns the lease, which is no longer given to new slices, not thread safe
+    Object dropLease() {
+        Object l = lease;
+        lease = null;
+        return l;
+    }
+
     // releasing the memory back to the OS, freeing the block, an opposite of allocation, not thread safe
     void clean() {
-        UnsafeUtils.UNSAFE.freeMemory(blockMemAddress);
+        DirectMemory.free(blockMemAddress);
     }
 
     long getStartMemAddress() {
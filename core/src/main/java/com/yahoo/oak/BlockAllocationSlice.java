@@ -21,6 +21,9 @@ abstract class BlockAllocationSlice implements Slice, Comparable<BlockAllocation
     protected int offset;
     protected int length; // The entire length of the off-heap cut, including the header (if needed)!
     protected long memAddress;
+    // the lease of the block (see Block.getLease()), keeps the block from being returned by the compaction
+    // as long as this slice might access it
+    protected Object blockLease;
 
     // true if slice is associated with an off-heap slice of memory
     // if associated is false the Slice is empty
@@ -55,6 +58,7 @@ abstract class BlockAllocationSlice implements Slice, Comparable<BlockAllocation
         this.offset = other.offset;
         this.length = other.length;
         this.memAddress = other.memAddress;
+        this.blockLease = other.blockLease;
         this.reference = other.reference;
         this.associated = other.associated;
     }
@@ -85,13 +89,15 @@ abstract class BlockAllocationSlice implements Slice, Comparable<BlockAllocation
      * Sets everything related to allocation of an off-heap cut: a portion of a bigger block.
      * Turns empty slice to an associated slice upon allocation.
      */
-    protected void associateBlockAllocation(int blockID, int offset, int length, long memAddress) {
+    protected void associateBlockAllocation(int blockID, int offset, int length, long memAddress,
+                                            Object blockLease) {
         assert blockID != NativeMemoryAllocator.INVALID_BLOCK_ID
             && offset > UNDEFINED_LENGTH_OR_OFFSET_OR_ADDRESS
             && length > UNDEFINED_LENGTH_OR_OFFSET_OR_ADDRESS
             && memAddress != UNDEFINED_LENGTH_OR_OFFSET_OR_ADDRESS;
         setBlockIdOffsetAndLength(blockID, offset, length);
         this.memAddress  = memAddress;
+        this.blockLease = blockLease;
         // more Slice's properties are yet to be set by Memory Manager (MM) during allocation
 
         // needs to be set here (and not in MM) due to the tests,
@@ -102,9 +108,10 @@ abstract class BlockAllocationSlice implements Slice, Comparable<BlockAllocation
     /* Set the internal memory address.
     * This method should be used only within Memory Management package.
     * */
-    protected void setAddress(long memAddress) {
+    protected void setAddress(long memAddress, Object blockLease) {
         assert memAddress != 0;
         this.memAddress = memAddress;
+        this.blockLease = blockLease;
         // memAddress is the final and the most important field for the slice validity,
         // once it is set the slice is considered associated
         associated = true;
@@ -127,6 +134,46 @@ abstract class BlockAllocationSlice implements Slice, Comparable<BlockAllocation
     // zero the underlying memory (not the header) before entering the free list
     protected abstract void zeroMetadata();
 
+    // Whether the cut starts with a versioned header, against which stale references to the cut are checked.
+    // The start of such a released cut must remain a cut start (see FreeList.addUnversioned()).
+    protected boolean hasVersionedHeader() {
+        return true;
+    }
+
+    // Returns the length of the off-heap cut needed for data of the given length (the data and the header, if any)
+    protected abstract int getAllocationSize(int dataSize);
+
+    /*
+     * Completes the allocation once the off-heap cut is associated with this slice: initializes the header
+     * (if any) and sets the reference. See the allocate() of the memory manager for the parameters.
+     */
+    protected abstract void initAllocation(int dataSize, boolean existing);
+
+    /*
+     * Allocates a single off-heap cut for the data of this slice followed by the data of the next slice,
+     * and splits it between the two (e.g., a key followed by its value, so they are read from adjacent memory).
+     * The two cuts are released separately, as if they were allocated separately. Both slices must belong to
+     * memory managers of the given allocator.
+     *
+     * Returns false if the two cuts do not fit in a single block, in which case nothing is allocated.
+     */
+    boolean allocateWithNext(BlockMemoryAllocator allocator, int dataSize, BlockAllocationSlice next,
+                             int nextDataSize, boolean nextExisting) {
+        int cutSize = getAllocationSize(dataSize);
+        long totalSize = (long) cutSize + next.getAllocationSize(nextDataSize);
+        if (totalSize > allocator.blockSize()) {
+            return false;
+        }
+        boolean allocated = allocator.allocate(next, (int) totalSize);
+        assert allocated;
+        // a reused cut may be longer than requested, the remainder goes to the next slice
+        associateBlockAllocation(next.blockID, next.offset, cutSize, next.memAddress, next.blockLease);
+        next.setBlockIdOffsetAndLength(next.blockID, next.offset + cutSize, next.length - cutSize);
+        initAllocation(dataSize, false);
+        next.initAllocation(nextDataSize, nextExisting);
+        return true;
+    }
+
     /* ------------------------------------------------------------------------------------
      * Internal information getters
      * ------------------------------------------------------------------------------------*/
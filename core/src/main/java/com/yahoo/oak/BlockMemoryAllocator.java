@@ -11,7 +11,7 @@ package com.yahoo.oak;
  * allocate the off-heap memory of a size, which will be delivered as a Slice object. The allocator can
  * also recycle the memory returned as a Slice object, given this allocation is no longer in use by
  * any thread. Note that two allocations cannot be merged into a single allocation,
- * and an allocation currently is not split.
+ * and an allocation is not split (but released memory may be split and merged, depending on the free list).
  */
 interface BlockMemoryAllocator {
 
@@ -22,12 +22,25 @@ interface BlockMemoryAllocator {
     // IMPORTANT: it is assumed free will get an allocation only initially allocated from this Allocator!
     void free(Slice s);
 
+    // Accounts for a portion of a block as no longer in use, without making it available for reuse, as threads
+    // might still read it. Its memory is reused only once its block is emptied and returned by the compaction.
+    void retire(Slice s);
+
     // Is invoked when entire OakMap is closed
     void close();
 
     // Returns the memory allocation of this OakMap (this Allocator)
     long allocated();
 
+    // Returns the size of the blocks this Allocator allocates from
+    int blockSize();
+
+    // Changes the memory capacity of this Allocator at runtime, thread safe
+    void setCapacity(long capacity);
+
+    // Returns the memory capacity of this Allocator
+    long getCapacity();
+
     // Attaches the slice with its base address
     void readMemoryAddress(Slice s);
 
@@ -38,4 +51,20 @@ interface BlockMemoryAllocator {
     // To be used when the user structure needs to be cleared, without memory reallocation
     // NOT THREAD SAFE!!!
     void clear();
+
+    // Empties the blocks whose utilization is at most the given ratio, by invoking the relocation
+    // to move their live allocations, and returns the emptied blocks. Thread safe.
+    // Returns the number of blocks emptied.
+    int compact(double maxUtilization, Runnable relocation);
+
+    // Returns the current compaction epoch. It should be kept reachable as long as the caller might read
+    // references from the data structure, so the blocks they point to are not returned meanwhile.
+    Object getCompactionEpoch();
+
+    // Checks if any block is being emptied by the compaction
+    boolean hasEvacuatingBlocks();
+
+    // Checks if the given slice resides on a block which is being emptied by the compaction,
+    // thus it should be relocated
+    boolean isEvacuating(Slice s);
 }
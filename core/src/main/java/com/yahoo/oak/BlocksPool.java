@@ -7,65 +7,217 @@
 package com.yahoo.oak;
 
 import java.io.Closeable;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * The singleton Pool to pre-allocate and reuse blocks of off-heap memory. The singleton has lazy
- * initialization so the big memory is allocated only on demand when first Oak is used.
- * However it makes creation of the first Oak slower. This initialization is thread safe, thus
- * multiple concurrent Oak creations will result only in the one Pool.
+ * A Pool to pre-allocate and reuse blocks of off-heap memory.
+ * <p>
+ * By default, all the maps use a singleton Pool. The singleton has lazy initialization so the big memory
+ * is allocated only on demand when first Oak is used. However it makes creation of the first Oak slower.
+ * This initialization is thread safe, thus multiple concurrent Oak creations will result only in the one Pool.
+ * <p>
+ * An application may also create its own pools (e.g., with a different block size) via {@code BlocksPool.Builder},
+ * and give them to the maps via {@code OakMapBuilder.setBlocksProvider(BlocksPool)}.
+ * Such a pool should be closed by the application, after all the maps using it are closed.
+ * <p>
+ * The returned blocks are kept for reuse. The most recently returned block is reused first, as its pages
+ * are more likely to be resident. If an idle release time is set, blocks that were not reused for that long
+ * are released back to the OS (by a background thread), until only the pre-allocated amount remains.
  */
-final class BlocksPool implements BlocksProvider, Closeable {
+public final class BlocksPool implements BlocksProvider, Closeable {
 
-    private static BlocksPool instance = null;
-    private final ConcurrentLinkedQueue<Block> blocks = new ConcurrentLinkedQueue<>();
-
-    // TODO change the following constants to be configurable
+    // Locks are used rather than monitors, so a waiting virtual thread does not pin its carrier thread.
+    // INSTANCE_LOCK guards the singleton's initialization, lock guards the pool's growth and shrinking.
+    private static final ReentrantLock INSTANCE_LOCK = new ReentrantLock();
+    private static volatile BlocksPool instance = null;
+    private final ReentrantLock lock = new ReentrantLock();
+    // the returned blocks, ordered by the time they were returned (the last is the most recent)
+    private final ConcurrentLinkedDeque<Block> blocks = new ConcurrentLinkedDeque<>();
 
     static final long MB = 1L << 20;
     static final long GB = 1L << 30;
 
-    // The memory size to pre-allocate on initialization.
-    private static final long PRE_ALLOC_SIZE_BYTES = 0;
+    // The default memory size to pre-allocate on initialization.
+    static final long DEFAULT_PRE_ALLOC_SIZE_BYTES = 0;
 
-    // The minimal memory size to be allocated at once when not enough memory is available.
+    // The default minimal memory size to be allocated at once when not enough memory is available.
     // If the used block size is larger than this number, exactly one block will be allocated.
     // Otherwise, more than one block might be allocated at once.
-    private static final long NEW_ALLOC_MIN_SIZE_BYTES = 8L * MB;
+    static final long DEFAULT_NEW_ALLOC_MIN_SIZE_BYTES = 8L * MB;
 
-    // Upper/lower thresholds to the quantity of the unused memory to reserve in the pool for future use.
-    // When the unused memory quantity reaches HIGH_RESERVED_SIZE_BYTES, some memory is freed
-    // such that the remaining unused memory will be LOW_RESERVED_SIZE_BYTES.
-    private static final long LOW_RESERVED_SIZE_BYTES = 2L * GB;
-    private static final long HIGH_RESERVED_SIZE_BYTES = 4L * GB;
+    // Default upper/lower thresholds to the quantity of the unused memory to reserve in the pool for future use.
+    // When the unused memory quantity reaches the high threshold, some memory is freed
+    // such that the remaining unused memory will be the low threshold.
+    static final long DEFAULT_LOW_RESERVED_SIZE_BYTES = 2L * GB;
+    static final long DEFAULT_HIGH_RESERVED_SIZE_BYTES = 4L * GB;
 
     // The default size of a single memory block to be allocated at once.
     // This block size (currently) imposes off-heap memory limit of 128GB
     // for all Oak instances working via NativeAllocator with this pool
     static final int DEFAULT_BLOCK_SIZE_BYTES = 128 * (int) MB;
 
+    // By default, the idle blocks are kept in the pool (up to the low reserved threshold)
+    static final long NO_IDLE_RELEASE = 0;
+
+    private static final String IDLE_RELEASE_THREAD_NAME = "oak-blocks-pool-idle-release";
+
     /**
      * The block size in bytes that is used by this pool.
      * It is limited to an integer duo to similar limitation of {@code ByteBuffer::allocateDirect(int capacity)}.
      */
     private final int blockSizeBytes;
 
+    private final int preAllocBlocks;
     private final int newAllocBlocks;
     private final int lowReservedBlocks;
     private final int highReservedBlocks;
 
+    // blocks that were idle (in the pool) for longer than this are released, or NO_IDLE_RELEASE
+    private final long idleReleaseNanos;
+    // periodically releases the idle blocks, null if there is no idle release
+    private final ScheduledExecutorService idleReleaseExecutor;
+
+    // When set, the blocks' memory is not zeroed when a block is created or returned to the pool, so
+    // its pages are touched (and committed by the OS) only when they are allocated. Oak itself does not rely on
+    // zeroed memory, as the memory managers initialize their metadata (e.g., the value header) upon allocation.
+    // Otherwise (the default), every block given by the pool is all zeroes.
+    // It is set per pool (see Builder.setLazyZeroing()), so it does not affect the maps of other pools.
+    private final boolean lazyZeroing;
+
+    /**
+     * Builds a new blocks pool. Unset parameters get the default values of the singleton pool.
+     */
+    public static final class Builder {
+        private int blockSizeBytes = DEFAULT_BLOCK_SIZE_BYTES;
+        private long preAllocSizeBytes = DEFAULT_PRE_ALLOC_SIZE_BYTES;
+        private int preTouchThreads = 1;
+        private long newAllocMinSizeBytes = DEFAULT_NEW_ALLOC_MIN_SIZE_BYTES;
+        private long lowReservedSizeBytes = DEFAULT_LOW_RESERVED_SIZE_BYTES;
+        private long highReservedSizeBytes = DEFAULT_HIGH_RESERVED_SIZE_BYTES;
+        private long idleReleaseNanos = NO_IDLE_RELEASE;
+        private boolean lazyZeroing = false;
+
+        /**
+         * @param blockSizeBytes the size of a single memory block
+         */
+        public Builder setBlockSize(int blockSizeBytes) {
+            this.blockSizeBytes = blockSizeBytes;
+            return this;
+        }
+
+        /**
+         * Sets the memory size to allocate (and touch) when the pool is built.
+         * @param preAllocSizeBytes the memory size to pre-allocate
+         * @param preTouchThreads the number of threads that touch (zero) the pre-allocated blocks in parallel
+         */
+        public Builder setPreAllocSize(long preAllocSizeBytes, int preTouchThreads) {
+            this.preAllocSizeBytes = preAllocSizeBytes;
+            this.preTouchThreads = preTouchThreads;
+            return this;
+        }
+
+        /**
+         * @param newAllocMinSizeBytes the minimal memory size to be allocated at once when the pool is empty
+         */
+        public Builder setNewAllocMinSize(long newAllocMinSizeBytes) {
+            this.newAllocMinSizeBytes = newAllocMinSizeBytes;
+            return this;
+        }
+
+        /**
+         * Sets the watermarks of the unused memory kept in the pool. When the unused memory reaches
+         * the high watermark, blocks are freed until the unused memory is at the low watermark.
+         * @param lowReservedSizeBytes the low watermark
+         * @param highReservedSizeBytes the high watermark
+         */
+        public Builder setReservedSize(long lowReservedSizeBytes, long highReservedSizeBytes) {
+            this.lowReservedSizeBytes = lowReservedSizeBytes;
+            this.highReservedSizeBytes = highReservedSizeBytes;
+            return this;
+        }
+
+        /**
+         * Sets the time after which an unused block is released back to the OS.
+         * Blocks are released until only the pre-allocated memory size remains in the pool.
+         * @param idleReleaseTime the idle time, zero (the default) to keep the idle blocks
+         * @param unit the time unit of idleReleaseTime
+         */
+        public Builder setIdleReleaseTime(long idleReleaseTime, TimeUnit unit) {
+            this.idleReleaseNanos = unit.toNanos(idleReleaseTime);
+            return this;
+        }
+
+        /**
+         * Sets whether the blocks' memory is zeroed lazily (see {@code BlocksPool.lazyZeroing}). By default, a
+         * block is zeroed entirely before use, which touches all its pages. When set, only the metadata is
+         * initialized upon allocation, reducing the creation time and the resident memory of maps with a large
+         * capacity. It applies to the maps given this pool (see {@code OakMapBuilder.setBlocksProvider()}).
+         * @param lazyZeroing whether the blocks' memory is zeroed lazily
+         */
+        public Builder setLazyZeroing(boolean lazyZeroing) {
+            this.lazyZeroing = lazyZeroing;
+            return this;
+        }
+
+        public BlocksPool build() {
+            if (blockSizeBytes <= 0) {
+                throw new IllegalArgumentException("Block size must be positive");
+            }
+            if (preAllocSizeBytes < 0 || preTouchThreads <= 0) {
+                throw new IllegalArgumentException(
+                        "Pre-allocation size must be non-negative, and pre-touch threads must be positive");
+            }
+            if (lowReservedSizeBytes < 0 || highReservedSizeBytes < lowReservedSizeBytes) {
+                throw new IllegalArgumentException("Reserved sizes must satisfy 0 <= low <= high");
+            }
+            if (idleReleaseNanos < 0) {
+                throw new IllegalArgumentException("Idle release time must be non-negative");
+            }
+            return new BlocksPool(this);
+        }
+    }
+
     // not thread safe, private constructor; should be called only once
     private BlocksPool() {
-        this(DEFAULT_BLOCK_SIZE_BYTES);
+        this(new Builder());
     }
 
     // Used internally and for tests.
     private BlocksPool(int blockSizeBytes) {
-        this.blockSizeBytes = blockSizeBytes;
-        this.newAllocBlocks = convertSizeToBlocks(NEW_ALLOC_MIN_SIZE_BYTES, 1);
-        this.lowReservedBlocks = convertSizeToBlocks(LOW_RESERVED_SIZE_BYTES, 0);
-        this.highReservedBlocks = convertSizeToBlocks(HIGH_RESERVED_SIZE_BYTES, this.lowReservedBlocks + 1);
-        alloc(convertSizeToBlocks(PRE_ALLOC_SIZE_BYTES, 0));
+        this(new Builder().setBlockSize(blockSizeBytes));
+    }
+
+    private BlocksPool(Builder builder) {
+        this.blockSizeBytes = builder.blockSizeBytes;
+        this.lazyZeroing = builder.lazyZeroing;
+        this.preAllocBlocks = convertSizeToBlocks(builder.preAllocSizeBytes, 0);
+        this.newAllocBlocks = convertSizeToBlocks(builder.newAllocMinSizeBytes, 1);
+        this.lowReservedBlocks = convertSizeToBlocks(builder.lowReservedSizeBytes, 0);
+        this.highReservedBlocks = convertSizeToBlocks(builder.highReservedSizeBytes, this.lowReservedBlocks + 1);
+        this.idleReleaseNanos = builder.idleReleaseNanos;
+        preAlloc(preAllocBlocks, builder.preTouchThreads);
+
+        if (idleReleaseNanos != NO_IDLE_RELEASE) {
+            idleReleaseExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, IDLE_RELEASE_THREAD_NAME);
+                t.setDaemon(true);
+                return t;
+            });
+            // check twice per idle period, so a block is released at most 1.5 periods after it was returned
+            long period = Math.max(1, idleReleaseNanos / 2);
+            idleReleaseExecutor.scheduleAtFixedRate(this::releaseIdleBlocks, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            idleReleaseExecutor = null;
+        }
     }
 
     private int convertSizeToBlocks(long sizeBytes, int minBlocks) {
@@ -78,10 +230,13 @@ final class BlocksPool implements BlocksProvider, Closeable {
      */
     static BlocksPool getInstance() {
         if (instance == null) {
-            synchronized (BlocksPool.class) { // can be easily changed to lock-free
+            INSTANCE_LOCK.lock();
+            try {
                 if (instance == null) {
                     instance = new BlocksPool();
                 }
+            } finally {
+                INSTANCE_LOCK.unlock();
             }
         }
         return instance;
@@ -89,11 +244,14 @@ final class BlocksPool implements BlocksProvider, Closeable {
 
     // used only in OakNativeMemoryAllocatorTest.java
     static void setBlockSize(int blockSize) {
-        synchronized (BlocksPool.class) { // can be easily changed to lock-free
+        INSTANCE_LOCK.lock();
+        try {
             if (instance != null) {
                 instance.close();
             }
             instance = new BlocksPool(blockSize);
+        } finally {
+            INSTANCE_LOCK.unlock();
         }
     }
 
@@ -104,10 +262,13 @@ final class BlocksPool implements BlocksProvider, Closeable {
      */
     static boolean preferBlockSize(int preferredBlockSizeBytes) {
         if (instance == null) {
-            synchronized (BlocksPool.class) { // can be easily changed to lock-free
+            INSTANCE_LOCK.lock();
+            try {
                 if (instance == null) {
                     instance = new BlocksPool(preferredBlockSizeBytes);
                 }
+            } finally {
+                INSTANCE_LOCK.unlock();
             }
         }
 
@@ -127,16 +288,16 @@ final class BlocksPool implements BlocksProvider, Closeable {
     public Block getBlock() {
         Block b = null;
         while (b == null) {
-            boolean noMoreBlocks = blocks.isEmpty();
-            if (!noMoreBlocks) {
-                b = blocks.poll();
-            }
-
-            if (noMoreBlocks || b == null) {
-                synchronized (BlocksPool.class) { // can be easily changed to lock-free
+            // the most recently returned block
+            b = blocks.pollLast();
+            if (b == null) {
+                lock.lock();
+                try {
                     if (blocks.isEmpty()) {
                         alloc(newAllocBlocks);
                     }
+                } finally {
+                    lock.unlock();
                 }
             }
         }
@@ -149,13 +310,21 @@ final class BlocksPool implements BlocksProvider, Closeable {
      */
     @Override
     public void returnBlock(Block b) {
-        b.reset();
-        blocks.add(b);
+        b.reset(!lazyZeroing);
+        b.setIdleSince(System.nanoTime());
+        blocks.addLast(b);
         if (blocks.size() > highReservedBlocks) { // too many unused blocks
-            synchronized (BlocksPool.class) { // can be easily changed to lock-free
+            lock.lock();
+            try {
                 while (blocks.size() > lowReservedBlocks) {
-                    this.blocks.poll().clean();
+                    Block oldest = blocks.pollFirst();
+                    if (oldest == null) {
+                        break;
+                    }
+                    oldest.clean();
                 }
+            } finally {
+                lock.unlock();
             }
         }
     }
@@ -168,8 +337,42 @@ final class BlocksPool implements BlocksProvider, Closeable {
      */
     @Override
     public void close() {
-        while (!blocks.isEmpty()) {
-            blocks.poll().clean();
+        if (idleReleaseExecutor != null) {
+            idleReleaseExecutor.shutdownNow();
+        }
+        lock.lock();
+        try {
+            while (!blocks.isEmpty()) {
+                Block b = blocks.pollFirst();
+                if (b != null) {
+                    b.clean();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Releases the blocks that were idle for longer than idleReleaseNanos, keeping the pre-allocated size.
+    // Invoked periodically by the idle release thread.
+    void releaseIdleBlocks() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            while (blocks.size() > preAllocBlocks) {
+                Block oldest = blocks.pollFirst();
+                if (oldest == null) {
+                    return;
+                }
+                if (now - oldest.getIdleSince() < idleReleaseNanos) {
+                    // all the following blocks were returned later
+                    blocks.addFirst(oldest);
+                    return;
+                }
+                oldest.clean();
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -178,8 +381,43 @@ final class BlocksPool implements BlocksProvider, Closeable {
         for (int i = 0; i < numOfBlocks; i++) {
             // The blocks are allocated without ids.
             // They are given an id when they are given to an OakNativeMemoryAllocator.
-            this.blocks.add(new Block(blockSizeBytes));
+            addNewBlock(new Block(blockSizeBytes, !lazyZeroing));
+        }
+    }
+
+    // Allocates the given number of blocks, and touches their memory in parallel (regardless of lazyZeroing)
+    private void preAlloc(int numOfBlocks, int preTouchThreads) {
+        List<Block> newBlocks = new ArrayList<>(numOfBlocks);
+        for (int i = 0; i < numOfBlocks; i++) {
+            newBlocks.add(new Block(blockSizeBytes, false));
         }
+        if (preTouchThreads == 1 || numOfBlocks <= 1) {
+            newBlocks.forEach(Block::zeroMemory);
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(preTouchThreads, numOfBlocks));
+            try {
+                List<Future<?>> touches = new ArrayList<>(numOfBlocks);
+                for (Block b : newBlocks) {
+                    touches.add(executor.submit(b::zeroMemory));
+                }
+                for (Future<?> touch : touches) {
+                    touch.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while pre-touching the blocks", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to pre-touch the blocks", e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+        }
+        newBlocks.forEach(this::addNewBlock);
+    }
+
+    private void addNewBlock(Block b) {
+        b.setIdleSince(System.nanoTime());
+        blocks.addLast(b);
     }
 
     // used only for testing
@@ -12,5 +12,8 @@ import java.util.concurrent.ConcurrentMap;
 public interface ConcurrentZCMap<K , V> extends ConcurrentMap<K , V>, Closeable {
     ZeroCopyMap<K , V> zc();
     long memorySize();
+    void setMemoryCapacity(long capacity);
+    int compact();
+    OakMemoryStatsMBean getMemoryStats();
     void close();
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Allocates and releases the off-heap memory of the blocks, and wraps off-heap addresses as ByteBuffers.
+ * This implementation uses sun.misc.Unsafe and the internal fields of java.nio.Buffer.
+ * On Java 22 and above, the multi-release jar replaces this class with an implementation that allocates and
+ * wraps the memory via the Foreign Function and Memory API (see src/main/java22), which needs no reflective
+ * access to java.nio.
+ * The two implementations must keep the same (package-private) methods.
+ * <p>
+ * The accessors of the memory (e.g., getInt()) are not part of this class, they stay in UnsafeUtils.
+ */
+final class DirectMemory {
+
+    private static final Field ADDRESS;
+    private static final Field CAPACITY;
+    static {
+        try {
+            ADDRESS = Buffer.class.getDeclaredField("address");
+            CAPACITY = Buffer.class.getDeclaredField("capacity");
+            ADDRESS.setAccessible(true);
+            CAPACITY.setAccessible(true);
+        } catch (NoSuchFieldException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private DirectMemory() {
+    }
+
+    // Allocates native memory, which is not zeroed. Should be released via free().
+    static long allocate(long bytes) {
+        return UnsafeUtils.UNSAFE.allocateMemory(bytes);
+    }
+
+    // Releases memory allocated by allocate()
+    static void free(long address) {
+        UnsafeUtils.UNSAFE.freeMemory(address);
+    }
+
+    // the address of a direct (or a memory mapped) byte buffer
+    static long getAddress(ByteBuffer bb) {
+        assert bb.isDirect();
+        try {
+            return ADDRESS.getLong(bb);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Releases the memory of a direct (or a memory mapped) byte buffer, without waiting for it to be GCed.
+    // The buffer must not be accessed afterwards.
+    static void releaseBuffer(ByteBuffer bb) {
+        assert bb.isDirect();
+        try {
+            // Java 9 and above
+            Method invokeCleaner = Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(UnsafeUtils.UNSAFE, bb);
+            return;
+        } catch (NoSuchMethodException e) {
+            // Java 8, fall through to the buffer's cleaner
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+        try {
+            Method cleanerMethod = bb.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(bb);
+            if (cleaner != null) {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // wraps the given memory as a direct ByteBuffer (which does not own the memory)
+    static ByteBuffer wrapAddress(long memAddress, int capacity) {
+        ByteBuffer bb = ByteBuffer.allocateDirect(0);
+        try {
+            ADDRESS.setLong(bb, memAddress);
+            CAPACITY.setInt(bb, capacity);
+            bb.clear();
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+        return bb;
+    }
+}
@@ -8,7 +8,6 @@ package com.yahoo.oak;
 
 import sun.misc.Unsafe;
 
-import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /*
@@ -44,6 +43,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  * ---------------------------------------------------------------------------------------
  * ...
  *
+ * The entries are kept either in a heap array, or off-heap (see OffHeapEntriesAllocator), so the heap usage of a
+ * huge map does not grow with its number of entries. Either way, they are accessed via Unsafe.
 * */
 public class EntryArray<K, V> {
     /***
@@ -60,9 +61,16 @@ public class EntryArray<K, V> {
 
     final MemoryManager valuesMemoryManager;
     final MemoryManager keysMemoryManager;
-    private final long[] entries;    // array is initialized to 0 - this is important!
+    // Entries are accessed at entriesOffset relative to the entries array, which is initialized to 0 - this
+    // is important! If the entries are off-heap, the array is null and entriesOffset is their address.
+    private final long[] entries;
+    private long entriesOffset;
     private final int fields;  // # of primitive fields in each item of entries array
 
+    // allocates the entries off-heap, null if the entries are kept in a heap array
+    final OffHeapEntriesAllocator offHeapEntriesAllocator;
+    private final OffHeapEntriesAllocator.Entries offHeapEntries;
+
     final int entriesCapacity; // number of entries (not longs) to be maximally held
 
     // Counts number of entries inserted & not deleted. Pay attention that not all entries (counted
@@ -80,14 +88,25 @@ public class EntryArray<K, V> {
      * @param kMM off-heap allocations and releases for keys
      * @param entriesCapacity how many entries should this instance keep at maximum
      * @param keySerializer   used to serialize the key when written to off-heap
+     * @param offHeapEntriesAllocator allocates the entries off-heap, or null to keep them in a heap array
      */
     EntryArray(MemoryManager vMM, MemoryManager kMM, int additionalFieldCount, int entriesCapacity,
                OakSerializer<K> keySerializer,
-             OakSerializer<V> valueSerializer) {
+             OakSerializer<V> valueSerializer, OffHeapEntriesAllocator offHeapEntriesAllocator) {
         this.valuesMemoryManager = vMM;
         this.keysMemoryManager = kMM;
         this.fields = additionalFieldCount + 2; // +2 for key and value references that always exist
-        this.entries = new long[entriesCapacity * this.fields];
+        this.offHeapEntriesAllocator = offHeapEntriesAllocator;
+        if (offHeapEntriesAllocator == null) {
+            this.entries = new long[entriesCapacity * this.fields];
+            this.entriesOffset = Unsafe.ARRAY_LONG_BASE_OFFSET;
+            this.offHeapEntries = null;
+        } else {
+            this.entries = null;
+            this.offHeapEntries = offHeapEntriesAllocator.allocate(this,
+                    (long) entriesCapacity * this.fields * Long.BYTES);
+            this.entriesOffset = offHeapEntries.getAddress();
+        }
         this.numOfEntries = new AtomicInteger(0);
         this.entriesCapacity = entriesCapacity;
         this.keySerializer = keySerializer;
@@ -99,10 +118,16 @@ public class EntryArray<K, V> {
      * Used when we want to empty the structure without reallocating all the objects/memory
      * Exists only for hash, as for the map there are min keys in the off-heap memory
      * and the full clear method is more subtle
+     * Off-heap entries are reallocated, thus the allocator should be cleared prior to this method.
      * NOT THREAD SAFE !!!
      */
     protected void clear() {
-        Arrays.fill(entries, 0);
+        if (offHeapEntries != null) {
+            offHeapEntriesAllocator.reallocate(offHeapEntries);
+            entriesOffset = offHeapEntries.getAddress();
+        } else {
+            UnsafeUtils.UNSAFE.setMemory(entries, entriesOffset, (long) entries.length * Long.BYTES, (byte) 0);
+        }
         numOfEntries.set(0);
     }
 
@@ -168,6 +193,14 @@ public class EntryArray<K, V> {
         return entryIdx * fields;
     }
 
+    /**
+     * Converts external entry-index and the offset of a field in the entry to the Unsafe offset of the field,
+     * relative to the entries array (which is null if the entries are off-heap).
+     */
+    private long fieldOffset(int entryIdx, int entryOffset) {
+        return entriesOffset + (long) (entryIdx2LongIdx(entryIdx) + entryOffset) * Long.BYTES;
+    }
+
 
     /**
      * Returns the number of entries allocated and not deleted for this EntryArray instance.
@@ -182,11 +215,11 @@ public class EntryArray<K, V> {
      * Atomically reads long field of the entries array.
      */
     protected long getEntryFieldLong(int entryIndex, int entryOffset) {
-        return entries[entryIdx2LongIdx(entryIndex) + entryOffset];
+        return UnsafeUtils.UNSAFE.getLong(entries, fieldOffset(entryIndex, entryOffset));
     }
 
     protected void setEntryFieldLong(int entryIndex, int entryOffset, long value) {
-        entries[entryIdx2LongIdx(entryIndex) + entryOffset] = value;
+        UnsafeUtils.UNSAFE.putLong(entries, fieldOffset(entryIndex, entryOffset), value);
     }
 
     /**
@@ -197,9 +230,8 @@ public class EntryArray<K, V> {
      */
     protected boolean casEntryFieldLong(int entryIndex, int entryOffset, long expectedLongValue,
                                       long newLongValue) {
-        int index = Unsafe.ARRAY_LONG_BASE_OFFSET +
-                (entryIdx2LongIdx(entryIndex) + entryOffset) * Unsafe.ARRAY_LONG_INDEX_SCALE;
-        return UnsafeUtils.UNSAFE.compareAndSwapLong(entries, index, expectedLongValue, newLongValue);
+        return UnsafeUtils.UNSAFE.compareAndSwapLong(entries, fieldOffset(entryIndex, entryOffset),
+                expectedLongValue, newLongValue);
     }
 
 
@@ -252,10 +284,10 @@ public class EntryArray<K, V> {
         // the first field in an entry is next, and it is not copied since it should be assigned elsewhere
         // therefore, to copy the rest of the entry we use the offset of next (which we assume is 0) and
         // add 1 to start the copying from the subsequent field of the entry.
-        System.arraycopy(other.entries,  // source entries array
-                entryIdx2LongIdx(srcEntryIdx),
-                entries,                        // this entries array
-                entryIdx2LongIdx(destEntryIndex), fieldCount);
+        UnsafeUtils.UNSAFE.copyMemory(other.entries,  // source entries array (null if off-heap)
+                other.fieldOffset(srcEntryIdx, 0),
+                entries,                        // this entries array (null if off-heap)
+                fieldOffset(destEntryIndex, 0), (long) fieldCount * Long.BYTES);
     }
 
     /*
@@ -352,6 +384,13 @@ public class EntryArray<K, V> {
         return key.getSlice().decodeReference(reference);
     }
 
+    /**
+     * Reads the key of the entry into {@code key} and checks if it resides on a block which is being evacuated
+     */
+    boolean isKeyEvacuating(KeyBuffer key, int ei) {
+        return readKey(key, ei) && keysMemoryManager.getBlockMemoryAllocator().isEvacuating(key.getSlice());
+    }
+
     protected boolean isIndexInBound(int ei) {
         // The actual capacity is (entriesCapacity-1) because the first entry is a dummy.
         return (ei != INVALID_ENTRY_INDEX && ei < entriesCapacity);
@@ -426,6 +465,34 @@ public class EntryArray<K, V> {
         ScopedWriteBuffer.serialize(keyBuffer.getSlice(), key, keySerializer);
     }
 
+    /**
+     * Allocates the key and the new value of {@code ctx} as a single off-heap cut, the value right after the key,
+     * so a lookup reads the value from memory adjacent to the key it compared. Serializes both, as
+     * {@code writeKey()} and {@code allocateValue()} do. If the two do not fit in a single block, they are
+     * allocated separately. The keys and the values must be allocated by the same allocator.
+     *
+     * @param key       the key to write
+     * @param keyBuffer the off-heap KeyBuffer to update with the new allocation
+     * @param ctx       the context that follows the operation, its new value is updated with the new allocation
+     * @param value     the value to write
+     */
+    void writeKeyAndValue(K key, KeyBuffer keyBuffer, ThreadContext ctx, V value) {
+        assert keysMemoryManager.getBlockMemoryAllocator() == valuesMemoryManager.getBlockMemoryAllocator();
+        int keySize = keySerializer.calculateSize(key);
+        int valueDataSize = valueSerializer.calculateSize(value);
+        BlockAllocationSlice keySlice = (BlockAllocationSlice) keyBuffer.getSlice();
+        BlockAllocationSlice valueSlice = (BlockAllocationSlice) ctx.newValue.getSlice();
+        if (!keySlice.allocateWithNext(keysMemoryManager.getBlockMemoryAllocator(), keySize,
+                valueSlice, valueDataSize, false)) {
+            writeKey(key, keyBuffer);
+            allocateValue(ctx, value, false);
+            return;
+        }
+        ctx.isNewValueForMove = false;
+        ScopedWriteBuffer.serialize(keySlice, key, keySerializer);
+        ScopedWriteBuffer.serialize(valueSlice, value, valueSerializer);
+    }
+
     /**
      * Writes value off-heap. Supposed to be for entry index inside {@code ctx},
      * but this entry metadata is not updated in this method. This is an intermediate step in
@@ -90,10 +90,13 @@ class EntryHashSet<K, V> extends EntryArray<K, V> {
      * @param kMM off-heap allocations and releases for keys
      * @param entriesCapacity how many entries should this EntryOrderedSet keep at maximum
      * @param keySerializer   used to serialize the key when written to off-heap
+     * @param offHeapEntriesAllocator allocates the entries off-heap, or null to keep them in a heap array
      */
     EntryHashSet(MemoryManager vMM, MemoryManager kMM, int entriesCapacity, OakSerializer<K> keySerializer,
-        OakSerializer<V> valueSerializer, OakComparator<K> comparator) {
-        super(vMM, kMM, ADDITIONAL_FIELDS, entriesCapacity, keySerializer, valueSerializer);
+        OakSerializer<V> valueSerializer, OakComparator<K> comparator,
+        OffHeapEntriesAllocator offHeapEntriesAllocator) {
+        super(vMM, kMM, ADDITIONAL_FIELDS, entriesCapacity, keySerializer, valueSerializer,
+            offHeapEntriesAllocator);
         this.comparator = comparator;
     }
 
@@ -571,22 +574,73 @@ class EntryHashSet<K, V> extends EntryArray<K, V> {
         }
         // mark key reference as deleted, if needed
         if (!isKeyReferenceDeleted) {
+            deleteKeyReference(ctx);
+        }
+
+        if (invalidateKeyHashAndUpdateCounter(ctx.entryIndex, ctx.keyHashAndUpdateCnt)) {
+            numOfEntries.getAndDecrement();
+            ctx.entryState = EntryState.DELETED;
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Marks the key reference (read into ctx.key) as deleted, and releases the key.
+     * The compaction might have relocated the key (see relocateKey()) after its reference was read.
+     * In this case the reference of the relocated key is deleted instead, unless the entry was already
+     * deleted and reused meanwhile. The key hash is invalidated only after the key reference is deleted,
+     * thus if it was not changed after the relocated key reference was read, the entry was not reused.
+     */
+    private void deleteKeyReference(ThreadContext ctx) {
+        while (true) {
+            long expectedKeyReference = ctx.key.getSlice().getReference();
             long newKeyReference = keysMemoryManager.alterReferenceForDelete(expectedKeyReference);
             if (casEntryFieldLong(ctx.entryIndex, KEY_REF_OFFSET, expectedKeyReference,
                 newKeyReference)) {
                 assert keysMemoryManager.isReferenceConsistent(getKeyReference(ctx.entryIndex));
                 ctx.key.getSlice().release();
                 ctx.key.invalidate();
+                return;
+            }
+            if (!readKey(ctx.tempKey, ctx.entryIndex)
+                || getKeyHashAndUpdateCounter(ctx.entryIndex) != ctx.keyHashAndUpdateCnt) {
+                // the key reference was deleted by another thread
+                return;
             }
+            ctx.key.copyFrom(ctx.tempKey);
+            ctx.key.s.logicalDelete();
         }
+    }
 
-        if (invalidateKeyHashAndUpdateCounter(ctx.entryIndex, ctx.keyHashAndUpdateCnt)) {
-            numOfEntries.getAndDecrement();
-            ctx.entryState = EntryState.DELETED;
+    /**
+     * Moves the key of a valid entry to a newly allocated off-heap cut, used by the compaction to move keys
+     * off the evacuated blocks. The key data is copied as is, and the entry's key reference is replaced via CAS.
+     * The old key is retired rather than released, so it is never reused, and readers holding its reference
+     * still find the same data until its block is returned (see {@code NativeMemoryAllocator.compact()}).
+     * IMPORTANT: the entry's value must be write locked (ctx.value), so the entry cannot be deleted meanwhile.
+     *
+     * @param ctx holds the entry index, its (locked) value and its key
+     * @return true if the key was relocated
+     */
+    boolean relocateKey(ThreadContext ctx) {
+        // the key hash is valid once the insertion of the key is finalized
+        if (!isKeyHashValid(ctx.entryIndex)) {
+            return false;
         }
-
+        int keySize = ctx.key.capacity();
+        ctx.tempKey.getSlice().allocate(keySize, false);
+        // the key is copied without instantiating a write buffer because the user is not involved
+        UnsafeUtils.UNSAFE.copyMemory(ctx.key.getAddress(), ctx.tempKey.getAddress(), keySize);
+        if (!casKeyReference(ctx.entryIndex, ctx.key.getSlice().getReference(),
+            ctx.tempKey.getSlice().getReference())) {
+            ctx.tempKey.getSlice().release();
+            return false;
+        }
+        ctx.key.getSlice().retire();
+        ctx.key.copyFrom(ctx.tempKey);
         return true;
-
     }
 
     /**
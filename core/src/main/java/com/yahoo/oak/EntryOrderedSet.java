@@ -6,45 +6,42 @@
 
 package com.yahoo.oak;
 
+import sun.misc.Unsafe;
+
 import java.util.concurrent.atomic.AtomicInteger;
 
 /* EntryOrderedSet keeps a set of entries linked to a link list. Entry is reference to key and value, both located
  * off-heap. EntryOrderedSet provides access, updates and manipulation on each entry, provided its index.
  *
- * Entry is a set of at least 2 fields (consecutive longs), part of "entries" int array. The definition
+ * Entry is a set of at least 2 fields (consecutive longs), part of "entries" long array. The definition
  * of each long is explained below. Also bits of each long (references) are represented in a very special
  * way (also explained below). The bits manipulations are ReferenceCodec responsibility.
  * Please update with care.
  *
- * Entries Array:
- * --------------------------------------------------------------------------------------
- * 0 | Key Reference          | Reference encoding all info needed to           |
- *   |                        | access the key off-heap                         | entry with
- * -----------------------------------------------------------------------------| entry index
- * 1 | Value Reference        | Reference encoding all info needed to           | 0
- *   |                        | access the key off-heap.                        |
- *   |                        | The encoding of key and value can be different  | entry that
- * -----------------------------------------------------------------------------| was allocated
- * 2 | NEXT  - entry index of the entry following the entry with entry index 0  | first
- * ---------------------------------------------------------------------------------------
- * 3 | Key Reference          | Reference encoding all info needed to           |
- *   |                        | access the key off-heap                         |
- * -----------------------------------------------------------------------------| entry with
- * 4 | Value Reference        | Reference encoding all info needed to           | entry index
- *   |                        | access the key off-heap.                        | 1
- * -----------------------------------------------------------------------------|
- * 5 | NEXT  - entry index of the entry following the entry with entry index 1  |
- * ---------------------------------------------------------------------------------------
- * 6 | Key Reference          | Reference encoding all info needed to           |
- *   |                        | access the key off-heap                         |
- * -----------------------------------------------------------------------------| entry with
- * 7 | Value Reference        | Reference encoding all info needed to           | entry index
- *   |                        | access the key off-heap.                        | 2
- * -----------------------------------------------------------------------------|
- * 8 | NEXT  - entry index of the entry following the entry with entry index 2  |
- * ---------------------------------------------------------------------------------------
+ * Entries Array:                                                      Next Array:
+ * ---------------------------------------------------------------------------    ----------------------------
+ * 0 | Key Reference          | Reference encoding all info needed to  | entry    0 | NEXT of entry 0 (int) |
+ *   |                        | access the key off-heap                | with     ----------------------------
+ * --------------------------------------------------------------------| entry    1 | NEXT of entry 1 (int) |
+ * 1 | Value Reference        | Reference encoding all info needed to  | index 0  ----------------------------
+ *   |                        | access the value off-heap.             |          2 | NEXT of entry 2 (int) |
+ * ---------------------------------------------------------------------------    ----------------------------
+ * 2 | Key Reference          | Reference encoding all info needed to  | entry    ...
+ *   |                        | access the key off-heap                | with
+ * --------------------------------------------------------------------| entry
+ * 3 | Value Reference        | Reference encoding all info needed to  | index 1
+ *   |                        | access the value off-heap.             |
+ * ---------------------------------------------------------------------------
  * ...
  *
+ * NEXT is the entry index of the entry following the entry in the linked list. It takes a few bits only
+ * (e.g., 13 bits for 4096 entries), while the key and value references take all their bits. Thus, it is kept
+ * in a separate int array rather than in a third long of each entry, which makes an entry 20 bytes instead
+ * of 24. The next array is kept on-heap or off-heap as the entries are (see OffHeapEntriesAllocator).
+ *
+ * Optionally, each entry has a third field (after the value reference), which caches an order preserving prefix
+ * of its key (see {@code OakComparator.getKeyPrefix()}). A search compares the prefixes first, and reads the key
+ * off-heap only when the prefixes are equal.
  *
  * Internal class, package visibility
  */
@@ -52,16 +49,16 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
 
     /*-------------- Constants --------------*/
 
-    /***
-     * NEXT - the next index of this entry (one integer). Must be with offset 0, otherwise, copying an entire
-     * entry should be fixed (In function {@code copyPartOfEntries}, search for "LABEL").
-     */
-    private static final int NEXT_FIELD_OFFSET = 2;
+    // the key and value references only, NEXT is kept in the next array
+    private static final int ADDITIONAL_FIELDS = 0;  // # of primitive fields in each item of entries array
 
-    // the size of the head in longs
-    // how much it takes to keep the index of the first item in the list, after the head
-    // (not necessarily first in the array!)
-    private static final int ADDITIONAL_FIELDS = 1;  // # of primitive fields in each item of entries array
+    // KEY_PREFIX - an order preserving prefix of the key, if the prefixes are kept
+    private static final int KEY_PREFIX_FIELD_OFFSET = 2;
+
+    // The NEXT of each entry, accessed at nextEntriesOffset relative to the next array, as the entries are.
+    // If the entries are off-heap, the array is null and nextEntriesOffset is the address of the off-heap NEXTs.
+    private final int[] nextEntries;
+    private final long nextEntriesOffset;
 
     // location of the first (head) node
     private AtomicInteger headEntryIndex = new AtomicInteger(INVALID_ENTRY_INDEX);
@@ -69,6 +66,9 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
     // points to next free index of entry array, counted in "entries" and not in integers
     private final AtomicInteger nextFreeIndex;
 
+    // whether each entry keeps the prefix of its key
+    private final boolean keyPrefixes;
+
     /*----------------- Constructor -------------------*/
 
     /**
@@ -77,11 +77,23 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
      * @param kMM off-heap allocations and releases for keys
      * @param entriesCapacity how many entries should this EntryOrderedSet keep at maximum
      * @param keySerializer   used to serialize the key when written to off-heap
+     * @param keyPrefixes     whether to keep the prefixes of the keys in the entries
+     * @param offHeapEntriesAllocator allocates the entries off-heap, or null to keep them in a heap array
      */
     EntryOrderedSet(MemoryManager vMM, MemoryManager kMM, int entriesCapacity, OakSerializer<K> keySerializer,
-        OakSerializer<V> valueSerializer) {
-        super(vMM, kMM, ADDITIONAL_FIELDS, entriesCapacity, keySerializer, valueSerializer);
+        OakSerializer<V> valueSerializer, boolean keyPrefixes, OffHeapEntriesAllocator offHeapEntriesAllocator) {
+        super(vMM, kMM, keyPrefixes ? ADDITIONAL_FIELDS + 1 : ADDITIONAL_FIELDS, entriesCapacity,
+            keySerializer, valueSerializer, offHeapEntriesAllocator);
+        if (offHeapEntriesAllocator == null) {
+            this.nextEntries = new int[entriesCapacity];
+            this.nextEntriesOffset = Unsafe.ARRAY_INT_BASE_OFFSET;
+        } else {
+            this.nextEntries = null;
+            this.nextEntriesOffset =
+                offHeapEntriesAllocator.allocate(this, (long) entriesCapacity * Integer.BYTES).getAddress();
+        }
         this.nextFreeIndex = new AtomicInteger( 0);
+        this.keyPrefixes = keyPrefixes;
     }
 
     int getLastEntryIndex() {
@@ -91,6 +103,11 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
     /********************************************************************************************/
     /*------------- Methods for managing next entry indexes (package visibility) ---------------*/
 
+    // the Unsafe offset of the NEXT of the entry given by entry index "ei", relative to the next array
+    private long nextFieldOffset(int ei) {
+        return nextEntriesOffset + (long) ei * Integer.BYTES;
+    }
+
     /**
      * getNextEntryIndex returns the next entry index (of the entry given by entry index "ei")
      * The method serves external EntryOrderedSet users.
@@ -99,7 +116,7 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
         if (!isIndexInBound(ei)) {
             return INVALID_ENTRY_INDEX;
         }
-        return (int) getEntryFieldLong(ei, NEXT_FIELD_OFFSET);
+        return UnsafeUtils.UNSAFE.getInt(nextEntries, nextFieldOffset(ei));
     }
 
     /**
@@ -109,7 +126,7 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
      */
     void setNextEntryIndex(int ei, int next) {
         assert ei <= nextFreeIndex.get() && next <= nextFreeIndex.get();
-        setEntryFieldLong(ei, NEXT_FIELD_OFFSET, next);
+        UnsafeUtils.UNSAFE.putInt(nextEntries, nextFieldOffset(ei), next);
     }
 
     /**
@@ -127,7 +144,7 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
      * The method serves external EntryOrderedSet users.
      */
     boolean casNextEntryIndex(int ei, int nextOld, int nextNew) {
-        return casEntryFieldLong(ei, NEXT_FIELD_OFFSET, nextOld, nextNew);
+        return UnsafeUtils.UNSAFE.compareAndSwapInt(nextEntries, nextFieldOffset(ei), nextOld, nextNew);
     }
 
     /**
@@ -152,6 +169,33 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
     }
 
 
+    /********************************************************************************************/
+    /*--------------------- Methods for managing the prefixes of the keys ----------------------*/
+
+    boolean hasKeyPrefixes() {
+        return keyPrefixes;
+    }
+
+    /**
+     * Returns the prefix of the key of the entry given by entry index "ei".
+     * Should be called only if the prefixes are kept (see {@code hasKeyPrefixes()}).
+     */
+    long getKeyPrefix(int ei) {
+        assert keyPrefixes;
+        return getEntryFieldLong(ei, KEY_PREFIX_FIELD_OFFSET);
+    }
+
+    /**
+     * Sets the prefix of the key of a new entry, before the entry is linked, so any search that reaches the entry
+     * sees its prefix. Does nothing if the prefixes are not kept.
+     */
+    void setKeyPrefix(int ei, long keyPrefix) {
+        if (keyPrefixes) {
+            setEntryFieldLong(ei, KEY_PREFIX_FIELD_OFFSET, keyPrefix);
+        }
+    }
+
+
     /********************************************************************************************/
     /*--------- Methods for managing the write/remove path of the keys and values  -------------*/
 
@@ -166,15 +210,9 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
      *         Otherwise, it means that the EntryOrderedSet is full (may require a re-balance).
      **/
     boolean allocateEntryAndWriteKey(ThreadContext ctx, K key) {
-        ctx.invalidate();
-
-        int ei = nextFreeIndex.getAndIncrement();
-
-        if (!isIndexInBound(ei)) {
+        if (!allocateEntry(ctx)) {
             return false;
         }
-        numOfEntries.getAndIncrement();
-        ctx.entryIndex = ei;
         // Write given key object "key" (to off-heap) as a serialized key, referenced by entry
         // that was set in this context ({@code ctx}).
         writeKey(key, ctx.key);
@@ -185,6 +223,41 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
         return true;
     }
 
+    /**
+     * As {@code allocateEntryAndWriteKey()}, but also allocates and writes the value (as
+     * {@code allocateValue()} does), right after the key in the same off-heap cut.
+     * The value is only written to the new value of the context, the entry's value reference is still NULL.
+     *
+     * @param ctx   the context that will follow the operation following this key allocation
+     * @param key   the key to write
+     * @param value the value to write
+     * @return true only if the allocation was successful.
+     *         Otherwise, it means that the EntryOrderedSet is full (may require a re-balance).
+     **/
+    boolean allocateEntryAndWriteKeyAndValue(ThreadContext ctx, K key, V value) {
+        if (!allocateEntry(ctx)) {
+            return false;
+        }
+        writeKeyAndValue(key, ctx.key, ctx, value);
+        setKeyReference(ctx.entryIndex, ctx.key.getSlice().getReference());
+
+        return true;
+    }
+
+    // takes the next free entry for the context, returns false if there are no free entries
+    private boolean allocateEntry(ThreadContext ctx) {
+        ctx.invalidate();
+
+        int ei = nextFreeIndex.getAndIncrement();
+
+        if (!isIndexInBound(ei)) {
+            return false;
+        }
+        numOfEntries.getAndIncrement();
+        ctx.entryIndex = ei;
+        return true;
+    }
+
     /**
      * deleteValueFinish completes the deletion of a value in Oak, by marking the value reference in
      * entry, after the on-heap value was already marked as deleted.
@@ -249,14 +322,20 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
      * <p>
      * The next pointers of the entries are requested to be set by the user if needed.
      *
+     * If the keys are being relocated (see {@code KeysRelocation}), a key that resides on a block which
+     * is being evacuated is copied, and a key of a disregarded entry is released later.
+     *
      * @param tempValue   a reusable buffer object for internal temporary usage
+     * @param tempKey     a reusable buffer object for internal temporary usage
      * @param srcEntryOrderedSet another EntryOrderedSet to copy from
      * @param srcEntryIdx the entry index to copy from {@code srcEntryOrderedSet}
+     * @param relocation  the keys relocated by this rebalance, or null if the keys are not relocated
      * @return false when this EntryOrderedSet is full
      * <p>
      * Note: NOT THREAD SAFE
      */
-    boolean copyEntry(ValueBuffer tempValue, EntryOrderedSet<K, V> srcEntryOrderedSet, int srcEntryIdx) {
+    boolean copyEntry(ValueBuffer tempValue, KeyBuffer tempKey, EntryOrderedSet<K, V> srcEntryOrderedSet,
+                      int srcEntryIdx, KeysRelocation relocation) {
         if (srcEntryIdx == INVALID_ENTRY_INDEX) {
             return false;
         }
@@ -271,26 +350,59 @@ class EntryOrderedSet<K, V> extends EntryArray<K, V> {
         }
 
         if (srcEntryOrderedSet.isValueDeleted(tempValue, srcEntryIdx)) {
+            // the key of the disregarded entry is no longer reachable once the rebalance is done
+            if (relocation != null && srcEntryOrderedSet.isKeyEvacuating(tempKey, srcEntryIdx)) {
+                relocation.add(tempKey.getSlice().duplicate(), null);
+            }
             return true;
         }
 
         assert valuesMemoryManager.isReferenceConsistent(tempValue.getSlice().getReference());
 
-        // ARRAY COPY: using next as the base of the entry
-        // copy both the key and the value references and integer for future use => 5 integers via array copy
-        // the first field in an entry is next, and it is not copied since it should be assigned elsewhere
-        // therefore, to copy the rest of the entry we use the offset of next (which we assume is 0) and
-        // add 1 to start the copying from the subsequent field of the entry.
-        copyEntriesFrom(srcEntryOrderedSet, srcEntryIdx, destEntryIndex, 2);
+        // ARRAY COPY: copy the key and the value references, and the prefix of the key (if kept) at once,
+        // NEXT is kept aside and is assigned elsewhere (both sets of a map keep the prefixes or not)
+        copyEntriesFrom(srcEntryOrderedSet, srcEntryIdx, destEntryIndex, keyPrefixes ? 3 : 2);
 
         assert valuesMemoryManager.isReferenceConsistent(getValueReference(destEntryIndex));
 
+        if (relocation != null && isKeyEvacuating(tempKey, destEntryIndex)) {
+            relocateKey(tempKey, destEntryIndex, relocation);
+        }
+
         // now it is the time to increase nextFreeIndex
         nextFreeIndex.getAndIncrement();
         numOfEntries.getAndIncrement();
         return true;
     }
 
+    /**
+     * Copies the key (read into {@code key}) of the entry to a new off-heap cut, and sets the entry to refer
+     * to the copy. The key is updated to refer to the copy.
+     */
+    private void relocateKey(KeyBuffer key, int ei, KeysRelocation relocation) {
+        Slice oldKey = key.getSlice().duplicate();
+        int keySize = key.capacity();
+        key.getSlice().allocate(keySize, false);
+        // the key is copied without instantiating a write buffer because the user is not involved
+        UnsafeUtils.UNSAFE.copyMemory(oldKey.getAddress(), key.getAddress(), keySize);
+        setKeyReference(ei, key.getSlice().getReference());
+        relocation.add(oldKey, key.getSlice().duplicate());
+    }
+
+    /**
+     * @param tempKey a reusable buffer object for internal temporary usage
+     * @return true if the key of any entry (including deleted entries) resides on a block which is being evacuated
+     */
+    boolean hasEvacuatingKeys(KeyBuffer tempKey) {
+        int numOfAllocatedEntries = Math.min(nextFreeIndex.get(), entriesCapacity);
+        for (int ei = 0; ei < numOfAllocatedEntries; ei++) {
+            if (isKeyEvacuating(tempKey, ei)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     boolean isEntrySetValidAfterRebalance() {
         int currIndex = getHeadNextEntryIndex();
         int prevIndex = INVALID_ENTRY_INDEX;
@@ -41,6 +41,8 @@ class FirstLevelHashArray<K, V> {
      * @param lsbForSecondLevelHash
      * @param multipleReferenceNum number of the references to reference the same chunk,
      *                             before switching to next chunk
+     * @param offHeapEntriesAllocator allocates the entries of the chunks off-heap,
+     *                                or null to keep them in heap arrays
      *
      * The relation between FirstLevelHashArray level and Chunk level hashIndexCodecs:
      * 1. Some MSB bits of keyHash are taken to calculate the index in the FirstLevelHashArray
@@ -53,7 +55,8 @@ class FirstLevelHashArray<K, V> {
      */
     FirstLevelHashArray(int msbForFirstLevelHash, int lsbForSecondLevelHash, AtomicInteger externalSize,
         MemoryManager vMM, MemoryManager kMM, OakComparator<K> comparator,
-        OakSerializer<K> keySerializer, OakSerializer<V> valueSerializer, int multipleReferenceNum) {
+        OakSerializer<K> keySerializer, OakSerializer<V> valueSerializer, int multipleReferenceNum,
+        OffHeapEntriesAllocator offHeapEntriesAllocator) {
 
         // the key hash (int) separation between MSB for first level ans LSB for second level,
         // to be used by hash array and all chunks, until resize
@@ -80,7 +83,7 @@ class FirstLevelHashArray<K, V> {
         for (int i = 0; i < chunks.length(); i++) {
             if (currentSameRefer == multipleReferenceNum) {
                 c = new HashChunk<>(chunkSize, externalSize, vMM, kMM, comparator,
-                    keySerializer, valueSerializer, hashIndexCodecForChunk);
+                    keySerializer, valueSerializer, hashIndexCodecForChunk, offHeapEntriesAllocator);
             }
             this.chunks.lazySet(i, c);
             currentSameRefer--;
@@ -119,6 +122,11 @@ class FirstLevelHashArray<K, V> {
         return chunks.get(calculateHashArrayIdx(key, ctx));
     }
 
+    // the number of indices, consecutive indices may refer to the same chunk
+    int length() {
+        return chunks.length();
+    }
+
     HashChunk<K, V> getChunk(int index) {
         assert 0 <= index && index < chunks.length();
         return chunks.get(index);
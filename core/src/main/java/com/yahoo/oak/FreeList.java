@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+/**
+ * The free space engine of NativeMemoryAllocator: keeps the released off-heap cuts, so they can be reused.
+ * A free cut is identified by its block id, offset (within the block) and length.
+ * All implementations must be thread safe, except for {@code clear()}.
+ */
+interface FreeList {
+
+    /**
+     * Adds a released off-heap cut to the free list.
+     *
+     * @param blockID the block the cut resides in
+     * @param offset  the offset of the cut within the block
+     * @param length  the entire length of the cut (including its header, if any)
+     */
+    void add(int blockID, int offset, int length);
+
+    /**
+     * Adds a released off-heap cut that has no versioned header at its start (e.g., a key cut, or memory that was
+     * never allocated). No stale reference is checked against its start, so an implementation may merge it into
+     * the free cut preceding it. By default, it is added as any other cut.
+     *
+     * @param blockID the block the cut resides in
+     * @param offset  the offset of the cut within the block
+     * @param length  the entire length of the cut (including its header, if any)
+     */
+    default void addUnversioned(int blockID, int offset, int length) {
+        add(blockID, offset, length);
+    }
+
+    /**
+     * Removes free space of at least {@code size} bytes and associates the input slice with its
+     * block id, offset and length. The memory address of the slice is not set.
+     * An implementation that does not split free cuts may return a cut of up to {@code maxLength} bytes.
+     *
+     * @param s         the slice to associate with the free cut
+     * @param size      the minimal length of the cut
+     * @param maxLength the maximal length of the cut
+     * @return true if such a cut was found
+     */
+    boolean remove(BlockAllocationSlice s, int size, int maxLength);
+
+    /**
+     * Removes all the free cuts of the given block, and adds them to the target free list (if any).
+     * Thread safe, but a cut that is concurrently added might be missed.
+     *
+     * @param blockID the block whose cuts are removed
+     * @param target  the free list to move the cuts to, or null to drop them
+     */
+    void removeBlock(int blockID, FreeList target);
+
+    /**
+     * @return the number of free cuts. Accurate only when there are no concurrent updates.
+     */
+    int size();
+
+    /**
+     * Removes all the free cuts. NOT THREAD SAFE!!!
+     */
+    void clear();
+
+    // encodes the block id and the offset of a cut into a single long
+    static long encodeLocation(int blockID, int offset) {
+        return ((long) blockID << Integer.SIZE) | (offset & 0xFFFFFFFFL);
+    }
+}
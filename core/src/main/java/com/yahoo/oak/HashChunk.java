@@ -36,10 +36,12 @@ class HashChunk<K, V> extends BasicChunk<K, V> {
      *
      * @param hashIndexCodec the codec initiated with the right amount of the least significant bits,
      *                       to be used to get index from the key hash
+     * @param offHeapEntriesAllocator allocates the entries off-heap, or null to keep them in a heap array
      */
     HashChunk(int maxItems, AtomicInteger externalSize, MemoryManager vMM, MemoryManager kMM,
         OakComparator<K> comparator, OakSerializer<K> keySerializer,
-        OakSerializer<V> valueSerializer, UnionCodec hashIndexCodec) {
+        OakSerializer<V> valueSerializer, UnionCodec hashIndexCodec,
+        OffHeapEntriesAllocator offHeapEntriesAllocator) {
 
         super(maxItems, externalSize, comparator);
         assert Math.pow( 2, hashIndexCodec.getFirstBitSize() ) <= maxItems ;
@@ -47,7 +49,7 @@ class HashChunk<K, V> extends BasicChunk<K, V> {
         this.hashIndexCodec = hashIndexCodec;
         this.entryHashSet = // must be called after setSecondLevelBitsThreshold
             new EntryHashSet<>(vMM, kMM, getMaxItems(), keySerializer, valueSerializer,
-                comparator);
+                comparator, offHeapEntriesAllocator);
     }
 
     /**
@@ -58,7 +60,7 @@ class HashChunk<K, V> extends BasicChunk<K, V> {
             new HashChunk<>(getMaxItems(), externalSize,
                 entryHashSet.valuesMemoryManager, entryHashSet.keysMemoryManager,
                 comparator, entryHashSet.keySerializer, entryHashSet.valueSerializer,
-                hashIndexCodec);
+                hashIndexCodec, entryHashSet.offHeapEntriesAllocator);
         updateBasicChild(child);
         return child;
     }
@@ -105,10 +107,30 @@ class HashChunk<K, V> extends BasicChunk<K, V> {
     /**
      * See {@code EntryHashSet.readValue(ValueBuffer)} for more information
      */
+    @Override
     boolean readValueFromEntryIndex(ValueBuffer value, int ei) {
         return entryHashSet.readValue(value, ei);
     }
 
+    /**
+     * Moves the keys of the valid entries, which reside on the blocks that are being evacuated, to other blocks.
+     * The value of an entry is write locked while its key is relocated, so the entry is not deleted meanwhile.
+     * See {@code EntryHashSet.relocateKey(ThreadContext)} for more information
+     */
+    void relocateEvacuatedKeys(ThreadContext ctx) {
+        for (int ei = 0; ei < getMaxItems(); ei++) {
+            if (entryHashSet.isKeyEvacuating(ctx.key, ei) && entryHashSet.readValue(ctx.value, ei)
+                && ctx.value.s.lockWrite() == ValueUtils.ValueResult.TRUE) {
+                ctx.entryIndex = ei;
+                try {
+                    entryHashSet.relocateKey(ctx);
+                } finally {
+                    ctx.value.s.unlockWrite();
+                }
+            }
+        }
+    }
+
     /**
      * Writes the key off-heap and allocates an entry with the reference pointing to the given key
      * See {@code EntryHashSet.allocateEntryAndWriteKey(ThreadContext)} for more information
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A memory manager for values of a small fixed size, which keeps each value inline, inside its reference,
+ * so a value takes no off-heap allocation and no header. As the reference is kept in the entry,
+ * a value is read with a single read of its entry, without a lock, and it is updated by a CAS of its entry
+ * (see InlineValueUtils).
+ * <p>
+ * A reference holds the data of the value (up to 7 bytes, as serialized), and a byte of flags:
+ * ----------------------------------------------------------------------
+ * |    data (56 bits, as serialized)    | unused (5 bits) | D | M | V |
+ * ----------------------------------------------------------------------
+ * V - the reference is valid (an entry whose value was never set holds zero, the invalid reference).
+ * M - the value is marked as deleted, the linearization point of its removal. It replaces the off-heap delete
+ *     bit of the values which are allocated off-heap (see SyncRecycleMMHeader).
+ * D - the reference is deleted, after the value was marked (see MemoryManager.alterReferenceForDelete()).
+ * <p>
+ * Each slice holds a copy of the data of its reference in a long field, which the scoped buffers access
+ * as on-heap memory (see Slice.getBase()). So a get or a put of an inline value allocates no direct memory.
+ * Thus, the buffers of an inline value are snapshots: they do not reflect later updates of the value.
+ * Only if the address of the data is requested (see OakUnsafeDirectBuffer), the slice moves its data to
+ * a small direct buffer of its own.
+ * <p>
+ * No memory is allocated by this manager. It refers to the allocator of the keys, so the allocator is shared
+ * as with the other memory managers (e.g., for the memory statistics).
+ */
+class InlineValueMemoryManager implements MemoryManager {
+
+    // one byte of the reference is taken by the flags
+    static final int MAX_VALUE_SIZE = Long.BYTES - 1;
+
+    private static final long VALID_BIT = 1;
+    private static final long DELETE_MARK_BIT = 1 << 1;
+    private static final long DELETED_BIT = 1 << 2;
+    private static final long FLAGS_MASK = 0xFF;
+    private static final int DATA_SHIFT = Byte.SIZE;
+    // the data bytes are the low bytes of the long read from memory on a little endian platform
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    // the offset of the data field of InlineSlice, to access the data via Unsafe as any other slice's data
+    private static final long DATA_OFFSET;
+
+    static {
+        try {
+            DATA_OFFSET = UnsafeUtils.UNSAFE.objectFieldOffset(InlineSlice.class.getDeclaredField("data"));
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final BlockMemoryAllocator allocator;
+    private final int valueSize;
+
+    /**
+     * @param allocator the allocator of the keys
+     * @param valueSize the fixed size of the values (see OakSerializer.getFixedSize())
+     */
+    InlineValueMemoryManager(BlockMemoryAllocator allocator, int valueSize) {
+        if (valueSize <= 0 || valueSize > MAX_VALUE_SIZE) {
+            throw new IllegalArgumentException(String.format(
+                    "Only values of a fixed size of at most %d bytes can be inlined (value size: %d)",
+                    MAX_VALUE_SIZE, valueSize));
+        }
+        this.allocator = allocator;
+        this.valueSize = valueSize;
+    }
+
+    private static long toReference(long data, long flags) {
+        return (LITTLE_ENDIAN ? data << DATA_SHIFT : data) | flags;
+    }
+
+    private static long toData(long reference) {
+        return LITTLE_ENDIAN ? reference >>> DATA_SHIFT : reference & ~FLAGS_MASK;
+    }
+
+    private static boolean isMarkedDeleted(long flags) {
+        return (flags & (DELETE_MARK_BIT | DELETED_BIT)) != 0;
+    }
+
+    @Override
+    public void close() {
+        // the allocator is closed by the memory manager of the keys
+    }
+
+    @Override
+    public boolean isClosed() {
+        return allocator.isClosed();
+    }
+
+    @Override
+    public long allocated() {
+        return allocator.allocated();
+    }
+
+    @Override
+    public long alterReferenceForDelete(long reference) {
+        return reference | DELETED_BIT;
+    }
+
+    @Override
+    public long getInvalidReference() {
+        return 0;
+    }
+
+    @Override
+    public boolean isReferenceValid(long reference) {
+        return (reference & VALID_BIT) != 0;
+    }
+
+    @Override
+    public boolean isReferenceDeleted(long reference) {
+        return (reference & DELETED_BIT) != 0;
+    }
+
+    @Override
+    public boolean isReferenceValidAndNotDeleted(long reference) {
+        return (reference & (VALID_BIT | DELETED_BIT)) == VALID_BIT;
+    }
+
+    @Override
+    public boolean isReferenceConsistent(long reference) {
+        // a deleted reference must be marked first, and only the invalid reference has no valid bit
+        if (!isReferenceValid(reference)) {
+            return reference == 0;
+        }
+        return !isReferenceDeleted(reference) || (reference & DELETE_MARK_BIT) != 0;
+    }
+
+    @Override
+    public InlineSlice getEmptySlice() {
+        return new InlineSlice();
+    }
+
+    @Override
+    public BlockMemoryAllocator getBlockMemoryAllocator() {
+        return allocator;
+    }
+
+    @Override
+    public void flushReleaseList() {
+        // nothing is released
+    }
+
+    @Override
+    public long pendingReleases() {
+        return 0;
+    }
+
+    @Override
+    public long globalVersionBumps() {
+        return 0;
+    }
+
+    @VisibleForTesting
+    @Override
+    public int getHeaderSize() {
+        return 0;
+    }
+
+    @Override
+    public void clear(boolean clearAllocator) {
+        if (clearAllocator) {
+            allocator.clear();
+        }
+    }
+
+    /**
+     * The slice of an inline value. Its flags and the copy of its data in its buffer make up its reference.
+     * The slice is accessed by a single thread, as any other slice, and its data is changed only via
+     * the buffers of the slice (e.g., OakScopedWriteBuffer), before the slice is linked to an entry.
+     */
+    class InlineSlice implements Slice {
+        // the data, as its bytes are laid in memory, until the slice is moved to a direct buffer
+        private long data = 0;
+        // Allocated only once the address of the data is requested. From then on, it holds the data instead
+        // of the data field (and it is freed once the slice is GCed).
+        private ByteBuffer buffer = null;
+        private long address = 0;
+        private long flags = 0;
+
+        private long readData() {
+            return (buffer == null) ? data : UnsafeUtils.getLong(address);
+        }
+
+        private void writeData(long newData) {
+            if (buffer == null) {
+                data = newData;
+            } else {
+                UnsafeUtils.putLong(address, newData);
+            }
+        }
+
+        /*------------------ Allocation ------------------*/
+
+        /**
+         * Prepares the slice for writing a new value, nothing is allocated.
+         */
+        @Override
+        public void allocate(int size, boolean existing) {
+            assert size == valueSize;
+            // the unused byte must be zero, as it is shifted out of the reference
+            writeData(0);
+            flags = VALID_BIT;
+        }
+
+        // there is no memory to release
+        @Override
+        public void release() {
+        }
+
+        @Override
+        public void retire() {
+        }
+
+        @Override
+        public void invalidate() {
+            flags = 0;
+        }
+
+        /*------------------ Reference ------------------*/
+
+        @Override
+        public boolean decodeReference(long reference) {
+            if (!isReferenceValid(reference)) {
+                invalidate();
+                return false;
+            }
+            flags = reference & FLAGS_MASK;
+            writeData(toData(reference));
+            return !isReferenceDeleted(reference);
+        }
+
+        @Override
+        public long getReference() {
+            return toReference(readData(), flags);
+        }
+
+        /*------------------ Duplication ------------------*/
+
+        @Override
+        public InlineSlice duplicate() {
+            InlineSlice duplicated = new InlineSlice();
+            duplicated.copyFrom(this);
+            return duplicated;
+        }
+
+        @Override
+        public void copyFrom(Slice other) {
+            if (other == this) {
+                return;
+            }
+            InlineSlice o = (InlineSlice) other;
+            flags = o.flags;
+            writeData(o.readData());
+        }
+
+        /*------------------ Allocation info ------------------*/
+
+        @Override
+        public boolean isAssociated() {
+            return isReferenceValid(flags);
+        }
+
+        @Override
+        public int getLength() {
+            return valueSize;
+        }
+
+        /**
+         * Moves the data to a direct buffer, if it was not moved yet, since the data field has no fixed address.
+         */
+        @Override
+        public long getAddress() {
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(Long.BYTES);
+                address = DirectMemory.getAddress(buffer);
+                UnsafeUtils.putLong(address, data);
+            }
+            return address;
+        }
+
+        @Override
+        public Object getBase() {
+            return (buffer == null) ? this : null;
+        }
+
+        @Override
+        public long getBaseOffset() {
+            return (buffer == null) ? DATA_OFFSET : address;
+        }
+
+        /*------------------ Synchronization ------------------*/
+
+        // A snapshot of the value is read, so no lock is needed
+        @Override
+        public ValueUtils.ValueResult lockRead() {
+            return isMarkedDeleted(flags) ? ValueUtils.ValueResult.FALSE : ValueUtils.ValueResult.TRUE;
+        }
+
+        @Override
+        public ValueUtils.ValueResult unlockRead() {
+            return ValueUtils.ValueResult.TRUE;
+        }
+
+        // The writes are CASes of the entry (see InlineValueUtils), rather than writes under a lock
+        @Override
+        public ValueUtils.ValueResult lockWrite() {
+            throw new UnsupportedOperationException("Inline values are updated by a CAS of their entry");
+        }
+
+        @Override
+        public ValueUtils.ValueResult unlockWrite() {
+            throw new UnsupportedOperationException("Inline values are updated by a CAS of their entry");
+        }
+
+        @Override
+        public ValueUtils.ValueResult logicalDelete() {
+            throw new UnsupportedOperationException("Inline values are deleted by a CAS of their entry");
+        }
+
+        @Override
+        public ValueUtils.ValueResult isDeleted() {
+            return isMarkedDeleted(flags) ? ValueUtils.ValueResult.TRUE : ValueUtils.ValueResult.FALSE;
+        }
+
+        // an inline value is never moved
+        @Override
+        public void markAsMoved() {
+            throw new UnsupportedOperationException("Inline values are never moved");
+        }
+
+        /**
+         * Marks this slice only. The mark takes effect once the slice is CASed into the entry.
+         */
+        @Override
+        public void markAsDeleted() {
+            assert isAssociated();
+            flags |= DELETE_MARK_BIT;
+        }
+    }
+}
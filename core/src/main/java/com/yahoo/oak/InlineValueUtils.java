@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Operates on the values kept inline in their entries (see InlineValueMemoryManager).
+ * An inline value is never locked: it is read from the snapshot taken when its entry was read, and it is
+ * updated (or marked as deleted) by a CAS of its entry, which fails if the value was changed since.
+ * The CAS is published in the chunk, as any other update of an entry, so it is not lost by a concurrent rebalance.
+ * A failed CAS results in {@code RETRY}, so the operation looks the value up again.
+ * Thus, a compute function may be applied more than once when the value is concurrently updated.
+ */
+class InlineValueUtils extends ValueUtils {
+
+    /**
+     * Replaces the value of the entry with the new value of the context, if the entry still holds
+     * the value of the context.
+     *
+     * @return {@code TRUE} if the value was replaced,
+     * {@code RETRY} if the value was changed meanwhile, or the chunk is being rebalanced.
+     */
+    private ValueResult commit(BasicChunk<?, ?> chunk, ThreadContext ctx) {
+        // the entry is updated, not added, so the chunk statistics do not change
+        ctx.isNewValueForMove = true;
+        if (!chunk.publish()) {
+            return ValueResult.RETRY;
+        }
+        try {
+            if (chunk.linkValue(ctx) != ValueResult.TRUE) {
+                return ValueResult.RETRY;
+            }
+        } finally {
+            chunk.unpublish();
+        }
+        ctx.value.copyFrom(ctx.newValue);
+        return ValueResult.TRUE;
+    }
+
+    private <V> ValueResult write(BasicChunk<?, V> chunk, ThreadContext ctx, V newVal,
+                                  OakSerializer<V> serializer) {
+        ctx.newValue.s.allocate(serializer.calculateSize(newVal), true);
+        ScopedWriteBuffer.serialize(ctx.newValue.s, newVal, serializer);
+        return commit(chunk, ctx);
+    }
+
+    private boolean isDeleted(ThreadContext ctx) {
+        return ctx.value.s.isDeleted() != ValueResult.FALSE;
+    }
+
+    @Override
+    <V> ValueResult put(BasicChunk<?, V> chunk, ThreadContext ctx, V newVal, OakSerializer<V> serializer) {
+        if (isDeleted(ctx)) {
+            return ValueResult.FALSE;
+        }
+        return write(chunk, ctx, newVal, serializer);
+    }
+
+    // an inline value resides on no block
+    @Override
+    <V> ValueResult relocate(BasicChunk<?, V> chunk, ThreadContext ctx) {
+        return ValueResult.TRUE;
+    }
+
+    // an inline value is marked as deleted in its entry, which is no longer updated once its chunk was dropped
+    @Override
+    ValueResult deleteDropped(ThreadContext ctx) {
+        return ValueResult.TRUE;
+    }
+
+    @Override
+    ValueResult compute(BasicChunk<?, ?> chunk, ThreadContext ctx, Consumer<OakScopedWriteBuffer> computer) {
+        if (isDeleted(ctx)) {
+            return ValueResult.FALSE;
+        }
+        ctx.newValue.copyFrom(ctx.value);
+        ScopedWriteBuffer.compute(ctx.newValue.s, computer);
+        return commit(chunk, ctx);
+    }
+
+    @Override
+    <V> Result compute(BasicChunk<?, V> chunk, ThreadContext ctx, Function<OakScopedReadBuffer, ? extends V> function,
+        OakSerializer<V> serializer) {
+        if (isDeleted(ctx)) {
+            return ctx.result.withFlag(ValueResult.FALSE);
+        }
+        V newValue = function.apply(ctx.value);
+        ValueResult result;
+        if (newValue == null) {
+            ctx.newValue.copyFrom(ctx.value);
+            ctx.newValue.s.markAsDeleted();
+            result = commit(chunk, ctx);
+        } else {
+            result = write(chunk, ctx, newValue, serializer);
+        }
+        return result == ValueResult.TRUE ? ctx.result.withValue(newValue) : ctx.result.withFlag(result);
+    }
+
+    /**
+     * Marks the value as deleted in its entry. The deletion is then finalized as for any value
+     * (see {@code BasicChunk.finalizeDeletion()}).
+     */
+    @Override
+    <V> Result remove(BasicChunk<?, V> chunk, ThreadContext ctx, V oldValue, OakTransformer<V> transformer) {
+        if (isDeleted(ctx)) {
+            return ctx.result.withFlag(ValueResult.FALSE);
+        }
+        V v = null;
+        if (oldValue != null) {
+            // a conditional remove
+            v = transformer.apply(ctx.value);
+            if (!oldValue.equals(v)) {
+                return ctx.result.withFlag(ValueResult.FALSE);
+            }
+        } else if (transformer != null) {
+            v = transformer.apply(ctx.value);
+        }
+        ctx.newValue.copyFrom(ctx.value);
+        ctx.newValue.s.markAsDeleted();
+        ValueResult result = commit(chunk, ctx);
+        return result == ValueResult.TRUE ? ctx.result.withValue(v) : ctx.result.withFlag(result);
+    }
+
+    @Override
+    <V> Result exchange(BasicChunk<?, V> chunk, ThreadContext ctx, V value,
+        OakTransformer<V> valueDeserializeTransformer, OakSerializer<V> serializer) {
+        if (isDeleted(ctx)) {
+            return ctx.result.withFlag(ValueResult.FALSE);
+        }
+        V oldValue = null;
+        if (valueDeserializeTransformer != null) {
+            oldValue = valueDeserializeTransformer.apply(ctx.value);
+        }
+        ValueResult result = write(chunk, ctx, value, serializer);
+        return result == ValueResult.TRUE ? ctx.result.withValue(oldValue) : ctx.result.withFlag(result);
+    }
+
+    @Override
+    <V> ValueResult compareExchange(BasicChunk<?, V> chunk, ThreadContext ctx, V expected,
+        V value, OakTransformer<V> valueDeserializeTransformer, OakSerializer<V> serializer) {
+        if (isDeleted(ctx)) {
+            return ValueResult.FALSE;
+        }
+        V oldValue = valueDeserializeTransformer.apply(ctx.value);
+        if (!oldValue.equals(expected)) {
+            return ValueResult.FALSE;
+        }
+        return write(chunk, ctx, value, serializer);
+    }
+}
@@ -12,16 +12,20 @@ import java.util.concurrent.atomic.AtomicInteger;
 abstract class InternalOakBasics<K, V> {
     /*-------------- Members --------------*/
     protected static final int MAX_RETRIES = 1024;
+    // by default, the compaction empties the blocks which are at most half used
+    static final double DEFAULT_COMPACTION_MAX_BLOCK_UTILIZATION = 0.5;
 
     protected final MemoryManager valuesMemoryManager;
     protected final MemoryManager keysMemoryManager;
     protected final AtomicInteger size;
+    protected final OakMemoryStats memoryStats;
 
     /*-------------- Constructors --------------*/
     InternalOakBasics(MemoryManager vMM, MemoryManager kMM) {
         this.size = new AtomicInteger(0);
         this.valuesMemoryManager = vMM;
         this.keysMemoryManager = kMM;
+        this.memoryStats = new OakMemoryStats(vMM, kMM);
     }
 
     /*-------------- Closable --------------*/
@@ -30,12 +34,16 @@ abstract class InternalOakBasics<K, V> {
      */
     void close() {
         try {
-            // closing the same memory manager (or memory allocator) twice,
-            // has the same effect as closing once
-            valuesMemoryManager.close();
-            keysMemoryManager.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+            memoryStats.unregister();
+        } finally {
+            try {
+                // closing the same memory manager (or memory allocator) twice,
+                // has the same effect as closing once
+                valuesMemoryManager.close();
+                keysMemoryManager.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
@@ -59,6 +67,91 @@ abstract class InternalOakBasics<K, V> {
         return size.get();
     }
 
+    /**
+     * Changes the off-heap memory capacity at runtime
+     *
+     * @throws IllegalArgumentException if the keys are encoded compactly, and the compact encoding cannot
+     *                                  address the given capacity (see {@code SeqExpandMemoryManager})
+     */
+    void setMemoryCapacity(long capacity) {
+        if (keysMemoryManager instanceof SeqExpandMemoryManager
+                && !((SeqExpandMemoryManager) keysMemoryManager).canAddress(capacity)) {
+            throw new IllegalArgumentException(String.format(
+                    "The capacity cannot be addressed by the compact key references (capacity: %s), "
+                            + "the map should be built with extended references", capacity));
+        }
+        BlockMemoryAllocator valuesAllocator = valuesMemoryManager.getBlockMemoryAllocator();
+        BlockMemoryAllocator keysAllocator = keysMemoryManager.getBlockMemoryAllocator();
+        valuesAllocator.setCapacity(capacity);
+        if (keysAllocator != valuesAllocator) {
+            keysAllocator.setCapacity(capacity);
+        }
+    }
+
+    OakMemoryStats getMemoryStats() {
+        return memoryStats;
+    }
+
+    /*-------------- Compaction --------------*/
+    /**
+     * Empties the off-heap blocks whose utilization is at most the given ratio, by relocating their live keys
+     * and values, and returns the emptied blocks to the blocks provider. Concurrent operations are served
+     * meanwhile. See {@code NativeMemoryAllocator.compact()} for the details of a compaction pass.
+     * A key or a value that was read before it was relocated (e.g., by an iterator, or via an unscoped buffer)
+     * remains accessible, as an emptied block is returned only once it can no longer be accessed. Thus, the
+     * blocks emptied by a pass are returned by a later pass, after the garbage collection.
+     *
+     * @param maxBlockUtilization the maximal ratio of a block's live bytes to its size, for it to be emptied
+     * @return the number of blocks emptied by this pass
+     */
+    int compact(double maxBlockUtilization) {
+        Runnable relocation = () -> {
+            relocateEvacuated(getThreadContext());
+            // the cuts released by the relocation (e.g., the copies of keys that were not used) are freed
+            valuesMemoryManager.flushReleaseList();
+            keysMemoryManager.flushReleaseList();
+        };
+        // the cuts released by this thread are freed, so they are not considered as live
+        valuesMemoryManager.flushReleaseList();
+        keysMemoryManager.flushReleaseList();
+        BlockMemoryAllocator valuesAllocator = valuesMemoryManager.getBlockMemoryAllocator();
+        BlockMemoryAllocator keysAllocator = keysMemoryManager.getBlockMemoryAllocator();
+        int emptiedBlocks = valuesAllocator.compact(maxBlockUtilization, relocation);
+        if (keysAllocator != valuesAllocator) {
+            emptiedBlocks += keysAllocator.compact(maxBlockUtilization, relocation);
+        }
+        return emptiedBlocks;
+    }
+
+    int compact() {
+        return compact(DEFAULT_COMPACTION_MAX_BLOCK_UTILIZATION);
+    }
+
+    /**
+     * Moves the live keys and values residing on the blocks which are being evacuated by the compaction
+     * to other blocks, see {@code BlockMemoryAllocator.isEvacuating()}.
+     */
+    protected abstract void relocateEvacuated(ThreadContext ctx);
+
+    /**
+     * Moves the values of the chunk, which reside on the blocks that are being evacuated, to other blocks.
+     * A value that is concurrently updated, or whose chunk is being rebalanced, is left in place.
+     */
+    protected void relocateEvacuatedValues(BasicChunk<K, V> c, ThreadContext ctx, ValueUtils valueOperator) {
+        if (valuesMemoryManager instanceof InlineValueMemoryManager) {
+            // inline values reside in the entries, not in the evacuated blocks
+            return;
+        }
+        BlockMemoryAllocator allocator = valuesMemoryManager.getBlockMemoryAllocator();
+        for (int ei = 0; ei < c.getMaxItems(); ei++) {
+            // only valid and not deleted values are read
+            if (c.readValueFromEntryIndex(ctx.value, ei) && allocator.isEvacuating(ctx.value.getSlice())) {
+                ctx.entryIndex = ei;
+                valueOperator.relocate(c, ctx);
+            }
+        }
+    }
+
     /*-------------- Context --------------*/
     /**
      * Should only be called from API methods at the beginning of the method and be reused in internal calls.
@@ -6,7 +6,15 @@
 
 package com.yahoo.oak;
 
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
     /*-------------- Members --------------*/
@@ -22,7 +30,8 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
     /*-------------- Constructors --------------*/
     InternalOakHash(OakSerializer<K> keySerializer, OakSerializer<V> valueSerializer,
         OakComparator<K> oakComparator, MemoryManager vMM, MemoryManager kMM,
-        ValueUtils valueOperator, int firstLevelBitSize, int secondLevelBitSize) {
+        ValueUtils valueOperator, int firstLevelBitSize, int secondLevelBitSize,
+        OffHeapEntriesAllocator offHeapEntriesAllocator) {
 
         super(vMM, kMM);
         this.keySerializer = keySerializer;
@@ -37,7 +46,7 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
         this.hashArray =
             new FirstLevelHashArray<K, V>(msbForFirstLevelHash, secondLevelBitSize,
                 this.size, vMM, kMM, oakComparator,
-                keySerializer, valueSerializer, 1);
+                keySerializer, valueSerializer, 1, offHeapEntriesAllocator);
 
     }
 
@@ -49,8 +58,13 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
      * NOT THREAD SAFE !!!
      */
     void clear() {
+        clearMemoryManagers();
+        // off-heap entries are cut from the keys' allocator, so they are reallocated after it is cleared
         hashArray.clear();
         size.set(0);
+    }
+
+    private void clearMemoryManagers() {
         if (valuesMemoryManager != keysMemoryManager) {
             // Two memory managers are not the same instance, but they
             // may still have the same allocator
@@ -70,6 +84,28 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
         valuesMemoryManager.clear(true);
     }
 
+    /*-------------- Compaction --------------*/
+    /**
+     * Relocates the values and the keys of each chunk. Unlike OakMap, the keys are relocated in place,
+     * as the hash chunks are never rebalanced.
+     */
+    @Override
+    protected void relocateEvacuated(ThreadContext ctx) {
+        boolean relocateKeys = keysMemoryManager.getBlockMemoryAllocator().hasEvacuatingBlocks();
+        HashChunk<K, V> prev = null;
+        for (int i = 0; i < hashArray.length(); i++) {
+            HashChunk<K, V> c = hashArray.getChunk(i);
+            // consecutive indices may refer to the same chunk
+            if (c != prev) {
+                relocateEvacuatedValues(c, ctx, valueOperator);
+                if (relocateKeys) {
+                    c.relocateEvacuatedKeys(ctx);
+                }
+                prev = c;
+            }
+        }
+    }
+
     /*-------------- Generic to specific rebalance --------------*/
     @Override
     protected void rebalanceBasic(BasicChunk<K, V> basicChunk) {
@@ -105,8 +141,10 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
             throw new NullPointerException();
         }
 
-        ThreadContext ctx = getThreadContext();
+        return put(getThreadContext(), key, value, transformer);
+    }
 
+    private V put(ThreadContext ctx, K key, V value, OakTransformer<V> transformer) {
         for (int i = 0; i < MAX_RETRIES; i++) {
 
             // find chunk matching key, puts this key hash into ctx.operationKeyHash
@@ -206,13 +244,15 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
             throw new NullPointerException();
         }
 
+        return remove(getThreadContext(), key, oldValue, transformer);
+    }
+
+    private Result remove(ThreadContext ctx, K key, V oldValue, OakTransformer<V> transformer) {
         // when logicallyDeleted is true, it means we have marked the value as deleted.
         // Note that the entry will remain linked until rebalance happens.
         boolean logicallyDeleted = false;
         V v = null;
 
-        ThreadContext ctx = getThreadContext();
-
         for (int i = 0; i < MAX_RETRIES; i++) {
             // find chunk matching key, puts this key hash into ctx.operationKeyHash
             HashChunk<K, V> c = hashArray.findChunk(key, ctx, calculateKeyHash(key, ctx));
@@ -240,7 +280,7 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
                 // before we marked the value reference as deleted. We have the previous value saved in v.
                 return transformer == null ? ctx.result.withFlag(ValueUtils.ValueResult.TRUE) : ctx.result.withValue(v);
             } else {
-                Result removeResult = valueOperator.remove(ctx, oldValue, transformer);
+                Result removeResult = valueOperator.remove(c, ctx, oldValue, transformer);
                 if (removeResult.operationResult == ValueUtils.ValueResult.FALSE) {
                     // we didn't succeed to remove the value: it didn't contain oldValue, or was already marked
                     // as deleted by someone else)
@@ -280,7 +320,10 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
         if (key == null) {
             throw new NullPointerException();
         }
-        ThreadContext ctx = getThreadContext();
+        return keyLookUp(getThreadContext(), key);
+    }
+
+    private ThreadContext keyLookUp(ThreadContext ctx, K key) {
         // find chunk matching key, puts this key hash into ctx.operationKeyHash
         HashChunk<K, V> c = hashArray.findChunk(key, ctx, calculateKeyHash(key, ctx));
         c.lookUp(ctx, key);
@@ -313,8 +356,10 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
             throw new NullPointerException();
         }
 
-        ThreadContext ctx = getThreadContext();
+        return getValueTransformation(getThreadContext(), key, transformer);
+    }
 
+    private <T> T getValueTransformation(ThreadContext ctx, K key, OakTransformer<T> transformer) {
         for (int i = 0; i < MAX_RETRIES; i++) {
             // find chunk matching key, puts this key hash into ctx.operationKeyHash
             HashChunk<K, V> c = hashArray.findChunk(key, ctx, calculateKeyHash(key, ctx));
@@ -444,7 +489,7 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
             c.lookUp(ctx, key);
 
             if (ctx.isValueValid()) {
-                ValueUtils.ValueResult res = valueOperator.compute(ctx.value, computer);
+                ValueUtils.ValueResult res = valueOperator.compute(c, ctx, computer);
                 if (res == ValueUtils.ValueResult.TRUE) {
                     // compute was successful and the value wasn't found deleted; in case
                     // this value was already marked as deleted, continue to construct another slice
@@ -462,6 +507,74 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
     // if key didn't exist, put the value to be associated with the key
     // otherwise perform compute on the existing value
     // return false if compute happened, true if put happened
+    // replace the value of the key with the result of the function, which is given a view of the current value
+    // (null if the key is absent); if the result is null the key is removed (or remains absent).
+    // An existing value is write locked while the function is applied, so the function is applied again only if
+    // the value was moved or deleted meanwhile, or if the key was concurrently inserted after it was found absent.
+    // return the result of the function, which is the new value
+    V compute(K key, Function<OakScopedReadBuffer, ? extends V> function) {
+        if (key == null || function == null) {
+            throw new NullPointerException();
+        }
+
+        ThreadContext ctx = getThreadContext();
+
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            // find chunk matching key, puts this key hash into ctx.operationKeyHash
+            HashChunk<K, V> c = hashArray.findChunk(key, ctx, calculateKeyHash(key, ctx));
+            c.lookUp(ctx, key);
+
+            // If there is a matching value reference for the given key, and it is not marked as deleted,
+            // then apply the function on the existing value
+            if (ctx.isValueValid()) {
+                Result res = valueOperator.compute(c, ctx, function, valueSerializer);
+                if (res.operationResult == ValueUtils.ValueResult.RETRY) {
+                    helpRebalanceIfInProgress(c);
+                    continue;
+                } else if (res.operationResult == ValueUtils.ValueResult.FALSE) {
+                    // the value was deleted meanwhile, look up the key again to insert a new value
+                    continue;
+                }
+                V newValue = (V) res.value;
+                if (newValue == null) {
+                    // the value was marked deleted off-heap by this thread,
+                    // continue to set the entry's value reference as deleted
+                    ctx.entryState = EntryArray.EntryState.DELETED_NOT_FINALIZED;
+                    // if a rebalance is in progress, it completes the deletion
+                    if (!inTheMiddleOfRebalance(c)) {
+                        finalizeDeletion(c, ctx);
+                    }
+                }
+                return newValue;
+            }
+
+            // the function is not applied when a retry is known to be needed
+            if (isAfterRebalanceOrValueUpdate(c, ctx)) {
+                continue;
+            }
+
+            V value = function.apply(null);
+            if (value == null) {
+                return null;
+            }
+
+            if (!publishAndWriteKey(c, ctx, key, value)) {
+                continue;
+            }
+
+            if (c.linkValue(ctx) != ValueUtils.ValueResult.TRUE) {
+                c.releaseNewValue(ctx);
+                c.unpublish();
+            } else {
+                c.unpublish();
+                checkRebalance(c);
+                return value;
+            }
+        }
+
+        throw new RuntimeException("compute failed: reached retry limit (1024).");
+    }
+
     boolean putIfAbsentComputeIfPresent(K key, V value, Consumer<OakScopedWriteBuffer> computer) {
         if (key == null || value == null || computer == null) {
             throw new NullPointerException();
@@ -482,7 +595,7 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
             // If there is a matching value reference for the given key, and it is not marked as deleted,
             // then apply compute on the existing value
             if (ctx.isValueValid()) {
-                ValueUtils.ValueResult res = valueOperator.compute(ctx.value, computer);
+                ValueUtils.ValueResult res = valueOperator.compute(c, ctx, computer);
                 if (res == ValueUtils.ValueResult.TRUE) {
                     // compute was successful and the value wasn't found deleted; in case
                     // this value was already found as deleted, continue to allocate a new value slice
@@ -514,6 +627,523 @@ class InternalOakHash<K, V> extends InternalOakBasics<K, V> {
         throw new RuntimeException("putIfAbsentComputeIfPresent failed: reached retry limit (1024).");
     }
 
+    /*-------------- Batch Methods --------------*/
+    // The chunk of a key is found directly by its hash, so a batch saves the context of each key
+
+    // resets the context for its next key, including the cached key hash
+    private static void resetContext(ThreadContext ctx) {
+        ctx.invalidate();
+        ctx.operationKeyHash = EntryHashSet.INVALID_KEY_HASH;
+    }
+
+    private static void checkBatchResults(Collection<?> keys, Object[] values) {
+        if (values.length < keys.size()) {
+            throw new IllegalArgumentException("The results array is shorter than the batch of keys");
+        }
+    }
+
+    // the non-ZC variation of the batch get, the i-th value (or null) is set to values[i]
+    <T> void multiGetTransformation(List<? extends K> keys, T[] values, OakTransformer<T> transformer) {
+        if (keys == null || values == null || transformer == null) {
+            throw new NullPointerException();
+        }
+        checkBatchResults(keys, values);
+
+        ThreadContext ctx = getThreadContext();
+        int i = 0;
+        for (K key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            resetContext(ctx);
+            values[i++] = getValueTransformation(ctx, key, transformer);
+        }
+    }
+
+    // the zero-copy version of the batch get
+    void multiGet(List<? extends K> keys, OakUnscopedBuffer[] values) {
+        if (keys == null || values == null) {
+            throw new NullPointerException();
+        }
+        checkBatchResults(keys, values);
+
+        ThreadContext ctx = getThreadContext();
+        int i = 0;
+        for (K key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            resetContext(ctx);
+            values[i++] = keyLookUp(ctx, key) == null ? null : getValueUnscopedBuffer(ctx);
+        }
+    }
+
+    void putAll(Map<? extends K, ? extends V> m) {
+        if (m == null) {
+            throw new NullPointerException();
+        }
+
+        ThreadContext ctx = getThreadContext();
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) {
+                throw new NullPointerException();
+            }
+            resetContext(ctx);
+            put(ctx, e.getKey(), e.getValue(), null);
+        }
+    }
+
+    // returns true if any of the keys was removed
+    boolean removeAll(Collection<? extends K> keys) {
+        if (keys == null) {
+            throw new NullPointerException();
+        }
+
+        ThreadContext ctx = getThreadContext();
+        boolean removed = false;
+        for (K key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            resetContext(ctx);
+            if (remove(ctx, key, null, null).operationResult == ValueUtils.ValueResult.TRUE) {
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /*-------------- Iterators --------------*/
+    // The entries are iterated chunk by chunk, in the order of the hash array indices that refer to the chunks.
+    // The iteration of a range of indices visits the chunks whose first index is in the range, so the iterations
+    // of disjoint ranges visit disjoint chunks.
+
+    abstract class Iter<T> implements Iterator<T> {
+
+        /* the range [fromIndex, toIndex) of the hash array indices to iterate */
+        private int arrayIndex;
+        private final int toIndex;
+
+        /* the chunk and the entry index of the next entry to return from next(), chunk is null at the end */
+        private HashChunk<K, V> chunk;
+        private int entryIndex;
+
+        /**
+         * An iterator cannot be accesses concurrently by multiple threads.
+         * Thus, it is safe to have its own thread context.
+         */
+        protected final ThreadContext ctx;
+
+        Iter(int fromIndex, int toIndex) {
+            this.arrayIndex = fromIndex - 1;
+            this.toIndex = toIndex;
+            this.ctx = new ThreadContext(keysMemoryManager, valuesMemoryManager);
+            this.chunk = nextChunk();
+            this.entryIndex = -1;
+            advanceState();
+        }
+
+        public final boolean hasNext() {
+            return chunk != null;
+        }
+
+        // the actual next()
+        public abstract T next();
+
+        private boolean isFirstIndexOfChunk(int index) {
+            return index == 0 || hashArray.getChunk(index - 1) != hashArray.getChunk(index);
+        }
+
+        private HashChunk<K, V> nextChunk() {
+            for (arrayIndex++; arrayIndex < toIndex; arrayIndex++) {
+                if (isFirstIndexOfChunk(arrayIndex)) {
+                    return hashArray.getChunk(arrayIndex);
+                }
+            }
+            return null;
+        }
+
+        // moves to the next entry that has a value, the value may still be deleted before it is read
+        private void advanceState() {
+            int ei = entryIndex + 1;
+            while (chunk != null) {
+                for (; ei < chunk.getMaxItems(); ei++) {
+                    if (chunk.isValueRefValidAndNotDeleted(ei)) {
+                        entryIndex = ei;
+                        return;
+                    }
+                }
+                chunk = nextChunk();
+                ei = 0;
+            }
+        }
+
+        /**
+         * Reads the next entry into the context of the iterator, and advances to the following entry.
+         * If {@code needsValue == false}, then the key of a deleted entry may be read.
+         */
+        void advance(boolean needsValue) {
+            boolean validState = false;
+
+            while (!validState) {
+                if (chunk == null) {
+                    throw new NoSuchElementException();
+                }
+                resetContext(ctx);
+                ctx.initEntryContext(entryIndex);
+                chunk.readKey(ctx);
+                // the entry could be deleted and its key released since advanceState() checked it
+                validState = ctx.isKeyValid();
+                if (validState && needsValue) {
+                    // if value is deleted ctx.entryState is going to be invalid
+                    chunk.readValue(ctx);
+                    validState = ctx.isValueValid();
+                }
+                advanceState();
+            }
+        }
+
+        /**
+         * Reads the next entry into the given buffers without creating new buffers, and advances to the following
+         * entry.
+         */
+        void advanceStream(UnscopedBuffer<KeyBuffer> key, UnscopedBuffer<ValueBuffer> value) {
+            assert key != null || value != null;
+
+            boolean validState = false;
+
+            while (!validState) {
+                if (chunk == null) {
+                    throw new NoSuchElementException();
+                }
+                validState = true;
+                if (key != null) {
+                    validState = chunk.readKeyFromEntryIndex(key.getInternalScopedReadBuffer(), entryIndex);
+                }
+                if (validState && value != null) {
+                    // If the current value is deleted, then advance and try again
+                    validState = chunk.readValueFromEntryIndex(value.getInternalScopedReadBuffer(), entryIndex);
+                }
+                advanceState();
+            }
+        }
+    }
+
+    class ValueIterator extends Iter<OakUnscopedBuffer> {
+
+        ValueIterator(int fromIndex, int toIndex) {
+            super(fromIndex, toIndex);
+        }
+
+        @Override
+        public OakUnscopedBuffer next() {
+            advance(true);
+            return getValueUnscopedBuffer(ctx);
+        }
+    }
+
+    class ValueStreamIterator extends Iter<OakUnscopedBuffer> {
+
+        private final UnscopedBuffer<ValueBuffer> value =
+            new UnscopedBuffer<>(new ValueBuffer(valuesMemoryManager.getEmptySlice()));
+
+        ValueStreamIterator(int fromIndex, int toIndex) {
+            super(fromIndex, toIndex);
+        }
+
+        @Override
+        public OakUnscopedBuffer next() {
+            advanceStream(null, value);
+            return value;
+        }
+    }
+
+    class ValueTransformIterator<T> extends Iter<T> {
+
+        final OakTransformer<T> transformer;
+
+        ValueTransformIterator(int fromIndex, int toIndex, OakTransformer<T> transformer) {
+            super(fromIndex, toIndex);
+            this.transformer = transformer;
+        }
+
+        public T next() {
+            advance(true);
+            Result res = valueOperator.transform(ctx.result, ctx.value, transformer);
+            // If this value is deleted, try the next one
+            if (res.operationResult == ValueUtils.ValueResult.FALSE) {
+                return next();
+            } else if (res.operationResult == ValueUtils.ValueResult.RETRY) {
+                // if the value was moved, fetch it from its new position
+                T result = getValueTransformation(keySerializer.deserialize(ctx.key), transformer);
+                if (result == null) {
+                    // the value was deleted, try the next one
+                    return next();
+                }
+                return result;
+            }
+            return (T) res.value;
+        }
+    }
+
+    class EntryIterator extends Iter<Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer>> {
+
+        EntryIterator(int fromIndex, int toIndex) {
+            super(fromIndex, toIndex);
+        }
+
+        public Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer> next() {
+            advance(true);
+            return new AbstractMap.SimpleImmutableEntry<>(getKeyUnscopedBuffer(ctx), getValueUnscopedBuffer(ctx));
+        }
+    }
+
+    class EntryStreamIterator extends Iter<Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer>>
+        implements Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer> {
+
+        private final UnscopedBuffer<KeyBuffer> key =
+            new UnscopedBuffer<>(new KeyBuffer(keysMemoryManager.getEmptySlice()));
+        private final UnscopedBuffer<ValueBuffer> value =
+            new UnscopedBuffer<>(new ValueBuffer(valuesMemoryManager.getEmptySlice()));
+
+        EntryStreamIterator(int fromIndex, int toIndex) {
+            super(fromIndex, toIndex);
+        }
+
+        public Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer> next() {
+            advanceStream(key, value);
+            return this;
+        }
+
+        @Override
+        public OakUnscopedBuffer getKey() {
+            return key;
+        }
+
+        @Override
+        public OakUnscopedBuffer getValue() {
+            return value;
+        }
+
+        @Override
+        public OakUnscopedBuffer setValue(OakUnscopedBuffer value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    class EntryTransformIterator<T> extends Iter<T> {
+
+        final Function<Map.Entry<OakScopedReadBuffer, OakScopedReadBuffer>, T> transformer;
+
+        EntryTransformIterator(int fromIndex, int toIndex,
+                               Function<Map.Entry<OakScopedReadBuffer, OakScopedReadBuffer>, T> transformer) {
+            super(fromIndex, toIndex);
+            assert (transformer != null);
+            this.transformer = transformer;
+        }
+
+        public T next() {
+            advance(true);
+            ValueUtils.ValueResult res = ctx.value.s.lockRead();
+            if (res == ValueUtils.ValueResult.FALSE) {
+                return next();
+            } else if (res == ValueUtils.ValueResult.RETRY) {
+                do {
+                    boolean isSuccessful = refreshValuePosition(ctx);
+                    if (!isSuccessful) {
+                        return next();
+                    }
+                    res = ctx.value.s.lockRead();
+                } while (res != ValueUtils.ValueResult.TRUE);
+            }
+
+            Map.Entry<OakScopedReadBuffer, OakScopedReadBuffer> entry =
+                new AbstractMap.SimpleEntry<>(ctx.key, ctx.value);
+
+            T transformation = transformer.apply(entry);
+            ctx.value.s.unlockRead();
+            return transformation;
+        }
+    }
+
+    // May return deleted keys
+    class KeyIterator extends Iter<OakUnscopedBuffer> {
+
+        KeyIterator(int fromIndex, int toIndex) {
+            super(fromIndex, toIndex);
+        }
+
+        @Override
+        public OakUnscopedBuffer next() {
+            advance(false);
+            return getKeyUnscopedBuffer(ctx);
+        }
+    }
+
+    class KeyStreamIterator extends Iter<OakUnscopedBuffer> {
+
+        private final UnscopedBuffer<KeyBuffer> key =
+            new UnscopedBuffer<>(new KeyBuffer(keysMemoryManager.getEmptySlice()));
+
+        KeyStreamIterator(int fromIndex, int toIndex) {
+            super(fromIndex, toIndex);
+        }
+
+        @Override
+        public OakUnscopedBuffer next() {
+            advanceStream(key, null);
+            return key;
+        }
+    }
+
+    class KeyTransformIterator<T> extends Iter<T> {
+
+        final OakTransformer<T> transformer;
+
+        KeyTransformIterator(int fromIndex, int toIndex, OakTransformer<T> transformer) {
+            super(fromIndex, toIndex);
+            this.transformer = transformer;
+        }
+
+        public T next() {
+            advance(false);
+            return transformer.apply(ctx.key);
+        }
+    }
+
+    // Factory methods for iterators of a range of the hash array indices
+
+    Iterator<OakUnscopedBuffer> valuesBufferViewIterator(int fromIndex, int toIndex) {
+        return new ValueIterator(fromIndex, toIndex);
+    }
+
+    Iterator<Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer>> entriesBufferViewIterator(int fromIndex, int toIndex) {
+        return new EntryIterator(fromIndex, toIndex);
+    }
+
+    Iterator<OakUnscopedBuffer> keysBufferViewIterator(int fromIndex, int toIndex) {
+        return new KeyIterator(fromIndex, toIndex);
+    }
+
+    Iterator<OakUnscopedBuffer> valuesStreamIterator(int fromIndex, int toIndex) {
+        return new ValueStreamIterator(fromIndex, toIndex);
+    }
+
+    Iterator<Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer>> entriesStreamIterator(int fromIndex, int toIndex) {
+        return new EntryStreamIterator(fromIndex, toIndex);
+    }
+
+    Iterator<OakUnscopedBuffer> keysStreamIterator(int fromIndex, int toIndex) {
+        return new KeyStreamIterator(fromIndex, toIndex);
+    }
+
+    <T> Iterator<T> valuesTransformIterator(int fromIndex, int toIndex, OakTransformer<T> transformer) {
+        return new ValueTransformIterator<>(fromIndex, toIndex, transformer);
+    }
+
+    <T> Iterator<T> entriesTransformIterator(int fromIndex, int toIndex,
+        Function<Map.Entry<OakScopedReadBuffer, OakScopedReadBuffer>, T> transformer) {
+        return new EntryTransformIterator<>(fromIndex, toIndex, transformer);
+    }
+
+    <T> Iterator<T> keysTransformIterator(int fromIndex, int toIndex, OakTransformer<T> transformer) {
+        return new KeyTransformIterator<>(fromIndex, toIndex, transformer);
+    }
+
+    /*-------------- Spliterators --------------*/
+
+    /**
+     * Creates an iterator over a range of the hash array indices, as the factory methods above do.
+     */
+    @FunctionalInterface
+    interface IndexRangeIteratorFactory<T> {
+        Iterator<T> create(int fromIndex, int toIndex);
+    }
+
+    // an iterator over the whole map
+    <T> Iterator<T> iterator(IndexRangeIteratorFactory<T> iterators) {
+        return iterators.create(0, hashArray.length());
+    }
+
+    /**
+     * A spliterator over a range of the hash array indices, which is split in the middle of the range.
+     * The elements are traversed by an iterator of the range, thus they have the same consistency guarantees
+     * as the iterators. Once the traversal starts, the range is not split anymore.
+     */
+    final class IndexRangeSpliterator<T> implements Spliterator<T> {
+        private int fromIndex;
+        private final int toIndex;
+        private final IndexRangeIteratorFactory<T> iterators;
+        private final int characteristics;
+        // the estimated number of elements, which is halved by each split
+        private long estimatedSize;
+        private Iterator<T> iterator = null;
+
+        private IndexRangeSpliterator(int fromIndex, int toIndex, IndexRangeIteratorFactory<T> iterators,
+                                      int characteristics, long estimatedSize) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.iterators = iterators;
+            this.characteristics = characteristics;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            if (iterator == null) {
+                iterator = iterators.create(fromIndex, toIndex);
+            }
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            T next;
+            try {
+                next = iterator.next();
+            } catch (NoSuchElementException e) {
+                // the remaining entries of the range were removed after hasNext()
+                return false;
+            }
+            action.accept(next);
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (iterator != null || toIndex - fromIndex < 2) {
+                return null;
+            }
+            int middle = (fromIndex + toIndex) >>> 1;
+            estimatedSize >>>= 1;
+            Spliterator<T> prefix = new IndexRangeSpliterator<>(fromIndex, middle, iterators, characteristics,
+                estimatedSize);
+            fromIndex = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimatedSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+    }
+
+    /**
+     * @param iterators       creates the iterators of the parts of the hash array
+     * @param characteristics the characteristics of the spliterator (see Spliterator.characteristics())
+     * @return a spliterator over the whole map
+     */
+    <T> Spliterator<T> spliterator(IndexRangeIteratorFactory<T> iterators, int characteristics) {
+        return new IndexRangeSpliterator<>(0, hashArray.length(), iterators, characteristics,
+            Math.max(size.get(), 0));
+    }
+
     void printSummaryDebug() {
         hashArray.printSummaryDebug();
     }
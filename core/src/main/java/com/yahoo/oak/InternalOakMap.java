@@ -7,15 +7,22 @@
 package com.yahoo.oak;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -35,6 +42,19 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
     // his map can be closed and memory released.
     private final AtomicInteger referenceCount = new AtomicInteger(1);
     private final ValueUtils valueOperator;
+    // whether a new key and its value are allocated in a single off-heap cut (see OakMapBuilder)
+    private final boolean colocateKeysAndValues;
+    // Serialize the threads adding the same new chunk to the index (see updateIndexAndNormalize()).
+    // Striped locks are used rather than the chunks' monitors, so a waiting virtual thread does not pin
+    // its carrier thread, and the chunks do not need a lock each.
+    private static final int INDEX_LOCK_STRIPES = 64;
+    // a bulk load fills the chunks as a rebalance does (see Rebalancer)
+    private static final double BULK_LOAD_FILL_PART = 0.5;
+    // a range of a bulk load is split only if it fills a few chunks
+    private static final int BULK_LOAD_MIN_CHUNKS_TO_SPLIT = 4;
+    private static final String BULK_LOAD_UNSORTED_MESSAGE =
+            "The keys of a bulk load must be in a strictly ascending order";
+    private final ReentrantLock[] indexLocks = new ReentrantLock[INDEX_LOCK_STRIPES];
 
     /*-------------- Constructors --------------*/
 
@@ -44,13 +64,20 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
 
     InternalOakMap(K minKey, OakSerializer<K> keySerializer, OakSerializer<V> valueSerializer,
         OakComparator<K> oakComparator, MemoryManager vMM, MemoryManager kMM, int chunkMaxItems,
-        ValueUtils valueOperator) {
+        ValueUtils valueOperator, boolean colocateKeysAndValues, boolean keyPrefixes,
+        OffHeapEntriesAllocator offHeapEntriesAllocator) {
 
         super(vMM, kMM);
+        for (int i = 0; i < INDEX_LOCK_STRIPES; i++) {
+            indexLocks[i] = new ReentrantLock();
+        }
         this.valuesMemoryManager = vMM;
         this.keysMemoryManager = kMM;
         this.keySerializer = keySerializer;
         this.valueSerializer = valueSerializer;
+        // only keys and values of the same allocator can share a cut
+        this.colocateKeysAndValues = colocateKeysAndValues
+                && kMM.getBlockMemoryAllocator() == vMM.getBlockMemoryAllocator();
 
         this.comparator = oakComparator;
 
@@ -76,7 +103,7 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
 
         OrderedChunk<K, V>
             head = new OrderedChunk<>(minKey, chunkMaxItems, this.size, vMM, kMM, this.comparator,
-                keySerializer, valueSerializer);
+                keySerializer, valueSerializer, keyPrefixes, offHeapEntriesAllocator);
         this.skiplist.put(head.minKey, head);    // add first orderedChunk (head) into skiplist
         this.head = new AtomicReference<>(head);
         this.valueOperator = valueOperator;
@@ -147,7 +174,15 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         if (c == null) {
             return;
         }
-        Rebalancer<K, V> rebalancer = new Rebalancer<>(c);
+        rebalance(new Rebalancer<>(c));
+    }
+
+    /**
+     * @param rebalancer - a new rebalancer, whose first chunk is to be rebalanced
+     * @return the rebalancer that rebalanced the first chunk, which is a different rebalancer if it already
+     * engaged the first chunk
+     */
+    private Rebalancer<K, V> rebalance(Rebalancer<K, V> rebalancer) {
 
         rebalancer = rebalancer.engageChunks(); // maybe we encountered a different rebalancer
 
@@ -157,9 +192,9 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         rebalancer.freeze();
 
         ThreadContext ctx = getThreadContext();
-        rebalancer.createNewChunks(ctx); // split or compact
         // if returned true then this thread was responsible for the creation of the new chunks
         // and it inserted the put
+        boolean createdNewChunks = rebalancer.createNewChunks(ctx); // split or compact
 
         // lists may be generated by another thread
         List<OrderedChunk<K, V>> newOrderedChunks = rebalancer.getNewChunks();
@@ -170,6 +205,35 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         updateIndexAndNormalize(engaged, newOrderedChunks);
 
         engaged.forEach(OrderedChunk::release);
+
+        if (createdNewChunks) {
+            // the keys relocated by the compaction are no longer referenced by the map
+            rebalancer.retireRelocatedKeys();
+        }
+        return rebalancer;
+    }
+
+    /*-------------- Compaction --------------*/
+    /**
+     * Traverses the chunks twice: first relocates the values, then rebalances the chunks whose keys (or minKey)
+     * reside on evacuated blocks, so the rebalance relocates the keys as well.
+     */
+    @Override
+    protected void relocateEvacuated(ThreadContext ctx) {
+        for (OrderedChunk<K, V> c = head.get(); c != null; c = c.next.getReference()) {
+            if (c.state() == BasicChunk.State.NORMAL) {
+                relocateEvacuatedValues(c, ctx, valueOperator);
+            }
+        }
+        if (!keysMemoryManager.getBlockMemoryAllocator().hasEvacuatingBlocks()) {
+            return;
+        }
+        // a rebalanced chunk is still linked to the chunks that follow it
+        for (OrderedChunk<K, V> c = head.get(); c != null; c = c.next.getReference()) {
+            if (c.state() == BasicChunk.State.NORMAL && c.hasEvacuatingKeys(ctx.tempKey)) {
+                rebalance(c);
+            }
+        }
     }
 
     private void connectToChunkList(List<OrderedChunk<K, V>> engaged, List<OrderedChunk<K, V>> children) {
@@ -239,6 +303,10 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         lastChild.next.compareAndSet(null, nextToLast, false, false);
     }
 
+    private ReentrantLock getIndexLock(OrderedChunk<K, V> c) {
+        return indexLocks[System.identityHashCode(c) & (INDEX_LOCK_STRIPES - 1)];
+    }
+
     private void updateIndexAndNormalize(
         List<OrderedChunk<K, V>> engagedOrderedChunks, List<OrderedChunk<K, V>> children) {
 
@@ -248,8 +316,23 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         OrderedChunk<K, V> firstEngaged = iterEngaged.next();
         OrderedChunk<K, V> firstChild = iterChildren.next();
 
-        // need to make the new chunks available, before removing old chunks
-        skiplist.replace(firstEngaged.minKey, firstEngaged, firstChild);
+        if (firstChild.minKey.getSlice().getReference() == firstEngaged.minKey.getSlice().getReference()) {
+            // need to make the new chunks available, before removing old chunks
+            skiplist.replace(firstEngaged.minKey, firstEngaged, firstChild);
+        } else {
+            // The minKey was relocated by the compaction, so the index key is replaced as well.
+            // Meanwhile, the range is found via the previous chunk (the first chunk is never relocated).
+            ReentrantLock firstChildLock = getIndexLock(firstChild);
+            firstChildLock.lock();
+            try {
+                if (firstChild.state() == BasicChunk.State.INFANT) { // make sure it wasn't add before
+                    skiplist.remove(firstEngaged.minKey, firstEngaged);
+                    skiplist.putIfAbsent(firstChild.minKey, firstChild);
+                }
+            } finally {
+                firstChildLock.unlock();
+            }
+        }
 
         // remove all old chunks from index.
         while (iterEngaged.hasNext()) {
@@ -261,12 +344,16 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         // can be implemented without locks using versions on next pointer in skiplist
         while (iterChildren.hasNext()) {
             OrderedChunk<K, V> childToAdd = iterChildren.next();
-            synchronized (childToAdd) {
+            ReentrantLock childLock = getIndexLock(childToAdd);
+            childLock.lock();
+            try {
                 if (childToAdd.state() == BasicChunk.State.INFANT) { // make sure it wasn't add before
                     skiplist.putIfAbsent(childToAdd.minKey, childToAdd);
                     childToAdd.normalize();
                 }
                 // has a built in fence, so no need to add one here
+            } finally {
+                childLock.unlock();
             }
         }
 
@@ -274,17 +361,27 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         firstChild.normalize();
     }
 
-    // returns false when restart is needed
+    // Allocates a new entry for the key and the new value of ctx, returns false when restart is needed
     // (if rebalance happened or another valid entry with same key was found)
-    private boolean allocateAndLinkEntry(OrderedChunk c, ThreadContext ctx, K key, boolean isPutIfAbsent) {
+    private boolean allocateAndLinkEntry(OrderedChunk<K, V> c, ThreadContext ctx, K key, V value,
+                                         boolean isPutIfAbsent) {
+        return allocateAndLinkEntry(c, ctx, key, value, isPutIfAbsent, OrderedChunk.NONE_NEXT);
+    }
+
+    // the linking of the entry may start from the given entry of the chunk (see OrderedChunk.lookUp())
+    private boolean allocateAndLinkEntry(OrderedChunk<K, V> c, ThreadContext ctx, K key, V value,
+                                         boolean isPutIfAbsent, int hintEntryIndex) {
         // There was no such key found, going to allocate a new key.
         // EntryOrderedSet allocates the entry (holding the key) and ctx is going to be updated
         // to be used by EntryOrderedSet's subsequent requests to write value
-        if (!c.allocateEntryAndWriteKey(ctx, key)) {
+        boolean allocated = colocateKeysAndValues
+                ? c.allocateEntryAndWriteKeyAndValue(ctx, key, value)
+                : c.allocateEntryAndWriteKey(ctx, key);
+        if (!allocated) {
             rebalance(c); // there was no space to allocate new entry, need to rebalance
             return false;     // after rebalance always restart
         }
-        int prevEi = c.linkEntry(ctx, key);
+        int prevEi = c.linkEntry(ctx, key, hintEntryIndex);
         if (prevEi != ctx.entryIndex) {
             if (!isPutIfAbsent) {
                 // our entry wasn't inserted because other entry with same key was found.
@@ -293,6 +390,7 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
                 // its value is invalid.
                 c.releaseKey(ctx);
                 if (!c.isValueRefValidAndNotDeleted(prevEi)) {
+                    releaseColocatedValue(c, ctx);
                     return false;
                 }
                 // We use an existing entry only if its value reference is invalid
@@ -310,13 +408,24 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
                     // If exists a matching value reference for the given key,
                     // and it isn't marked deleted, returning here false will cause the restart
                     // so the new value will be found and processed
+                    releaseColocatedValue(c, ctx);
                     return false;
                 }
             }
         }
+        if (!colocateKeysAndValues) {
+            c.allocateValue(ctx, value, false); // write value in place
+        }
         return true;
     }
 
+    // The value allocated together with the key was never linked, it is released before a restart
+    private void releaseColocatedValue(OrderedChunk<K, V> c, ThreadContext ctx) {
+        if (colocateKeysAndValues) {
+            c.releaseNewValue(ctx);
+        }
+    }
+
     /*-------------- OakMap Methods --------------*/
 
     // put the value assosiated with the key, if key existed old value is overwritten
@@ -326,11 +435,13 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
             throw new NullPointerException();
         }
 
-        ThreadContext ctx = getThreadContext();
+        return put(getThreadContext(), null, key, value, transformer);
+    }
 
+    // the finger is given by a batch (see BatchFinger), otherwise it is null
+    private V put(ThreadContext ctx, BatchFinger<K, V> finger, K key, V value, OakTransformer<V> transformer) {
         for (int i = 0; i < MAX_RETRIES; i++) {
-            OrderedChunk<K, V> c = findChunk(key); // find orderedChunk matching key
-            c.lookUp(ctx, key);
+            OrderedChunk<K, V> c = findAndLookUp(ctx, key, finger);
             // If there is a matching value reference for the given key, and it is not marked as deleted,
             // then this put changes the slice pointed by this value reference.
             if (ctx.isValueValid()) {
@@ -354,13 +465,14 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
             // (1) Key wasn't found (key and value not valid)
             // (2) Key was found and it's value is deleted/invalid (key valid value invalid)
             if (!ctx.isKeyValid()) {
-                if (!allocateAndLinkEntry(c, ctx, key, false)) {
+                int hintEntryIndex = finger == null ? OrderedChunk.NONE_NEXT : finger.entryIndex;
+                if (!allocateAndLinkEntry(c, ctx, key, value, false, hintEntryIndex)) {
                     continue; // allocation wasn't successfull and resulted in rebalance - retry
                 }
+            } else {
+                c.allocateValue(ctx, value, false); // write value in place
             }
 
-            c.allocateValue(ctx, value, false); // write value in place
-
             if (!c.publish()) {
                 c.releaseNewValue(ctx);
                 rebalance(c);
@@ -412,15 +524,15 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
             // (1) Key wasn't found (key and value not valid)
             // (2) Key was found and it's value is deleted/invalid (key valid value invalid)
             if (!ctx.isKeyValid()) {
-                if (!allocateAndLinkEntry(c, ctx, key, true)) {
+                if (!allocateAndLinkEntry(c, ctx, key, value, true)) {
                     // allocation wasn't successful and resulted in rebalance,
                     // or retry is needed for other reason - retry
                     continue;
                 }
+            } else {
+                c.allocateValue(ctx, value, false); // write value in place
             }
 
-            c.allocateValue(ctx, value, false); // write value in place
-
             if (!c.publish()) {
                 c.releaseNewValue(ctx);
                 rebalance(c);
@@ -456,12 +568,14 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
             // If there is a matching value reference for the given key, and it is not marked as deleted,
             // then apply compute on the existing value
             if (ctx.isValueValid()) {
-                ValueUtils.ValueResult res = valueOperator.compute(ctx.value, computer);
+                ValueUtils.ValueResult res = valueOperator.compute(c, ctx, computer);
                 if (res == ValueUtils.ValueResult.TRUE) {
                     // compute was successful and the value wasn't found deleted; in case
                     // this value was already found as deleted, continue to allocate a new value slice
                     return false;
                 } else if (res == ValueUtils.ValueResult.RETRY) {
+                    // it might be that this chunk is proceeding with rebalance -> help
+                    helpRebalanceIfInProgress(c);
                     continue;
                 }
             }
@@ -474,13 +588,13 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
             // (1) Key wasn't found (key and value not valid)
             // (2) Key was found and it's value is deleted/invalid (key valid value invalid)
             if (!ctx.isKeyValid()) {
-                if (!allocateAndLinkEntry(c, ctx, key, false)) {
+                if (!allocateAndLinkEntry(c, ctx, key, value, false)) {
                     continue;
                 }
+            } else {
+                c.allocateValue(ctx, value, false); // write value in place
             }
 
-            c.allocateValue(ctx, value, false); // write value in place
-
             if (!c.publish()) {
                 c.releaseNewValue(ctx);
                 rebalance(c);
@@ -500,22 +614,106 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         throw new RuntimeException("putIfAbsentComputeIfPresent failed: reached retry limit (1024).");
     }
 
+    // replace the value of the key with the result of the function, which is given a view of the current value
+    // (null if the key is absent); if the result is null the key is removed (or remains absent).
+    // An existing value is write locked while the function is applied, so the function is applied again only if
+    // the value was moved or deleted meanwhile, or if the key was concurrently inserted after it was found absent.
+    // return the result of the function, which is the new value
+    V compute(K key, Function<OakScopedReadBuffer, ? extends V> function) {
+        if (key == null || function == null) {
+            throw new NullPointerException();
+        }
+
+        ThreadContext ctx = getThreadContext();
+
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            OrderedChunk<K, V> c = findChunk(key); // find orderedChunk matching key
+            c.lookUp(ctx, key);
+            // If there is a matching value reference for the given key, and it is not marked as deleted,
+            // then apply the function on the existing value
+            if (ctx.isValueValid()) {
+                Result res = valueOperator.compute(c, ctx, function, valueSerializer);
+                if (res.operationResult == ValueUtils.ValueResult.RETRY) {
+                    // it might be that this chunk is proceeding with rebalance -> help
+                    helpRebalanceIfInProgress(c);
+                    continue;
+                } else if (res.operationResult == ValueUtils.ValueResult.FALSE) {
+                    // the value was deleted meanwhile, look up the key again to insert a new value
+                    continue;
+                }
+                V newValue = (V) res.value;
+                if (newValue == null) {
+                    // the value was marked deleted off-heap by this thread,
+                    // continue to set the entry's value reference as deleted
+                    ctx.entryState = EntryArray.EntryState.DELETED_NOT_FINALIZED;
+                    // if a rebalance is in progress, it completes the deletion
+                    if (!inTheMiddleOfRebalance(c)) {
+                        finalizeDeletion(c, ctx);
+                    }
+                }
+                return newValue;
+            }
+
+            if (isAfterRebalanceOrValueUpdate(c, ctx)) {
+                continue;
+            }
+
+            V value = function.apply(null);
+            if (value == null) {
+                return null;
+            }
+
+            // AT THIS POINT EITHER (in all cases context is updated):
+            // (1) Key wasn't found (key and value not valid)
+            // (2) Key was found and it's value is deleted/invalid (key valid value invalid)
+            if (!ctx.isKeyValid()) {
+                if (!allocateAndLinkEntry(c, ctx, key, value, true)) {
+                    // allocation wasn't successful and resulted in rebalance, or the key was inserted
+                    // meanwhile - retry
+                    continue;
+                }
+            } else {
+                c.allocateValue(ctx, value, false); // write value in place
+            }
+
+            if (!c.publish()) {
+                c.releaseNewValue(ctx);
+                rebalance(c);
+                continue;
+            }
+
+            if (c.linkValue(ctx) != ValueUtils.ValueResult.TRUE) {
+                c.releaseNewValue(ctx);
+                c.unpublish();
+            } else {
+                c.unpublish();
+                checkRebalance(c);
+                return value;
+            }
+        }
+
+        throw new RuntimeException("compute failed: reached retry limit (1024).");
+    }
+
     // if key exists, remove the key-value mapping from the map
     Result remove(K key, V oldValue, OakTransformer<V> transformer) {
         if (key == null) {
             throw new NullPointerException();
         }
 
+        return remove(getThreadContext(), null, key, oldValue, transformer);
+    }
+
+    // the finger is given by a batch (see BatchFinger), otherwise it is null
+    private Result remove(ThreadContext ctx, BatchFinger<K, V> finger, K key, V oldValue,
+                          OakTransformer<V> transformer) {
         // when logicallyDeleted is true, it means we have marked the value as deleted.
         // Note that the entry will remain linked until rebalance happens.
         boolean logicallyDeleted = false;
         V v = null;
 
-        ThreadContext ctx = getThreadContext();
-
         for (int i = 0; i < MAX_RETRIES; i++) {
-            OrderedChunk<K, V> c = findChunk(key); // find orderedChunk matching key
-            c.lookUp(ctx, key);
+            OrderedChunk<K, V> c = findAndLookUp(ctx, key, finger);
 
             if (!ctx.isKeyValid()) {
                 // There is no such key. If we did logical deletion and someone else did the physical deletion,
@@ -539,12 +737,14 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
                 // before we marked the value reference as deleted. We have the previous value saved in v.
                 return transformer == null ? ctx.result.withFlag(ValueUtils.ValueResult.TRUE) : ctx.result.withValue(v);
             } else {
-                Result removeResult = valueOperator.remove(ctx, oldValue, transformer);
+                Result removeResult = valueOperator.remove(c, ctx, oldValue, transformer);
                 if (removeResult.operationResult == ValueUtils.ValueResult.FALSE) {
                     // we didn't succeed to remove the value: it didn't contain oldValue, or was already marked
                     // as deleted by someone else)
                     return ctx.result.withFlag(ValueUtils.ValueResult.FALSE);
                 } else if (removeResult.operationResult == ValueUtils.ValueResult.RETRY) {
+                    // it might be that this chunk is proceeding with rebalance -> help
+                    helpRebalanceIfInProgress(c);
                     continue;
                 }
                 // we have marked this value as deleted (successful remove)
@@ -580,14 +780,15 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
             throw new NullPointerException();
         }
 
-        ThreadContext ctx = getThreadContext();
-        OrderedChunk<K, V> c = findChunk(key); // find orderedChunk matching key
-        c.lookUp(ctx, key);
+        return get(getThreadContext(), key, null);
+    }
+
+    private OakUnscopedBuffer get(ThreadContext ctx, K key, BatchFinger<K, V> finger) {
+        findAndLookUp(ctx, key, finger);
         if (!ctx.isValueValid()) {
             return null;
         }
         return getValueUnscopedBuffer(ctx);
-
     }
 
     // if key with a valid value exists in the map, apply compute function on the value
@@ -603,12 +804,14 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
             OrderedChunk<K, V> c = findChunk(key); // find orderedChunk matching key
             c.lookUp(ctx, key);
             if (ctx.isValueValid()) {
-                ValueUtils.ValueResult res = valueOperator.compute(ctx.value, computer);
+                ValueUtils.ValueResult res = valueOperator.compute(c, ctx, computer);
                 if (res == ValueUtils.ValueResult.TRUE) {
                     // compute was successful and the value wasn't found deleted; in case
                     // this value was already marked as deleted, continue to construct another slice
                     return true;
                 } else if (res == ValueUtils.ValueResult.RETRY) {
+                    // it might be that this chunk is proceeding with rebalance -> help
+                    helpRebalanceIfInProgress(c);
                     continue;
                 }
             }
@@ -645,11 +848,14 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
             throw new NullPointerException();
         }
 
-        ThreadContext ctx = getThreadContext();
+        return getValueTransformation(getThreadContext(), null, key, transformer);
+    }
 
+    // the finger is given by a batch (see BatchFinger), otherwise it is null
+    private <T> T getValueTransformation(ThreadContext ctx, BatchFinger<K, V> finger, K key,
+                                         OakTransformer<T> transformer) {
         for (int i = 0; i < MAX_RETRIES; i++) {
-            OrderedChunk<K, V> c = findChunk(key); // find orderedChunk matching key
-            c.lookUp(ctx, key);
+            findAndLookUp(ctx, key, finger);
             if (!ctx.isValueValid()) {
                 return null;
             }
@@ -685,50 +891,13 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         return isAllocated ? getKeyUnscopedBuffer(ctx) : null;
     }
 
-    <T> T getMinKeyTransformation(OakTransformer<T> transformer) {
-        if (transformer == null) {
-            throw new NullPointerException();
-        }
-
-        OrderedChunk<K, V> c = skiplist.firstEntry().getValue();
-        ThreadContext ctx = getThreadContext();
-        boolean isAllocated = c.readMinKey(ctx.tempKey);
-        return isAllocated ? transformer.apply(ctx.tempKey) : null;
-    }
-
     OakUnscopedBuffer getMaxKey() {
-        OrderedChunk<K, V> c = skiplist.lastEntry().getValue();
-        OrderedChunk<K, V> next = c.next.getReference();
-        // since skiplist isn't updated atomically in split/compaction, the max key might belong in
-        // the next orderedChunk we need to iterate the chunks until we find the last one
-        while (next != null) {
-            c = next;
-            next = c.next.getReference();
-        }
-
+        OrderedChunk<K, V> c = lastChunk();
         ThreadContext ctx = getThreadContext();
         boolean isAllocated = c.readMaxKey(ctx.key);
         return isAllocated ? getKeyUnscopedBuffer(ctx) : null;
     }
 
-    <T> T getMaxKeyTransformation(OakTransformer<T> transformer) {
-        if (transformer == null) {
-            throw new NullPointerException();
-        }
-
-        OrderedChunk<K, V> c = skiplist.lastEntry().getValue();
-        OrderedChunk<K, V> next = c.next.getReference();
-        // since skiplist isn't updated atomically in split/compaction, the max key might belong in
-        // the next orderedChunk we need to iterate the chunks until we find the last one
-        while (next != null) {
-            c = next;
-            next = c.next.getReference();
-        }
-        ThreadContext ctx = getThreadContext();
-        boolean isAllocated = c.readMaxKey(ctx.tempKey);
-        return isAllocated ? transformer.apply(ctx.tempKey) : null;
-    }
-
     // encapsulates finding of the orderedChunk in the skip list and later orderedChunk list traversal
     private OrderedChunk<K, V> findChunk(K key) {
         OrderedChunk<K, V> c = skiplist.floorEntry(key).getValue();
@@ -781,47 +950,598 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         throw new RuntimeException("replace failed: reached retry limit (1024).");
     }
 
-    Map.Entry<K, V> lowerEntry(K key) {
-        Map.Entry<Object, OrderedChunk<K, V>> lowerChunkEntry = skiplist.lowerEntry(key);
-        if (lowerChunkEntry == null) {
-            /* we were looking for the minimal key */
-            return new AbstractMap.SimpleImmutableEntry<>(null, null);
+    /*-------------- Batch Methods --------------*/
+
+    /**
+     * The position of a batch in the map: the orderedChunk of its last key, and the entry of that key
+     * (or of a lower key of the batch) in the orderedChunk. When the keys of the batch are ascending,
+     * a key mostly resides on the same orderedChunk or on the one right after it, and its search within
+     * the orderedChunk starts from the entry of the finger (see OrderedChunk.lookUp()).
+     */
+    private static final class BatchFinger<K, V> {
+        private OrderedChunk<K, V> chunk = null;
+        private int entryIndex = OrderedChunk.NONE_NEXT;
+
+        private void moveTo(OrderedChunk<K, V> c) {
+            if (c != chunk) {
+                chunk = c;
+                entryIndex = OrderedChunk.NONE_NEXT;
+            }
         }
 
+        // keeps the entry of the last key of the batch, if the key was found (or inserted) in the orderedChunk
+        private void update(ThreadContext ctx) {
+            if (ctx.isKeyValid()) {
+                entryIndex = ctx.entryIndex;
+            }
+        }
+    }
+
+    /**
+     * Finds the orderedChunk of the key, starting from the orderedChunk of the finger.
+     * The skiplist is descended only when the key is not on the orderedChunk of the finger or on the next one.
+     */
+    private OrderedChunk<K, V> findChunk(K key, OrderedChunk<K, V> finger) {
+        if (finger == null || finger.state() != BasicChunk.State.NORMAL
+            || comparator.compareKeyAndSerializedKey(key, finger.minKey) < 0) {
+            return findChunk(key);
+        }
+        OrderedChunk<K, V> next = finger.next.getReference();
+        if (next == null || comparator.compareKeyAndSerializedKey(key, next.minKey) < 0) {
+            return finger;
+        }
+        if (next.state() == BasicChunk.State.NORMAL) {
+            OrderedChunk<K, V> afterNext = next.next.getReference();
+            if (afterNext == null || comparator.compareKeyAndSerializedKey(key, afterNext.minKey) < 0) {
+                return next;
+            }
+        }
+        return findChunk(key);
+    }
+
+    // finds the orderedChunk matching the key and looks the key up in it, from the finger of a batch (if any)
+    private OrderedChunk<K, V> findAndLookUp(ThreadContext ctx, K key, BatchFinger<K, V> finger) {
+        if (finger == null) {
+            OrderedChunk<K, V> c = findChunk(key);
+            c.lookUp(ctx, key);
+            return c;
+        }
+        finger.moveTo(findChunk(key, finger.chunk));
+        finger.chunk.lookUp(ctx, key, finger.entryIndex);
+        return finger.chunk;
+    }
+
+    private static void checkBatchResults(Collection<?> keys, Object[] values) {
+        if (values.length < keys.size()) {
+            throw new IllegalArgumentException("The results array is shorter than the batch of keys");
+        }
+    }
+
+    // the non-ZC variation of the batch get, the i-th value (or null) is set to values[i]
+    <T> void multiGetTransformation(List<? extends K> keys, T[] values, OakTransformer<T> transformer) {
+        if (keys == null || values == null || transformer == null) {
+            throw new NullPointerException();
+        }
+        checkBatchResults(keys, values);
+
         ThreadContext ctx = getThreadContext();
+        BatchFinger<K, V> finger = new BatchFinger<>();
+        int i = 0;
+        for (K key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            ctx.invalidate();
+            values[i++] = getValueTransformation(ctx, finger, key, transformer);
+            finger.update(ctx);
+        }
+    }
 
-        OrderedChunk<K, V> c = lowerChunkEntry.getValue();
-        /* Iterate orderedChunk to find prev(key), no upper limit */
-        OrderedChunk.AscendingIter chunkIter = c.ascendingIter(ctx, null, false, null);
-        int prevIndex = chunkIter.next(ctx);
+    // the zero-copy version of the batch get
+    void multiGet(List<? extends K> keys, OakUnscopedBuffer[] values) {
+        if (keys == null || values == null) {
+            throw new NullPointerException();
+        }
+        checkBatchResults(keys, values);
 
-        while (chunkIter.hasNext()) {
-            int nextIndex = chunkIter.next(ctx);
-            if (c.compareKeyAndEntryIndex(ctx.tempKey, key, nextIndex) <= 0) {
+        ThreadContext ctx = getThreadContext();
+        BatchFinger<K, V> finger = new BatchFinger<>();
+        int i = 0;
+        for (K key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            ctx.invalidate();
+            values[i++] = get(ctx, key, finger);
+            finger.update(ctx);
+        }
+    }
+
+    void putAll(Map<? extends K, ? extends V> m) {
+        if (m == null) {
+            throw new NullPointerException();
+        }
+
+        ThreadContext ctx = getThreadContext();
+        BatchFinger<K, V> finger = new BatchFinger<>();
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) {
+                throw new NullPointerException();
+            }
+            ctx.invalidate();
+            put(ctx, finger, e.getKey(), e.getValue(), null);
+            finger.update(ctx);
+        }
+    }
+
+    // returns true if any of the keys was removed
+    boolean removeAll(Collection<? extends K> keys) {
+        if (keys == null) {
+            throw new NullPointerException();
+        }
+
+        ThreadContext ctx = getThreadContext();
+        BatchFinger<K, V> finger = new BatchFinger<>();
+        boolean removed = false;
+        for (K key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            ctx.invalidate();
+            if (remove(ctx, finger, key, null, null).operationResult == ValueUtils.ValueResult.TRUE) {
+                removed = true;
+            }
+            finger.update(ctx);
+        }
+        return removed;
+    }
+
+    /*-------------- Range Deletion --------------*/
+
+    /**
+     * Removes all the keys of the range. The chunks whose keys are all in the range are dropped by a rebalance,
+     * which replaces each run of consecutive dropped chunks by a single empty chunk, and their values
+     * are then released at once. The keys of the chunks at the boundaries of the range are removed one by one.
+     * A null bound stands for an unbounded side of the range.
+     */
+    void removeRange(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+        validateBoundariesOrder(lo, hi);
+
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            OrderedChunk<K, V> c = findFirstDroppedChunk(lo, loInclusive, hi);
+            if (c == null) {
                 break;
             }
-            prevIndex = nextIndex;
+            if (inTheMiddleOfRebalance(c)) {
+                continue;
+            }
+            Rebalancer<K, V> rebalancer = rebalance(new Rebalancer<>(c, candidate -> isChunkBelow(candidate, hi)));
+            // a different rebalancer might have engaged the chunk
+            if (rebalancer.isDropping() && rebalancer.claimDroppedEntries()) {
+                releaseDroppedChunks(rebalancer.getEngagedChunks());
+            }
+        }
+
+        // the remaining keys of the range (mostly, those of the boundary chunks)
+        ThreadContext ctx = getThreadContext();
+        BatchFinger<K, V> finger = new BatchFinger<>();
+        Iterator<K> keys = new KeyTransformIterator<>(lo, loInclusive, hi, hiInclusive, false,
+                keySerializer::deserialize);
+        while (keys.hasNext()) {
+            K key = keys.next();
+            ctx.invalidate();
+            remove(ctx, finger, key, null, null);
+            finger.update(ctx);
+        }
+    }
+
+    /**
+     * @return the first non-empty chunk whose keys are all in the range, or null if there is no such chunk
+     */
+    private OrderedChunk<K, V> findFirstDroppedChunk(K lo, boolean loInclusive, K hi) {
+        Map.Entry<Object, OrderedChunk<K, V>> entry;
+        if (lo == null) {
+            entry = skiplist.firstEntry();
+        } else {
+            entry = loInclusive ? skiplist.ceilingEntry(lo) : skiplist.higherEntry(lo);
+        }
+        OrderedChunk<K, V> c = entry != null ? entry.getValue() : null;
+        // the empty chunks are skipped, among them those that replaced the chunks that were already dropped
+        while (c != null && isChunkBelow(c, hi)) {
+            if (c.getFirstItemEntryIndex() != OrderedChunk.NONE_NEXT) {
+                return c;
+            }
+            c = c.next.getReference();
+        }
+        return null;
+    }
+
+    // whether all the keys of the chunk are below the given key (where a null key is above all the keys)
+    private boolean isChunkBelow(OrderedChunk<K, V> c, K key) {
+        if (key == null) {
+            return true;
+        }
+        OrderedChunk<K, V> next = c.next.getReference();
+        return next != null && comparator.compareKeyAndSerializedKey(key, next.minKey) >= 0;
+    }
+
+    // The chunks were replaced in the list and in the index, so their entries are no longer referenced by the map.
+    // Only their values are released (see OrderedChunk.releaseDroppedValues()).
+    private void releaseDroppedChunks(List<OrderedChunk<K, V>> dropped) {
+        ThreadContext ctx = getThreadContext();
+        for (OrderedChunk<K, V> c : dropped) {
+            c.releaseDroppedValues(ctx, valueOperator);
+        }
+    }
+
+    /*-------------- Bulk Load --------------*/
+
+    /**
+     * The chunks loaded from a consecutive range of the entries of a bulk load, in the order of their keys,
+     * and the first and last keys of the range (null if the range is empty).
+     */
+    private static final class BulkLoadSegment<K, V> {
+        private final List<OrderedChunk<K, V>> chunks = new ArrayList<>();
+        private K firstKey = null;
+        private K lastKey = null;
+    }
+
+    /**
+     * Loads a range of the entries of a bulk load. The range is split to sub-ranges, which are loaded
+     * in parallel, as long as each of them fills a few chunks.
+     */
+    private final class BulkLoadTask extends RecursiveTask<BulkLoadSegment<K, V>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Spliterator<? extends Map.Entry<? extends K, ? extends V>> entries;
+        private final int chunkFill;
+        // whether the range is the first range of the bulk load, which is loaded to the head chunk
+        private final boolean first;
+
+        private BulkLoadTask(Spliterator<? extends Map.Entry<? extends K, ? extends V>> entries,
+                             int chunkFill, boolean first) {
+            this.entries = entries;
+            this.chunkFill = chunkFill;
+            this.first = first;
+        }
+
+        @Override
+        protected BulkLoadSegment<K, V> compute() {
+            Spliterator<? extends Map.Entry<? extends K, ? extends V>> prefix =
+                entries.estimateSize() > (long) chunkFill * BULK_LOAD_MIN_CHUNKS_TO_SPLIT ? entries.trySplit() : null;
+            if (prefix == null) {
+                return loadSegment(entries, chunkFill, first);
+            }
+            BulkLoadTask suffixTask = new BulkLoadTask(entries, chunkFill, false);
+            suffixTask.fork();
+            BulkLoadSegment<K, V> segment;
+            try {
+                segment = new BulkLoadTask(prefix, chunkFill, first).compute();
+            } catch (RuntimeException | Error e) {
+                // the map is closed once the load fails, so the suffix must not be loaded to it meanwhile
+                suffixTask.cancel(false);
+                suffixTask.quietlyJoin();
+                throw e;
+            }
+            return concatSegments(segment, suffixTask.join());
+        }
+    }
+
+    /**
+     * Loads the entries to this map, which must be empty and not yet accessed by other threads.
+     * The entries must be sorted in a strictly ascending order of their keys. Thus, each entry is appended
+     * to the last chunk (see OrderedChunk.appendBulkLoadedEntry()), with no search, and all the entries of
+     * the chunks are sorted. The chunks are filled as a rebalance fills the new chunks, leaving room for
+     * later insertions, and are linked and added to the skiplist in a single pass.
+     *
+     * @param entries  the entries to load
+     * @param parallel whether to load ranges of the entries in parallel, as far as the entries split
+     *                 (see Spliterator.trySplit()), by the common fork/join pool
+     * @throws IllegalArgumentException if the keys are not in a strictly ascending order
+     */
+    void bulkLoad(Spliterator<? extends Map.Entry<? extends K, ? extends V>> entries, boolean parallel) {
+        if (entries == null) {
+            throw new NullPointerException();
+        }
+        OrderedChunk<K, V> first = head.get();
+        assert first.getNumOfBulkLoadedEntries() == 0 && first.next.getReference() == null;
+
+        int chunkFill = Math.max(1, (int) (first.getMaxItems() * BULK_LOAD_FILL_PART));
+        BulkLoadSegment<K, V> segment = parallel
+            ? ForkJoinPool.commonPool().invoke(new BulkLoadTask(entries, chunkFill, true))
+            : loadSegment(entries, chunkFill, true);
+
+        OrderedChunk<K, V> prev = null;
+        for (OrderedChunk<K, V> c : segment.chunks) {
+            c.completeBulkLoad();
+            if (prev != null) {
+                prev.next.set(c, false);
+                skiplist.put(c.minKey, c);
+            }
+            prev = c;
+        }
+    }
+
+    // loads the entries of a range to new chunks, the first range starts with the head chunk
+    private BulkLoadSegment<K, V> loadSegment(Spliterator<? extends Map.Entry<? extends K, ? extends V>> entries,
+                                              int chunkFill, boolean first) {
+        ThreadContext ctx = getThreadContext();
+        BulkLoadSegment<K, V> segment = new BulkLoadSegment<>();
+        if (first) {
+            segment.chunks.add(head.get());
+        }
+        entries.forEachRemaining(e -> {
+            K key = e.getKey();
+            V value = e.getValue();
+            if (key == null || value == null) {
+                throw new NullPointerException();
+            }
+            if (segment.lastKey == null) {
+                segment.firstKey = key;
+            } else if (comparator.compareKeys(segment.lastKey, key) >= 0) {
+                throw new IllegalArgumentException(BULK_LOAD_UNSORTED_MESSAGE);
+            }
+            segment.lastKey = key;
+
+            int numOfChunks = segment.chunks.size();
+            OrderedChunk<K, V> c = numOfChunks == 0 ? null : segment.chunks.get(numOfChunks - 1);
+            if (c == null || c.getNumOfBulkLoadedEntries() >= chunkFill) {
+                c = head.get().createBulkLoadChunk(key);
+                segment.chunks.add(c);
+            }
+            boolean appended = c.appendBulkLoadedEntry(ctx, key, value, colocateKeysAndValues);
+            assert appended;
+        });
+        return segment;
+    }
+
+    // the entries of the suffix follow the entries of the prefix
+    private BulkLoadSegment<K, V> concatSegments(BulkLoadSegment<K, V> prefix, BulkLoadSegment<K, V> suffix) {
+        if (suffix.lastKey == null) {
+            return prefix;
+        }
+        if (prefix.lastKey == null) {
+            prefix.firstKey = suffix.firstKey;
+        } else if (comparator.compareKeys(prefix.lastKey, suffix.firstKey) >= 0) {
+            throw new IllegalArgumentException(BULK_LOAD_UNSORTED_MESSAGE);
+        }
+        prefix.chunks.addAll(suffix.chunks);
+        prefix.lastKey = suffix.lastKey;
+        return prefix;
+    }
+
+    /*-------------- Navigation --------------*/
+
+    // the last chunk in the list, which might not be in the skiplist yet
+    private OrderedChunk<K, V> lastChunk() {
+        OrderedChunk<K, V> c = skiplist.lastEntry().getValue();
+        OrderedChunk<K, V> next = c.next.getReference();
+        // since skiplist isn't updated atomically in split/compaction, the max key might belong in
+        // the next orderedChunk we need to iterate the chunks until we find the last one
+        while (next != null) {
+            c = next;
+            next = c.next.getReference();
+        }
+        return c;
+    }
+
+    /**
+     * Reads the key and the value of the given entry into the context.
+     * If the value was deleted meanwhile, helps to complete its deletion, so the entry is skipped when the
+     * search is retried.
+     *
+     * @return true if the value is valid
+     */
+    private boolean readNavigatedEntry(OrderedChunk<K, V> c, ThreadContext ctx, int ei) {
+        ctx.invalidate();
+        ctx.initEntryContext(ei);
+        c.readKey(ctx);
+        c.readValue(ctx);
+        if (ctx.isValueValid()) {
+            return true;
+        }
+        if (!inTheMiddleOfRebalance(c)) {
+            finalizeDeletion(c, ctx);
+        }
+        return false;
+    }
+
+    /**
+     * Finds the chunk preceding the given chunk in the chunks list.
+     * Since the skiplist isn't updated atomically in split/compaction, the chunk found in the skiplist might be
+     * followed by other chunks that precede the given chunk, so we iterate to the last one of them
+     * (as in {@code iterateChunks()}).
+     *
+     * @return the preceding chunk, or null if the given chunk is the first one
+     */
+    private OrderedChunk<K, V> lowerChunk(OrderedChunk<K, V> c) {
+        Map.Entry<Object, OrderedChunk<K, V>> lowerChunkEntry = skiplist.lowerEntry(c.minKey);
+        if (lowerChunkEntry == null) {
+            return null;
+        }
+        OrderedChunk<K, V> prev = lowerChunkEntry.getValue();
+        OrderedChunk<K, V> next = prev.next.getReference();
+        while (next != null && next != c && comparator.compareSerializedKeys(next.minKey, c.minKey) < 0) {
+            prev = next;
+            next = prev.next.getReference();
+        }
+        return prev;
+    }
+
+    /**
+     * Finds the entry with the greatest key lower than the given key (or equal to it, if {@code inclusive}),
+     * and updates the context with its key and value. Each chunk is searched from its sorted prefix
+     * (see {@code OrderedChunk.floorEntryIndex()}), and the preceding chunks are found through the skiplist.
+     *
+     * @param key the key to navigate from, or null to find the greatest key in the map
+     * @return the chunk of the found entry, or null if there is no such entry
+     */
+    private OrderedChunk<K, V> findFloorEntry(ThreadContext ctx, K key, boolean inclusive) {
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            OrderedChunk<K, V> c = (key == null) ? lastChunk() : findChunk(key);
+            int ei = c.floorEntryIndex(ctx.tempKey, key, inclusive);
+            while (ei == OrderedChunk.NONE_NEXT) {
+                c = lowerChunk(c);
+                if (c == null) {
+                    return null;
+                }
+                // all the keys of the preceding chunks are lower than the key
+                ei = c.floorEntryIndex(ctx.tempKey, null, false);
+            }
+            if (readNavigatedEntry(c, ctx, ei)) {
+                return c;
+            }
         }
 
-        /* Edge case: we're looking for the lowest key in the map and it's still greater than minkey
-            (in which  case prevKey == key) */
-        if (c.compareKeyAndEntryIndex(ctx.tempKey, key, prevIndex) == 0) {
-            return new AbstractMap.SimpleImmutableEntry<>(null, null);
+        throw new RuntimeException("findFloorEntry failed: reached retry limit (1024).");
+    }
+
+    /**
+     * Finds the entry with the least key greater than the given key (or equal to it, if {@code inclusive}),
+     * and updates the context with its key and value. Each chunk is searched from its sorted prefix
+     * (see {@code OrderedChunk.ceilingEntryIndex()}), and the following chunks are found through the chunks list.
+     *
+     * @param key the key to navigate from, or null to find the least key in the map
+     * @return the chunk of the found entry, or null if there is no such entry
+     */
+    private OrderedChunk<K, V> findCeilingEntry(ThreadContext ctx, K key, boolean inclusive) {
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            OrderedChunk<K, V> c = (key == null) ? skiplist.firstEntry().getValue() : findChunk(key);
+            int ei = c.ceilingEntryIndex(ctx.tempKey, key, inclusive);
+            while (ei == OrderedChunk.NONE_NEXT) {
+                c = c.next.getReference();
+                if (c == null) {
+                    return null;
+                }
+                // all the keys of the following chunks are greater than the key
+                ei = c.ceilingEntryIndex(ctx.tempKey, null, false);
+            }
+            if (readNavigatedEntry(c, ctx, ei)) {
+                return c;
+            }
         }
-        // ctx.tempKey was updated with prevIndex key as a side effect of compareKeyAndEntryIndex()
-        K keyDeserialized = keySerializer.deserialize(ctx.tempKey);
 
-        // get value associated with this (prev) key
-        boolean isAllocated = c.readValueFromEntryIndex(ctx.value, prevIndex);
-        if (!isAllocated) { // value reference was invalid, try again
-            return lowerEntry(key);
+        throw new RuntimeException("findCeilingEntry failed: reached retry limit (1024).");
+    }
+
+    private OrderedChunk<K, V> findNavigatedEntry(ThreadContext ctx, K key, boolean lower, boolean inclusive) {
+        return lower ? findFloorEntry(ctx, key, inclusive) : findCeilingEntry(ctx, key, inclusive);
+    }
+
+    /**
+     * Navigates from the given key and applies the transformer on the key of the found entry.
+     *
+     * @param key       the key to navigate from, or null to find the least (or greatest, if lower) key in the map
+     * @param lower     whether to find a lower key (floor/lower/last) or a greater key (ceiling/higher/first)
+     * @param inclusive whether the given key itself can be found
+     * @return the transformation of the found key, or null if there is no such key
+     */
+    <T> T navigateKeyTransformation(K key, boolean lower, boolean inclusive, OakTransformer<T> transformer) {
+        if (transformer == null) {
+            throw new NullPointerException();
         }
-        Result valueDeserialized = valueOperator.transform(ctx.result, ctx.value,
-                valueSerializer::deserialize);
-        if (valueDeserialized.operationResult != ValueUtils.ValueResult.TRUE) {
-            return lowerEntry(key);
+
+        ThreadContext ctx = getThreadContext();
+        if (findNavigatedEntry(ctx, key, lower, inclusive) == null) {
+            return null;
         }
-        return new AbstractMap.SimpleImmutableEntry<>(keyDeserialized, (V) valueDeserialized.value);
+        return transformer.apply(ctx.key);
+    }
+
+    /**
+     * The zero-copy version of {@code navigateKeyTransformation()}.
+     */
+    OakUnscopedBuffer navigateKey(K key, boolean lower, boolean inclusive) {
+        ThreadContext ctx = getThreadContext();
+        if (findNavigatedEntry(ctx, key, lower, inclusive) == null) {
+            return null;
+        }
+        return getKeyUnscopedBuffer(ctx);
+    }
+
+    /**
+     * Navigates from the given key (see {@code navigateKeyTransformation()}) and applies the transformer on the
+     * found entry, while its value is read locked.
+     *
+     * @return the transformation of the found entry, or null if there is no such entry
+     */
+    <T> T navigateEntryTransformation(K key, boolean lower, boolean inclusive,
+        Function<Map.Entry<OakScopedReadBuffer, OakScopedReadBuffer>, T> transformer) {
+        if (transformer == null) {
+            throw new NullPointerException();
+        }
+
+        ThreadContext ctx = getThreadContext();
+
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            if (findNavigatedEntry(ctx, key, lower, inclusive) == null) {
+                return null;
+            }
+            // the value might be deleted or moved after it was found, then the navigation is retried
+            if (ctx.value.s.lockRead() != ValueUtils.ValueResult.TRUE) {
+                continue;
+            }
+            try {
+                return transformer.apply(new AbstractMap.SimpleImmutableEntry<>(ctx.key, ctx.value));
+            } finally {
+                ctx.value.s.unlockRead();
+            }
+        }
+
+        throw new RuntimeException("navigateEntryTransformation failed: reached retry limit (1024).");
+    }
+
+    /**
+     * The zero-copy version of {@code navigateEntryTransformation()}.
+     */
+    Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer> navigateEntry(K key, boolean lower, boolean inclusive) {
+        ThreadContext ctx = getThreadContext();
+        if (findNavigatedEntry(ctx, key, lower, inclusive) == null) {
+            return null;
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(getKeyUnscopedBuffer(ctx), getValueUnscopedBuffer(ctx));
+    }
+
+    /**
+     * Atomically removes the entry with the least (or greatest, if {@code last}) key in the map.
+     * The entry is found as in {@code firstEntry()}/{@code lastEntry()}, and is removed only if its value was not
+     * removed meanwhile (otherwise the search is retried). Thus, each entry is returned by a single poll, even
+     * when the map is concurrently polled and updated.
+     *
+     * @return the removed entry, or null if the map is empty
+     */
+    Map.Entry<K, V> pollEntry(boolean last) {
+        ThreadContext ctx = getThreadContext();
+
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            OrderedChunk<K, V> c = findNavigatedEntry(ctx, null, last, false);
+            if (c == null) {
+                return null;
+            }
+
+            Result removeResult = valueOperator.remove(c, ctx, null, valueSerializer::deserialize);
+            if (removeResult.operationResult == ValueUtils.ValueResult.FALSE) {
+                // the value was removed by another thread, find the new first (or last) entry
+                continue;
+            } else if (removeResult.operationResult == ValueUtils.ValueResult.RETRY) {
+                // it might be that this chunk is proceeding with rebalance -> help
+                helpRebalanceIfInProgress(c);
+                continue;
+            }
+
+            // AT THIS POINT the value was marked deleted off-heap by this thread (the LP),
+            // the key can still be read, as the entry is not yet removed
+            V v = (V) removeResult.value;
+            K k = keySerializer.deserialize(ctx.key);
+            ctx.entryState = EntryArray.EntryState.DELETED_NOT_FINALIZED;
+            // if a rebalance is in progress, it completes the deletion
+            if (!inTheMiddleOfRebalance(c)) {
+                finalizeDeletion(c, ctx);
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(k, v);
+        }
+
+        throw new RuntimeException("pollEntry failed: reached retry limit (1024).");
     }
 
     /*-------------- Iterators --------------*/
@@ -1408,4 +2128,171 @@ class InternalOakMap<K, V>  extends InternalOakBasics<K, V> {
         return new KeyTransformIterator<>(lo, loInclusive, hi, hiInclusive, isDescending, transformer);
     }
 
+
+    /*-------------- Spliterators --------------*/
+
+    /**
+     * Creates an iterator over a range of the map, as the factory methods of the iterators above do.
+     */
+    @FunctionalInterface
+    interface RangeIteratorFactory<K, T> {
+        Iterator<T> create(K lo, boolean loInclusive, K hi, boolean hiInclusive, boolean isDescending);
+    }
+
+    /**
+     * A spliterator over a range of the map. The range is split at the minKey of an orderedChunk in its middle,
+     * which is found through the skiplist, so each part covers whole orderedChunks. The elements are traversed
+     * by an iterator of the range, thus they have the same consistency guarantees as the iterators.
+     * Once the traversal starts, the range is not split anymore.
+     */
+    final class RangeSpliterator<T> implements Spliterator<T> {
+        private K lo;
+        private boolean loInclusive;
+        private K hi;
+        private boolean hiInclusive;
+        private final boolean isDescending;
+        private final RangeIteratorFactory<K, T> iterators;
+        private final int characteristics;
+        private final Comparator<? super T> elementsComparator;
+        // the estimated number of elements, which is halved by each split
+        private long estimatedSize;
+        // the number of orderedChunks starting inside the range, counted by the first split and halved by each
+        // split, -1 if not counted yet. It is only a hint, as orderedChunks may be split or merged concurrently.
+        private int numOfChunks = -1;
+        private Iterator<T> iterator = null;
+
+        private RangeSpliterator(K lo, boolean loInclusive, K hi, boolean hiInclusive, boolean isDescending,
+                                 RangeIteratorFactory<K, T> iterators, int characteristics,
+                                 Comparator<? super T> elementsComparator, long estimatedSize) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.isDescending = isDescending;
+            this.iterators = iterators;
+            this.characteristics = characteristics;
+            this.elementsComparator = elementsComparator;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            if (iterator == null) {
+                iterator = iterators.create(lo, loInclusive, hi, hiInclusive, isDescending);
+            }
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            T next;
+            try {
+                next = iterator.next();
+            } catch (NoSuchElementException e) {
+                // the remaining entries of the range were removed after hasNext()
+                return false;
+            }
+            action.accept(next);
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (iterator != null) {
+                return null;
+            }
+            Object splitMinKey = findSplitKey();
+            if (splitMinKey == null) {
+                return null;
+            }
+            K splitKey = keySerializer.deserialize((KeyBuffer) splitMinKey);
+            estimatedSize >>>= 1;
+            // the orderedChunk starting at the split key belongs to the upper part, but is not counted in it,
+            // since its minKey is the lower bound of that part
+            int lowerChunks = numOfChunks / 2;
+            int upperChunks = Math.max(numOfChunks - lowerChunks - 1, 0);
+            RangeSpliterator<T> prefix;
+            if (!isDescending) {
+                prefix = new RangeSpliterator<>(lo, loInclusive, splitKey, false, false,
+                    iterators, characteristics, elementsComparator, estimatedSize);
+                prefix.numOfChunks = lowerChunks;
+                numOfChunks = upperChunks;
+                lo = splitKey;
+                loInclusive = true;
+            } else {
+                // the upper part of the range is traversed first
+                prefix = new RangeSpliterator<>(splitKey, true, hi, hiInclusive, true,
+                    iterators, characteristics, elementsComparator, estimatedSize);
+                prefix.numOfChunks = upperChunks;
+                numOfChunks = lowerChunks;
+                hi = splitKey;
+                hiInclusive = false;
+            }
+            return prefix;
+        }
+
+        // the orderedChunks whose minKeys are inside the range, except for the first orderedChunk of the map,
+        // which starts at the minimal key of the map, so the range is never split at it
+        private NavigableMap<Object, OrderedChunk<K, V>> chunksInRange() {
+            NavigableMap<Object, OrderedChunk<K, V>> chunks = (lo != null)
+                ? skiplist.tailMap(lo, false) : skiplist.tailMap(skiplist.firstKey(), false);
+            return (hi != null) ? chunks.headMap(hi, false) : chunks;
+        }
+
+        // the minKey of the middle orderedChunk among the orderedChunks that start inside the range.
+        // The skiplist is walked only up to the middle of the range, once the number of its orderedChunks is known.
+        private Object findSplitKey() {
+            NavigableMap<Object, OrderedChunk<K, V>> chunks = chunksInRange();
+            if (numOfChunks < 0) {
+                numOfChunks = 0;
+                for (Iterator<Object> it = chunks.keySet().iterator(); it.hasNext(); it.next()) {
+                    numOfChunks++;
+                }
+            }
+            if (numOfChunks == 0) {
+                return null;
+            }
+            Object splitKey = null;
+            Iterator<Object> it = chunks.keySet().iterator();
+            for (int i = 0; i <= numOfChunks / 2 && it.hasNext(); i++) {
+                splitKey = it.next();
+            }
+            return splitKey;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimatedSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            if (!hasCharacteristics(Spliterator.SORTED)) {
+                throw new IllegalStateException();
+            }
+            return elementsComparator;
+        }
+    }
+
+    /**
+     * @param iterators       creates the iterators of the parts of the range
+     * @param characteristics the characteristics of the spliterator (see Spliterator.characteristics())
+     * @param comparator      the order of the elements if the spliterator is SORTED, otherwise null
+     * @return a spliterator over the given range of the map
+     */
+    <T> Spliterator<T> spliterator(K lo, boolean loInclusive, K hi, boolean hiInclusive, boolean isDescending,
+                                   RangeIteratorFactory<K, T> iterators, int characteristics,
+                                   Comparator<? super T> comparator) {
+        validateBoundariesOrder(lo, hi);
+        // the size of the whole map is an upper bound of the size of the range
+        return new RangeSpliterator<>(lo, loInclusive, hi, hiInclusive, isDescending, iterators, characteristics,
+            comparator, Math.max(size.get(), 0));
+    }
+
 }
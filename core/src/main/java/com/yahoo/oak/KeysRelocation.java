@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The keys relocated by a single attempt to create the new chunks of a rebalance, as they resided on blocks
+ * which are being evacuated by the compaction (see {@code NativeMemoryAllocator.compact()}).
+ * As a few threads may create the new chunks concurrently, only one attempt succeeds. This attempt retires
+ * the old keys once the new chunks replace the old ones, as threads that have read them from the old chunks
+ * might still read them (see {@code Slice.retire()}). The other attempts release their copies,
+ * which were never published.
+ * NOT THREAD SAFE, each attempt has its own instance.
+ */
+class KeysRelocation {
+    // the keys that are no longer referenced once the new chunks replace the old ones
+    private final List<Slice> oldKeys = new ArrayList<>();
+    // the copies of the keys, referenced only by the new chunks
+    private final List<Slice> copies = new ArrayList<>();
+
+    /**
+     * @param oldKey the relocated key (duplicated)
+     * @param copy   the copy of the key (duplicated), or null if the key was dropped (as its entry was deleted)
+     */
+    void add(Slice oldKey, Slice copy) {
+        oldKeys.add(oldKey);
+        if (copy != null) {
+            copies.add(copy);
+        }
+    }
+
+    // to be invoked if the attempt succeeded, after the new chunks replaced the old ones
+    void retireOldKeys() {
+        oldKeys.forEach(Slice::retire);
+        oldKeys.clear();
+        copies.clear();
+    }
+
+    // to be invoked if the attempt failed
+    void releaseCopies() {
+        copies.forEach(Slice::release);
+        oldKeys.clear();
+        copies.clear();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A provider of blocks that are backed by a memory mapped file, instead of the process' anonymous memory.
+ * Thus, the OS page cache can hold a map that is larger than the RAM, and the blocks can be placed on
+ * a fast local storage (e.g., NVMe or tmpfs).
+ * <p>
+ * Each provider creates a single (temporary) file in the given directory. The file is extended by a block
+ * size region for each new block, and each region is mapped separately. Blocks returned by a map (when it is
+ * closed) are reused by the next maps. Their memory is not zeroed, as Oak does not rely on zeroed memory.
+ * <p>
+ * The provider should be closed only after all the maps using it are closed. Closing unmaps all the blocks
+ * and deletes the file.
+ */
+public final class MappedFileBlocksProvider implements BlocksProvider, Closeable {
+
+    private static final String FILE_PREFIX = "oak-blocks-";
+    private static final String FILE_SUFFIX = ".mem";
+
+    private final int blockSizeBytes;
+    private final Path file;
+    private final FileChannel channel;
+    // blocks that were returned and can be reused
+    private final ConcurrentLinkedQueue<Block> blocks = new ConcurrentLinkedQueue<>();
+    // all the blocks mapped so far, guarded by lock (rather than a monitor, as mapping a block does I/O,
+    // which must not pin the carrier thread of a virtual thread)
+    private final List<MappedBlock> mappedBlocks = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean closed = false;
+
+    /**
+     * Creates a provider of blocks of the default size, backed by a new file in the given directory.
+     * @param directory the directory of the backing file
+     */
+    public MappedFileBlocksProvider(Path directory) throws IOException {
+        this(directory, BlocksPool.DEFAULT_BLOCK_SIZE_BYTES);
+    }
+
+    /**
+     * Creates a provider of blocks of the given size, backed by a new file in the given directory.
+     * @param directory the directory of the backing file
+     * @param blockSizeBytes the size of each block
+     */
+    public MappedFileBlocksProvider(Path directory, int blockSizeBytes) throws IOException {
+        if (blockSizeBytes <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.blockSizeBytes = blockSizeBytes;
+        this.file = Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public int blockSize() {
+        return blockSizeBytes;
+    }
+
+    /**
+     * Returns a single Block, maps a new region of the file if needed. Thread-safe.
+     */
+    @Override
+    public Block getBlock() {
+        Block b = blocks.poll();
+        return b != null ? b : mapNewBlock();
+    }
+
+    /**
+     * Returns a single Block to be reused.
+     * Assumes block is not used by any concurrent thread, otherwise thread-safe.
+     */
+    @Override
+    public void returnBlock(Block b) {
+        b.reset(false);
+        blocks.add(b);
+    }
+
+    /**
+     * Unmaps all the blocks and deletes the backing file.
+     * Must be called only when no map uses this provider anymore.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            blocks.clear();
+            for (MappedBlock b : mappedBlocks) {
+                b.clean();
+            }
+            mappedBlocks.clear();
+            channel.close();
+            Files.deleteIfExists(file);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // used only for testing
+    int numOfMappedBlocks() {
+        lock.lock();
+        try {
+            return mappedBlocks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Block mapNewBlock() {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The blocks provider is closed");
+            }
+            long position = (long) mappedBlocks.size() * blockSizeBytes;
+            MappedByteBuffer buffer;
+            try {
+                // mapping beyond the end of the file extends it, the new region is all zeroes
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, blockSizeBytes);
+            } catch (IOException e) {
+                throw new OakOutOfMemoryException(String.format("Failed to map a new block at %s", file), e);
+            }
+            MappedBlock b = new MappedBlock(buffer, blockSizeBytes);
+            mappedBlocks.add(b);
+            return b;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A block over a memory mapped region of the file
+    private static final class MappedBlock extends Block {
+        // keeps the mapping alive, as it is unmapped once the buffer is GCed
+        private final MappedByteBuffer buffer;
+
+        MappedBlock(MappedByteBuffer buffer, int capacity) {
+            super(DirectMemory.getAddress(buffer), capacity, true);
+            this.buffer = buffer;
+        }
+
+        // unmaps the region, instead of freeing the memory
+        @Override
+        void clean() {
+            DirectMemory.releaseBuffer(buffer);
+        }
+    }
+}
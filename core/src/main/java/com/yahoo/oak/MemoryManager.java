@@ -57,6 +57,16 @@ interface MemoryManager extends Closeable {
     // Multiple memory managers may have the same memory allocators
     BlockMemoryAllocator getBlockMemoryAllocator();
 
+    // Frees the slices released by the calling thread, which are still held aside
+    // (if the memory manager delays their reuse), without waiting for more slices to be released
+    void flushReleaseList();
+
+    // Returns the number of released slices which are held aside (see flushReleaseList()), and not yet freed
+    long pendingReleases();
+
+    // Returns the number of times the version of the released slices was increased, zero if there are no versions
+    long globalVersionBumps();
+
     // Used only for testing
     // returns the size of the header used in off-heap to keep Memory Manager's metadata
     @VisibleForTesting
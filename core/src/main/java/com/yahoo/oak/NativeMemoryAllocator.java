@@ -6,10 +6,23 @@
 
 package com.yahoo.oak;
 
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 class NativeMemoryAllocator implements BlockMemoryAllocator {
 
@@ -18,23 +31,60 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
     // This parameter may be tuned for performance vs off-heap memory utilization
     private static final int REUSE_MAX_MULTIPLIER = 2;
     public static final int INVALID_BLOCK_ID = 0;
+    // Thread local allocation buffers are not used by default
+    static final int NO_THREAD_LOCAL_BUFFERS = 0;
+    // By default, there is no soft limit, and writers never wait for memory to be released
+    static final double NO_SOFT_LIMIT = 0;
+    static final long NO_BLOCKING = 0;
+    private static final String SOFT_LIMIT_THREAD_NAME = "oak-memory-soft-limit";
 
-    // mapping IDs to blocks allocated solely to this Allocator
-    private Block[] blocksArray;
+    // mapping IDs to blocks allocated solely to this Allocator.
+    // The array is replaced by a bigger copy when the capacity grows (see setCapacity()), and its slots
+    // are written only while holding blocksLock.
+    private volatile Block[] blocksArray;
     private final AtomicInteger idGenerator = new AtomicInteger(1);
+    // the ids of the blocks returned to the provider by the compaction, reused by new blocks, guarded by blocksLock
+    private int[] releasedBlockIDs;
+    private volatile int numOfReleasedBlockIDs = 0;
 
-    // free list of Slices which can be reused.
-    // They are sorted by the slice length, then by the block id, then by their offset.
-    // See {@code Slice.compareTo(Slice)} for more information.
-    private final ConcurrentSkipListSet<BlockAllocationSlice> freeList = new ConcurrentSkipListSet<>();
+    // free list of off-heap cuts which can be reused.
+    // By default, they are segregated by their length into size classes, kept as primitives (no Slice object
+    // per cut), see {@code SizeClassFreeList}. Alternatively, {@code SplittingFreeList} also splits and merges them.
+    private final FreeList freeList;
+
+    // Objects larger than the block size are allocated on dedicated blocks (not taken from the provider),
+    // one object per block at offset zero. Thus, they are addressed exactly like any other cut.
+    // Released large objects are kept in their own free list, so their blocks are reused only by other
+    // large objects (as a whole, never split).
+    private final SizeClassFreeList largeObjectsFreeList = new SizeClassFreeList();
+    // the capacity consumed by the large object blocks beyond a regular block size each, guarded by this
+    private volatile long largeObjectsExtraBytes = 0;
+
+    // Compaction (see compact()): the cuts released on a block which is being evacuated are parked in
+    // this free list instead of being reused, so the block can be emptied.
+    // evacuationLock guards the evacuating flag changes of the blocks, together with drainedBlocks.
+    private final SizeClassFreeList evacuatedFreeList = new SizeClassFreeList();
+    private final ReentrantLock evacuationLock = new ReentrantLock();
+    // the blocks marked as evacuating by the last compaction pass, which were not emptied
+    private final List<Block> evacuatingBlocks = new ArrayList<>();
+    // the blocks emptied by the compaction, which are not returned to the provider yet
+    private final List<DrainedBlock> drainedBlocks = new ArrayList<>();
+    // the epoch taken by the operations (see getCompactionEpoch()), replaced whenever blocks are emptied
+    private volatile Epoch compactionEpoch = new Epoch();
+    private volatile boolean hasEvacuatingBlocks = false;
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    // Guards taking new blocks and returning blocks, so not many blocks are taken at once.
+    // Locks are used rather than monitors, so a waiting virtual thread does not pin its carrier thread.
+    private final ReentrantLock blocksLock = new ReentrantLock();
 
     private final BlocksProvider blocksProvider;
-    private Block currentBlock;
+    private volatile Block currentBlock;
 
     // the memory allocation limit for this Allocator
     // current capacity is set as number of blocks (!) allocated for this OakMap
     // can be changed to check only according to real allocation (allocated field)
-    private final long capacity;
+    // can be changed at runtime, see setCapacity()
+    private volatile long capacity;
 
     // number of bytes allocated for this Oak among different Blocks
     // can be calculated, but kept for easy access
@@ -43,6 +93,35 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
     // flag allowing not to close the same allocator twice
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
+    // Soft limit (see setSoftLimit()): once the allocated bytes exceed this ratio of the capacity,
+    // the listener is notified. It is notified again only after the allocated bytes drop below the soft limit.
+    private volatile double softLimitRatio = NO_SOFT_LIMIT;
+    private volatile long softLimitBytes = Long.MAX_VALUE;
+    private volatile OakMemoryListener softLimitListener = null;
+    private final AtomicBoolean softLimitExceeded = new AtomicBoolean(false);
+    // the listener is invoked on this thread, never on a writer (which may be in the middle of an operation)
+    private ExecutorService softLimitNotifier = null;
+
+    // Backpressure (see setMaxBlockingTime()): a writer which cannot allocate as the capacity is exhausted
+    // waits for memory to be released, up to this time, before OakOutOfMemoryException is thrown
+    private volatile long maxBlockingNanos = NO_BLOCKING;
+    private final AtomicInteger blockedWriters = new AtomicInteger(0);
+    // the blocked writers wait on this condition, memoryReleases is incremented under its lock
+    private final ReentrantLock memoryReleasedLock = new ReentrantLock();
+    private final Condition memoryReleased = memoryReleasedLock.newCondition();
+    private volatile long memoryReleases = 0;
+
+    // Thread local allocation buffers (TLABs): when enabled, each thread claims a region of this size
+    // from the current block and serves its (not larger) allocations from it, without any atomic operation.
+    // See {@code ThreadLocalBuffer} for more information.
+    private final int threadLocalBufferSize;
+    private final ThreadLocal<ThreadLocalBuffer> threadLocalBuffers = new ThreadLocal<>();
+    // all the buffers ever created, used to return the tails of buffers whose threads were terminated
+    private final ConcurrentLinkedQueue<ThreadLocalBuffer> threadLocalBuffersRegistry =
+            new ConcurrentLinkedQueue<>();
+    // incremented when the blocks are returned (on clear), so the existing buffers are no longer valid
+    private volatile int threadLocalBuffersEpoch = 0;
+
     // constructor
     // input param: memory capacity given to this Oak. Uses default BlocksPool
     NativeMemoryAllocator(long capacity) {
@@ -51,10 +130,29 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
 
     // A testable constructor
     NativeMemoryAllocator(long capacity, BlocksProvider blocksProvider) {
+        this(capacity, blocksProvider, NO_THREAD_LOCAL_BUFFERS);
+    }
+
+    // input param: the size of the per-thread allocation buffer, or NO_THREAD_LOCAL_BUFFERS to disable them
+    NativeMemoryAllocator(long capacity, BlocksProvider blocksProvider, int threadLocalBufferSize) {
+        this(capacity, blocksProvider, threadLocalBufferSize, new SizeClassFreeList());
+    }
+
+    // input param: the free list managing the released cuts of this allocator
+    NativeMemoryAllocator(long capacity, BlocksProvider blocksProvider, int threadLocalBufferSize,
+                          FreeList freeList) {
+        if (threadLocalBufferSize < 0 || threadLocalBufferSize > blocksProvider.blockSize()) {
+            throw new IllegalArgumentException(
+                    String.format("Thread local buffer size must be between 0 and the block size (block size: %s).",
+                            blocksProvider.blockSize()));
+        }
+        this.threadLocalBufferSize = threadLocalBufferSize;
+        this.freeList = freeList;
         this.blocksProvider = blocksProvider;
         int blockArraySize = ((int) (capacity / blocksProvider.blockSize())) + 1;
         // first entry of blocksArray is always empty
         this.blocksArray = new Block[blockArraySize + 1];
+        this.releasedBlockIDs = new int[blockArraySize + 1];
         // initially allocate one single block from pool
         // this may lazy initialize the pool and take time if this is the first call for the pool
         allocateNewCurrentBlock();
@@ -64,72 +162,278 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
     // Allocates an off-heap cut of the given size, either from freeList or (if it is still possible)
     // within current block bounds.
     // Otherwise, new block is allocated within Oak memory bounds. Thread safe.
+    // A cut larger than the block size is allocated on its own block (see largeObjectsFreeList).
+    // If the capacity is exhausted, the writer may wait for memory to be released (see setMaxBlockingTime()).
     // Given size already includes the size for metadata header if needed.
     // For our internal implementation what all Slices we work with extend the BlockAllocationSlice!
     @Override
     public boolean allocate(Slice sl, int size) {
         BlockAllocationSlice s = (BlockAllocationSlice) sl;
-        // While the free list is not empty there can be a suitable free slice to reuse.
-        // To search a free slice, we use the input slice as a dummy and change its length to the desired length.
-        // Then, we use freeList.higher(s) which returns a free slice with greater or equal length to the length of the
-        // dummy with time complexity of O(log N), where N is the number of free slices.
-        while (!freeList.isEmpty()) {
-            s.initializeLookupDummy(size);
-            BlockAllocationSlice bestFit = freeList.higher(s);
-            if (bestFit == null) {
-                break;
+        try {
+            tryAllocate(s, size);
+        } catch (OakOutOfMemoryException e) {
+            if (maxBlockingNanos == NO_BLOCKING) {
+                throw e;
             }
-            // If the best fit is more than REUSE_MAX_MULTIPLIER times as big than the desired length, than a new
-            // buffer is allocated instead of reusing.
-            // This means that currently buffers are not split, so there is some internal fragmentation.
-            if (bestFit.getAllocatedLength() > (REUSE_MAX_MULTIPLIER * size)) {
-                break;     // all remaining buffers are too big
+            allocateBlocking(s, size);
+        }
+        stats.allocate();
+        return true;
+    }
+
+    // Throws OakOutOfMemoryException if the capacity is exhausted
+    private void tryAllocate(BlockAllocationSlice s, int size) {
+        if (size > blocksProvider.blockSize()) {
+            allocateLargeObject(s, size);
+            return;
+        }
+        // Look for a free cut to reuse. Only free cuts of length <= size * REUSE_MAX_MULTIPLIER are recycled,
+        // as by default cuts are not split, so there is some internal fragmentation (a splitting free list
+        // ignores this limit).
+        // The free list returns the block id, the offset and the length of the cut, the address is set from the block.
+        // If multiple threads look at the same free cut only one can get it, as the removal is atomic.
+        int maxReuseLength = (int) Math.min((long) REUSE_MAX_MULTIPLIER * size, Integer.MAX_VALUE);
+        while (freeList.remove(s, size, maxReuseLength)) {
+            readMemoryAddress(s);
+            if (!claimCut(s)) {
+                // the cut's block is being evacuated, the cut was parked
+                continue;
             }
-            // If multiple threads got the same bestFit only one can use it (the one which succeeds in removing it
-            // from the free list).
-            // The rest restart the while loop.
-            if (freeList.remove(bestFit)) {
-                if (stats != null) {
-                    stats.reclaim(size);
+            stats.reclaim(size);
+            // account for the entire reused cut, as this is what free() will subtract later
+            addAllocated(s.getAllocatedLength());
+            return;
+        }
+
+        // freeList is empty or there is no suitable slice
+        if (size <= threadLocalBufferSize) {
+            allocateFromThreadLocalBuffer(s, size);
+        } else {
+            allocateFromCurrentBlock(s, size);
+        }
+        addAllocated(size);
+    }
+
+    // Retries the allocation whenever memory is released, until it succeeds or maxBlockingNanos elapse.
+    // The writer is counted as blocked before the first retry, so a release that happens after it failed
+    // is either seen by the retry, or signals the writer.
+    private void allocateBlocking(BlockAllocationSlice s, int size) {
+        long deadline = System.nanoTime() + maxBlockingNanos;
+        blockedWriters.incrementAndGet();
+        try {
+            while (true) {
+                long seenReleases = memoryReleases;
+                try {
+                    tryAllocate(s, size);
+                    return;
+                } catch (OakOutOfMemoryException e) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw e;
+                    }
+                    memoryReleasedLock.lock();
+                    try {
+                        if (memoryReleases == seenReleases) {
+                            memoryReleased.awaitNanos(remaining);
+                        }
+                    } finally {
+                        memoryReleasedLock.unlock();
+                    }
                 }
-                s.copyAllocationInfoFrom(bestFit);
-                allocated.addAndGet(size);
-                return true;
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OakOutOfMemoryException("Interrupted while waiting for memory to be released", e);
+        } finally {
+            blockedWriters.decrementAndGet();
         }
+    }
 
+    // Wakes up the writers waiting for memory, if there are any
+    private void signalMemoryReleased() {
+        if (blockedWriters.get() > 0) {
+            memoryReleasedLock.lock();
+            try {
+                memoryReleases++;
+                memoryReleased.signalAll();
+            } finally {
+                memoryReleasedLock.unlock();
+            }
+        }
+    }
+
+    // Accounts for newly allocated bytes, and notifies the listener when the soft limit is exceeded
+    private void addAllocated(long bytes) {
+        if (allocated.addAndGet(bytes) > softLimitBytes && softLimitExceeded.compareAndSet(false, true)) {
+            OakMemoryListener listener = softLimitListener;
+            long usedBytes = allocated.get();
+            long currentCapacity = capacity;
+            try {
+                softLimitNotifier.execute(() -> listener.onSoftLimitExceeded(usedBytes, currentCapacity));
+            } catch (RejectedExecutionException e) {
+                // the allocator is being closed
+            }
+        }
+    }
+
+    // Allocates an off-heap cut of the given size within current block bounds, moving to a new block if needed
+    private void allocateFromCurrentBlock(BlockAllocationSlice s, int size) {
         boolean isAllocated = false;
-        // freeList is empty or there is no suitable slice
         while (!isAllocated) {
             try {
-                // The ByteBuffer inside this slice is the thread's ByteBuffer
-                isAllocated = currentBlock.allocate(s, size);
+                // The ByteBuffer inside this slice is the thread's ByteBuffer.
+                // A block which is no longer the current one might have been marked for evacuation meanwhile.
+                isAllocated = currentBlock.allocate(s, size) && claimCut(s);
             } catch (OakOutOfMemoryException e) {
                 // there is no space in current block
-                // may be a buffer bigger than any block is requested?
-                if (size > blocksProvider.blockSize()) {
-                    throw new IllegalArgumentException(
-                            String.format("Cannot allocate larger items than the block size (block size: %s).",
-                                    blocksProvider.blockSize()));
-                }
                 // does allocation of new block brings us out of capacity?
-                if ((numberOfBlocks() + 1) * blocksProvider.blockSize() > capacity) {
+                if ((numberOfBlocks() + 1) * blocksProvider.blockSize() + largeObjectsExtraBytes > capacity) {
                     throw new OakOutOfMemoryException(
                             String.format("This allocator capacity was exceeded (capacity: %s).", capacity));
                 } else {
                     // going to allocate additional block (big chunk of memory)
                     // need to be thread-safe, so not many blocks are allocated
                     // locking is actually the most reasonable way of synchronization here
-                    synchronized (this) {
+                    blocksLock.lock();
+                    try {
                         if (currentBlock.allocatedWithPossibleDelta() + size > currentBlock.getCapacity()) {
                             allocateNewCurrentBlock();
                         }
+                    } finally {
+                        blocksLock.unlock();
                     }
                 }
             }
         }
-        allocated.addAndGet(size);
-        return true;
+    }
+
+    // Allocates an object larger than the block size, either by reusing a released large object's block,
+    // or on a new dedicated block
+    private void allocateLargeObject(BlockAllocationSlice s, int size) {
+        int maxReuseLength = (int) Math.min((long) REUSE_MAX_MULTIPLIER * size, Integer.MAX_VALUE);
+        if (largeObjectsFreeList.remove(s, size, maxReuseLength)) {
+            readMemoryAddress(s);
+            blocksArray[s.getAllocatedBlockID()].addLiveBytes(s.getAllocatedLength());
+            stats.reclaim(size);
+            addAllocated(s.getAllocatedLength());
+            return;
+        }
+        blocksLock.lock();
+        try {
+            long extraBytes = size - blocksProvider.blockSize();
+            if ((numberOfBlocks() + 1) * blocksProvider.blockSize() + largeObjectsExtraBytes + extraBytes
+                    > capacity) {
+                throw new OakOutOfMemoryException(
+                        String.format("This allocator capacity was exceeded (capacity: %s).", capacity));
+            }
+            // Oak does not rely on zeroed memory, so the (big) block is not zeroed
+            Block b = new Block(size, false);
+            addBlock(b);
+            largeObjectsExtraBytes += extraBytes;
+            b.allocate(s, size);
+            b.addLiveBytes(size);
+        } finally {
+            blocksLock.unlock();
+        }
+        addAllocated(size);
+    }
+
+    // Allocates an off-heap cut of the given size from the calling thread's buffer.
+    // When the buffer is exhausted, its tail is returned to the free list and a new region is claimed
+    // from the current block (this is the only place where the block is accessed).
+    private void allocateFromThreadLocalBuffer(BlockAllocationSlice s, int size) {
+        ThreadLocalBuffer buffer = threadLocalBuffers.get();
+        if (buffer == null) {
+            buffer = new ThreadLocalBuffer(Thread.currentThread());
+            threadLocalBuffers.set(buffer);
+            threadLocalBuffersRegistry.add(buffer);
+        }
+        int epoch = threadLocalBuffersEpoch;
+        if (buffer.epoch != epoch || buffer.remaining() < size || buffer.block.isEvacuating()) {
+            if (buffer.epoch == epoch) {
+                retireThreadLocalBuffer(buffer);
+            }
+            reclaimTerminatedThreadsBuffers();
+            // the input slice is used to claim the region, it is re-associated with the actual cut below.
+            // The entire region is accounted as live in its block, until the buffer is retired.
+            allocateFromCurrentBlock(s, threadLocalBufferSize);
+            buffer.reset(blocksArray[s.getAllocatedBlockID()], s.getAllocatedOffset(), threadLocalBufferSize, epoch);
+        }
+        s.associateBlockAllocation(buffer.block.getID(), buffer.next, size, buffer.block.getStartMemAddress(),
+                buffer.block.getLease());
+        buffer.next += size;
+    }
+
+    // Returns the unused tail of the buffer to the free list
+    private void retireThreadLocalBuffer(ThreadLocalBuffer buffer) {
+        int tail = buffer.remaining();
+        if (tail > 0) {
+            // the tail was never allocated, so no reference points to it
+            addFreeCut(buffer.block, buffer.next, tail, false);
+            buffer.block.addLiveBytes(-tail);
+        }
+        buffer.next = buffer.end;
+    }
+
+    // Accounts for the cut associated with the input slice as live bytes of its block.
+    // If the block is being evacuated, the accounting is undone and the cut is parked (returns false).
+    // The compaction marks a block before it checks the block's live bytes, while here the live bytes are
+    // updated before the mark is checked. Thus, a block is never considered empty while its cut is claimed.
+    private boolean claimCut(BlockAllocationSlice s) {
+        Block b = blocksArray[s.getAllocatedBlockID()];
+        int length = s.getAllocatedLength();
+        b.addLiveBytes(length);
+        if (!b.isEvacuating()) {
+            return true;
+        }
+        parkFreeCut(b, s.getAllocatedOffset(), length);
+        b.addLiveBytes(-length);
+        return false;
+    }
+
+    // Makes a released cut available for reuse, unless its block is being evacuated.
+    // versioned - whether the cut starts with a versioned header (see FreeList.addUnversioned())
+    private void addFreeCut(Block b, int offset, int length, boolean versioned) {
+        if (b.isEvacuating()) {
+            parkFreeCut(b, offset, length);
+        } else if (versioned) {
+            freeList.add(b.getID(), offset, length);
+        } else {
+            freeList.addUnversioned(b.getID(), offset, length);
+        }
+    }
+
+    // Keeps a released cut of a block which is being evacuated aside, so it is not reused
+    private void parkFreeCut(Block b, int offset, int length) {
+        evacuationLock.lock();
+        try {
+            if (!b.isEvacuating()) {
+                // the evacuation was canceled meanwhile
+                freeList.add(b.getID(), offset, length);
+            } else if (!isDrained(b)) {
+                evacuatedFreeList.add(b.getID(), offset, length);
+            }
+            // otherwise, the block was emptied, and is going to be returned to the provider as a whole
+        } finally {
+            evacuationLock.unlock();
+        }
+    }
+
+    // The buffers of terminated threads are never used again, so their tails can be reused.
+    // A thread termination happens-before another thread detects it, so the buffer's fields are visible.
+    private void reclaimTerminatedThreadsBuffers() {
+        Iterator<ThreadLocalBuffer> iter = threadLocalBuffersRegistry.iterator();
+        while (iter.hasNext()) {
+            ThreadLocalBuffer buffer = iter.next();
+            Thread owner = buffer.owner.get();
+            if (owner != null && owner.isAlive()) {
+                continue;
+            }
+            // only the thread that succeeds to remove the buffer from the registry returns its tail
+            if (threadLocalBuffersRegistry.remove(buffer) && buffer.epoch == threadLocalBuffersEpoch) {
+                retireThreadLocalBuffer(buffer);
+            }
+        }
     }
 
     // Releases memory (makes it available for reuse) without other GC consideration.
@@ -141,12 +445,298 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
     public void free(Slice sl) {
         BlockAllocationSlice s = (BlockAllocationSlice) sl;
         int size = s.getAllocatedLength();
-        allocated.addAndGet(-size);
-        if (stats != null) {
-            stats.release(size);
-        }
+        subtractAllocated(size);
+        stats.release(size);
         s.zeroMetadata();
-        freeList.add(s.duplicate());
+        Block b = blocksArray[s.getAllocatedBlockID()];
+        if (isLargeObjectBlock(b)) {
+            largeObjectsFreeList.add(s.getAllocatedBlockID(), s.getAllocatedOffset(), size);
+            b.addLiveBytes(-size);
+        } else {
+            addFreeCut(b, s.getAllocatedOffset(), size, s.hasVersionedHeader());
+            // only now the block may be considered empty, as the cut can no longer be reused
+            b.addLiveBytes(-size);
+        }
+        signalMemoryReleased();
+    }
+
+    // Accounts for a cut relocated by the compaction as no longer live, so its block can be emptied.
+    // The cut is not added to any free list, as threads that have read its reference before it was relocated
+    // might still read it. Thus, the cut is reused only after its block is emptied and returned. Thread safe.
+    @Override
+    public void retire(Slice sl) {
+        BlockAllocationSlice s = (BlockAllocationSlice) sl;
+        int size = s.getAllocatedLength();
+        subtractAllocated(size);
+        Block b = blocksArray[s.getAllocatedBlockID()];
+        // only the cuts of the blocks which are being evacuated are relocated
+        assert b.isEvacuating() && !isLargeObjectBlock(b);
+        b.addLiveBytes(-size);
+    }
+
+    private void subtractAllocated(long bytes) {
+        if (allocated.addAndGet(-bytes) <= softLimitBytes && softLimitExceeded.get()) {
+            // the listener is notified again once the soft limit is exceeded again
+            softLimitExceeded.set(false);
+        }
+    }
+
+    /**
+     * Changes the capacity at runtime. If the capacity grows, the blocks array grows accordingly.
+     * If it shrinks below the memory already taken, no block is returned, but no new block is taken
+     * until enough blocks are returned (e.g., by the compaction). Thread safe.
+     *
+     * @param newCapacity the new memory capacity in bytes
+     */
+    @Override
+    public void setCapacity(long newCapacity) {
+        if (newCapacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        blocksLock.lock();
+        try {
+            int blockArraySize = ((int) (newCapacity / blocksProvider.blockSize())) + 1;
+            if (blockArraySize + 1 > blocksArray.length) {
+                releasedBlockIDs = Arrays.copyOf(releasedBlockIDs, blockArraySize + 1);
+                blocksArray = Arrays.copyOf(blocksArray, blockArraySize + 1);
+            }
+            capacity = newCapacity;
+            updateSoftLimitBytes();
+        } finally {
+            blocksLock.unlock();
+        }
+        signalMemoryReleased();
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets a soft limit, as a ratio of the capacity. Once the allocated bytes exceed it, the listener is notified
+     * on a dedicated thread, so it can release memory (e.g., by evicting entries) before the capacity is exhausted.
+     * The listener is notified again only after the allocated bytes drop below the soft limit.
+     *
+     * @param ratio    the ratio of the capacity, in (0, 1]
+     * @param listener notified when the soft limit is exceeded
+     */
+    void setSoftLimit(double ratio, OakMemoryListener listener) {
+        if (ratio <= 0 || ratio > 1) {
+            throw new IllegalArgumentException("The soft limit ratio must be in (0, 1]");
+        }
+        Objects.requireNonNull(listener, "The soft limit listener must not be null");
+        blocksLock.lock();
+        try {
+            if (softLimitNotifier == null) {
+                softLimitNotifier = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, SOFT_LIMIT_THREAD_NAME);
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            softLimitListener = listener;
+            softLimitRatio = ratio;
+            updateSoftLimitBytes();
+        } finally {
+            blocksLock.unlock();
+        }
+    }
+
+    /**
+     * Sets the maximal time a writer waits for memory to be released (e.g., by a concurrent removal, or by the
+     * compaction) when the capacity is exhausted. Only then OakOutOfMemoryException is thrown.
+     * IMPORTANT: the writer may wait in the middle of an operation, e.g., while it holds the lock of a value
+     * it moves. Thus, the memory should be released by other threads, and the time should be kept short.
+     *
+     * @param maxBlockingTime the maximal waiting time, NO_BLOCKING (the default) to throw immediately
+     * @param unit            the time unit of maxBlockingTime
+     */
+    void setMaxBlockingTime(long maxBlockingTime, TimeUnit unit) {
+        if (maxBlockingTime < 0) {
+            throw new IllegalArgumentException("The maximal blocking time must not be negative");
+        }
+        maxBlockingNanos = unit.toNanos(maxBlockingTime);
+    }
+
+    // Should be invoked while holding blocksLock
+    private void updateSoftLimitBytes() {
+        softLimitBytes = softLimitRatio == NO_SOFT_LIMIT ? Long.MAX_VALUE : (long) (softLimitRatio * capacity);
+    }
+
+    /**
+     * Empties the sparsely used blocks, and returns them to the provider. Thread safe, the passes are serialized.
+     * A pass:
+     * (1) returns the blocks emptied by the previous passes to the provider, once no thread can access them,
+     * (2) cancels the evacuation of the blocks the previous pass could not empty,
+     * (3) marks the blocks whose live bytes are at most maxUtilization of the block size as evacuating
+     *     (except for the current block and the large object blocks). The free space of these blocks is
+     *     no longer reused, so they are only emptied from this point.
+     * (4) invokes the relocation, which is expected to move the live cuts off these blocks (see isEvacuating()),
+     *     and to retire the old cuts (see retire()), which are never reused,
+     * (5) finds the marked blocks which were emptied, and starts a new compaction epoch.
+     * An emptied block (and its id) is reused only once no thread can hold a reference into it. The operations
+     * and the iterators keep the compaction epoch they started in reachable (see getCompactionEpoch()), and the
+     * slices keep the lease of their block reachable (see Block.getLease()). Once the epochs that were taken
+     * before the block was emptied are garbage collected, the references into the block can no longer be read
+     * from the data structure, so the block's lease is dropped. Once the lease is garbage collected as well,
+     * no slice is associated with the block, and it is returned. Thus, a block is returned only by a later pass
+     * that follows a garbage collection.
+     *
+     * @param maxUtilization the maximal ratio of a block's live bytes to its size, for it to be evacuated
+     * @param relocation     moves the live cuts off the evacuating blocks
+     * @return the number of blocks emptied by this pass
+     */
+    @Override
+    public int compact(double maxUtilization, Runnable relocation) {
+        compactionLock.lock();
+        try {
+            returnDrainedBlocks();
+            cancelEvacuation();
+            markEvacuatingBlocks((long) (maxUtilization * blocksProvider.blockSize()));
+            if (evacuatingBlocks.isEmpty()) {
+                return 0;
+            }
+            relocation.run();
+            int numOfDrainedBlocks = findDrainedBlocks();
+            if (numOfDrainedBlocks > 0) {
+                // the operations that start from now on cannot read references into the emptied blocks
+                Epoch epoch = new Epoch();
+                compactionEpoch.next = epoch;
+                compactionEpoch = epoch;
+            }
+            return numOfDrainedBlocks;
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    @Override
+    public Object getCompactionEpoch() {
+        return compactionEpoch;
+    }
+
+    @Override
+    public boolean hasEvacuatingBlocks() {
+        return hasEvacuatingBlocks;
+    }
+
+    // whether the cut associated with the given slice is on a block which is being evacuated
+    @Override
+    public boolean isEvacuating(Slice sl) {
+        if (!hasEvacuatingBlocks) {
+            return false;
+        }
+        return blocksArray[((BlockAllocationSlice) sl).getAllocatedBlockID()].isEvacuating();
+    }
+
+    /*-------------- Compaction steps, called while holding compactionLock --------------*/
+
+    private void returnDrainedBlocks() {
+        blocksLock.lock();
+        try {
+            evacuationLock.lock();
+            try {
+                Iterator<DrainedBlock> iter = drainedBlocks.iterator();
+                while (iter.hasNext()) {
+                    DrainedBlock d = iter.next();
+                    Block b = d.block;
+                    if (d.lease == null) {
+                        if (d.epoch.get() != null) {
+                            // an operation (or an iterator) that started before the block was emptied is still alive
+                            continue;
+                        }
+                        // no reference into the block can be read anymore, only existing slices may access it
+                        d.lease = new WeakReference<>(b.dropLease());
+                    }
+                    // a thread that has claimed a free cut of the block (before it was emptied) is still parking it
+                    if (d.lease.get() != null || b.getLiveBytes() != 0) {
+                        continue;
+                    }
+                    iter.remove();
+                    int blockID = b.getID();
+                    blocksArray[blockID] = null;
+                    releasedBlockIDs[numOfReleasedBlockIDs] = blockID;
+                    numOfReleasedBlockIDs++;
+                    releaseBlock(b);
+                }
+            } finally {
+                evacuationLock.unlock();
+            }
+        } finally {
+            blocksLock.unlock();
+        }
+        signalMemoryReleased();
+    }
+
+    private void cancelEvacuation() {
+        for (Block b : evacuatingBlocks) {
+            evacuationLock.lock();
+            try {
+                b.setEvacuating(false);
+            } finally {
+                evacuationLock.unlock();
+            }
+            // no cut of this block is parked from now on
+            evacuatedFreeList.removeBlock(b.getID(), freeList);
+        }
+        evacuatingBlocks.clear();
+        hasEvacuatingBlocks = false;
+    }
+
+    private void markEvacuatingBlocks(long maxLiveBytes) {
+        // holding blocksLock, so no block is added or becomes the current block meanwhile
+        blocksLock.lock();
+        try {
+            for (int i = 1; i < idGenerator.get(); i++) {
+                Block b = blocksArray[i];
+                // the emptied blocks which are not returned yet are still evacuating
+                if (b == null || b == currentBlock || isLargeObjectBlock(b) || b.isEvacuating()
+                        || b.getLiveBytes() > maxLiveBytes) {
+                    continue;
+                }
+                evacuationLock.lock();
+                try {
+                    b.setEvacuating(true);
+                } finally {
+                    evacuationLock.unlock();
+                }
+                evacuatingBlocks.add(b);
+            }
+        } finally {
+            blocksLock.unlock();
+        }
+        if (evacuatingBlocks.isEmpty()) {
+            return;
+        }
+        hasEvacuatingBlocks = true;
+        for (Block b : evacuatingBlocks) {
+            freeList.removeBlock(b.getID(), evacuatedFreeList);
+        }
+    }
+
+    private int findDrainedBlocks() {
+        int numOfDrainedBlocks = 0;
+        Iterator<Block> iter = evacuatingBlocks.iterator();
+        while (iter.hasNext()) {
+            Block b = iter.next();
+            if (b.getLiveBytes() != 0) {
+                continue;
+            }
+            // no cut of this block is live, but a free cut might have been claimed and not yet parked,
+            // it is dropped once parked
+            evacuationLock.lock();
+            try {
+                drainedBlocks.add(new DrainedBlock(b, compactionEpoch));
+            } finally {
+                evacuationLock.unlock();
+            }
+            iter.remove();
+            freeList.removeBlock(b.getID(), null);
+            evacuatedFreeList.removeBlock(b.getID(), null);
+            numOfDrainedBlocks++;
+        }
+        return numOfDrainedBlocks;
     }
 
     // Releases all memory allocated for this Oak (should be used as part of the Oak destruction)
@@ -158,6 +748,14 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
         if (!closed.compareAndSet(false, true)) {
             return;
         }
+        blocksLock.lock();
+        try {
+            if (softLimitNotifier != null) {
+                softLimitNotifier.shutdown();
+            }
+        } finally {
+            blocksLock.unlock();
+        }
 
         // Release the hold of the block array and return it the provider.
         Block[] b = blocksArray;
@@ -166,8 +764,11 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
         // Reset "closed" to apply a memory barrier before actually returning the block.
         closed.set(true);
 
-        for (int i = 1; i <= numberOfBlocks(); i++) {
-            blocksProvider.returnBlock(b[i]);
+        // the slots of the blocks returned by the compaction are empty
+        for (int i = 1; i < idGenerator.get(); i++) {
+            if (b[i] != null) {
+                releaseBlock(b[i]);
+            }
         }
         // no need to do anything with the free list,
         // as all free list members were residing on one of the (already released) blocks
@@ -179,6 +780,11 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
         return allocated.get();
     }
 
+    @Override
+    public int blockSize() {
+        return blocksProvider.blockSize();
+    }
+
     public int getFreeListLength() {
         return freeList.size();
     }
@@ -194,22 +800,29 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
     // NOT THREAD SAFE!!!
     @Override
     public void clear() {
-        // Release the hold of the block array and return it the provider.
-        Block[] b = blocksArray;
-        blocksArray = null;
-
-        // Reset "closed" to apply a memory barrier before actually returning the block.
-        closed.set(true);
-
-        for (int i = 1; i <= numberOfBlocks(); i++) {
-            blocksProvider.returnBlock(b[i]);
+        // Return all the blocks to the provider, the block array itself is reused.
+        for (int i = 1; i < idGenerator.get(); i++) {
+            if (blocksArray[i] != null) {
+                releaseBlock(blocksArray[i]);
+                blocksArray[i] = null;
+            }
         }
 
         freeList.clear();
+        largeObjectsFreeList.clear();
+        largeObjectsExtraBytes = 0;
+        evacuatedFreeList.clear();
+        evacuatingBlocks.clear();
+        drainedBlocks.clear();
+        hasEvacuatingBlocks = false;
+        threadLocalBuffersEpoch++;
         allocated.set(0);
-        idGenerator.set(0);
+        softLimitExceeded.set(false);
+        idGenerator.set(1);
+        numOfReleasedBlockIDs = 0;
         // initially allocate one single block from pool
         allocateNewCurrentBlock();
+        signalMemoryReleased();
 
     }
 
@@ -224,7 +837,7 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
         assert blockID > NativeMemoryAllocator.INVALID_BLOCK_ID :
                 String.format("Invalid block-id: %s", s);
         Block b = blocksArray[blockID];
-        s.setAddress(b.getStartMemAddress());
+        s.setAddress(b.getStartMemAddress(), b.getLease());
     }
 
 
@@ -233,55 +846,192 @@ class NativeMemoryAllocator implements BlockMemoryAllocator {
         return currentBlock;
     }
 
-    // used only for testing
+    // the number of blocks taken by this allocator (including the large object blocks)
     int numOfAllocatedBlocks() {
         return (int) numberOfBlocks();
     }
 
+    // the memory taken by this allocator, which counts towards its capacity
+    long footprint() {
+        return numberOfBlocks() * blocksProvider.blockSize() + largeObjectsExtraBytes;
+    }
+
+    // The bytes of the taken blocks that were released and are not in use, either waiting in the free lists
+    // to be reused, or kept aside by the compaction. Computed by traversing the blocks, thus intended only for
+    // monitoring. The unused parts of the thread local buffers are considered in use.
+    long freeBytes() {
+        Block[] blocks = blocksArray;
+        if (blocks == null) {
+            // closed
+            return 0;
+        }
+        long freeBytes = 0;
+        for (int i = 1; i < idGenerator.get(); i++) {
+            Block b = blocks[i];
+            if (b != null) {
+                long used = Math.min(b.allocatedWithPossibleDelta(), b.getCapacity());
+                freeBytes += Math.max(0, used - b.getLiveBytes());
+            }
+        }
+        return freeBytes;
+    }
+
     // This method MUST be called within a thread safe context !!!
     private void allocateNewCurrentBlock() {
         Block b = blocksProvider.getBlock();
+        addBlock(b);
+        this.currentBlock = b;
+    }
+
+    // This method MUST be called within a thread safe context !!!
+    private void addBlock(Block b) {
+        b.renewLease();
+        if (numOfReleasedBlockIDs > 0) {
+            // reuse the id of a block returned by the compaction
+            int blockID = releasedBlockIDs[numOfReleasedBlockIDs - 1];
+            b.setID(blockID);
+            this.blocksArray[blockID] = b;
+            numOfReleasedBlockIDs--;
+            return;
+        }
         // Does not require atomicity because previous update was atomic, and we are in a thread safe context.
         int blockID = idGenerator.get();
         b.setID(blockID);
         this.blocksArray[blockID] = b;
         // Increment atomically to ensure current reads and to force a flash before assigning the current block.
         idGenerator.incrementAndGet();
-        this.currentBlock = b;
+    }
+
+    // Should be invoked while holding evacuationLock
+    private boolean isDrained(Block b) {
+        for (DrainedBlock d : drainedBlocks) {
+            if (d.block == b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // a large object block is bigger than the provider's blocks
+    private boolean isLargeObjectBlock(Block b) {
+        return b.getCapacity() > blocksProvider.blockSize();
+    }
+
+    // Returns a block to the provider, or frees it if it is a large object block
+    private void releaseBlock(Block b) {
+        if (isLargeObjectBlock(b)) {
+            b.clean();
+        } else {
+            blocksProvider.returnBlock(b);
+        }
     }
 
     private long numberOfBlocks() {
-        return idGenerator.get() - 1;
+        return idGenerator.get() - 1 - numOfReleasedBlockIDs;
+    }
+
+    /**
+     * A region of a block that is owned by a single thread, which bump-allocates from it.
+     * Only the owner thread accesses the fields (as long as it is alive), so no synchronization is needed.
+     */
+    private static final class ThreadLocalBuffer {
+        private final WeakReference<Thread> owner;
+        private Block block = null;
+        private int next = 0; // the offset of the next allocation within the block
+        private int end = 0; // the offset right after the buffer's region
+        private int epoch = -1;
+
+        ThreadLocalBuffer(Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        void reset(Block block, int offset, int length, int epoch) {
+            this.block = block;
+            this.next = offset;
+            this.end = offset + length;
+            this.epoch = epoch;
+        }
+
+        int remaining() {
+            return end - next;
+        }
     }
 
-    private Stats stats = null;
+    /**
+     * A compaction epoch, it is kept reachable by the operations that started in it (see getCompactionEpoch()).
+     * Each epoch references the following one, so an epoch is reachable as long as an earlier epoch is.
+     */
+    private static final class Epoch {
+        private volatile Epoch next = null;
+    }
+
+    /**
+     * A block emptied by the compaction, which is returned once the epoch in which it was emptied, and then
+     * its lease, are no longer reachable. Accessed while holding evacuationLock.
+     */
+    private static final class DrainedBlock {
+        private final Block block;
+        private final WeakReference<Epoch> epoch;
+        // the dropped lease of the block, set once the epoch is no longer reachable
+        private WeakReference<Object> lease = null;
 
-    public void collectStats() {
-        stats = new Stats();
+        DrainedBlock(Block block, Epoch epoch) {
+            this.block = block;
+            this.epoch = new WeakReference<>(epoch);
+        }
     }
 
+    // always on, see Stats
+    private final Stats stats = new Stats();
+
     public Stats getStats() {
         return stats;
     }
 
+    /**
+     * Allocation counters. They are updated on every allocation and release, thus kept in LongAdders,
+     * so the threads do not contend on them.
+     */
     static class Stats {
-        int reclaimedBuffers;
-        int releasedBuffers;
-        long releasedBytes;
-        long reclaimedBytes;
-
-        public void release(int size) {
-            synchronized (this) {
-                releasedBuffers++;
-                releasedBytes += size;
-            }
+        private final LongAdder allocations = new LongAdder();
+        // the allocations served by a released cut
+        private final LongAdder reclaimedBuffers = new LongAdder();
+        private final LongAdder reclaimedBytes = new LongAdder();
+        private final LongAdder releasedBuffers = new LongAdder();
+        private final LongAdder releasedBytes = new LongAdder();
+
+        void allocate() {
+            allocations.increment();
         }
 
-        public void reclaim(int size) {
-            synchronized (this) {
-                reclaimedBuffers++;
-                reclaimedBytes += size;
-            }
+        void release(int size) {
+            releasedBuffers.increment();
+            releasedBytes.add(size);
+        }
+
+        void reclaim(int size) {
+            reclaimedBuffers.increment();
+            reclaimedBytes.add(size);
+        }
+
+        public long getAllocations() {
+            return allocations.sum();
+        }
+
+        public long getReclaimedBuffers() {
+            return reclaimedBuffers.sum();
+        }
+
+        public long getReclaimedBytes() {
+            return reclaimedBytes.sum();
+        }
+
+        public long getReleasedBuffers() {
+            return releasedBuffers.sum();
+        }
+
+        public long getReleasedBytes() {
+            return releasedBytes.sum();
         }
     }
 
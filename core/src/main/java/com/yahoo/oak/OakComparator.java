@@ -19,4 +19,16 @@ public interface OakComparator<K> extends Comparator<K> {
     int compareSerializedKeys(OakScopedReadBuffer serializedKey1, OakScopedReadBuffer serializedKey2);
 
     int compareKeyAndSerializedKey(K key, OakScopedReadBuffer serializedKey);
+
+    /**
+     * Returns an order preserving prefix of the key, which is compared as an unsigned long: if the prefix of
+     * key1 is smaller than the prefix of key2, then key1 must be smaller than key2 (and if the prefixes are
+     * equal, the keys are compared as a whole). For example, the first 8 bytes of the key, in big-endian order.
+     * The prefixes are used only by an OakMap that keeps them in its entries (see
+     * OakMapBuilder.setKeyPrefixes()), to compare keys without reading them off-heap. The default
+     * prefix is equal for all the keys, so keys are always compared as a whole.
+     */
+    default long getKeyPrefix(K key) {
+        return 0;
+    }
 }
@@ -11,9 +11,11 @@ import java.util.AbstractMap;
 import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -23,6 +25,8 @@ import java.util.function.Function;
  */
 public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseable, ConcurrentZCMap<K , V> {
 
+    private static final int SPLITERATOR_CHARACTERISTICS = Spliterator.CONCURRENT | Spliterator.NONNULL;
+
     /*
      * Memory manager cares for allocation, de-allocation and reuse of the internally pre-allocated
      * memory. There can be separate memory managing algorithms for keys and values.
@@ -41,7 +45,8 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
     // internal constructor, to create OakHashMap use OakMapBuilder
     OakHashMap(
         OakSerializer<K> keySerializer, OakSerializer<V> valueSerializer, OakComparator<K> oakComparator,
-        int log2NumOfItemsInOneChunk, int log2NumOfChunks, MemoryManager vMM, MemoryManager kMM) {
+        int log2NumOfItemsInOneChunk, int log2NumOfChunks, MemoryManager vMM, MemoryManager kMM,
+        OffHeapEntriesAllocator offHeapEntriesAllocator) {
 
         this.valuesMemoryManager = vMM;
         this.keysMemoryManager = kMM;
@@ -60,7 +65,8 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
         this.internalOakHash = new InternalOakHash<>(keySerializer, valueSerializer,
             comparator, vMM, kMM,  new ValueUtils(),
             log2NumOfChunks, // defines number of hash chunks
-            log2NumOfItemsInOneChunk); // defines number of entries in the hash chunk
+            log2NumOfItemsInOneChunk, // defines number of entries in the hash chunk
+            offHeapEntriesAllocator);
 
     }
 
@@ -127,6 +133,48 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
         return (V) internalOakHash.remove((K) key, null, valueDeserializeTransformer).value;
     }
 
+    /* ------ Batch API methods ------ */
+
+    /**
+     * Sets the i-th element of the given array to a deserialized copy of the value to which the
+     * i-th key is mapped, or to {@code null} if this map contains no mapping for the key.
+     * The whole batch shares the internal state of a single operation.
+     * The same array can be reused by consecutive batches.
+     *
+     * @param keys   the keys whose associated values are to be returned
+     * @param values the array to which the values are set
+     * @throws NullPointerException     if any of the keys is null
+     * @throws IllegalArgumentException if the array is shorter than the list of keys
+     */
+    public void multiGet(List<? extends K> keys, V[] values) {
+        internalOakHash.multiGetTransformation(keys, values, valueDeserializeTransformer);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * The whole batch shares the internal state of a single operation.
+     * Creates a copy of each value in the map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException     if any of the keys or values is null
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        internalOakHash.putAll(m);
+    }
+
+    /**
+     * Removes the mappings of all of the given keys from this map.
+     * The whole batch shares the internal state of a single operation.
+     *
+     * @param keys the keys whose mappings are to be removed from the map
+     * @return {@code true} if any of the mappings was removed
+     * @throws NullPointerException     if any of the keys is null
+     */
+    public boolean removeAll(Collection<? extends K> keys) {
+        return internalOakHash.removeAll(keys);
+    }
+
 
     /* ------ ConcurrentMap API methods ------ */
 
@@ -190,6 +238,74 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
         return (V) internalOakHash.putIfAbsent(key, value, valueDeserializeTransformer).value;
     }
 
+    /**
+     * Atomically computes a new value for the specified key from its current value (or {@code null} if
+     * there is no current mapping), and associates the key with the new value, or removes the mapping if
+     * the new value is {@code null}. The current value is write locked while the function is applied,
+     * so no concurrent update of the key is lost. The function may be applied more than once when the key
+     * is concurrently updated, thus it should be free of side effects.
+     * Creates a copy of the new value in the map.
+     *
+     * @throws NullPointerException     if the specified key or the function is null
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        checkKey(key);
+        if (remappingFunction == null) {
+            throw new NullPointerException();
+        }
+
+        return internalOakHash.compute(key, value -> remappingFunction.apply(key,
+                value == null ? null : valueDeserializeTransformer.apply(value)));
+    }
+
+    /**
+     * If the specified key is not already associated with a value, computes its value using the given
+     * mapping function and associates it with the key, unless it is {@code null}.
+     * The function may be applied even if the key is concurrently inserted, then the value that was
+     * inserted first is returned.
+     * Creates a copy of the computed value in the map.
+     *
+     * @throws NullPointerException     if the specified key or the function is null
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        checkKey(key);
+        if (mappingFunction == null) {
+            throw new NullPointerException();
+        }
+
+        V value = internalOakHash.getValueTransformation(key, valueDeserializeTransformer);
+        if (value != null) {
+            return value;
+        }
+        value = mappingFunction.apply(key);
+        if (value == null) {
+            return null;
+        }
+        V existing = (V) internalOakHash.putIfAbsent(key, value, valueDeserializeTransformer).value;
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * If the specified key is not already associated with a value, associates it with the given value.
+     * Otherwise, atomically replaces the value with the result of the given function, or removes the
+     * mapping if the result is {@code null}. See {@link #compute(Object, BiFunction)} for the atomicity guarantees.
+     * Creates a copy of the new value in the map.
+     *
+     * @throws NullPointerException     if any of the parameters is null
+     */
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        checkKey(key);
+        if (value == null || remappingFunction == null) {
+            throw new NullPointerException();
+        }
+
+        return internalOakHash.compute(key, oldValue -> oldValue == null ? value :
+                remappingFunction.apply(valueDeserializeTransformer.apply(oldValue), value));
+    }
+
 
     @Override
     public Set<K> keySet() {
@@ -244,6 +360,18 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.internalOakHash.remove(key, null, null).operationResult == ValueUtils.ValueResult.TRUE;
         }
 
+        public void multiGet(List<? extends K> keys, OakUnscopedBuffer[] values) {
+            m.internalOakHash.multiGet(keys, values);
+        }
+
+        public void putAll(Map<? extends K, ? extends V> map) {
+            m.internalOakHash.putAll(map);
+        }
+
+        public boolean removeAll(Collection<? extends K> keys) {
+            return m.internalOakHash.removeAll(keys);
+        }
+
         public boolean putIfAbsent(K key, V value) {
             m.checkKey(key);
             if (value == null) {
@@ -271,6 +399,42 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.internalOakHash.putIfAbsentComputeIfPresent(key, value, computer);
         }
 
+        public boolean compute(K key, Function<OakScopedReadBuffer, ? extends V> remappingFunction) {
+            m.checkKey(key);
+            if (remappingFunction == null) {
+                throw new NullPointerException();
+            }
+
+            return m.internalOakHash.compute(key, remappingFunction) != null;
+        }
+
+        public boolean computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+            m.checkKey(key);
+            if (mappingFunction == null) {
+                throw new NullPointerException();
+            }
+
+            if (m.internalOakHash.get(key) != null) {
+                return false;
+            }
+            V value = mappingFunction.apply(key);
+            if (value == null) {
+                return false;
+            }
+            return m.internalOakHash.putIfAbsent(key, value, null).operationResult == ValueUtils.ValueResult.TRUE;
+        }
+
+        public boolean merge(K key, V value,
+            BiFunction<OakScopedReadBuffer, ? super V, ? extends V> remappingFunction) {
+            m.checkKey(key);
+            if (value == null || remappingFunction == null) {
+                throw new NullPointerException();
+            }
+
+            return m.internalOakHash.compute(key, oldValue -> oldValue == null ? value :
+                    remappingFunction.apply(oldValue, value)) != null;
+        }
+
         public Set<OakUnscopedBuffer> keySet() {
             return new KeyBufferSet<>(m);
         }
@@ -306,6 +470,44 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
         return internalOakHash.memorySize();
     }
 
+    /**
+     * Changes the off-heap memory capacity, without rebuilding the map. If the capacity shrinks below the
+     * memory already used, no memory is released, but new memory is not taken until enough is released
+     * (e.g., by the compaction). Can be called concurrently with other operations.
+     *
+     * @param capacity the new memory capacity in bytes
+     * @throws IllegalArgumentException if the capacity is not positive, or if it cannot be addressed by the
+     *                                  compact key references (see OakMapBuilder.setExtendedReferences())
+     */
+    @Override
+    public void setMemoryCapacity(long capacity) {
+        internalOakHash.setMemoryCapacity(capacity);
+    }
+
+    /**
+     * Compacts the off-heap memory: the live keys and values are relocated off the blocks which are at most
+     * half used, and the emptied blocks are returned to the blocks pool. The map can be used concurrently.
+     * The blocks emptied by this call are returned to the pool by a later call, once the operations and the
+     * iterators that started before they were emptied, and the buffers they have read from them, are garbage
+     * collected. Until then the keys and values read before they were relocated can still be accessed.
+     * Thus, the method is meant to be called periodically.
+     *
+     * @return the number of blocks that were emptied
+     */
+    @Override
+    public int compact() {
+        return internalOakHash.compact();
+    }
+
+    /**
+     * @return the off-heap memory statistics of the map, which are collected regardless of the builder settings.
+     * They can also be exported through JMX, see {@code OakMapBuilder.setMBeanName()}.
+     */
+    @Override
+    public OakMemoryStatsMBean getMemoryStats() {
+        return internalOakHash.getMemoryStats();
+    }
+
     /**
      * Close and release the map and all the memory that is used by it.
      * The user should ensure that there are no concurrent operations
@@ -332,72 +534,114 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
         Objects.requireNonNull(key);
     }
 
-    // TODO: All iterators are currently not implemented, to be done later
+    /*
+     * The iterators and spliterators visit the entries in the order of the hash array, not in any key order.
+     * The spliterators split the hash array into ranges of indices, and traverse each range with an iterator.
+     */
+
     /**
-     * Returns a {@link Iterator} of the values contained in this map
-     * in ascending order of the corresponding keys.
+     * Returns a {@link Iterator} of the values contained in this map.
      */
     private Iterator<V> valuesIterator() {
-        throw new UnsupportedOperationException();
+        return internalOakHash.iterator(valuesIterators());
     }
 
     /**
-     * Returns a {@link Iterator} of the mappings contained in this map in ascending key order.
+     * Returns a {@link Iterator} of the mappings contained in this map.
      */
     private Iterator<Map.Entry<K, V>> entriesIterator() {
-        throw new UnsupportedOperationException();
+        return internalOakHash.iterator(entriesIterators());
     }
 
     /**
-     * Returns a {@link Iterator} of the keys contained in this map in ascending order.
+     * Returns a {@link Iterator} of the keys contained in this map.
      */
     private Iterator<K> keysIterator() {
-        throw new UnsupportedOperationException();
+        return internalOakHash.iterator(keysIterators());
     }
 
     private Iterator<OakUnscopedBuffer> keysBufferIterator() {
-        throw new UnsupportedOperationException();
+        return internalOakHash.iterator(internalOakHash::keysBufferViewIterator);
     }
 
     private Iterator<OakUnscopedBuffer> valuesBufferIterator() {
-        throw new UnsupportedOperationException();
+        return internalOakHash.iterator(internalOakHash::valuesBufferViewIterator);
     }
 
     private Iterator<Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer>> entriesBufferIterator() {
-        throw new UnsupportedOperationException();
+        return internalOakHash.iterator(internalOakHash::entriesBufferViewIterator);
     }
 
     private Iterator<OakUnscopedBuffer> keysStreamIterator() {
-        throw new UnsupportedOperationException();
+        return internalOakHash.iterator(internalOakHash::keysStreamIterator);
     }
 
     private Iterator<OakUnscopedBuffer> valuesStreamIterator() {
-        throw new UnsupportedOperationException();
+        return internalOakHash.iterator(internalOakHash::valuesStreamIterator);
     }
 
     private Iterator<Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer>> entriesStreamIterator() {
-        throw new UnsupportedOperationException();
+        return internalOakHash.iterator(internalOakHash::entriesStreamIterator);
     }
 
-    /* ---------------- TODO: Move methods below to their proper place as they are implemented -------------- */
-    @Override
-    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
-        throw new UnsupportedOperationException();
+    private InternalOakHash.IndexRangeIteratorFactory<V> valuesIterators() {
+        return (fromIndex, toIndex) ->
+                internalOakHash.valuesTransformIterator(fromIndex, toIndex, valueDeserializeTransformer);
     }
 
-    @Override
-    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
-        return null;
+    private InternalOakHash.IndexRangeIteratorFactory<Map.Entry<K, V>> entriesIterators() {
+        return (fromIndex, toIndex) ->
+                internalOakHash.entriesTransformIterator(fromIndex, toIndex, entryDeserializeTransformer);
     }
 
-    @Override
-    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
-        return null;
+    private InternalOakHash.IndexRangeIteratorFactory<K> keysIterators() {
+        return (fromIndex, toIndex) ->
+                internalOakHash.keysTransformIterator(fromIndex, toIndex, keyDeserializeTransformer);
+    }
+
+    private Spliterator<V> valuesSpliterator() {
+        return internalOakHash.spliterator(valuesIterators(), SPLITERATOR_CHARACTERISTICS);
+    }
+
+    private Spliterator<Map.Entry<K, V>> entriesSpliterator() {
+        return internalOakHash.spliterator(entriesIterators(), SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT);
+    }
+
+    private Spliterator<K> keysSpliterator() {
+        return internalOakHash.spliterator(keysIterators(), SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT);
+    }
+
+    private Spliterator<OakUnscopedBuffer> keysBufferSpliterator() {
+        return internalOakHash.spliterator(internalOakHash::keysBufferViewIterator,
+                SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT);
+    }
+
+    private Spliterator<OakUnscopedBuffer> valuesBufferSpliterator() {
+        return internalOakHash.spliterator(internalOakHash::valuesBufferViewIterator, SPLITERATOR_CHARACTERISTICS);
+    }
+
+    private Spliterator<Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer>> entriesBufferSpliterator() {
+        return internalOakHash.spliterator(internalOakHash::entriesBufferViewIterator,
+                SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT);
+    }
+
+    // the stream buffers are reused by the iterator, so each element is valid only until the next one is read
+    private Spliterator<OakUnscopedBuffer> keysStreamSpliterator() {
+        return internalOakHash.spliterator(internalOakHash::keysStreamIterator, SPLITERATOR_CHARACTERISTICS);
+    }
+
+    private Spliterator<OakUnscopedBuffer> valuesStreamSpliterator() {
+        return internalOakHash.spliterator(internalOakHash::valuesStreamIterator, SPLITERATOR_CHARACTERISTICS);
+    }
+
+    private Spliterator<Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer>> entriesStreamSpliterator() {
+        return internalOakHash.spliterator(internalOakHash::entriesStreamIterator, SPLITERATOR_CHARACTERISTICS);
     }
 
+    /* ---------------- TODO: Move methods below to their proper place as they are implemented -------------- */
     @Override
-    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
-        return null;
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        throw new UnsupportedOperationException();
     }
 
     /* ---------------- View Classes -------------- */
@@ -415,6 +659,11 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.keysIterator();
         }
 
+        @Override
+        public Spliterator<K> spliterator() {
+            return m.keysSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -433,6 +682,11 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.entriesIterator();
         }
 
+        @Override
+        public Spliterator<Entry<K, V>> spliterator() {
+            return m.entriesSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -452,6 +706,11 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.valuesIterator();
         }
 
+        @Override
+        public Spliterator<V> spliterator() {
+            return m.valuesSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -471,6 +730,11 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.keysBufferIterator();
         }
 
+        @Override
+        public Spliterator<OakUnscopedBuffer> spliterator() {
+            return m.keysBufferSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -489,6 +753,11 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.entriesBufferIterator();
         }
 
+        @Override
+        public Spliterator<Entry<OakUnscopedBuffer, OakUnscopedBuffer>> spliterator() {
+            return m.entriesBufferSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -508,6 +777,11 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.valuesBufferIterator();
         }
 
+        @Override
+        public Spliterator<OakUnscopedBuffer> spliterator() {
+            return m.valuesBufferSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -527,6 +801,11 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.keysStreamIterator();
         }
 
+        @Override
+        public Spliterator<OakUnscopedBuffer> spliterator() {
+            return m.keysStreamSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -545,6 +824,11 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.entriesStreamIterator();
         }
 
+        @Override
+        public Spliterator<Entry<OakUnscopedBuffer, OakUnscopedBuffer>> spliterator() {
+            return m.entriesStreamSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -564,6 +848,11 @@ public class OakHashMap<K, V>  extends AbstractMap<K, V> implements AutoCloseabl
             return m.valuesStreamIterator();
         }
 
+        @Override
+        public Spliterator<OakUnscopedBuffer> spliterator() {
+            return m.valuesStreamSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -12,10 +12,12 @@ import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.Spliterator;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -27,6 +29,11 @@ import java.util.function.Function;
 public class OakMap<K, V> extends AbstractMap<K, V>
         implements AutoCloseable, ConcurrentNavigableMap<K, V>, ConcurrentZCMap<K, V> {
 
+    private static final int BUFFER_SPLITERATOR_CHARACTERISTICS =
+            Spliterator.ORDERED | Spliterator.CONCURRENT | Spliterator.NONNULL;
+    private static final int SPLITERATOR_CHARACTERISTICS =
+            BUFFER_SPLITERATOR_CHARACTERISTICS | Spliterator.SORTED | Spliterator.DISTINCT;
+
     private final InternalOakMap<K, V> internalOakMap;
     /*
      * Memory manager cares for allocation, de-allocation and reuse of the internally pre-allocated
@@ -49,13 +56,16 @@ public class OakMap<K, V> extends AbstractMap<K, V>
 
     // internal constructor, to create OakMap use OakMapBuilder
     OakMap(K minKey, OakSerializer<K> keySerializer, OakSerializer<V> valueSerializer, OakComparator<K> oakComparator,
-        int chunkMaxItems, MemoryManager vMM, MemoryManager kMM) {
+        int chunkMaxItems, MemoryManager vMM, MemoryManager kMM, boolean colocateKeysAndValues,
+        boolean keyPrefixes, OffHeapEntriesAllocator offHeapEntriesAllocator) {
 
         this.valuesMemoryManager = vMM;
         this.keysMemoryManager = kMM;
         this.comparator = oakComparator;
         this.internalOakMap = new InternalOakMap<>(minKey, keySerializer, valueSerializer, oakComparator,
-                this.valuesMemoryManager, kMM, chunkMaxItems, new ValueUtils());
+                this.valuesMemoryManager, kMM, chunkMaxItems,
+                vMM instanceof InlineValueMemoryManager ? new InlineValueUtils() : new ValueUtils(),
+                colocateKeysAndValues, keyPrefixes, offHeapEntriesAllocator);
 
         this.fromKey = null;
         this.fromInclusive = false;
@@ -157,6 +167,104 @@ public class OakMap<K, V> extends AbstractMap<K, V>
         return (V) internalOakMap.remove((K) key, null, valueDeserializeTransformer).value;
     }
 
+    /**
+     * Removes all of the mappings from this map (of a SubMap, the mappings in its range).
+     * As in {@link #removeRange(Object, Object)}, the chunks whose keys are all in the range are dropped at once.
+     */
+    @Override
+    public void clear() {
+        internalOakMap.removeRange(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    /* ------ Batch API methods ------ */
+
+    /**
+     * Sets the i-th element of the given array to a deserialized copy of the value to which the
+     * i-th key is mapped, or to {@code null} if this map contains no mapping for the key.
+     * Each key is searched starting from the chunk of its previous key, so a batch whose keys are
+     * sorted in ascending order (of the underlying map) is looked up faster than key by key.
+     * The same array can be reused by consecutive batches.
+     *
+     * @param keys   the keys whose associated values are to be returned
+     * @param values the array to which the values are set
+     * @throws NullPointerException     if any of the keys is null
+     * @throws IllegalArgumentException if the array is shorter than the list of keys,
+     *                                  or if any of the keys is out of bounds
+     */
+    public void multiGet(List<? extends K> keys, V[] values) {
+        checkKeys(keys);
+        internalOakMap.multiGetTransformation(keys, values, valueDeserializeTransformer);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * Each key is searched starting from the chunk of its previous key, so the mappings of a sorted
+     * map (e.g., a {@code TreeMap} with the same order as this map) are put faster than one by one.
+     * Creates a copy of each value in the map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException     if any of the keys or values is null
+     * @throws IllegalArgumentException if any of the keys is out of bounds
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        checkKeys(m.keySet());
+        internalOakMap.putAll(m);
+    }
+
+    /**
+     * Removes the mappings of all of the given keys from this map.
+     * As in {@link #multiGet(List, Object[])}, a batch of sorted keys is removed faster than key by key.
+     *
+     * @param keys the keys whose mappings are to be removed from the map
+     * @return {@code true} if any of the mappings was removed
+     * @throws NullPointerException     if any of the keys is null
+     * @throws IllegalArgumentException if any of the keys is out of bounds
+     */
+    public boolean removeAll(Collection<? extends K> keys) {
+        checkKeys(keys);
+        return internalOakMap.removeAll(keys);
+    }
+
+    /**
+     * Removes the mappings of all the keys from {@code fromKey}, inclusive, to {@code toKey}, exclusive
+     * (that are also within the range of a SubMap).
+     * The chunks whose keys are all in the range are dropped at once: they are replaced by a single empty
+     * chunk, and their values are released together. Only the keys of the chunks at the boundaries
+     * of the range are removed one by one.
+     * The removal is not atomic: a concurrent reader may see a part of the range removed, and a key that is
+     * concurrently put in the range may remain in the map.
+     *
+     * @param fromKey low endpoint (inclusive) of the keys to be removed
+     * @param toKey   high endpoint (exclusive) of the keys to be removed
+     * @throws NullPointerException     if any of the keys is null
+     * @throws IllegalArgumentException if {@code fromKey} is greater than {@code toKey}
+     */
+    public void removeRange(K fromKey, K toKey) {
+        if (fromKey == null || toKey == null) {
+            throw new NullPointerException();
+        }
+        internalOakMap.validateBoundariesOrder(fromKey, toKey);
+
+        // the intersection with the range of this map
+        K lo = fromKey;
+        boolean loInclusive = true;
+        if (this.fromKey != null && comparator.compareKeys(this.fromKey, lo) >= 0) {
+            lo = this.fromKey;
+            loInclusive = this.fromInclusive;
+        }
+        K hi = toKey;
+        boolean hiInclusive = false;
+        if (this.toKey != null && comparator.compareKeys(this.toKey, hi) < 0) {
+            hi = this.toKey;
+            hiInclusive = this.toInclusive;
+        }
+        if (comparator.compareKeys(lo, hi) > 0) {
+            return;
+        }
+        internalOakMap.removeRange(lo, loInclusive, hi, hiInclusive);
+    }
+
     /* ------ SortedMap API methods ------ */
 
     @Override
@@ -179,7 +287,7 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             throw new UnsupportedOperationException();
         }
 
-        return internalOakMap.getMinKeyTransformation(keyDeserializeTransformer);
+        return navigateKey(null, false, false);
     }
 
     /**
@@ -197,7 +305,7 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             throw new UnsupportedOperationException();
         }
 
-        return internalOakMap.getMaxKeyTransformation(keyDeserializeTransformer);
+        return navigateKey(null, true, false);
     }
 
     /* ------ ConcurrentMap API methods ------ */
@@ -266,24 +374,87 @@ public class OakMap<K, V> extends AbstractMap<K, V>
     }
 
 
-    /* ---------------- NavigableMap API methods -------------- */
+    /**
+     * Atomically computes a new value for the specified key from its current value (or {@code null} if
+     * there is no current mapping), and associates the key with the new value, or removes the mapping if
+     * the new value is {@code null}. The current value is write locked while the function is applied,
+     * so no concurrent update of the key is lost. The function may be applied more than once when the key
+     * is concurrently updated, thus it should be free of side effects.
+     * Creates a copy of the new value in the map.
+     *
+     * @throws NullPointerException     if the specified key or the function is null
+     * @throws IllegalArgumentException if the specified key is out of bounds
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        checkKey(key);
+        if (remappingFunction == null) {
+            throw new NullPointerException();
+        }
+
+        return internalOakMap.compute(key, value -> remappingFunction.apply(key,
+                value == null ? null : valueDeserializeTransformer.apply(value)));
+    }
 
     /**
-     * {@inheritDoc}
+     * If the specified key is not already associated with a value, computes its value using the given
+     * mapping function and associates it with the key, unless it is {@code null}.
+     * The function may be applied even if the key is concurrently inserted, then the value that was
+     * inserted first is returned.
+     * Creates a copy of the computed value in the map.
      *
-     * @throws UnsupportedOperationException if used on a SubMap
+     * @throws NullPointerException     if the specified key or the function is null
+     * @throws IllegalArgumentException if the specified key is out of bounds
      */
     @Override
-    public Entry<K, V> lowerEntry(K key) {
-        if (this.isSubmap()) {
-            throw new UnsupportedOperationException();
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        checkKey(key);
+        if (mappingFunction == null) {
+            throw new NullPointerException();
         }
 
-        if (key == null) {
+        V value = internalOakMap.getValueTransformation(key, valueDeserializeTransformer);
+        if (value != null) {
+            return value;
+        }
+        value = mappingFunction.apply(key);
+        if (value == null) {
+            return null;
+        }
+        V existing = (V) internalOakMap.putIfAbsent(key, value, valueDeserializeTransformer).value;
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * If the specified key is not already associated with a value, associates it with the given value.
+     * Otherwise, atomically replaces the value with the result of the given function, or removes the
+     * mapping if the result is {@code null}. See {@link #compute(Object, BiFunction)} for the atomicity guarantees.
+     * Creates a copy of the new value in the map.
+     *
+     * @throws NullPointerException     if any of the parameters is null
+     * @throws IllegalArgumentException if the specified key is out of bounds
+     */
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        checkKey(key);
+        if (value == null || remappingFunction == null) {
             throw new NullPointerException();
         }
 
-        return internalOakMap.lowerEntry(key);
+        return internalOakMap.compute(key, oldValue -> oldValue == null ? value :
+                remappingFunction.apply(valueDeserializeTransformer.apply(oldValue), value));
+    }
+
+    /* ---------------- NavigableMap API methods -------------- */
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return navigateEntry(checkNavigationKey(key), true, false);
     }
 
     /**
@@ -293,17 +464,110 @@ public class OakMap<K, V> extends AbstractMap<K, V>
      */
     @Override
     public K lowerKey(K key) {
-        if (this.isSubmap()) {
-            throw new UnsupportedOperationException();
-        }
+        return navigateKey(checkNavigationKey(key), true, false);
+    }
 
-        if (key == null) {
-            throw new NullPointerException();
-        }
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return navigateEntry(checkNavigationKey(key), true, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public K floorKey(K key) {
+        return navigateKey(checkNavigationKey(key), true, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return navigateEntry(checkNavigationKey(key), false, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public K ceilingKey(K key) {
+        return navigateKey(checkNavigationKey(key), false, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return navigateEntry(checkNavigationKey(key), false, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public K higherKey(K key) {
+        return navigateKey(checkNavigationKey(key), false, false);
+    }
 
-        return internalOakMap.lowerEntry(key).getKey();
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public Entry<K, V> firstEntry() {
+        return navigateEntry(null, false, false);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public Entry<K, V> lastEntry() {
+        return navigateEntry(null, true, false);
+    }
+
+    /**
+     * Atomically removes and returns the mapping with the least key in this map, or {@code null} if the map
+     * is empty. Each mapping is returned by a single poll, so the map can serve as a concurrent priority queue.
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public Entry<K, V> pollFirstEntry() {
+        return internalOakMap.pollEntry(isInternalNavigationLower(false));
+    }
+
+    /**
+     * Atomically removes and returns the mapping with the greatest key in this map, or {@code null} if the map
+     * is empty. Each mapping is returned by a single poll, so the map can serve as a concurrent priority queue.
+     *
+     * @throws UnsupportedOperationException if used on a SubMap
+     */
+    @Override
+    public Entry<K, V> pollLastEntry() {
+        return internalOakMap.pollEntry(isInternalNavigationLower(true));
+    }
 
     /* ---------------- ConcurrentNavigableMap API methods -------------- */
 
@@ -472,7 +736,7 @@ public class OakMap<K, V> extends AbstractMap<K, V>
 
     /* ------ Zero-Copy API methods  ------ */
 
-    public ZeroCopyMap<K, V> zc() {
+    public OakZeroCopyMap<K, V> zc() {
         return new OakZeroCopyMap<>(this);
     }
 
@@ -508,6 +772,21 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             return m.internalOakMap.remove(key, null, null).operationResult == ValueUtils.ValueResult.TRUE;
         }
 
+        public void multiGet(List<? extends K> keys, OakUnscopedBuffer[] values) {
+            m.checkKeys(keys);
+            m.internalOakMap.multiGet(keys, values);
+        }
+
+        public void putAll(Map<? extends K, ? extends V> map) {
+            m.checkKeys(map.keySet());
+            m.internalOakMap.putAll(map);
+        }
+
+        public boolean removeAll(Collection<? extends K> keys) {
+            m.checkKeys(keys);
+            return m.internalOakMap.removeAll(keys);
+        }
+
         public boolean putIfAbsent(K key, V value) {
             m.checkKey(key);
             if (value == null) {
@@ -537,6 +816,180 @@ public class OakMap<K, V> extends AbstractMap<K, V>
         }
 
 
+        public boolean compute(K key, Function<OakScopedReadBuffer, ? extends V> remappingFunction) {
+            m.checkKey(key);
+            if (remappingFunction == null) {
+                throw new NullPointerException();
+            }
+
+            return m.internalOakMap.compute(key, remappingFunction) != null;
+        }
+
+        public boolean computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+            m.checkKey(key);
+            if (mappingFunction == null) {
+                throw new NullPointerException();
+            }
+
+            if (m.internalOakMap.get(key) != null) {
+                return false;
+            }
+            V value = mappingFunction.apply(key);
+            if (value == null) {
+                return false;
+            }
+            return m.internalOakMap.putIfAbsent(key, value, null).operationResult == ValueUtils.ValueResult.TRUE;
+        }
+
+        public boolean merge(K key, V value,
+            BiFunction<OakScopedReadBuffer, ? super V, ? extends V> remappingFunction) {
+            m.checkKey(key);
+            if (value == null || remappingFunction == null) {
+                throw new NullPointerException();
+            }
+
+            return m.internalOakMap.compute(key, oldValue -> oldValue == null ? value :
+                    remappingFunction.apply(oldValue, value)) != null;
+        }
+
+        /* ------ Navigation methods ------ */
+
+        /**
+         * Returns a read only view of the greatest key strictly less than the given key,
+         * or {@code null} if there is no such key. See {@link OakMap#lowerKey(Object)}.
+         *
+         * @throws NullPointerException          if the specified key is null
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public OakUnscopedBuffer lowerKey(K key) {
+            return navigateKey(m.checkNavigationKey(key), true, false);
+        }
+
+        /**
+         * Returns a read only view of the greatest key less than or equal to the given key,
+         * or {@code null} if there is no such key. See {@link OakMap#floorKey(Object)}.
+         *
+         * @throws NullPointerException          if the specified key is null
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public OakUnscopedBuffer floorKey(K key) {
+            return navigateKey(m.checkNavigationKey(key), true, true);
+        }
+
+        /**
+         * Returns a read only view of the least key greater than or equal to the given key,
+         * or {@code null} if there is no such key. See {@link OakMap#ceilingKey(Object)}.
+         *
+         * @throws NullPointerException          if the specified key is null
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public OakUnscopedBuffer ceilingKey(K key) {
+            return navigateKey(m.checkNavigationKey(key), false, true);
+        }
+
+        /**
+         * Returns a read only view of the least key strictly greater than the given key,
+         * or {@code null} if there is no such key. See {@link OakMap#higherKey(Object)}.
+         *
+         * @throws NullPointerException          if the specified key is null
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public OakUnscopedBuffer higherKey(K key) {
+            return navigateKey(m.checkNavigationKey(key), false, false);
+        }
+
+        /**
+         * Returns a read only view of the first (lowest) key in the map,
+         * or {@code null} if the map is empty.
+         *
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public OakUnscopedBuffer firstKey() {
+            return navigateKey(null, false, false);
+        }
+
+        /**
+         * Returns a read only view of the last (highest) key in the map,
+         * or {@code null} if the map is empty.
+         *
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public OakUnscopedBuffer lastKey() {
+            return navigateKey(null, true, false);
+        }
+
+        /**
+         * Returns read only views of the mapping with the greatest key strictly less than the given key,
+         * or {@code null} if there is no such key. See {@link OakMap#lowerEntry(Object)}.
+         *
+         * @throws NullPointerException          if the specified key is null
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public Entry<OakUnscopedBuffer, OakUnscopedBuffer> lowerEntry(K key) {
+            return navigateEntry(m.checkNavigationKey(key), true, false);
+        }
+
+        /**
+         * Returns read only views of the mapping with the greatest key less than or equal to the given key,
+         * or {@code null} if there is no such key. See {@link OakMap#floorEntry(Object)}.
+         *
+         * @throws NullPointerException          if the specified key is null
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public Entry<OakUnscopedBuffer, OakUnscopedBuffer> floorEntry(K key) {
+            return navigateEntry(m.checkNavigationKey(key), true, true);
+        }
+
+        /**
+         * Returns read only views of the mapping with the least key greater than or equal to the given key,
+         * or {@code null} if there is no such key. See {@link OakMap#ceilingEntry(Object)}.
+         *
+         * @throws NullPointerException          if the specified key is null
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public Entry<OakUnscopedBuffer, OakUnscopedBuffer> ceilingEntry(K key) {
+            return navigateEntry(m.checkNavigationKey(key), false, true);
+        }
+
+        /**
+         * Returns read only views of the mapping with the least key strictly greater than the given key,
+         * or {@code null} if there is no such key. See {@link OakMap#higherEntry(Object)}.
+         *
+         * @throws NullPointerException          if the specified key is null
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public Entry<OakUnscopedBuffer, OakUnscopedBuffer> higherEntry(K key) {
+            return navigateEntry(m.checkNavigationKey(key), false, false);
+        }
+
+        /**
+         * Returns read only views of the mapping with the first (lowest) key in the map,
+         * or {@code null} if the map is empty.
+         *
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public Entry<OakUnscopedBuffer, OakUnscopedBuffer> firstEntry() {
+            return navigateEntry(null, false, false);
+        }
+
+        /**
+         * Returns read only views of the mapping with the last (highest) key in the map,
+         * or {@code null} if the map is empty.
+         *
+         * @throws UnsupportedOperationException if used on a SubMap
+         */
+        public Entry<OakUnscopedBuffer, OakUnscopedBuffer> lastEntry() {
+            return navigateEntry(null, true, false);
+        }
+
+        private OakUnscopedBuffer navigateKey(K key, boolean lower, boolean inclusive) {
+            return m.internalOakMap.navigateKey(key, m.isInternalNavigationLower(lower), inclusive);
+        }
+
+        private Entry<OakUnscopedBuffer, OakUnscopedBuffer> navigateEntry(K key, boolean lower, boolean inclusive) {
+            return m.internalOakMap.navigateEntry(key, m.isInternalNavigationLower(lower), inclusive);
+        }
+
         public Set<OakUnscopedBuffer> keySet() {
             return new KeyBufferSet<>(m);
         }
@@ -565,6 +1018,11 @@ public class OakMap<K, V> extends AbstractMap<K, V>
 
     /* ----------- Oak misc methods ----------- */
 
+    // loads sorted entries into the new map before the builder returns it, see OakMapBuilder.bulkLoad()
+    void bulkLoad(Spliterator<? extends Map.Entry<? extends K, ? extends V>> sortedEntries, boolean parallel) {
+        internalOakMap.bulkLoad(sortedEntries, parallel);
+    }
+
     /**
      * @return current off heap memory usage in bytes
      */
@@ -573,6 +1031,44 @@ public class OakMap<K, V> extends AbstractMap<K, V>
         return internalOakMap.memorySize();
     }
 
+    /**
+     * Changes the off-heap memory capacity, without rebuilding the map. If the capacity shrinks below the
+     * memory already used, no memory is released, but new memory is not taken until enough is released
+     * (e.g., by the compaction). Can be called concurrently with other operations.
+     *
+     * @param capacity the new memory capacity in bytes
+     * @throws IllegalArgumentException if the capacity is not positive, or if it cannot be addressed by the
+     *                                  compact key references (see OakMapBuilder.setExtendedReferences())
+     */
+    @Override
+    public void setMemoryCapacity(long capacity) {
+        internalOakMap.setMemoryCapacity(capacity);
+    }
+
+    /**
+     * Compacts the off-heap memory: the live keys and values are relocated off the blocks which are at most
+     * half used, and the emptied blocks are returned to the blocks pool. The map can be used concurrently.
+     * The blocks emptied by this call are returned to the pool by a later call, once the operations and the
+     * iterators that started before they were emptied, and the buffers they have read from them, are garbage
+     * collected. Until then the keys and values read before they were relocated can still be accessed.
+     * Thus, the method is meant to be called periodically.
+     *
+     * @return the number of blocks that were emptied
+     */
+    @Override
+    public int compact() {
+        return internalOakMap.compact();
+    }
+
+    /**
+     * @return the off-heap memory statistics of the map, which are collected regardless of the builder settings.
+     * They can also be exported through JMX, see {@code OakMapBuilder.setMBeanName()}.
+     */
+    @Override
+    public OakMemoryStatsMBean getMemoryStats() {
+        return internalOakMap.getMemoryStats();
+    }
+
     /**
      * Close and release the map and all the memory that is used by it.
      * The user should ensure that there are no concurrent operations
@@ -596,10 +1092,51 @@ public class OakMap<K, V> extends AbstractMap<K, V>
         }
     }
 
+    // the keys of a batch are checked up front only by a SubMap, the internal map checks null keys anyway
+    private void checkKeys(Collection<? extends K> keys) {
+        if (this.isSubmap()) {
+            for (K key : keys) {
+                checkKey(key);
+            }
+        }
+    }
+
     private boolean isSubmap() {
         return (this.fromKey != null || this.toKey != null);
     }
 
+    private K checkNavigationKey(K key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return key;
+    }
+
+    /**
+     * Translates a navigation in the order of this map to the internal (ascending) order, in which the
+     * direction is reversed if this map is descending. See {@code InternalOakMap.navigateKeyTransformation()}.
+     *
+     * @param lower whether to navigate to a lower key (in the order of this map)
+     * @return whether to navigate to a lower key in the internal map
+     */
+    private boolean isInternalNavigationLower(boolean lower) {
+        // this interface shouldn't be used with subMap
+        if (this.isSubmap()) {
+            throw new UnsupportedOperationException();
+        }
+        return lower != isDescending;
+    }
+
+    private K navigateKey(K key, boolean lower, boolean inclusive) {
+        return internalOakMap.navigateKeyTransformation(key, isInternalNavigationLower(lower), inclusive,
+                keyDeserializeTransformer);
+    }
+
+    private Entry<K, V> navigateEntry(K key, boolean lower, boolean inclusive) {
+        return internalOakMap.navigateEntryTransformation(key, isInternalNavigationLower(lower), inclusive,
+                entryDeserializeTransformer);
+    }
+
     /**
      * Returns a {@link Iterator} of the values contained in this map
      * in ascending order of the corresponding keys.
@@ -651,76 +1188,75 @@ public class OakMap<K, V> extends AbstractMap<K, V>
         return internalOakMap.entriesStreamIterator(fromKey, fromInclusive, toKey, toInclusive, isDescending);
     }
 
-    /* ---------------- TODO: Move methods below to their proper place as they are implemented -------------- */
-
+    /*
+     * The spliterators below split the range of this map at the boundaries of the orderedChunks,
+     * and traverse each part with an iterator of the same kind as the iterators above.
+     * The zero-copy buffers are not compared by the comparator of the map, so their spliterators are not SORTED.
+     */
 
-    @Override
-    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
-        throw new UnsupportedOperationException();
+    private Comparator<K> keysOrder() {
+        return isDescending ? comparator.reversed() : comparator;
     }
 
-    @Override
-    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
-        return null;
+    private Spliterator<V> valuesSpliterator() {
+        return internalOakMap.spliterator(fromKey, fromInclusive, toKey, toInclusive, isDescending,
+                (lo, loInclusive, hi, hiInclusive, descending) -> internalOakMap.valuesTransformIterator(
+                        lo, loInclusive, hi, hiInclusive, descending, valueDeserializeTransformer),
+                BUFFER_SPLITERATOR_CHARACTERISTICS, null);
     }
 
-    @Override
-    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
-        return null;
+    private Spliterator<Map.Entry<K, V>> entriesSpliterator() {
+        return internalOakMap.spliterator(fromKey, fromInclusive, toKey, toInclusive, isDescending,
+                (lo, loInclusive, hi, hiInclusive, descending) -> internalOakMap.entriesTransformIterator(
+                        lo, loInclusive, hi, hiInclusive, descending, entryDeserializeTransformer),
+                SPLITERATOR_CHARACTERISTICS, Map.Entry.comparingByKey(keysOrder()));
     }
 
-    @Override
-    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
-        return null;
+    private Spliterator<K> keysSpliterator() {
+        return internalOakMap.spliterator(fromKey, fromInclusive, toKey, toInclusive, isDescending,
+                (lo, loInclusive, hi, hiInclusive, descending) -> internalOakMap.keysTransformIterator(
+                        lo, loInclusive, hi, hiInclusive, descending, keyDeserializeTransformer),
+                SPLITERATOR_CHARACTERISTICS, keysOrder());
     }
 
-    @Override
-    public Entry<K, V> floorEntry(K key) {
-        throw new UnsupportedOperationException();
+    private Spliterator<OakUnscopedBuffer> keysBufferSpliterator() {
+        return internalOakMap.spliterator(fromKey, fromInclusive, toKey, toInclusive, isDescending,
+                internalOakMap::keysBufferViewIterator,
+                BUFFER_SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT, null);
     }
 
-    @Override
-    public K floorKey(K key) {
-        throw new UnsupportedOperationException();
+    private Spliterator<OakUnscopedBuffer> valuesBufferSpliterator() {
+        return internalOakMap.spliterator(fromKey, fromInclusive, toKey, toInclusive, isDescending,
+                internalOakMap::valuesBufferViewIterator, BUFFER_SPLITERATOR_CHARACTERISTICS, null);
     }
 
-    @Override
-    public Entry<K, V> ceilingEntry(K key) {
-        throw new UnsupportedOperationException();
+    private Spliterator<Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer>> entriesBufferSpliterator() {
+        return internalOakMap.spliterator(fromKey, fromInclusive, toKey, toInclusive, isDescending,
+                internalOakMap::entriesBufferViewIterator,
+                BUFFER_SPLITERATOR_CHARACTERISTICS | Spliterator.DISTINCT, null);
     }
 
-    @Override
-    public K ceilingKey(K key) {
-        throw new UnsupportedOperationException();
+    // the stream buffers are reused by the iterator, so each element is valid only until the next one is read
+    private Spliterator<OakUnscopedBuffer> keysStreamSpliterator() {
+        return internalOakMap.spliterator(fromKey, fromInclusive, toKey, toInclusive, isDescending,
+                internalOakMap::keysStreamIterator, BUFFER_SPLITERATOR_CHARACTERISTICS, null);
     }
 
-    @Override
-    public Entry<K, V> higherEntry(K key) {
-        throw new UnsupportedOperationException();
+    private Spliterator<OakUnscopedBuffer> valuesStreamSpliterator() {
+        return internalOakMap.spliterator(fromKey, fromInclusive, toKey, toInclusive, isDescending,
+                internalOakMap::valuesStreamIterator, BUFFER_SPLITERATOR_CHARACTERISTICS, null);
     }
 
-    @Override
-    public K higherKey(K key) {
-        throw new UnsupportedOperationException();
+    private Spliterator<Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer>> entriesStreamSpliterator() {
+        return internalOakMap.spliterator(fromKey, fromInclusive, toKey, toInclusive, isDescending,
+                internalOakMap::entriesStreamIterator, BUFFER_SPLITERATOR_CHARACTERISTICS, null);
     }
 
-    @Override
-    public Entry<K, V> firstEntry() {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public Entry<K, V> lastEntry() {
-        throw new UnsupportedOperationException();
-    }
+    /* ---------------- TODO: Move methods below to their proper place as they are implemented -------------- */
 
-    @Override
-    public Entry<K, V> pollFirstEntry() {
-        throw new UnsupportedOperationException();
-    }
 
     @Override
-    public Entry<K, V> pollLastEntry() {
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
         throw new UnsupportedOperationException();
     }
 
@@ -771,6 +1307,11 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             return m.keysIterator();
         }
 
+        @Override
+        public Spliterator<K> spliterator() {
+            return m.keysSpliterator();
+        }
+
         @Override
         public NavigableSet<K> descendingSet() {
             return new KeySet<>(m.descendingMap());
@@ -844,6 +1385,11 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             return m.entriesIterator();
         }
 
+        @Override
+        public Spliterator<Entry<K, V>> spliterator() {
+            return m.entriesSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -863,6 +1409,11 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             return m.valuesIterator();
         }
 
+        @Override
+        public Spliterator<V> spliterator() {
+            return m.valuesSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -882,6 +1433,11 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             return m.keysBufferIterator();
         }
 
+        @Override
+        public Spliterator<OakUnscopedBuffer> spliterator() {
+            return m.keysBufferSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -900,6 +1456,11 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             return m.entriesBufferIterator();
         }
 
+        @Override
+        public Spliterator<Entry<OakUnscopedBuffer, OakUnscopedBuffer>> spliterator() {
+            return m.entriesBufferSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -919,6 +1480,11 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             return m.valuesBufferIterator();
         }
 
+        @Override
+        public Spliterator<OakUnscopedBuffer> spliterator() {
+            return m.valuesBufferSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -938,6 +1504,11 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             return m.keysStreamIterator();
         }
 
+        @Override
+        public Spliterator<OakUnscopedBuffer> spliterator() {
+            return m.keysStreamSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -956,6 +1527,11 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             return m.entriesStreamIterator();
         }
 
+        @Override
+        public Spliterator<Entry<OakUnscopedBuffer, OakUnscopedBuffer>> spliterator() {
+            return m.entriesStreamSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -975,6 +1551,11 @@ public class OakMap<K, V> extends AbstractMap<K, V>
             return m.valuesStreamIterator();
         }
 
+        @Override
+        public Spliterator<OakUnscopedBuffer> spliterator() {
+            return m.valuesStreamSpliterator();
+        }
+
         @Override
         public int size() {
             return m.size();
@@ -6,6 +6,12 @@
 
 package com.yahoo.oak;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+
 /**
  * This class builds a new OakMap instance, and sets serializers, deserializers and allocation size calculators,
  * received from the user.
@@ -34,6 +40,19 @@ public class OakMapBuilder<K, V> {
     private long memoryCapacity;
     private BlockMemoryAllocator memoryAllocator;
     private Integer preferredBlockSizeBytes;
+    private int threadLocalBufferSizeBytes;
+    private boolean splitFreeMemory;
+    private BlocksProvider blocksProvider;
+    private double memorySoftLimit;
+    private OakMemoryListener memoryListener;
+    private long maxAllocationBlockingNanos;
+    private String mbeanName;
+    private long maxReleaseDelayNanos;
+    private boolean extendedReferences;
+    private boolean colocateKeysAndValues;
+    private boolean inlineValues;
+    private boolean keyPrefixes;
+    private boolean offHeapEntries;
 
     public OakMapBuilder(OakComparator<K> comparator,
                          OakSerializer<K> keySerializer, OakSerializer<V> valueSerializer, K minKey) {
@@ -49,6 +68,19 @@ public class OakMapBuilder<K, V> {
         this.memoryCapacity = MAX_MEM_CAPACITY;
         this.memoryAllocator = null;
         this.preferredBlockSizeBytes = null;
+        this.threadLocalBufferSizeBytes = NativeMemoryAllocator.NO_THREAD_LOCAL_BUFFERS;
+        this.splitFreeMemory = false;
+        this.blocksProvider = null;
+        this.memorySoftLimit = NativeMemoryAllocator.NO_SOFT_LIMIT;
+        this.memoryListener = null;
+        this.maxAllocationBlockingNanos = NativeMemoryAllocator.NO_BLOCKING;
+        this.mbeanName = null;
+        this.maxReleaseDelayNanos = SyncRecycleMemoryManager.NO_BACKGROUND_RECLAMATION;
+        this.extendedReferences = false;
+        this.colocateKeysAndValues = false;
+        this.inlineValues = false;
+        this.keyPrefixes = false;
+        this.offHeapEntries = false;
     }
 
     public OakMapBuilder<K, V> setKeySerializer(OakSerializer<K> keySerializer) {
@@ -105,6 +137,212 @@ public class OakMapBuilder<K, V> {
         return this;
     }
 
+    /**
+     * Sets a provider of memory mapped blocks, so the map's off-heap memory is backed by a file instead of
+     * the process' anonymous memory. By default, the blocks are taken from the shared blocks pool.
+     * The provider may be shared by several maps, and should be closed after all of them are closed.
+     * This has no effect if a memory allocator is set explicitly.
+     * @param blocksProvider the memory mapped blocks provider
+     */
+    public OakMapBuilder<K, V> setBlocksProvider(MappedFileBlocksProvider blocksProvider) {
+        this.blocksProvider = blocksProvider;
+        return this;
+    }
+
+    /**
+     * Sets the blocks pool of the map, instead of the shared blocks pool (see {@code BlocksPool.Builder}).
+     * The pool may be shared by several maps, and should be closed after all of them are closed.
+     * Note: the preferred block size applies only to the shared pool.
+     * This has no effect if a memory allocator is set explicitly.
+     * @param blocksPool the blocks pool
+     */
+    public OakMapBuilder<K, V> setBlocksProvider(BlocksPool blocksPool) {
+        this.blocksProvider = blocksPool;
+        return this;
+    }
+
+    /**
+     * Sets the size of the per-thread allocation buffers. Each thread claims a region of this size
+     * from the shared memory and allocates its keys and values (that are not bigger) from it without
+     * contending with other threads. Zero (the default) disables the thread local buffers.
+     * This has no effect if a memory allocator is set explicitly.
+     * @param threadLocalBufferSizeBytes the buffer size, should not be bigger than the block size
+     */
+    public OakMapBuilder<K, V> setThreadLocalBufferSize(int threadLocalBufferSizeBytes) {
+        this.threadLocalBufferSizeBytes = threadLocalBufferSizeBytes;
+        return this;
+    }
+
+    /**
+     * Sets whether released off-heap memory is split and merged. When set, a big released cut can serve a smaller
+     * allocation, and the rest of it stays free, so workloads whose value sizes shrink over time reuse memory
+     * instead of allocating new blocks. Adjacent released keys are merged as well, so they can serve bigger keys
+     * and values. By default (false), released memory is reused only for allocations of a similar size.
+     * Released values are never merged into the preceding free memory, so a value header (which detects stale
+     * references) always stays at the start of a cut. Thus, memory released by values whose size grows over
+     * time is reused only by smaller allocations.
+     * This has no effect if a memory allocator is set explicitly.
+     * @param splitFreeMemory whether to split released memory
+     */
+    public OakMapBuilder<K, V> setSplitFreeMemory(boolean splitFreeMemory) {
+        this.splitFreeMemory = splitFreeMemory;
+        return this;
+    }
+
+    /**
+     * Sets a soft limit on the off-heap memory, as a ratio of the memory capacity. Once the memory allocated by
+     * the map exceeds it, the listener is notified (on a dedicated thread), so it can release memory before the
+     * capacity is exhausted. See {@code OakMemoryListener}.
+     * This has no effect if a memory allocator is set explicitly.
+     * @param memorySoftLimit the ratio of the memory capacity, in (0, 1]
+     * @param memoryListener notified when the soft limit is exceeded
+     */
+    public OakMapBuilder<K, V> setMemorySoftLimit(double memorySoftLimit, OakMemoryListener memoryListener) {
+        this.memorySoftLimit = memorySoftLimit;
+        this.memoryListener = memoryListener;
+        return this;
+    }
+
+    /**
+     * Sets the maximal time a writer waits for memory to be released (e.g., by concurrent removals, or by the
+     * compaction) when the memory capacity is exhausted, before OakOutOfMemoryException is thrown.
+     * By default, the exception is thrown immediately.
+     * Note: the writer may wait in the middle of an operation, so the time should be kept short.
+     * Removals from an OakMap may need a little memory as well (to rebalance its chunks), so memory should be
+     * released before the capacity is fully exhausted, e.g., by a soft limit listener.
+     * This has no effect if a memory allocator is set explicitly.
+     * @param maxAllocationBlockingTime the maximal waiting time
+     * @param unit the time unit of maxAllocationBlockingTime
+     */
+    public OakMapBuilder<K, V> setMaxAllocationBlockingTime(long maxAllocationBlockingTime, TimeUnit unit) {
+        this.maxAllocationBlockingNanos = unit.toNanos(maxAllocationBlockingTime);
+        return this;
+    }
+
+    /**
+     * Registers the memory statistics of the built map (see {@code OakMemoryStatsMBean}) in the platform MBean
+     * server, under the name "com.yahoo.oak:type=OakMemoryStats,name=&lt;mbeanName&gt;" (the name is quoted).
+     * The statistics are unregistered when the map is closed. A builder that builds several maps should be
+     * given a different name for each of them.
+     * @param mbeanName the name of the map, or null to not register the statistics (the default)
+     */
+    public OakMapBuilder<K, V> setMBeanName(String mbeanName) {
+        this.mbeanName = mbeanName;
+        return this;
+    }
+
+    /**
+     * Enables the background reclamation, and sets the maximal time the memory of a removed (or replaced) key
+     * or value waits before it is reused. The memory is not reused immediately, as concurrent readers might still
+     * access it, instead it is gathered per thread and freed in batches. By default (or with zero), the memory
+     * is freed by the removing thread itself, once it gathers enough memory. With background reclamation,
+     * the batches are freed by a background thread of the map, which is stopped once the map is closed.
+     * Once a thread gathers a batch, or its first gathered memory waits for the maximal time (e.g., as the thread
+     * went idle), the batch is freed.
+     * @param maxReleaseDelay the maximal waiting time (at least 10 milliseconds), or zero
+     * @param unit the time unit of maxReleaseDelay
+     */
+    public OakMapBuilder<K, V> setMaxReleaseDelay(long maxReleaseDelay, TimeUnit unit) {
+        this.maxReleaseDelayNanos = unit.toNanos(maxReleaseDelay);
+        return this;
+    }
+
+    /**
+     * Sets whether the keys of an OakMap are referenced with the extended encoding, which addresses any number
+     * of blocks at the cost of 4 bytes per key. The compact encoding (the default) addresses 128GB with the
+     * default block size (see {@code SeqExpandMemoryManager}), thus the extended encoding is used anyway when
+     * the memory capacity is bigger. Set this if the capacity may grow at runtime beyond that.
+     * @param extendedReferences whether to use the extended encoding for the keys
+     */
+    public OakMapBuilder<K, V> setExtendedReferences(boolean extendedReferences) {
+        this.extendedReferences = extendedReferences;
+        return this;
+    }
+
+    /**
+     * Sets whether an OakMap allocates a new key and its value in a single off-heap cut, the value right after
+     * the key. A lookup then reads the value from memory adjacent to the key it found, rather than from a cut
+     * allocated independently (possibly in another block). The value stays next to the key as long as it is
+     * updated in place, it is relocated only when it grows beyond its cut. The key and the value are released
+     * independently. Ignored by OakHashMap.
+     * @param colocateKeysAndValues whether to allocate the keys and the values together
+     */
+    public OakMapBuilder<K, V> setColocateKeysAndValues(boolean colocateKeysAndValues) {
+        this.colocateKeysAndValues = colocateKeysAndValues;
+        return this;
+    }
+
+    /**
+     * Sets whether an OakMap keeps each value inline, in the entry referring to it, rather than in off-heap memory.
+     * Requires a value serializer of a fixed size of up to 7 bytes (see OakSerializer.getFixedSize()), as a byte
+     * of the entry's value reference is kept for the value state. An inline value is read without a lock and
+     * without following a reference, and it takes no off-heap memory. It is updated by a CAS of its entry,
+     * so a compute function may be applied more than once under contention. The buffers of an inline value
+     * (e.g., of a zero-copy get) are snapshots, which do not reflect later updates of the value.
+     * Overrides setColocateKeysAndValues(). Ignored by OakHashMap.
+     * @param inlineValues whether to keep the values inline
+     */
+    public OakMapBuilder<K, V> setInlineValues(boolean inlineValues) {
+        this.inlineValues = inlineValues;
+        return this;
+    }
+
+    /**
+     * Sets whether each entry of an OakMap keeps an 8 bytes prefix of its key (see OakComparator.getKeyPrefix()).
+     * A search then compares the prefixes first, and reads a key off-heap only if its prefix equals the prefix of
+     * the searched key. Useful with keys whose prefixes mostly differ (e.g., strings or byte arrays), given a
+     * comparator that provides their prefixes. Ignored by OakHashMap.
+     * @param keyPrefixes whether to keep the prefixes of the keys
+     */
+    public OakMapBuilder<K, V> setKeyPrefixes(boolean keyPrefixes) {
+        this.keyPrefixes = keyPrefixes;
+        return this;
+    }
+
+    /**
+     * Sets whether the entries arrays of the chunks are allocated off-heap, from the blocks of the map, instead of
+     * heap arrays. An ordered chunk keeps 20 bytes per entry (e.g., 80KB for a chunk of 4096 entries) and a hash
+     * chunk 24 bytes, so with off-heap entries the heap usage of a huge map stays nearly constant regardless of its
+     * number of entries. The entries of a chunk replaced by a rebalance are freed only once the chunk is garbage
+     * collected.
+     * @param offHeapEntries whether to allocate the entries arrays off-heap
+     */
+    public OakMapBuilder<K, V> setOffHeapEntries(boolean offHeapEntries) {
+        this.offHeapEntries = offHeapEntries;
+        return this;
+    }
+
+    // the entries arrays are cut from the blocks of the keys (see OffHeapEntriesAllocator)
+    private OffHeapEntriesAllocator createOffHeapEntriesAllocatorIfNeeded(MemoryManager keysMemoryManager) {
+        return offHeapEntries ? new OffHeapEntriesAllocator(keysMemoryManager) : null;
+    }
+
+    // the map is closed if its statistics cannot be registered
+    private <M extends ConcurrentZCMap<K, V>> M registerMemoryStats(M map) {
+        if (mbeanName != null) {
+            try {
+                ((OakMemoryStats) map.getMemoryStats()).register(mbeanName);
+            } catch (IllegalArgumentException e) {
+                map.close();
+                throw e;
+            }
+        }
+        return map;
+    }
+
+    private void createMemoryAllocatorIfNeeded() {
+        if (memoryAllocator == null) {
+            BlocksProvider provider = blocksProvider != null ? blocksProvider : BlocksPool.getInstance();
+            FreeList freeList = splitFreeMemory ? new SplittingFreeList() : new SizeClassFreeList();
+            NativeMemoryAllocator allocator = new NativeMemoryAllocator(memoryCapacity, provider,
+                    threadLocalBufferSizeBytes, freeList);
+            if (memoryListener != null) {
+                allocator.setSoftLimit(memorySoftLimit, memoryListener);
+            }
+            allocator.setMaxBlockingTime(maxAllocationBlockingNanos, TimeUnit.NANOSECONDS);
+            this.memoryAllocator = allocator;
+        }
+    }
 
     private void checkPreconditions() {
         if (comparator == null) {
@@ -124,22 +362,77 @@ public class OakMapBuilder<K, V> {
             BlocksPool.preferBlockSize(preferredBlockSizeBytes);
         }
 
-        if (memoryAllocator == null) {
-            this.memoryAllocator = new NativeMemoryAllocator(memoryCapacity);
+        if (inlineValues && valueSerializer != null) {
+            int valueSize = valueSerializer.getFixedSize();
+            if (valueSize <= 0 || valueSize > InlineValueMemoryManager.MAX_VALUE_SIZE) {
+                throw new IllegalStateException(String.format(
+                        "Inline values require a fixed value size of 1 to %d bytes (value size: %d)",
+                        InlineValueMemoryManager.MAX_VALUE_SIZE, valueSize));
+            }
         }
 
-        MemoryManager valuesMemoryManager = new SyncRecycleMemoryManager(memoryAllocator);
-        MemoryManager keysMemoryManager = new SeqExpandMemoryManager(memoryAllocator);
+        createMemoryAllocatorIfNeeded();
+
+        MemoryManager keysMemoryManager = new SeqExpandMemoryManager(memoryAllocator,
+                extendedReferences || SeqExpandMemoryManager.requiresExtendedReferences(memoryAllocator));
         checkPreconditions();
         if (minKey == null) {
             throw new IllegalStateException("Must provide a non-null minimal key object to build the OakMap");
         }
-        return new OakMap<>(
+        MemoryManager valuesMemoryManager = inlineValues
+                ? new InlineValueMemoryManager(memoryAllocator, valueSerializer.getFixedSize())
+                : new SyncRecycleMemoryManager(memoryAllocator, maxReleaseDelayNanos);
+        return registerMemoryStats(new OakMap<>(
                 minKey,
                 keySerializer,
                 valueSerializer,
                 comparator, orderedChunkMaxItems,
-                valuesMemoryManager, keysMemoryManager);
+                valuesMemoryManager, keysMemoryManager, colocateKeysAndValues && !inlineValues, keyPrefixes,
+                createOffHeapEntriesAllocatorIfNeeded(keysMemoryManager)));
+    }
+
+    /**
+     * Builds an OakMap holding the given entries, much faster than putting them one by one: as the entries
+     * are sorted, the chunks of the map are filled sequentially with no search, and are linked and indexed
+     * in a single pass.
+     *
+     * @param sortedEntries the entries of the map, in a strictly ascending order of their keys
+     * @return the new OakMap
+     * @throws IllegalArgumentException if the keys are not in a strictly ascending order
+     */
+    public OakMap<K, V> bulkLoad(Iterator<? extends Map.Entry<? extends K, ? extends V>> sortedEntries) {
+        if (sortedEntries == null) {
+            throw new NullPointerException();
+        }
+        return bulkLoad(Spliterators.spliteratorUnknownSize(sortedEntries, Spliterator.ORDERED), false);
+    }
+
+    /**
+     * As {@code bulkLoad(Iterator)}, but ranges of the entries are loaded in parallel by the common fork/join
+     * pool, as far as the spliterator splits (e.g., the spliterator of a sorted collection or of a stream).
+     *
+     * @param sortedEntries the entries of the map, in a strictly ascending order of their keys
+     * @return the new OakMap
+     * @throws IllegalArgumentException if the keys are not in a strictly ascending order
+     */
+    public OakMap<K, V> bulkLoad(Spliterator<? extends Map.Entry<? extends K, ? extends V>> sortedEntries) {
+        if (sortedEntries == null) {
+            throw new NullPointerException();
+        }
+        return bulkLoad(sortedEntries, true);
+    }
+
+    private OakMap<K, V> bulkLoad(Spliterator<? extends Map.Entry<? extends K, ? extends V>> sortedEntries,
+                                  boolean parallel) {
+        OakMap<K, V> map = buildOrderedMap();
+        try {
+            map.bulkLoad(sortedEntries, parallel);
+        } catch (RuntimeException e) {
+            // the memory of the partially loaded map is released
+            map.close();
+            throw e;
+        }
+        return map;
     }
 
 
@@ -151,12 +444,10 @@ public class OakMapBuilder<K, V> {
             BlocksPool.preferBlockSize(preferredBlockSizeBytes);
         }
 
-        if (memoryAllocator == null) {
-            this.memoryAllocator = new NativeMemoryAllocator(memoryCapacity);
-        }
-        MemoryManager valuesMemoryManager = new SyncRecycleMemoryManager(memoryAllocator);
+        createMemoryAllocatorIfNeeded();
+        MemoryManager valuesMemoryManager = new SyncRecycleMemoryManager(memoryAllocator, maxReleaseDelayNanos);
         // for hash the keys are indeed deleted, thus SeqExpandMemoryManager isn't acceptable
-        MemoryManager keysMemoryManager = new SyncRecycleMemoryManager(memoryAllocator);
+        MemoryManager keysMemoryManager = new SyncRecycleMemoryManager(memoryAllocator, maxReleaseDelayNanos);
 
         // Number of bits to define the chunk size is calculated from given number of items
         // to be kept in one hash chunk. The number of chunks pre-allocated in the hash is
@@ -167,9 +458,10 @@ public class OakMapBuilder<K, V> {
         System.gc(); // the below is memory costly, be sure all unreachable memory is cleared
 
         checkPreconditions();
-        return new OakHashMap<>(keySerializer, valueSerializer,
+        return registerMemoryStats(new OakHashMap<>(keySerializer, valueSerializer,
                 comparator,
-                bitsToKeepChunkSize, bitsToKeepChunksNum, valuesMemoryManager, keysMemoryManager);
+                bitsToKeepChunkSize, bitsToKeepChunksNum, valuesMemoryManager, keysMemoryManager,
+                createOffHeapEntriesAllocatorIfNeeded(keysMemoryManager)));
     }
 
 }
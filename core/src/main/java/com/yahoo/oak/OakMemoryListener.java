@@ -0,0 +1,24 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+/**
+ * Notified when the off-heap memory allocated by a map exceeds its soft limit (see
+ * {@code OakMapBuilder.setMemorySoftLimit()}), so the application can react before the capacity is exhausted,
+ * e.g., by evicting or spilling entries, or by throttling its writers.
+ */
+@FunctionalInterface
+public interface OakMemoryListener {
+    /**
+     * Invoked on a dedicated thread (never on a thread which accesses the map), thus the map may be accessed.
+     * It is invoked again only after the allocated memory drops below the soft limit and exceeds it again.
+     *
+     * @param allocatedBytes the memory allocated by the map when the soft limit was exceeded
+     * @param capacity       the memory capacity of the map
+     */
+    void onSoftLimitExceeded(long allocatedBytes, long capacity);
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * The memory statistics of a map, aggregated over its (distinct) memory managers and memory allocators.
+ * The counters are read on demand, nothing is computed in the background.
+ * The detailed allocator counters are available only for NativeMemoryAllocator, otherwise they are zero.
+ */
+class OakMemoryStats implements OakMemoryStatsMBean {
+    static final String MBEAN_DOMAIN = "com.yahoo.oak";
+
+    private final List<MemoryManager> memoryManagers = new ArrayList<>();
+    private final List<BlockMemoryAllocator> allocators = new ArrayList<>();
+    // the name the statistics are registered under, null if not registered
+    private ObjectName objectName = null;
+
+    OakMemoryStats(MemoryManager valuesMemoryManager, MemoryManager keysMemoryManager) {
+        memoryManagers.add(valuesMemoryManager);
+        if (keysMemoryManager != valuesMemoryManager) {
+            memoryManagers.add(keysMemoryManager);
+        }
+        for (MemoryManager mm : memoryManagers) {
+            BlockMemoryAllocator allocator = mm.getBlockMemoryAllocator();
+            if (!allocators.contains(allocator)) {
+                allocators.add(allocator);
+            }
+        }
+    }
+
+    private long sumOverMemoryManagers(ToLongFunction<MemoryManager> counter) {
+        return memoryManagers.stream().mapToLong(counter).sum();
+    }
+
+    private long sumOverAllocators(ToLongFunction<BlockMemoryAllocator> counter) {
+        return allocators.stream().mapToLong(counter).sum();
+    }
+
+    private long sumOverNativeAllocators(ToLongFunction<NativeMemoryAllocator> counter) {
+        return allocators.stream().filter(a -> a instanceof NativeMemoryAllocator)
+                .mapToLong(a -> counter.applyAsLong((NativeMemoryAllocator) a)).sum();
+    }
+
+    /*-------------- JMX --------------*/
+
+    static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(MBEAN_DOMAIN + ":type=OakMemoryStats,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * Registers the statistics in the platform MBean server.
+     *
+     * @throws IllegalArgumentException if the name is already registered
+     */
+    synchronized void register(String name) {
+        if (objectName != null) {
+            throw new IllegalStateException("The memory statistics are already registered as " + objectName);
+        }
+        try {
+            ObjectName on = objectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(this, OakMemoryStatsMBean.class), on);
+            objectName = on;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalArgumentException("An MBean named " + name + " is already registered", e);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Cannot register the memory statistics as " + name, e);
+        }
+    }
+
+    /**
+     * Unregisters the statistics from the platform MBean server. The statistics can be unregistered more
+     * than once, and are considered unregistered even if the MBean server fails to unregister them.
+     *
+     * @throws IllegalStateException if the MBean server fails to unregister the statistics
+     */
+    synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        ObjectName on = objectName;
+        objectName = null;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(on);
+        } catch (InstanceNotFoundException e) {
+            // unregistered by someone else
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister the memory statistics " + on, e);
+        }
+    }
+
+    /*-------------- OakMemoryStatsMBean --------------*/
+
+    @Override
+    public long getCapacity() {
+        return sumOverAllocators(BlockMemoryAllocator::getCapacity);
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return sumOverAllocators(BlockMemoryAllocator::allocated);
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        return sumOverNativeAllocators(NativeMemoryAllocator::footprint);
+    }
+
+    @Override
+    public long getBlocksInUse() {
+        return sumOverNativeAllocators(NativeMemoryAllocator::numOfAllocatedBlocks);
+    }
+
+    @Override
+    public long getFreeBytes() {
+        return sumOverNativeAllocators(NativeMemoryAllocator::freeBytes);
+    }
+
+    @Override
+    public double getFragmentation() {
+        long footprint = getFootprintBytes();
+        if (footprint == 0) {
+            return 0;
+        }
+        return Math.max(0, 1 - (double) getAllocatedBytes() / footprint);
+    }
+
+    @Override
+    public long getAllocations() {
+        return sumOverNativeAllocators(a -> a.getStats().getAllocations());
+    }
+
+    @Override
+    public long getReuseHits() {
+        return sumOverNativeAllocators(a -> a.getStats().getReclaimedBuffers());
+    }
+
+    @Override
+    public long getReuseMisses() {
+        // the counters are read one after the other, so a concurrent allocation might be counted only as a hit
+        return Math.max(0, getAllocations() - getReuseHits());
+    }
+
+    @Override
+    public long getReusedBytes() {
+        return sumOverNativeAllocators(a -> a.getStats().getReclaimedBytes());
+    }
+
+    @Override
+    public long getFrees() {
+        return sumOverNativeAllocators(a -> a.getStats().getReleasedBuffers());
+    }
+
+    @Override
+    public long getFreedBytes() {
+        return sumOverNativeAllocators(a -> a.getStats().getReleasedBytes());
+    }
+
+    @Override
+    public long getPendingReleases() {
+        return sumOverMemoryManagers(MemoryManager::pendingReleases);
+    }
+
+    @Override
+    public long getGlobalVersionBumps() {
+        return sumOverMemoryManagers(MemoryManager::globalVersionBumps);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+/**
+ * The off-heap memory statistics of a map. They are always collected, at the cost of a few uncontended counters,
+ * and can be exported through JMX (see {@code OakMapBuilder.setMBeanName()}), e.g., to alert on fragmentation
+ * or on reclamation lag. The statistics of maps sharing a memory allocator include the memory of all of them.
+ */
+public interface OakMemoryStatsMBean {
+    /**
+     * @return the memory capacity in bytes
+     */
+    long getCapacity();
+
+    /**
+     * @return the bytes allocated for the keys and values (including the released ones which are not yet freed)
+     */
+    long getAllocatedBytes();
+
+    /**
+     * @return the bytes of the off-heap blocks taken from the blocks provider
+     */
+    long getFootprintBytes();
+
+    /**
+     * @return the number of off-heap blocks taken from the blocks provider
+     */
+    long getBlocksInUse();
+
+    /**
+     * @return the freed bytes of the taken blocks, which are waiting to be reused (computed by traversing the blocks)
+     */
+    long getFreeBytes();
+
+    /**
+     * @return the ratio of the taken memory which is not allocated, in [0, 1]
+     */
+    double getFragmentation();
+
+    /**
+     * @return the number of allocations
+     */
+    long getAllocations();
+
+    /**
+     * @return the number of allocations served by reusing freed memory
+     */
+    long getReuseHits();
+
+    /**
+     * @return the number of allocations that could not reuse freed memory
+     */
+    long getReuseMisses();
+
+    /**
+     * @return the bytes allocated by reusing freed memory
+     */
+    long getReusedBytes();
+
+    /**
+     * @return the number of frees
+     */
+    long getFrees();
+
+    /**
+     * @return the number of freed bytes
+     */
+    long getFreedBytes();
+
+    /**
+     * @return the number of released keys and values which are not freed yet, as their reuse is delayed
+     */
+    long getPendingReleases();
+
+    /**
+     * @return the number of times the version of the released keys and values was increased
+     */
+    long getGlobalVersionBumps();
+}
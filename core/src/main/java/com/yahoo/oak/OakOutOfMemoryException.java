@@ -14,4 +14,8 @@ public class OakOutOfMemoryException extends RuntimeException {
     public OakOutOfMemoryException(String message) {
         super(message);
     }
+
+    public OakOutOfMemoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -22,4 +22,10 @@ public interface OakSerializer<T> {
 
     // calculate the hash given the object (usually used for keys only)
     int calculateHash(T object);
+
+    // returns the number of bytes of any serialized object, if all objects have the same size, or -1 otherwise
+    // (used for values that are kept inline, see OakMapBuilder.setInlineValues())
+    default int getFixedSize() {
+        return -1;
+    }
 }
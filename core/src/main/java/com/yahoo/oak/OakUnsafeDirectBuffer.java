@@ -32,6 +32,7 @@ import java.nio.ByteBuffer;
  * }
  * }
  * </pre>
+ * On Java 22 and above, OakMemorySegments provides bounds checked views of these buffers as MemorySegments.
  */
 public interface OakUnsafeDirectBuffer {
     /**
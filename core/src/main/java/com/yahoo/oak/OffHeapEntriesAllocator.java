@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Allocates the entries arrays of the chunks off-heap (see OakMapBuilder.setOffHeapEntries()), so the heap
+ * usage of a map does not grow with its number of entries. The arrays are cut from the blocks of the keys'
+ * allocator, and aligned to 8 bytes so their fields can be CASed.
+ * <p>
+ * A chunk that was replaced by a rebalance can still be read by threads (e.g., iterators) that reached it
+ * before, so its entries cannot be freed when it is unlinked. Instead, the entries of each EntryArray are
+ * tracked by a phantom reference, and are freed once the EntryArray is garbage collected. The collected entries
+ * are freed by the threads allocating new entries, which are the threads of this map (rebalancing it), so they
+ * are never freed into an allocator that was closed meanwhile.
+ * <p>
+ * Internal class, package visibility
+ */
+final class OffHeapEntriesAllocator {
+
+    private final MemoryManager memoryManager; // provides the slices describing the cuts
+    private final BlockMemoryAllocator allocator;
+    private final ReferenceQueue<EntryArray<?, ?>> collected = new ReferenceQueue<>();
+    // the references must be reachable until they are enqueued
+    private final Set<Entries> live = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param memoryManager the memory manager of the keys, the entries are cut from the blocks of its allocator
+     */
+    OffHeapEntriesAllocator(MemoryManager memoryManager) {
+        this.memoryManager = memoryManager;
+        this.allocator = memoryManager.getBlockMemoryAllocator();
+    }
+
+    /**
+     * The off-heap entries of a single EntryArray.
+     */
+    static final class Entries extends PhantomReference<EntryArray<?, ?>> {
+        private final long bytes;
+        private BlockAllocationSlice slice;
+        private long address;
+
+        private Entries(EntryArray<?, ?> owner, ReferenceQueue<EntryArray<?, ?>> queue, long bytes) {
+            super(owner, queue);
+            this.bytes = bytes;
+        }
+
+        // the address of the first (8 bytes aligned) entry
+        long getAddress() {
+            return address;
+        }
+    }
+
+    /**
+     * Allocates zeroed entries of the given size for the given EntryArray, which are freed once it is garbage
+     * collected. Frees the entries of the EntryArrays collected so far.
+     */
+    Entries allocate(EntryArray<?, ?> owner, long bytes) {
+        reclaimCollected();
+        Entries entries = new Entries(owner, collected, bytes);
+        allocateCut(entries);
+        live.add(entries);
+        return entries;
+    }
+
+    /**
+     * Allocates new zeroed entries in place of the given entries, after the allocator was cleared (so their
+     * previous cut no longer exists). NOT THREAD SAFE, as the allocator's clear.
+     */
+    void reallocate(Entries entries) {
+        allocateCut(entries);
+    }
+
+    private void allocateCut(Entries entries) {
+        if (entries.bytes > Integer.MAX_VALUE - Long.BYTES) {
+            throw new IllegalArgumentException(
+                    String.format("Cannot allocate entries larger than 2GB (size: %d).", entries.bytes));
+        }
+        BlockAllocationSlice slice = (BlockAllocationSlice) memoryManager.getEmptySlice();
+        // the cuts are not aligned, so a cut can hold aligned entries only with up to 7 more bytes
+        allocator.allocate(slice, (int) entries.bytes + Long.BYTES - 1);
+        long address = (slice.getMetadataAddress() + Long.BYTES - 1) & -Long.BYTES;
+        UnsafeUtils.setMemory(address, entries.bytes, (byte) 0);
+        entries.slice = slice;
+        entries.address = address;
+    }
+
+    // frees the entries whose EntryArrays were garbage collected
+    private void reclaimCollected() {
+        Reference<? extends EntryArray<?, ?>> ref;
+        while ((ref = collected.poll()) != null) {
+            Entries entries = (Entries) ref;
+            live.remove(entries);
+            if (!allocator.isClosed()) {
+                allocator.free(entries.slice);
+            }
+        }
+    }
+}
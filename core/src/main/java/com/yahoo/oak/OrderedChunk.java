@@ -27,6 +27,8 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
 
     /*-------------- Members --------------*/
     KeyBuffer minKey;       // minimal key that can be put in this chunk
+    // whether the minKey is the minimal key of the map, which is shared by the first chunks and never relocated
+    private boolean holdsMapMinKey;
     AtomicMarkableReference<OrderedChunk<K, V>> next;
     private final EntryOrderedSet<K, V> entryOrderedSet;
 
@@ -40,40 +42,58 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
      */
     private OrderedChunk(int maxItems, AtomicInteger externalSize, MemoryManager vMM, MemoryManager kMM,
         OakComparator<K> comparator, OakSerializer<K> keySerializer,
-        OakSerializer<V> valueSerializer) {
+        OakSerializer<V> valueSerializer, boolean keyPrefixes, OffHeapEntriesAllocator offHeapEntriesAllocator) {
         super(maxItems, externalSize, comparator);
-        this.entryOrderedSet =
-            new EntryOrderedSet<>(vMM, kMM, maxItems, keySerializer, valueSerializer);
+        this.entryOrderedSet = new EntryOrderedSet<>(vMM, kMM, maxItems, keySerializer, valueSerializer,
+            keyPrefixes, offHeapEntriesAllocator);
         // sortedCount keeps the number of  subsequent and ordered entries in the entries array,
         // which are subject to binary search
         this.sortedCount = new AtomicInteger(0);
         this.minKey = new KeyBuffer(kMM.getEmptySlice());
         this.next = new AtomicMarkableReference<>(null, false);
+        this.holdsMapMinKey = false;
     }
 
     /**
      * This constructor is only used when creating the first ever chunk (without a creator).
+     *
+     * @param keyPrefixes whether the entries keep the prefixes of their keys (see OakComparator.getKeyPrefix()),
+     *                    the children of the chunk keep them as well
+     * @param offHeapEntriesAllocator allocates the entries of the chunk (and of its children) off-heap,
+     *                                or null to keep them in heap arrays
      */
     OrderedChunk(K minKey, int maxItems, AtomicInteger externalSize, MemoryManager vMM, MemoryManager kMM,
         OakComparator<K> comparator, OakSerializer<K> keySerializer,
-        OakSerializer<V> valueSerializer) {
+        OakSerializer<V> valueSerializer, boolean keyPrefixes, OffHeapEntriesAllocator offHeapEntriesAllocator) {
 
-        this(maxItems, externalSize, vMM, kMM, comparator, keySerializer, valueSerializer);
+        this(maxItems, externalSize, vMM, kMM, comparator, keySerializer, valueSerializer, keyPrefixes,
+            offHeapEntriesAllocator);
         entryOrderedSet.writeKey(minKey, this.minKey);
+        this.holdsMapMinKey = true;
     }
 
     /**
      * Create a child OrderedChunk where this OrderedChunk object as its creator.
      * The child OrderedChunk will have the same minKey as this OrderedChunk
-     * (without duplicating the KeyBuffer data).
+     * (without duplicating the KeyBuffer data), unless the minKey is relocated.
+     *
+     * @param relocation the keys relocated by the rebalance, or null if the keys are not relocated
      */
-    OrderedChunk<K, V> createFirstChild() {
+    OrderedChunk<K, V> createFirstChild(KeysRelocation relocation) {
         OrderedChunk<K, V> child =
             new OrderedChunk<>(getMaxItems(), externalSize,
                 entryOrderedSet.valuesMemoryManager, entryOrderedSet.keysMemoryManager,
-                comparator, entryOrderedSet.keySerializer, entryOrderedSet.valueSerializer);
+                comparator, entryOrderedSet.keySerializer, entryOrderedSet.valueSerializer,
+                entryOrderedSet.hasKeyPrefixes(), entryOrderedSet.offHeapEntriesAllocator);
         updateBasicChild(child);
-        child.minKey.copyFrom(this.minKey);
+        child.holdsMapMinKey = this.holdsMapMinKey;
+        if (relocation != null && isMinKeyEvacuating()) {
+            // the index is updated with the new minKey, see InternalOakMap
+            duplicateKeyBuffer(this.minKey, child.minKey);
+            relocation.add(this.minKey.getSlice().duplicate(), child.minKey.getSlice().duplicate());
+        } else {
+            child.minKey.copyFrom(this.minKey);
+        }
         return child;
     }
 
@@ -84,7 +104,8 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
     OrderedChunk<K, V> createNextChild(KeyBuffer minKey) {
         OrderedChunk<K, V> child = new OrderedChunk<>(getMaxItems(), externalSize,
             entryOrderedSet.valuesMemoryManager, entryOrderedSet.keysMemoryManager,
-            comparator, entryOrderedSet.keySerializer, entryOrderedSet.valueSerializer);
+            comparator, entryOrderedSet.keySerializer, entryOrderedSet.valueSerializer,
+            entryOrderedSet.hasKeyPrefixes(), entryOrderedSet.offHeapEntriesAllocator);
         updateBasicChild(child);
         duplicateKeyBuffer(minKey, child.minKey);
         return child;
@@ -104,6 +125,41 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
         UnsafeUtils.UNSAFE.copyMemory(src.getAddress(), dst.getAddress(), keySize);
     }
 
+    /*-------------- Compaction --------------*/
+
+    /**
+     * @return true if the keys should be relocated when this chunk is rebalanced, as the compaction is
+     * evacuating some blocks
+     */
+    boolean shouldRelocateKeys() {
+        return entryOrderedSet.keysMemoryManager.getBlockMemoryAllocator().hasEvacuatingBlocks();
+    }
+
+    /**
+     * @param tempKey a reusable buffer object for internal temporary usage
+     * @return true if the minKey or any key of this chunk resides on a block which is being evacuated,
+     * thus a rebalance would relocate it
+     */
+    boolean hasEvacuatingKeys(KeyBuffer tempKey) {
+        return isMinKeyEvacuating() || entryOrderedSet.hasEvacuatingKeys(tempKey);
+    }
+
+    /**
+     * Records the minKey of this chunk to be retired by the rebalance, if it resides on a block which is being
+     * evacuated. Invoked on the engaged chunks (except the first one), as the minKeys of the new chunks are
+     * either inherited from the first engaged chunk or copied from their first keys.
+     */
+    void addReplacedMinKey(KeysRelocation relocation) {
+        if (isMinKeyEvacuating()) {
+            relocation.add(minKey.getSlice().duplicate(), null);
+        }
+    }
+
+    private boolean isMinKeyEvacuating() {
+        return !holdsMapMinKey
+            && entryOrderedSet.keysMemoryManager.getBlockMemoryAllocator().isEvacuating(minKey.getSlice());
+    }
+
     /********************************************************************************************/
     /*-----------------------------  Wrappers for EntryOrderedSet methods -----------------------------*/
 
@@ -138,6 +194,7 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
     /**
      * See {@code EntryOrderedSet.readValue(ValueBuffer)} for more information
      */
+    @Override
     boolean readValueFromEntryIndex(ValueBuffer value, int ei) {
         return entryOrderedSet.readValue(value, ei);
     }
@@ -148,7 +205,30 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
      */
     @Override
     boolean allocateEntryAndWriteKey(ThreadContext ctx, K key) {
-        return entryOrderedSet.allocateEntryAndWriteKey(ctx, key);
+        if (!entryOrderedSet.allocateEntryAndWriteKey(ctx, key)) {
+            return false;
+        }
+        setKeyPrefix(ctx, key);
+        return true;
+    }
+
+    /**
+     * Writes the key and the value off-heap, in a single cut, and allocates an entry with the reference
+     * pointing to the given key. See {@code EntryOrderedSet.allocateEntryAndWriteKeyAndValue()} for more information
+     */
+    boolean allocateEntryAndWriteKeyAndValue(ThreadContext ctx, K key, V value) {
+        if (!entryOrderedSet.allocateEntryAndWriteKeyAndValue(ctx, key, value)) {
+            return false;
+        }
+        setKeyPrefix(ctx, key);
+        return true;
+    }
+
+    // the prefix of a new entry is set before the entry is linked
+    private void setKeyPrefix(ThreadContext ctx, K key) {
+        if (entryOrderedSet.hasKeyPrefixes()) {
+            entryOrderedSet.setKeyPrefix(ctx.entryIndex, comparator.getKeyPrefix(key));
+        }
     }
 
     /**
@@ -223,6 +303,14 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
     /********************************************************************************************/
     /*-----------------------  Methods for looking up item in this chunk -----------------------*/
 
+    /**
+     * @return the prefix of the key to be compared with the entries (see {@code compareKeyAndEntryIndex()}),
+     * or zero if the entries do not keep the prefixes of their keys
+     */
+    private long getKeyPrefix(K key) {
+        return entryOrderedSet.hasKeyPrefixes() ? comparator.getKeyPrefix(key) : 0;
+    }
+
     /**
      * Compare a key with a serialized key that is pointed by a specific entry index
      *
@@ -239,6 +327,23 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
         return comparator.compareKeyAndSerializedKey(key, tempKeyBuff);
     }
 
+    /**
+     * As {@code compareKeyAndEntryIndex(KeyBuffer, K, int)}, but if the entries keep the prefixes of their keys,
+     * the prefixes are compared first, and the serialized key is read only if the prefixes are equal.
+     * Thus, {@code tempKeyBuff} contains the compared serialized key only if the keys are equal.
+     *
+     * @param keyPrefix the prefix of the key (see {@code getKeyPrefix()})
+     */
+    private int compareKeyAndEntryIndex(KeyBuffer tempKeyBuff, K key, long keyPrefix, int ei) {
+        if (entryOrderedSet.hasKeyPrefixes()) {
+            int cmp = Long.compareUnsigned(keyPrefix, entryOrderedSet.getKeyPrefix(ei));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return compareKeyAndEntryIndex(tempKeyBuff, key, ei);
+    }
+
     /**
      * Look up a key in this chunk.
      *
@@ -261,15 +366,27 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
      * @param key the key to look up
      */
     void lookUp(ThreadContext ctx, K key) {
+        lookUp(ctx, key, NONE_NEXT);
+    }
+
+    /**
+     * Same as {@code lookUp(ctx, key)}, but the search may start from the given entry instead of the entry
+     * found by the binary search, if the given entry holds a lower key. Thus, the entry of the previous key of
+     * an ascending batch lets the search skip the entries of the chunk that are not sorted yet.
+     *
+     * @param hintEntryIndex an entry linked in this chunk, or NONE_NEXT
+     */
+    void lookUp(ThreadContext ctx, K key, int hintEntryIndex) {
         // binary search sorted part of key array to quickly find node to start search at
         // it finds previous-to-key
-        int curr = binaryFind(ctx.tempKey, key);
+        long keyPrefix = getKeyPrefix(key);
+        int curr = findSearchStart(ctx.tempKey, key, keyPrefix, hintEntryIndex);
         curr = (curr == NONE_NEXT) ? entryOrderedSet.getHeadNextEntryIndex() : entryOrderedSet.getNextEntryIndex(curr);
 
         // iterate until end of list (or key is found)
         while (curr != NONE_NEXT) {
             // compare current item's key to searched key
-            int cmp = compareKeyAndEntryIndex(ctx.key, key, curr);
+            int cmp = compareKeyAndEntryIndex(ctx.key, key, keyPrefix, curr);
             // if item's key is larger - we've exceeded our key
             // it's not in chunk - no need to search further
             if (cmp < 0) {
@@ -291,11 +408,29 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
         ctx.invalidate();
     }
 
+    /**
+     * Returns the entry from which a linear search of the key starts: the entry found by binaryFind(),
+     * or the hint entry if it holds a lower key and is not known to be behind the entry of binaryFind().
+     * The entries are linked in the order of their keys, so a search from any lower linked entry is correct.
+     */
+    private int findSearchStart(KeyBuffer tempKey, K key, long keyPrefix, int hintEntryIndex) {
+        int start = binaryFind(tempKey, key, keyPrefix);
+        if (hintEntryIndex == NONE_NEXT || hintEntryIndex == start) {
+            return start;
+        }
+        // the sorted entries are ordered by their indices
+        if (start != NONE_NEXT && hintEntryIndex < start) {
+            return start;
+        }
+        return compareKeyAndEntryIndex(tempKey, key, keyPrefix, hintEntryIndex) > 0 ? hintEntryIndex : start;
+    }
+
     /**
      * binary search for largest-entry smaller than 'key' in sorted part of key array.
      *
-     * @param tempKey a reusable buffer object for internal temporary usage
-     * @param key     the key to look up
+     * @param tempKey   a reusable buffer object for internal temporary usage
+     * @param key       the key to look up
+     * @param keyPrefix the prefix of the key (see {@code getKeyPrefix()})
      * @return the index of the entry from which to start a linear search -
      * if key is found, its previous entry is returned!
      * In cases when search from the head is needed, meaning:
@@ -303,7 +438,7 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
      * (2) entries are unsorted so there is a need to start from the beginning of the linked list
      * NONE_NEXT is going to be returned
      */
-    private int binaryFind(KeyBuffer tempKey, K key) {
+    private int binaryFind(KeyBuffer tempKey, K key, long keyPrefix) {
         int sortedCount = this.sortedCount.get();
         // if there are no sorted keys, return NONE_NEXT to indicate that a regular linear search is needed
         if (sortedCount == 0) {
@@ -312,12 +447,12 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
 
         // if the first item is already larger than key,
         // return NONE_NEXT to indicate that a regular linear search is needed
-        if (compareKeyAndEntryIndex(tempKey, key, entryOrderedSet.getHeadNextEntryIndex()) <= 0) {
+        if (compareKeyAndEntryIndex(tempKey, key, keyPrefix, entryOrderedSet.getHeadNextEntryIndex()) <= 0) {
             return NONE_NEXT;
         }
 
         // optimization: compare with last key to avoid binary search (here sortedCount is not zero)
-        if (compareKeyAndEntryIndex(tempKey, key, getLastSortedEntryIndex(sortedCount)) > 0) {
+        if (compareKeyAndEntryIndex(tempKey, key, keyPrefix, getLastSortedEntryIndex(sortedCount)) > 0) {
             return getLastSortedEntryIndex(sortedCount);
         }
 
@@ -328,7 +463,7 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
         int end = sortedCount;
         while (end - start > 1) {
             int curr = start + ((end - start) / 2);
-            if (compareKeyAndEntryIndex(tempKey, key, curr) <= 0) {
+            if (compareKeyAndEntryIndex(tempKey, key, keyPrefix, curr) <= 0) {
                 end = curr;
             } else {
                 start = curr;
@@ -339,6 +474,98 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
         return start == -1 ? NONE_NEXT : start;
     }
 
+    /**
+     * Finds the entry with the greatest key lower than the given key (or equal to it, if {@code inclusive}),
+     * among the entries whose value reference is valid and not deleted. The linear search starts from the
+     * entry found by {@code binaryFind()}, and goes back to the head of the chunk only if all the entries
+     * from there are deleted.
+     *
+     * @param tempKey   a reusable buffer object for internal temporary usage
+     * @param key       the key to look up, or null to find the last entry of the chunk
+     * @param inclusive whether an entry with the given key can be found
+     * @return the index of the found entry, or NONE_NEXT if there is no such entry in this chunk
+     */
+    int floorEntryIndex(KeyBuffer tempKey, K key, boolean inclusive) {
+        long keyPrefix = 0;
+        int start;
+        if (key == null) {
+            int sortedCount = this.sortedCount.get();
+            start = sortedCount == 0 ? NONE_NEXT : getLastSortedEntryIndex(sortedCount);
+        } else {
+            keyPrefix = getKeyPrefix(key);
+            start = binaryFind(tempKey, key, keyPrefix);
+        }
+
+        int floor = NONE_NEXT;
+        int curr;
+        if (start == NONE_NEXT) {
+            curr = entryOrderedSet.getHeadNextEntryIndex();
+        } else {
+            // the entries are linked in ascending order, so the keys from start (inclusive) are lower than key
+            if (entryOrderedSet.isValueRefValidAndNotDeleted(start)) {
+                floor = start;
+            }
+            curr = entryOrderedSet.getNextEntryIndex(start);
+        }
+        while (curr != NONE_NEXT) {
+            if (key != null) {
+                int cmp = compareKeyAndEntryIndex(tempKey, key, keyPrefix, curr);
+                if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                    break;
+                }
+            }
+            if (entryOrderedSet.isValueRefValidAndNotDeleted(curr)) {
+                floor = curr;
+            }
+            curr = entryOrderedSet.getNextEntryIndex(curr);
+        }
+
+        if (floor == NONE_NEXT && start != NONE_NEXT) {
+            // all the entries from start are deleted, the floor may precede start
+            for (curr = entryOrderedSet.getHeadNextEntryIndex(); curr != start;
+                 curr = entryOrderedSet.getNextEntryIndex(curr)) {
+                if (entryOrderedSet.isValueRefValidAndNotDeleted(curr)) {
+                    floor = curr;
+                }
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * Finds the entry with the least key greater than the given key (or equal to it, if {@code inclusive}),
+     * among the entries whose value reference is valid and not deleted. The linear search starts from the
+     * entry found by {@code binaryFind()}.
+     *
+     * @param tempKey   a reusable buffer object for internal temporary usage
+     * @param key       the key to look up, or null to find the first entry of the chunk
+     * @param inclusive whether an entry with the given key can be found
+     * @return the index of the found entry, or NONE_NEXT if there is no such entry in this chunk
+     */
+    int ceilingEntryIndex(KeyBuffer tempKey, K key, boolean inclusive) {
+        int curr;
+        if (key == null) {
+            curr = entryOrderedSet.getHeadNextEntryIndex();
+        } else {
+            long keyPrefix = getKeyPrefix(key);
+            curr = binaryFind(tempKey, key, keyPrefix);
+            curr = (curr == NONE_NEXT) ?
+                entryOrderedSet.getHeadNextEntryIndex() : entryOrderedSet.getNextEntryIndex(curr);
+            while (curr != NONE_NEXT) {
+                int cmp = compareKeyAndEntryIndex(tempKey, key, keyPrefix, curr);
+                if (cmp < 0 || (cmp == 0 && inclusive)) {
+                    break;
+                }
+                curr = entryOrderedSet.getNextEntryIndex(curr);
+            }
+        }
+
+        while (curr != NONE_NEXT && !entryOrderedSet.isValueRefValidAndNotDeleted(curr)) {
+            curr = entryOrderedSet.getNextEntryIndex(curr);
+        }
+        return curr;
+    }
+
     /*---------- Methods for managing the put/remove path of the keys and values  --------------*/
     /**
      * As written in {@code writeValueFinish(ctx)}, when changing an entry, the value reference is CASed first and
@@ -374,21 +601,28 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
         }
     }
 
+    int linkEntry(ThreadContext ctx, K key) {
+        return linkEntry(ctx, key, NONE_NEXT);
+    }
+
     /**
      * @param ctx the context that follows the operation since the key was found/created
      * @param key the key to link
+     * @param hintEntryIndex an entry linked in this chunk, from which the search may start (see lookUp()),
+     *                       or NONE_NEXT
      * @return The previous entry index if the key was already added by another thread.
      *         Otherwise, if successful, it will return the current entry index.
      */
-    int linkEntry(ThreadContext ctx, K key) {
+    int linkEntry(ThreadContext ctx, K key, int hintEntryIndex) {
         int prev;
         int curr;
         int cmp;
         final int ei = ctx.entryIndex;
         final KeyBuffer tempKeyBuff = ctx.tempKey;
+        final long keyPrefix = getKeyPrefix(key);
 
         // start iterating from quickly-found node (by binary search) in sorted part of order-array
-        final int anchor = binaryFind(tempKeyBuff, key);
+        final int anchor = findSearchStart(tempKeyBuff, key, keyPrefix, hintEntryIndex);
         while (true) {
             if (anchor == NONE_NEXT) {
                 prev = NONE_NEXT;
@@ -407,7 +641,7 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
                     break;
                 }
                 // compare current item's key to ours
-                cmp = compareKeyAndEntryIndex(tempKeyBuff, key, curr);
+                cmp = compareKeyAndEntryIndex(tempKeyBuff, key, keyPrefix, curr);
 
                 // if current item's key is larger, done searching - add between prev and curr
                 if (cmp < 0) {
@@ -444,7 +678,8 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
                 if (sortedCount > 0) {
                     if (ei == sortedCount) {
                         // the new entry's index is exactly after the sorted count
-                        if (compareKeyAndEntryIndex(tempKeyBuff, key, getLastSortedEntryIndex(sortedCount)) >= 0) {
+                        if (compareKeyAndEntryIndex(tempKeyBuff, key, keyPrefix,
+                            getLastSortedEntryIndex(sortedCount)) >= 0) {
                             // compare with sorted count key, if inserting the "if-statement",
                             // the sorted count key is less or equal to the key just inserted
                             this.sortedCount.compareAndSet(sortedCount, (sortedCount + 1));
@@ -511,14 +746,16 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
      * performing entries sorting on the fly (delete entries that are removed as well).
      *
      * @param tempValue   a reusable buffer object for internal temporary usage
+     * @param tempKey     a reusable buffer object for internal temporary usage
      * @param srcOrderedChunk    chunk to copy from
      * @param srcEntryIdx start position for copying
      * @param maxCapacity max number of entries "this" chunk can contain after copy
+     * @param relocation the keys relocated by the rebalance, or null if the keys are not relocated
      * @return entry index of next to the last copied entry (in the srcOrderedChunk),
      *         NONE_NEXT if all items were copied
      */
-    final int copyPartOfEntries(
-        ValueBuffer tempValue, OrderedChunk<K, V> srcOrderedChunk, final int srcEntryIdx, int maxCapacity) {
+    final int copyPartOfEntries(ValueBuffer tempValue, KeyBuffer tempKey, OrderedChunk<K, V> srcOrderedChunk,
+                                final int srcEntryIdx, int maxCapacity, KeysRelocation relocation) {
 
         if (srcEntryIdx == NONE_NEXT) {
             return NONE_NEXT;
@@ -550,7 +787,8 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
 
         // copy entry by entry traversing the source linked list
         int curEntryIdx = srcEntryIdx;
-        while (entryOrderedSet.copyEntry(tempValue, srcOrderedChunk.entryOrderedSet, curEntryIdx)) {
+        while (entryOrderedSet.copyEntry(
+            tempValue, tempKey, srcOrderedChunk.entryOrderedSet, curEntryIdx, relocation)) {
             // the source entry was either copied or disregarded as deleted
             // anyway move to next source entry (according to the linked list)
             curEntryIdx = srcOrderedChunk.entryOrderedSet.getNextEntryIndex(curEntryIdx);
@@ -594,6 +832,111 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
         return curEntryIdx; // if NONE_NEXT then we finished copying old chunk, else we reached max in new chunk
     }
 
+    /*------------------------- Methods that are used for range deletion  ---------------------------*/
+
+    /**
+     * Deletes the values of the entries of this chunk, and releases them.
+     * To be invoked once, after this chunk was dropped by a range deletion (see Rebalancer) and was replaced
+     * in the list and in the index, so the entries cannot be updated anymore.
+     * The values that were deleted off-heap by a concurrent remove are counted and released as well,
+     * as the remove could not finalize the deletion once this chunk was frozen.
+     * The keys (and the minKey) are not released, as readers that still traverse this chunk might read them,
+     * and unlike the values, they have no version to detect their reuse. They are kept as the keys of the
+     * removed entries are.
+     *
+     * @param ctx           a context for internal temporary usage
+     * @param valueOperator deletes the values
+     */
+    void releaseDroppedValues(ThreadContext ctx, ValueUtils valueOperator) {
+        assert state() == State.RELEASED;
+        int numOfDeleted = 0;
+        for (int ei = getFirstItemEntryIndex(); ei != NONE_NEXT; ei = entryOrderedSet.getNextEntryIndex(ei)) {
+            ctx.invalidate();
+            ctx.initEntryContext(ei);
+            entryOrderedSet.readValue(ctx);
+            boolean deleted = ctx.entryState == EntryArray.EntryState.DELETED_NOT_FINALIZED;
+            if (ctx.entryState == EntryArray.EntryState.VALID) {
+                // if the value was deleted meanwhile, the deletion was not finalized either.
+                // RETRY means that the value was moved or released, so it is not released here
+                deleted = valueOperator.deleteDropped(ctx) != ValueUtils.ValueResult.RETRY;
+            }
+            if (deleted) {
+                ctx.value.getSlice().release();
+                numOfDeleted++;
+            }
+        }
+        externalSize.addAndGet(-numOfDeleted);
+        ctx.invalidate();
+    }
+
+    /*------------------------- Methods that are used for bulk loading  ---------------------------*/
+
+    /**
+     * Create a chunk to be filled by a bulk load (see {@code InternalOakMap.bulkLoad()}), with the given minKey.
+     * Like the first chunk, the new chunk has no creator, as it is not reachable before the load completes.
+     */
+    OrderedChunk<K, V> createBulkLoadChunk(K minKey) {
+        OrderedChunk<K, V> c = new OrderedChunk<>(getMaxItems(), externalSize,
+            entryOrderedSet.valuesMemoryManager, entryOrderedSet.keysMemoryManager,
+            comparator, entryOrderedSet.keySerializer, entryOrderedSet.valueSerializer,
+            entryOrderedSet.hasKeyPrefixes(), entryOrderedSet.offHeapEntriesAllocator);
+        c.entryOrderedSet.writeKey(minKey, c.minKey);
+        return c;
+    }
+
+    /**
+     * @return the number of entries appended to this chunk by a bulk load
+     */
+    int getNumOfBulkLoadedEntries() {
+        return entryOrderedSet.getNumOfEntries();
+    }
+
+    /**
+     * Appends an entry of the key and the value after the last entry of the chunk, while the chunk is not
+     * reachable by other threads (bulk load). The key must be greater than the key of the last entry.
+     * Thus, the entries are allocated, written and linked sequentially, as a rebalance copies them.
+     *
+     * @param ctx      a context of the loading thread
+     * @param colocate whether to write the value right after the key, in the same off-heap cut
+     * @return false if the chunk is full
+     */
+    boolean appendBulkLoadedEntry(ThreadContext ctx, K key, V value, boolean colocate) {
+        boolean allocated = colocate
+            ? entryOrderedSet.allocateEntryAndWriteKeyAndValue(ctx, key, value)
+            : entryOrderedSet.allocateEntryAndWriteKey(ctx, key);
+        if (!allocated) {
+            return false;
+        }
+        setKeyPrefix(ctx, key);
+        if (!colocate) {
+            entryOrderedSet.allocateValue(ctx, value, false);
+        }
+        // there is no concurrent update of the entry, so the commit always succeeds
+        entryOrderedSet.writeValueCommit(ctx);
+
+        int ei = ctx.entryIndex;
+        if (ei == 0) {
+            entryOrderedSet.setHeadEntryIndex(ei);
+        } else {
+            entryOrderedSet.setNextEntryIndex(ei - 1, ei);
+        }
+        entryOrderedSet.setNextEntryIndex(ei, NONE_NEXT);
+        return true;
+    }
+
+    /**
+     * Completes the bulk load of this chunk: all its entries are sorted, and are counted in the map size.
+     */
+    void completeBulkLoad() {
+        int numOfEntries = entryOrderedSet.getNumOfEntries();
+        sortedCount.set(numOfEntries);
+        statistics.updateInitialCount(numOfEntries);
+        externalSize.addAndGet(numOfEntries);
+
+        // the entries are as valid as the entries of a rebalanced chunk
+        assert entryOrderedSet.isEntrySetValidAfterRebalance();
+    }
+
     /**
      * marks this chunk's next pointer so this chunk is marked as deleted
      *
@@ -734,13 +1077,17 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
             OakScopedReadBuffer nextChunkMinKey) {
             next = entryOrderedSet.getHeadNextEntryIndex();
             next = advanceNextIndexNoBound(next, ctx);
+            if (next == midIdx) {
+                midIdx = -1; // the check cannot be delayed to midIdx, as the scan starts from it
+            }
             setIsEndBoundCheckNeeded(ctx, to, toInclusive, nextChunkMinKey);
         }
 
         AscendingIter(ThreadContext ctx, K from, boolean fromInclusive, K to, boolean toInclusive,
             OakScopedReadBuffer nextChunkMinKey) {
             KeyBuffer tempKeyBuff = ctx.tempKey;
-            next = binaryFind(tempKeyBuff, from);
+            long fromPrefix = getKeyPrefix(from);
+            next = binaryFind(tempKeyBuff, from, fromPrefix);
 
             if (next >= midIdx) { // binaryFind output is always less than sortedCount; or NONE_NEXT (0)
                 midIdx = -1; // midIdx is not in the scope of this scan (too low)
@@ -752,16 +1099,22 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
                 entryOrderedSet.getHeadNextEntryIndex() : entryOrderedSet.getNextEntryIndex(next);
             int compare = -1;
             if (next != NONE_NEXT) {
-                compare = compareKeyAndEntryIndex(tempKeyBuff, from, next);
+                compare = compareKeyAndEntryIndex(tempKeyBuff, from, fromPrefix, next);
             }
             while (next != NONE_NEXT &&
                     (compare > 0 || (compare >= 0 && !fromInclusive) ||
                         !entryOrderedSet.isValueRefValidAndNotDeleted(next))) {
+                if (next == midIdx) {
+                    midIdx = -1; // midIdx is skipped, so it is not in the scope of this scan
+                }
                 next = entryOrderedSet.getNextEntryIndex(next);
                 if (next != NONE_NEXT) {
-                    compare = compareKeyAndEntryIndex(tempKeyBuff, from, next);
+                    compare = compareKeyAndEntryIndex(tempKeyBuff, from, fromPrefix, next);
                 }
             }
+            if (next == midIdx) {
+                midIdx = -1; // the check cannot be delayed to midIdx, as the scan starts from it
+            }
             // the setting of the stop bound check should know if midIdx is not in the scope of this scan
             // (too low); So setUpperBoundThreshold can be invoked only after 'next' is defined
             setIsEndBoundCheckNeeded(ctx, to, toInclusive, nextChunkMinKey);
@@ -773,7 +1126,7 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
             // or if the caller will check the end-boundary (IterEndBoundCheck.ALWAYS_END_BOUNDARY_CHECK),
             // then advance next without additional checks
             if (isEndBoundCheckNeeded != IterEndBoundCheck.MID_END_BOUNDARY_CHECK) {
-                advanceNextIndexNoBound(next, ctx);
+                next = advanceNextIndexNoBound(next, ctx);
             } else {
                 next = advanceNextIndex(next, ctx);
             }
@@ -793,20 +1146,25 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
 
         private int advanceNextIndex(final int entryIndex, ThreadContext ctx) {
             int next = entryIndex;
-            while (next != NONE_NEXT && !entryOrderedSet.isValueRefValidAndNotDeleted(next)) {
-                next = entryOrderedSet.getNextEntryIndex(next);
-                if (isEndBoundCheckNeeded == IterEndBoundCheck.MID_END_BOUNDARY_CHECK && next == midIdx) {
+            while (true) {
+                if (next == midIdx) {
                     // update isEndBoundCheckNeeded to ALWAYS_END_BOUNDARY_CHECK
-                    // when reaching the midIndex
+                    // when reaching the midIndex (whether or not its value is valid)
                     isEndBoundCheckNeeded = IterEndBoundCheck.ALWAYS_END_BOUNDARY_CHECK;
                 }
+                if (next == NONE_NEXT || entryOrderedSet.isValueRefValidAndNotDeleted(next)) {
+                    return next;
+                }
+                next = entryOrderedSet.getNextEntryIndex(next);
             }
-            return next;
         }
 
         private int advanceNextIndexNoBound(final int entryIndex, ThreadContext ctx) {
             int next = entryIndex;
             while (next != NONE_NEXT && !entryOrderedSet.isValueRefValidAndNotDeleted(next)) {
+                if (next == midIdx) {
+                    midIdx = -1; // midIdx is skipped, so it is not in the scope of this scan
+                }
                 next = entryOrderedSet.getNextEntryIndex(next);
             }
             return next;
@@ -853,7 +1211,7 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
             this.from = from;
             this.fromInclusive = fromInclusive;
             stack = new IntStack(entryOrderedSet.getLastEntryIndex());
-            anchor = binaryFind(tempKeyBuff, from);
+            anchor = binaryFind(tempKeyBuff, from, getKeyPrefix(from));
 
             if (anchor <= midIdx) { // binaryFind output is always less than sorted Count; or NONE_NEXT
                 midIdx = -1; // midIdx is not in the scope of this scan (too high)
@@ -862,10 +1220,22 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
             // if not binaryFind will return midIdx or less
 
             // translate to be valid index, if anchor is head we know to stop the iteration
-            anchor = (anchor == NONE_NEXT) ? entryOrderedSet.getHeadNextEntryIndex() : anchor;
+            if (anchor == NONE_NEXT) {
+                anchor = entryOrderedSet.getHeadNextEntryIndex();
+                // unlike the anchor found by binaryFind, the head is not checked to be below from,
+                // and if it is not, then no key of this chunk is in the scope of this scan
+                final int threshold = fromInclusive ? -1 : 0;
+                if (anchor != NONE_NEXT
+                    && compareKeyAndEntryIndex(tempKeyBuff, from, getKeyPrefix(from), anchor) <= threshold) {
+                    next = NONE_NEXT;
+                    setIsEndBoundCheckNeeded(ctx, to, toInclusive, minKey);
+                    return;
+                }
+            }
             stack.push(anchor);
-            initNext(tempKeyBuff);
+            // the check is set before the first anchors are found, so they can stop delaying it
             setIsEndBoundCheckNeeded(ctx, to, toInclusive, minKey);
+            initNext(tempKeyBuff);
         }
 
         private void initNext(KeyBuffer keyBuff) {
@@ -926,10 +1296,12 @@ class OrderedChunk<K, V> extends BasicChunk<K, V> {
             } else {
                 if (firstTimeInvocation) {
                     final int threshold = fromInclusive ? -1 : 0;
+                    final long fromPrefix = getKeyPrefix(from);
                     // This is equivalent to continue while:
                     //         when fromInclusive: CMP >= 0
                     //     when non-fromInclusive: CMP > 0
-                    while (next != NONE_NEXT && compareKeyAndEntryIndex(tempKeyBuff, from, next) > threshold) {
+                    while (next != NONE_NEXT
+                        && compareKeyAndEntryIndex(tempKeyBuff, from, fromPrefix, next) > threshold) {
                         stack.push(next);
                         next = entryOrderedSet.getNextEntryIndex(next);
                     }
@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 class Rebalancer<K, V> {
 
@@ -32,14 +33,33 @@ class Rebalancer<K, V> {
     private final AtomicReference<List<OrderedChunk<K, V>>> newChunks = new AtomicReference<>(null);
     private final AtomicReference<List<OrderedChunk<K, V>>> engagedChunks = new AtomicReference<>(null);
     private final AtomicBoolean frozen = new AtomicBoolean(false);
+    // the keys relocated by the successful creation of the new chunks, accessed only by the creating thread
+    private KeysRelocation keysRelocation = null;
     private final OrderedChunk<K, V> first;
     private OrderedChunk<K, V> last;
     private int chunksInRange;
     private int itemsInRange;
+    // the chunks whose keys are all removed by a range deletion, or null if the entries are copied
+    private final Predicate<OrderedChunk<K, V>> droppedChunks;
+    // whether the entries of the engaged chunks were released after they were dropped
+    private final AtomicBoolean droppedEntriesReleased = new AtomicBoolean(false);
 
     /*-------------- Constructors --------------*/
 
     Rebalancer(OrderedChunk<K, V> orderedChunk) {
+        this(orderedChunk, null);
+    }
+
+    /**
+     * A rebalancer that drops the engaged chunks, instead of copying their entries, and replaces them by
+     * a single empty chunk (with the minKey of the first chunk). It engages the consecutive chunks that are
+     * accepted by {@code droppedChunks}, starting from {@code orderedChunk} (which must be accepted as well).
+     * See InternalOakMap.removeRange().
+     *
+     * @param droppedChunks accepts the chunks whose keys are all removed, or null to copy the entries
+     */
+    Rebalancer(OrderedChunk<K, V> orderedChunk, Predicate<OrderedChunk<K, V>> droppedChunks) {
+        this.droppedChunks = droppedChunks;
         this.entriesLowThreshold = (int) (orderedChunk.getMaxItems() * LOW_THRESHOLD);
         this.maxRangeToAppend = (int) (orderedChunk.getMaxItems() * APPEND_THRESHOLD);
         this.maxAfterMergeItems = (int) (orderedChunk.getMaxItems() * MAX_AFTER_MERGE_PART);
@@ -113,8 +133,10 @@ class Rebalancer<K, V> {
         ListIterator<OrderedChunk<K, V>> iterFrozen = frozenOrderedChunks.listIterator();
 
         OrderedChunk<K, V> firstFrozen = iterFrozen.next();
+        // while the compaction evacuates blocks, the keys residing on them are copied to the new chunks
+        KeysRelocation relocation = firstFrozen.shouldRelocateKeys() ? new KeysRelocation() : null;
         OrderedChunk<K, V> currFrozen = firstFrozen;
-        OrderedChunk<K, V> currNewOrderedChunk = firstFrozen.createFirstChild();
+        OrderedChunk<K, V> currNewOrderedChunk = firstFrozen.createFirstChild(relocation);
 
         int ei = firstFrozen.getFirstItemEntryIndex();
         List<OrderedChunk<K, V>> newOrderedChunks = new LinkedList<>();
@@ -122,9 +144,10 @@ class Rebalancer<K, V> {
         KeyBuffer keyBuff = ctx.tempKey;
         ValueBuffer valueBuff = ctx.tempValue;
 
-        while (true) {
+        // the entries of dropped chunks are not copied, so the first child remains empty
+        while (!isDropping()) {
             ei = currNewOrderedChunk
-                .copyPartOfEntries(valueBuff, currFrozen, ei, entriesLowThreshold);
+                .copyPartOfEntries(valueBuff, keyBuff, currFrozen, ei, entriesLowThreshold, relocation);
             // if completed reading curr frozen chunk
             if (ei == OrderedChunk.NONE_NEXT) {
                 if (!iterFrozen.hasNext()) {
@@ -142,7 +165,7 @@ class Rebalancer<K, V> {
                 if (canAppendSuffix(frozenSuffix, maxRangeToAppend)) {
                     // maybe there is just a little bit copying left
                     // and we don't want to open a whole new chunk just for it
-                    completeCopy(valueBuff, currNewOrderedChunk, ei, frozenSuffix);
+                    completeCopy(valueBuff, keyBuff, currNewOrderedChunk, ei, frozenSuffix, relocation);
                     break;
                 } else {
                     // we have to open an new chunk
@@ -160,9 +183,46 @@ class Rebalancer<K, V> {
         }
 
         newOrderedChunks.add(currNewOrderedChunk);
+        // the minKeys of the dropped chunks are released with their entries
+        if (relocation != null && !isDropping()) {
+            frozenOrderedChunks.subList(1, frozenOrderedChunks.size()).forEach(c -> c.addReplacedMinKey(relocation));
+        }
 
         // if fail here, another thread succeeded, and op is effectively gone
-        return this.newChunks.compareAndSet(null, newOrderedChunks);
+        if (this.newChunks.compareAndSet(null, newOrderedChunks)) {
+            keysRelocation = relocation;
+            return true;
+        }
+        if (relocation != null) {
+            relocation.releaseCopies();
+        }
+        return false;
+    }
+
+    /**
+     * Retires the keys that were relocated to the new chunks.
+     * Should be called only by the thread that succeeded to create the new chunks (see createNewChunks),
+     * after the new chunks replaced the engaged chunks in the list and in the index.
+     */
+    void retireRelocatedKeys() {
+        if (keysRelocation != null) {
+            keysRelocation.retireOldKeys();
+        }
+    }
+
+    boolean isDropping() {
+        return droppedChunks != null;
+    }
+
+    /**
+     * Should be called after the new chunks replaced the engaged chunks, by the thread that releases the
+     * entries of the dropped chunks.
+     *
+     * @return true only for the first invocation, so the entries are released only once
+     */
+    boolean claimDroppedEntries() {
+        assert isDropping();
+        return droppedEntriesReleased.compareAndSet(false, true);
     }
 
     private boolean canAppendSuffix(List<OrderedChunk<K, V>> frozenSuffix, int maxCount) {
@@ -183,19 +243,19 @@ class Rebalancer<K, V> {
     }
 
     private void completeCopy(
-        ValueBuffer tempValue, OrderedChunk<K, V> dest,
-        final int ei, List<OrderedChunk<K, V>> srcOrderedChunks) {
+        ValueBuffer tempValue, KeyBuffer tempKey, OrderedChunk<K, V> dest,
+        final int ei, List<OrderedChunk<K, V>> srcOrderedChunks, KeysRelocation relocation) {
 
         final int maxItems = dest.getMaxItems();
         Iterator<OrderedChunk<K, V>> iter = srcOrderedChunks.iterator();
 
         OrderedChunk<K, V> src = iter.next();
-        dest.copyPartOfEntries(tempValue, src, ei, maxItems);
+        dest.copyPartOfEntries(tempValue, tempKey, src, ei, maxItems, relocation);
 
         while (iter.hasNext()) {
             OrderedChunk<K, V> curSrc = iter.next();
-            int curEntryIndex = src.getFirstItemEntryIndex();
-            dest.copyPartOfEntries(tempValue, curSrc, curEntryIndex, maxItems);
+            int curEntryIndex = curSrc.getFirstItemEntryIndex();
+            dest.copyPartOfEntries(tempValue, tempKey, curSrc, curEntryIndex, maxItems, relocation);
         }
     }
 
@@ -203,6 +263,12 @@ class Rebalancer<K, V> {
 
         updateRangeView();
 
+        if (isDropping()) {
+            // all the consecutive chunks that are dropped are engaged
+            OrderedChunk<K, V> candidate = last.next.getReference();
+            return isCandidate(candidate) && droppedChunks.test(candidate) ? candidate : null;
+        }
+
         // allow up to RebalanceSize chunks to be engaged
         if (chunksInRange >= REBALANCE_SIZE) {
             return null;
@@ -21,7 +21,7 @@ class ReferenceCodecSyncRecycle extends ReferenceCodec {
 
     static final int    INVALID_VERSION = 0;
 
-    // All Oak instances on one machine are expected to reference to no more than 4TB of RAM.
+    // An Oak instance (i.e., its allocator) is expected to reference to no more than 4TB of RAM.
     // 4TB = 2^42 bytes
     // blockIDBitSize + offsetBitSize = BITS_FOR_MAXIMUM_RAM
     // The number of bits required to represent such memory:
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Frees the released slices of SyncRecycleMemoryManagers on a background thread, so the threads releasing them
+ * do not pay for freeing a full release list inline. The reclaimer frees the release lists handed off by the
+ * managers, and the release lists whose oldest slice waits longer than the manager's maximal release delay,
+ * e.g., of a thread that released a few slices and went idle.
+ * <p>
+ * The background reclamation is optional (see OakMapBuilder.setMaxReleaseDelay()). A reclaimer serves the
+ * managers sharing an allocator, it is created along with the first of them, and its (daemon) thread is stopped
+ * once they are closed, i.e., once the allocator is closed. The reclaimer has a lock, which is held while
+ * the slices are freed in the background, and while the allocator is cleared or closed. Thus, a slice is never
+ * freed into an allocator that was cleared or closed after the slice was released.
+ * <p>
+ * If freeing fails, the reclaimer stops and rethrows the failure on its thread (so it reaches the thread's
+ * uncaught exception handler). Its managers then free their release lists by themselves.
+ */
+final class ReleaseListReclaimer {
+    // how often the release lists are checked for old slices
+    static final long SCAN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    // the reclaimers of the allocators that are not closed yet
+    private static final ConcurrentHashMap<BlockMemoryAllocator, ReleaseListReclaimer> RECLAIMERS =
+        new ConcurrentHashMap<>();
+    // serializes the registrations, so the managers of an allocator share a single reclaimer
+    private static final ReentrantLock REGISTRATION_LOCK = new ReentrantLock();
+
+    private final BlockMemoryAllocator allocator;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<SyncRecycleMemoryManager> managers = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+    // set when there is new work, so the reclaimer does not park before doing it
+    private volatile boolean wakeUpRequested = false;
+
+    private ReleaseListReclaimer(BlockMemoryAllocator allocator) {
+        this.allocator = allocator;
+        this.thread = new Thread(this::run, "oak-release-list-reclaimer");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Registers the manager for background reclamation, and returns the reclaimer of its allocator.
+     * The reclaimer is created (and started) if the allocator has none.
+     */
+    static ReleaseListReclaimer register(SyncRecycleMemoryManager mm) {
+        ReleaseListReclaimer created = null;
+        ReleaseListReclaimer reclaimer;
+        REGISTRATION_LOCK.lock();
+        try {
+            reclaimer = RECLAIMERS.get(mm.getBlockMemoryAllocator());
+            if (reclaimer == null) {
+                created = new ReleaseListReclaimer(mm.getBlockMemoryAllocator());
+                reclaimer = created;
+                RECLAIMERS.put(mm.getBlockMemoryAllocator(), reclaimer);
+            }
+            reclaimer.managers.add(mm);
+        } finally {
+            REGISTRATION_LOCK.unlock();
+        }
+        if (created != null) {
+            created.thread.start();
+        }
+        reclaimer.wakeUp();
+        return reclaimer;
+    }
+
+    void lock() {
+        lock.lock();
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    List<SyncRecycleMemoryManager> getManagers() {
+        return managers;
+    }
+
+    /**
+     * @return false once the reclaimer was stopped or failed, then its managers free their release lists
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops the reclaimer and waits for its thread to terminate. Should be called once the allocator is closed,
+     * but not while holding the reclaimer's lock. Stopping the reclaimer more than once has no effect.
+     */
+    void stop() {
+        RECLAIMERS.remove(allocator, this);
+        running = false;
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // requests an immediate reclamation round (e.g., as a release list was handed off)
+    void wakeUp() {
+        wakeUpRequested = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void reclaim(long now) {
+        lock.lock();
+        try {
+            if (allocator.isClosed()) {
+                return;
+            }
+            for (SyncRecycleMemoryManager mm : managers) {
+                mm.reclaim(now);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                wakeUpRequested = false;
+                reclaim(System.nanoTime());
+                if (!wakeUpRequested) {
+                    LockSupport.parkNanos(this, SCAN_INTERVAL_NANOS);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            // the managers take over their release lists, the released slices are not lost
+            running = false;
+            RECLAIMERS.remove(allocator, this);
+            throw e;
+        }
+    }
+}
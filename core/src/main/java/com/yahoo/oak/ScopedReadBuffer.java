@@ -24,13 +24,14 @@ class ScopedReadBuffer implements OakScopedReadBuffer, OakUnsafeDirectBuffer {
         this.s = other.s.duplicate();
     }
 
-    protected long getDataAddress(int index) {
+    // the offset of the data at the given index in the base object of the slice (see Slice.getBase())
+    protected long getDataOffset(int index) {
         assert isAssociated();
         if (index < 0 || index >= getLength()) {
             throw new IndexOutOfBoundsException(String.format("Index %s is out of bound (length: %s)",
                     index, getLength()));
         }
-        return s.getAddress() + index;
+        return s.getBaseOffset() + index;
     }
 
     protected void invalidate() {
@@ -54,37 +55,37 @@ class ScopedReadBuffer implements OakScopedReadBuffer, OakUnsafeDirectBuffer {
 
     @Override
     public byte get(int index) {
-        return UnsafeUtils.get(getDataAddress(index));
+        return UnsafeUtils.get(s.getBase(), getDataOffset(index));
     }
 
     @Override
     public char getChar(int index) {
-        return UnsafeUtils.getChar(getDataAddress(index));
+        return UnsafeUtils.getChar(s.getBase(), getDataOffset(index));
     }
 
     @Override
     public short getShort(int index) {
-        return UnsafeUtils.getShort(getDataAddress(index));
+        return UnsafeUtils.getShort(s.getBase(), getDataOffset(index));
     }
 
     @Override
     public int getInt(int index) {
-        return UnsafeUtils.getInt(getDataAddress(index));
+        return UnsafeUtils.getInt(s.getBase(), getDataOffset(index));
     }
 
     @Override
     public long getLong(int index) {
-        return UnsafeUtils.getLong(getDataAddress(index));
+        return UnsafeUtils.getLong(s.getBase(), getDataOffset(index));
     }
 
     @Override
     public float getFloat(int index) {
-        return UnsafeUtils.getFloat(getDataAddress(index));
+        return UnsafeUtils.getFloat(s.getBase(), getDataOffset(index));
     }
 
     @Override
     public double getDouble(int index) {
-        return UnsafeUtils.getDouble(getDataAddress(index));
+        return UnsafeUtils.getDouble(s.getBase(), getDataOffset(index));
     }
 
     /** ------------------------------ OakUnsafeDirectBuffer ------------------------------ **/
@@ -102,7 +103,7 @@ class ScopedReadBuffer implements OakScopedReadBuffer, OakUnsafeDirectBuffer {
      * @return the underlying ByteBuffer.
      */
     @Override public ByteBuffer getByteBuffer() { 
-        return UnsafeUtils.wrapAddress(s.getAddress(), capacity());
+        return DirectMemory.wrapAddress(s.getAddress(), capacity());
     }
 
     /**
@@ -23,7 +23,9 @@ final class ScopedWriteBuffer extends ScopedReadBuffer implements OakScopedWrite
      * @param s the buffer to use.
      */
     private ScopedWriteBuffer(Slice s) {
-        super(s.duplicate());
+        // The buffer is disabled once its scope is finished, so it may use the given slice itself.
+        // Thus, the writes are reflected in the given slice, also for a slice that holds its data (e.g., InlineSlice).
+        super(s);
     }
 
     /**
@@ -68,49 +70,49 @@ final class ScopedWriteBuffer extends ScopedReadBuffer implements OakScopedWrite
     @Override
     public OakScopedWriteBuffer put(int index, byte value) {
         validateAccess();
-        UnsafeUtils.put(getDataAddress(index), value);
+        UnsafeUtils.put(s.getBase(), getDataOffset(index), value);
         return this;
     }
 
     @Override
     public OakScopedWriteBuffer putChar(int index, char value) {
         validateAccess();
-        UnsafeUtils.putChar(getDataAddress(index), value);
+        UnsafeUtils.putChar(s.getBase(), getDataOffset(index), value);
         return this;
     }
 
     @Override
     public OakScopedWriteBuffer putShort(int index, short value) {
         validateAccess();
-        UnsafeUtils.putShort(getDataAddress(index), value);
+        UnsafeUtils.putShort(s.getBase(), getDataOffset(index), value);
         return this;
     }
 
     @Override
     public OakScopedWriteBuffer putInt(int index, int value) {
         validateAccess();
-        UnsafeUtils.putInt(getDataAddress(index), value);
+        UnsafeUtils.putInt(s.getBase(), getDataOffset(index), value);
         return this;
     }
 
     @Override
     public OakScopedWriteBuffer putLong(int index, long value) {
         validateAccess();
-        UnsafeUtils.putLong(getDataAddress(index), value);
+        UnsafeUtils.putLong(s.getBase(), getDataOffset(index), value);
         return this;
     }
 
     @Override
     public OakScopedWriteBuffer putFloat(int index, float value) {
         validateAccess();
-        UnsafeUtils.putFloat(getDataAddress(index), value);
+        UnsafeUtils.putFloat(s.getBase(), getDataOffset(index), value);
         return this;
     }
 
     @Override
     public OakScopedWriteBuffer putDouble(int index, double value) {
         validateAccess();
-        UnsafeUtils.UNSAFE.putDouble(getDataAddress(index), value);
+        UnsafeUtils.putDouble(s.getBase(), getDataOffset(index), value);
         return this;
     }
 }
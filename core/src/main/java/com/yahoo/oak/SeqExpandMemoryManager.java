@@ -36,8 +36,23 @@ package com.yahoo.oak;
  *      0             27 28            55 56   63
  *
  * From that, we can derive that the maximal number of 1K items that can be allocated is ~128 million (2^26).
- * Note: these limitations will change for different block sizes. */
+ * Note: these limitations will change for different block sizes.
+ *
+ * For bigger memory, the extended reference encoding moves the length into a 4 bytes off-heap header placed
+ * before the data (as SyncRecycleMemoryManager does), leaving 36 bits for the block id:
+ *
+ *    LSB                                MSB
+ *     |     offset     |      block      |
+ *     |     28 bit     |     36 bit      |
+ *      0             27 28             63
+ *
+ * The extended encoding costs 4 bytes per allocation, and reading the header upon decoding a reference.
+ * Thus, it is used only when the capacity of the allocator cannot be addressed by the compact encoding
+ * (see {@code requiresExtendedReferences()}), or when requested explicitly. */
 class SeqExpandMemoryManager implements MemoryManager  {
+    // the size of the off-heap header keeping the length of the data, when using the extended encoding
+    static final int LENGTH_HEADER_SIZE = Integer.BYTES;
+
     private final BlockMemoryAllocator allocator;
 
     /*
@@ -57,14 +72,64 @@ class SeqExpandMemoryManager implements MemoryManager  {
      * Note: these limitations will change for different block sizes.
      *
      */
-    private final ReferenceCodec rc = new ReferenceCodec(
-        ReferenceCodec.AUTO_CALCULATE_BIT_SIZE, // bits# to represent block id are calculated upon other parameters
-        ReferenceCodec.requiredBits(BlocksPool.getInstance().blockSize()),   // bits# to represent offset
-        ReferenceCodec.requiredBits(BlocksPool.getInstance().blockSize()));  // bits# to represent length
+    private final ReferenceCodec rc;
+    // whether the length is kept in an off-heap header, instead of the reference
+    private final boolean extendedReferences;
+    private final int headerSize;
 
     SeqExpandMemoryManager(BlockMemoryAllocator memoryAllocator) {
+        this(memoryAllocator, false);
+    }
+
+    /**
+     * @param memoryAllocator    the allocator of the slices
+     * @param extendedReferences whether to use the extended reference encoding
+     */
+    SeqExpandMemoryManager(BlockMemoryAllocator memoryAllocator, boolean extendedReferences) {
         assert memoryAllocator != null;
         this.allocator = memoryAllocator;
+        this.extendedReferences = extendedReferences;
+        if (extendedReferences) {
+            this.rc = new ReferenceCodec(
+                ReferenceCodec.AUTO_CALCULATE_BIT_SIZE, // bits# to represent block id are the remaining bits
+                ReferenceCodec.requiredBits(memoryAllocator.blockSize()));  // bits# to represent offset
+            this.headerSize = LENGTH_HEADER_SIZE;
+        } else {
+            this.rc = new ReferenceCodec(
+                ReferenceCodec.AUTO_CALCULATE_BIT_SIZE, // bits# to represent block id are calculated upon the others
+                ReferenceCodec.requiredBits(memoryAllocator.blockSize()),   // bits# to represent offset
+                ReferenceCodec.requiredBits(memoryAllocator.blockSize()));  // bits# to represent length
+            this.headerSize = 0;
+        }
+    }
+
+    /**
+     * @param allocator the allocator of the slices
+     * @return true if the compact reference encoding cannot address all the blocks the allocator may take
+     * up to its capacity, so the extended encoding is required
+     */
+    static boolean requiresExtendedReferences(BlockMemoryAllocator allocator) {
+        return requiresExtendedReferences(allocator.blockSize(), allocator.getCapacity());
+    }
+
+    private static boolean requiresExtendedReferences(int blockSize, long capacity) {
+        int lengthAndOffsetBits = 2 * ReferenceCodec.requiredBits(blockSize);
+        // the first block id is invalid, and a block id might be taken by a big (large object) block
+        long maxBlockID = capacity / blockSize + 2;
+        return lengthAndOffsetBits + ReferenceCodec.requiredBits(maxBlockID + 1) > Long.SIZE;
+    }
+
+    boolean isExtendedReferences() {
+        return extendedReferences;
+    }
+
+    /**
+     * @param capacity a memory capacity of the allocator
+     * @return true if the reference encoding of this manager can address all the blocks the allocator may take
+     * up to the given capacity
+     */
+    boolean canAddress(long capacity) {
+        return extendedReferences || !requiresExtendedReferences(allocator.blockSize(), capacity);
     }
 
     public void close() {
@@ -131,6 +196,20 @@ class SeqExpandMemoryManager implements MemoryManager  {
 
     @Override
     public int getHeaderSize() {
+        return headerSize;
+    }
+
+    // released slices are freed immediately, nothing is held aside
+    @Override
+    public void flushReleaseList() { }
+
+    @Override
+    public long pendingReleases() {
+        return 0;
+    }
+
+    @Override
+    public long globalVersionBumps() {
         return 0;
     }
 
@@ -164,9 +243,30 @@ class SeqExpandMemoryManager implements MemoryManager  {
          */
         @Override
         public void allocate(int size, boolean existing) {
-            boolean allocated = allocator.allocate(this, size);
+            // the reference encodes the length with the same number of bits as the offset
+            if (size + headerSize > allocator.blockSize()) {
+                throw new IllegalArgumentException(
+                        String.format("Cannot allocate larger items than the block size (block size: %s).",
+                                allocator.blockSize()));
+            }
+            boolean allocated = allocator.allocate(this, getAllocationSize(size));
             assert allocated;
+            initAllocation(size, existing);
+        }
+
+        @Override
+        protected int getAllocationSize(int dataSize) {
+            return dataSize + headerSize;
+        }
+
+        @Override
+        protected void initAllocation(int dataSize, boolean existing) {
             associated = true;
+            if (extendedReferences) {
+                // the header keeps the length of the entire cut (without the header), which might be longer
+                // than the data if the cut was reused, so a decoded slice releases the entire cut
+                UnsafeUtils.putInt(getMetadataAddress(), getAllocatedLength() - LENGTH_HEADER_SIZE);
+            }
             reference = encodeReference();
         }
 
@@ -188,6 +288,11 @@ class SeqExpandMemoryManager implements MemoryManager  {
             allocator.free(this);
         }
 
+        @Override
+        public void retire() {
+            allocator.retire(this);
+        }
+
         /**
          * Decode information from reference to this Slice's fields.
          *
@@ -207,11 +312,19 @@ class SeqExpandMemoryManager implements MemoryManager  {
             }
             if (decode(reference)) {
                 allocator.readMemoryAddress(this);
+                if (extendedReferences) {
+                    readLengthFromHeader();
+                }
                 return true;
             }
             return false;
         }
 
+        // the length kept in header is the length of the cut without the header, add header size
+        private void readLengthFromHeader() {
+            this.length = UnsafeUtils.getInt(getMetadataAddress()) + LENGTH_HEADER_SIZE;
+        }
+
         /**
          * @param reference the reference to decode
          *                  (and to put the information from reference to this slice)
@@ -241,6 +354,9 @@ class SeqExpandMemoryManager implements MemoryManager  {
          * @return the encoded reference
          */
         private long encodeReference() {
+            if (extendedReferences) {
+                return rc.encode(getAllocatedBlockID(), getAllocatedOffset());
+            }
             return rc.encode(getAllocatedBlockID(), getAllocatedOffset(), getAllocatedLength());
         }
 
@@ -263,6 +379,7 @@ class SeqExpandMemoryManager implements MemoryManager  {
             length      = UNDEFINED_LENGTH_OR_OFFSET_OR_ADDRESS;
             offset      = UNDEFINED_LENGTH_OR_OFFSET_OR_ADDRESS;
             memAddress  = UNDEFINED_LENGTH_OR_OFFSET_OR_ADDRESS;
+            blockLease  = null;
             associated  = false;
         }
 
@@ -292,13 +409,23 @@ class SeqExpandMemoryManager implements MemoryManager  {
                 (byte) 0); // zero block's memory
         }
 
+        // the keys are not versioned, the extended reference header holds only the length
+        @Override
+        protected boolean hasVersionedHeader() {
+            return false;
+        }
+
         // used only in case of iterations when the rest of the slice's data should remain the same
         // in this case once the offset is set the the slice is associated
         private void updateOnSameBlock(int offset, int length) {
             this.offset = offset;
-            this.length = length;
             assert memAddress != UNDEFINED_LENGTH_OR_OFFSET_OR_ADDRESS;
             this.associated = true;
+            if (extendedReferences) {
+                readLengthFromHeader();
+            } else {
+                this.length = length;
+            }
         }
 
         /* ------------------------------------------------------------------------------------
@@ -314,12 +441,12 @@ class SeqExpandMemoryManager implements MemoryManager  {
          * ------------------------------------------------------------------------------------*/
         @Override
         public int getLength() {
-            return length;
+            return length - headerSize;
         }
 
         @Override
         public long getAddress() {
-            return getMetadataAddress();
+            return getMetadataAddress() + headerSize;
         }
 
         @Override
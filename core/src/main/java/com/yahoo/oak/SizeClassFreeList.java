@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The default free space engine of NativeMemoryAllocator.
+ * Released off-heap cuts are segregated into size classes, each class is a set of small striped stacks.
+ * A stack keeps its items as primitives: the block id and the offset are encoded into a single long,
+ * and the length is kept in a parallel int array. Thus, neither push nor pop creates a heap object
+ * (except for the rare growth of a stack's arrays).
+ * <p>
+ * Size classes are log-linear: each power of two range is split into SUB_CLASSES equal sub-ranges,
+ * so the lengths in the same class differ by at most 25%. Small lengths (below SUB_CLASSES) have a class
+ * per length. The class of a length can be computed in O(1) without any lookup tables.
+ * <p>
+ * To find a cut for a requested size, we look at the (constant number of) classes covering
+ * the range [size, maxLength], and take the top of the first stack whose top fits.
+ * This is a good-fit (not best-fit) policy, but it costs O(1) regardless of the number of free cuts.
+ * <p>
+ * Thread safe. Each stack has its own lock, which is held only for a few primitive array accesses.
+ * (A lock rather than a monitor, so a virtual thread waiting for it does not pin its carrier thread.)
+ */
+class SizeClassFreeList implements FreeList {
+
+    // each power of two range is split into 2^SUB_CLASS_BITS classes
+    private static final int SUB_CLASS_BITS = 2;
+    private static final int SUB_CLASSES = 1 << SUB_CLASS_BITS;
+    // enough classes to cover any positive integer length
+    static final int NUM_OF_CLASSES = (Integer.SIZE - SUB_CLASS_BITS) << SUB_CLASS_BITS;
+
+    // number of stacks per class, threads prefer different stripes to reduce contention
+    private static final int STRIPES = 4;
+    private static final int INITIAL_STACK_CAPACITY = 16;
+
+    private final Stack[] stacks;
+
+    SizeClassFreeList() {
+        this.stacks = new Stack[NUM_OF_CLASSES * STRIPES];
+        for (int i = 0; i < stacks.length; i++) {
+            stacks[i] = new Stack();
+        }
+    }
+
+    @Override
+    public void add(int blockID, int offset, int length) {
+        assert length > 0;
+        getStack(sizeClass(length), stripeIndex()).push(FreeList.encodeLocation(blockID, offset), length);
+    }
+
+    /**
+     * Removes a free cut whose length is in the range [size, maxLength]. Free cuts are never split.
+     */
+    @Override
+    public boolean remove(BlockAllocationSlice s, int size, int maxLength) {
+        assert size > 0 && maxLength >= size;
+        int stripe = stripeIndex();
+        for (int c = sizeClass(size); c < NUM_OF_CLASSES && classLowerBound(c) <= maxLength; c++) {
+            for (int i = 0; i < STRIPES; i++) {
+                Stack stack = getStack(c, stripe + i);
+                if (stack.size != 0 && stack.pop(s, size, maxLength)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void removeBlock(int blockID, FreeList target) {
+        for (Stack stack : stacks) {
+            if (stack.size != 0) {
+                stack.removeBlock(blockID, target);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stack stack : stacks) {
+            size += stack.size;
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (Stack stack : stacks) {
+            stack.size = 0;
+        }
+    }
+
+    /*-------------- Size classes --------------*/
+
+    // the class containing the given length
+    static int sizeClass(int length) {
+        if (length < SUB_CLASSES) {
+            return length;
+        }
+        int shift = (Integer.SIZE - 1 - Integer.numberOfLeadingZeros(length)) - SUB_CLASS_BITS;
+        return ((shift + 1) << SUB_CLASS_BITS) | ((length >>> shift) & (SUB_CLASSES - 1));
+    }
+
+    // the smallest length belonging to the given class
+    static int classLowerBound(int sizeClass) {
+        if (sizeClass < SUB_CLASSES) {
+            return sizeClass;
+        }
+        int shift = (sizeClass >>> SUB_CLASS_BITS) - 1;
+        return (SUB_CLASSES | (sizeClass & (SUB_CLASSES - 1))) << shift;
+    }
+
+    /*-------------- Private helpers --------------*/
+
+    private Stack getStack(int sizeClass, int stripe) {
+        return stacks[sizeClass * STRIPES + (stripe & (STRIPES - 1))];
+    }
+
+    private static int stripeIndex() {
+        return (int) Thread.currentThread().getId();
+    }
+
+    private static final class Stack {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long[] locations = new long[INITIAL_STACK_CAPACITY];
+        private int[] lengths = new int[INITIAL_STACK_CAPACITY];
+        // written only under the stack's lock, read without it as an emptiness hint
+        private volatile int size = 0;
+
+        void push(long location, int length) {
+            lock.lock();
+            try {
+                int top = size;
+                if (top == locations.length) {
+                    int newCapacity = top << 1;
+                    locations = Arrays.copyOf(locations, newCapacity);
+                    lengths = Arrays.copyOf(lengths, newCapacity);
+                }
+                locations[top] = location;
+                lengths[top] = length;
+                size = top + 1;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean pop(BlockAllocationSlice s, int minLength, int maxLength) {
+            lock.lock();
+            try {
+                int top = size - 1;
+                if (top < 0) {
+                    return false;
+                }
+                int length = lengths[top];
+                if (length < minLength || length > maxLength) {
+                    return false;
+                }
+                long location = locations[top];
+                size = top;
+                s.setBlockIdOffsetAndLength((int) (location >>> Integer.SIZE), (int) location, length);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // the target is a different free list, so its locks are never held together with this one
+        void removeBlock(int blockID, FreeList target) {
+            lock.lock();
+            try {
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    long location = locations[i];
+                    if ((int) (location >>> Integer.SIZE) != blockID) {
+                        locations[kept] = location;
+                        lengths[kept] = lengths[i];
+                        kept++;
+                    } else if (target != null) {
+                        target.add(blockID, (int) location, lengths[i]);
+                    }
+                }
+                size = kept;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
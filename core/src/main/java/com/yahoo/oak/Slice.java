@@ -31,6 +31,14 @@ interface Slice {
      */
     void release();
 
+    /**
+     * Retire the associated off-heap cut, which must be disconnected from the data structure, after its data
+     * was relocated by the compaction. Unlike release(), the cut is never reused. Thus, threads that still hold
+     * its reference keep reading the same data (and header), until its block is returned as a whole
+     * (see {@code NativeMemoryAllocator.compact()}).
+     */
+    void retire();
+
     /**
      * Reset all Slice fields to invalid value, erase the previous association if existed.
      * This does not releases the associated off-heap cut to memory manager, just disconnects
@@ -97,6 +105,24 @@ interface Slice {
      */
     long getAddress();
 
+    /**
+     * The data of the slice is accessed by the scoped buffers as a base object and an offset (as in Unsafe).
+     * Usually the data is off-heap, so there is no base object and the offset is the address of the data.
+     * A slice that holds its data on-heap (e.g., InlineSlice) returns the object which holds the data.
+     * @return the object holding the data of the slice, or null if the data is off-heap
+     */
+    default Object getBase() {
+        return null;
+    }
+
+    /**
+     * @return the offset of the data of the slice in its base object (see getBase()),
+     * which is the address of the data if it is off-heap.
+     */
+    default long getBaseOffset() {
+        return getAddress();
+    }
+
     /* ------------------------------------------------------------------------------------
      * Off-heap metadata based operations: locking and logical delete
      * ------------------------------------------------------------------------------------*/
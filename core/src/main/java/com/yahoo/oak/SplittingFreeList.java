@@ -0,0 +1,261 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A free space engine of NativeMemoryAllocator that splits and merges free cuts, in the spirit of the two-level
+ * segregated fit (TLSF) allocator.
+ * <p>
+ * Each free cut is kept in the list of its size class (the same log-linear classes as
+ * {@code SizeClassFreeList}), and a bitmap marks the non-empty classes. A request is served from the first
+ * cut of its own class if it is big enough, otherwise from the first cut of the next non-empty class,
+ * so a lookup costs O(1). The cut is split: the requested part is returned and the remainder
+ * stays free (unless it is smaller than MIN_SPLIT_REMAINDER).
+ * <p>
+ * A cut is always reused from its start, and a cut with a versioned header (a value cut) is never merged into
+ * the free cut preceding it. Thus, the header of a released value stays at the start of a cut (free or reused),
+ * and never falls inside the data of another value, so the header version check of the memory manager detects
+ * a stale reference as it does with the default free list.
+ * A cut with no versioned header at its start (see {@code FreeList.addUnversioned()}), i.e., a key cut, a split
+ * remainder (which no reference pointed to before), or a merge of such cuts, is merged into the free cut
+ * preceding it. The free cuts are found via two hash maps keyed by the cut start and end locations.
+ * Thus, a big released cut can serve smaller allocations, and adjacent released key cuts can serve a bigger one.
+ * <p>
+ * All the metadata is kept on-heap and protected by a single lock, the off-heap memory itself is never touched.
+ */
+class SplittingFreeList implements FreeList {
+
+    // a remainder smaller than this is not split from the cut, but returned with it
+    static final int MIN_SPLIT_REMAINDER = 16;
+
+    private static final int NUM_OF_CLASSES = SizeClassFreeList.NUM_OF_CLASSES;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // free cuts by their start location and by their end location (the location right after them)
+    private final HashMap<Long, Cut> cutsByStart = new HashMap<>();
+    private final HashMap<Long, Cut> cutsByEnd = new HashMap<>();
+    // the first cut of each size class, the cuts of a class are doubly linked
+    private final Cut[] classHeads = new Cut[NUM_OF_CLASSES];
+    // a set bit marks a non-empty size class
+    private final long[] nonEmptyClasses = new long[(NUM_OF_CLASSES + Long.SIZE - 1) / Long.SIZE];
+    // Cut objects that are no longer in use, to be reused (linked by next)
+    private Cut spareCuts = null;
+
+    private static final class Cut {
+        private int blockID;
+        private int offset;
+        private int length;
+        private int sizeClass;
+        // whether the cut starts with no versioned header, so it may be merged into the preceding cut
+        private boolean mergeable;
+        private Cut prev;
+        private Cut next;
+
+        long start() {
+            return FreeList.encodeLocation(blockID, offset);
+        }
+
+        long end() {
+            return FreeList.encodeLocation(blockID, offset + length);
+        }
+    }
+
+    @Override
+    public void add(int blockID, int offset, int length) {
+        assert length > 0;
+        lock.lock();
+        try {
+            addAndMerge(blockID, offset, length, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addUnversioned(int blockID, int offset, int length) {
+        assert length > 0;
+        lock.lock();
+        try {
+            addAndMerge(blockID, offset, length, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a free cut of exactly {@code size} bytes, splitting a bigger free cut if needed.
+     * The cut may be up to MIN_SPLIT_REMAINDER bytes longer (regardless of {@code maxLength}).
+     */
+    @Override
+    public boolean remove(BlockAllocationSlice s, int size, int maxLength) {
+        assert size > 0;
+        lock.lock();
+        try {
+            int sizeClass = SizeClassFreeList.sizeClass(size);
+            Cut c = classHeads[sizeClass];
+            if (c == null || c.length < size) {
+                // all the cuts of the following classes are big enough
+                sizeClass = nextNonEmptyClass(sizeClass + 1);
+                if (sizeClass == -1) {
+                    return false;
+                }
+                c = classHeads[sizeClass];
+            }
+            removeCut(c);
+            int length = c.length;
+            if (length - size >= MIN_SPLIT_REMAINDER) {
+                // the requested part is taken from the start of the cut, where the released header resides
+                addAndMerge(c.blockID, c.offset + size, length - size, true);
+                length = size;
+            }
+            s.setBlockIdOffsetAndLength(c.blockID, c.offset, length);
+            recycleCut(c);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeBlock(int blockID, FreeList target) {
+        lock.lock();
+        try {
+            for (int sizeClass = 0; sizeClass < NUM_OF_CLASSES; sizeClass++) {
+                Cut c = classHeads[sizeClass];
+                while (c != null) {
+                    Cut next = c.next;
+                    if (c.blockID == blockID) {
+                        removeCut(c);
+                        if (target != null && c.mergeable) {
+                            target.addUnversioned(blockID, c.offset, c.length);
+                        } else if (target != null) {
+                            target.add(blockID, c.offset, c.length);
+                        }
+                        recycleCut(c);
+                    }
+                    c = next;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return cutsByStart.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            cutsByStart.clear();
+            cutsByEnd.clear();
+            Arrays.fill(classHeads, null);
+            Arrays.fill(nonEmptyClasses, 0);
+            spareCuts = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*-------------- Private helpers, called while holding the lock --------------*/
+
+    // Inserts the cut, merged with the free cut preceding it (if the cut is mergeable), and with the free cut
+    // following it (if that one is mergeable). A merged cut is mergeable as its first part.
+    private void addAndMerge(int blockID, int offset, int length, boolean mergeable) {
+        int mergedOffset = offset;
+        int mergedLength = length;
+        boolean mergedMergeable = mergeable;
+        if (mergeable) {
+            Cut before = cutsByEnd.get(FreeList.encodeLocation(blockID, offset));
+            if (before != null) {
+                removeCut(before);
+                mergedOffset = before.offset;
+                mergedLength += before.length;
+                mergedMergeable = before.mergeable;
+                recycleCut(before);
+            }
+        }
+        Cut after = cutsByStart.get(FreeList.encodeLocation(blockID, offset + length));
+        if (after != null && after.mergeable) {
+            removeCut(after);
+            mergedLength += after.length;
+            recycleCut(after);
+        }
+        insertCut(blockID, mergedOffset, mergedLength, mergedMergeable);
+    }
+
+    private void insertCut(int blockID, int offset, int length, boolean mergeable) {
+        Cut c = spareCuts;
+        if (c != null) {
+            spareCuts = c.next;
+        } else {
+            c = new Cut();
+        }
+        c.blockID = blockID;
+        c.offset = offset;
+        c.length = length;
+        c.sizeClass = SizeClassFreeList.sizeClass(length);
+        c.mergeable = mergeable;
+        c.prev = null;
+        c.next = classHeads[c.sizeClass];
+        if (c.next != null) {
+            c.next.prev = c;
+        }
+        classHeads[c.sizeClass] = c;
+        nonEmptyClasses[c.sizeClass / Long.SIZE] |= 1L << (c.sizeClass % Long.SIZE);
+        cutsByStart.put(c.start(), c);
+        cutsByEnd.put(c.end(), c);
+    }
+
+    private void removeCut(Cut c) {
+        if (c.prev != null) {
+            c.prev.next = c.next;
+        } else {
+            classHeads[c.sizeClass] = c.next;
+            if (c.next == null) {
+                nonEmptyClasses[c.sizeClass / Long.SIZE] &= ~(1L << (c.sizeClass % Long.SIZE));
+            }
+        }
+        if (c.next != null) {
+            c.next.prev = c.prev;
+        }
+        cutsByStart.remove(c.start());
+        cutsByEnd.remove(c.end());
+    }
+
+    private void recycleCut(Cut c) {
+        c.prev = null;
+        c.next = spareCuts;
+        spareCuts = c;
+    }
+
+    // returns the first non-empty size class, starting from the given one, or -1 if there is none
+    private int nextNonEmptyClass(int fromClass) {
+        for (int w = fromClass / Long.SIZE; w < nonEmptyClasses.length; w++) {
+            long bits = nonEmptyClasses[w];
+            if (w == fromClass / Long.SIZE) {
+                bits &= -1L << (fromClass % Long.SIZE);
+            }
+            if (bits != 0) {
+                return w * Long.SIZE + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+}
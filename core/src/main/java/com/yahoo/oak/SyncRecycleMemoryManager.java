@@ -8,19 +8,46 @@ package com.yahoo.oak;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 class SyncRecycleMemoryManager implements MemoryManager {
     static final int RELEASE_LIST_LIMIT = 1024;
+    // With background reclamation, a release list is handed off to the reclaimer once it reaches the release
+    // batch size. The size adapts: it grows (up to RELEASE_LIST_LIMIT) while the reclaimer lags behind,
+    // to amortize the version increases, and shrinks (down to MIN_RELEASE_BATCH) while the reclaimer keeps up,
+    // so the released memory is reused sooner. A reclamation round frees all its release lists after a single
+    // version increase, so the version is increased at most once per round, and at most once per
+    // MIN_RELEASE_BATCH released slices (besides the rounds of the idle release lists).
+    static final int MIN_RELEASE_BATCH = 256;
+    // if more release lists are waiting for the reclaimer, the releasing thread frees its list by itself
+    static final int MAX_HANDED_OFF_BATCHES = 16;
+    // disables the background reclamation, the release lists are freed only by their threads (the default)
+    static final long NO_BACKGROUND_RECLAMATION = 0;
+    // the idle release lists are freed at most once per this delay, to bound the version increases
+    static final long MIN_MAX_RELEASE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
     private static final SyncRecycleMMHeader HEADER =
         new SyncRecycleMMHeader(); // for off-heap header operations
     private static final int VERS_INIT_VALUE = 1;
     private static final int OFF_HEAP_HEADER_SIZE = 12; /* Bytes */
     private final ThreadIndexCalculator threadIndexCalculator;
-    private final List<List<SliceSyncRecycle>> releaseLists;
+    private final ReleaseList[] releaseLists;
     private final AtomicInteger globalVersionNumber;
     private final BlockMemoryAllocator allocator;
+    // statistics: the slices in all the release lists, and the number of global version increases
+    private final LongAdder pendingReleases = new LongAdder();
+    private final LongAdder globalVersionBumps = new LongAdder();
+
+    // the background reclamation, null if it is disabled
+    private final ReleaseListReclaimer reclaimer;
+    // the maximal time a released slice waits in a release list before the reclaimer frees it
+    private final long maxReleaseDelayNanos;
+    private final ConcurrentLinkedQueue<List<SliceSyncRecycle>> handedOffBatches = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numOfHandedOffBatches = new AtomicInteger(0);
+    private volatile int releaseBatchSize = MIN_RELEASE_BATCH;
 
     /*
      * The VALUE_RC reference codec encodes the reference (with memory manager abilities) of the values
@@ -31,19 +58,62 @@ class SyncRecycleMemoryManager implements MemoryManager {
     private final ReferenceCodecSyncRecycle rc;
 
     SyncRecycleMemoryManager(BlockMemoryAllocator allocator) {
+        this(allocator, NO_BACKGROUND_RECLAMATION);
+    }
+
+    /**
+     * @param allocator            the allocator of the managed slices
+     * @param maxReleaseDelayNanos the maximal time a released slice waits before it is freed in the
+     *                             background (at least MIN_MAX_RELEASE_DELAY_NANOS),
+     *                             or NO_BACKGROUND_RECLAMATION
+     */
+    SyncRecycleMemoryManager(BlockMemoryAllocator allocator, long maxReleaseDelayNanos) {
         this.threadIndexCalculator = ThreadIndexCalculator.newInstance();
-        this.releaseLists = new CopyOnWriteArrayList<>();
-        for (int i = 0; i < ThreadIndexCalculator.MAX_THREADS; i++) {
-            this.releaseLists.add(new ArrayList<>(RELEASE_LIST_LIMIT));
+        this.releaseLists = new ReleaseList[ThreadIndexCalculator.NUM_OF_SLOTS];
+        for (int i = 0; i < releaseLists.length; i++) {
+            this.releaseLists[i] = new ReleaseList();
         }
         globalVersionNumber = new AtomicInteger(VERS_INIT_VALUE);
         this.allocator = allocator;
-        rc = new ReferenceCodecSyncRecycle(BlocksPool.getInstance().blockSize(), allocator);
+        // a manager may be created without an allocator (only for its slices), then the default block size is used
+        int blockSize = allocator != null ? allocator.blockSize() : BlocksPool.getInstance().blockSize();
+        rc = new ReferenceCodecSyncRecycle(blockSize, allocator);
+        if (maxReleaseDelayNanos != NO_BACKGROUND_RECLAMATION && maxReleaseDelayNanos < MIN_MAX_RELEASE_DELAY_NANOS) {
+            throw new IllegalArgumentException(String.format(
+                "The maximal release delay must be at least %d nanoseconds (delay: %d)",
+                MIN_MAX_RELEASE_DELAY_NANOS, maxReleaseDelayNanos));
+        }
+        this.maxReleaseDelayNanos = maxReleaseDelayNanos;
+        if (allocator != null && maxReleaseDelayNanos != NO_BACKGROUND_RECLAMATION) {
+            // must be last, as the reclaimer may use this manager from now on
+            this.reclaimer = ReleaseListReclaimer.register(this);
+        } else {
+            this.reclaimer = null;
+        }
     }
 
+    /**
+     * Closes the allocator, and stops the background reclamation of the managers sharing it.
+     */
     @Override
     public void close() {
-        allocator.close();
+        if (reclaimer == null) {
+            allocator.close();
+            return;
+        }
+        // the allocator is not closed while the reclaimer frees slices into it
+        reclaimer.lock();
+        try {
+            allocator.close();
+        } finally {
+            reclaimer.unlock();
+        }
+        reclaimer.stop();
+    }
+
+    // whether the full release lists are handed off to the reclaimer
+    private boolean isReclaimedInBackground() {
+        return reclaimer != null && reclaimer.isRunning();
     }
 
     @Override
@@ -111,15 +181,36 @@ class SyncRecycleMemoryManager implements MemoryManager {
         return OFF_HEAP_HEADER_SIZE;
     }
 
+    /**
+     * The released slices are dropped (not freed), as their memory is either cleared now,
+     * or was cleared by another manager sharing the allocator.
+     */
     @Override
     public void clear(boolean clearAllocator) {
-        if (clearAllocator) {
-            allocator.clear();
+        if (reclaimer == null) {
+            dropReleaseLists();
+            if (clearAllocator) {
+                allocator.clear();
+            }
+            globalVersionNumber.set(VERS_INIT_VALUE);
+            return;
         }
-        for (int i = 0; i < ThreadIndexCalculator.MAX_THREADS; i++) {
-            this.releaseLists.add(new ArrayList<>(RELEASE_LIST_LIMIT));
+        // the allocator is not cleared while the reclaimer frees slices into it
+        reclaimer.lock();
+        try {
+            if (clearAllocator) {
+                // the slices released to the other managers of the allocator are cleared as well
+                for (SyncRecycleMemoryManager mm : reclaimer.getManagers()) {
+                    mm.dropReleaseLists();
+                }
+                allocator.clear();
+            } else {
+                dropReleaseLists();
+            }
+            globalVersionNumber.set(VERS_INIT_VALUE);
+        } finally {
+            reclaimer.unlock();
         }
-        globalVersionNumber.set(VERS_INIT_VALUE);
     }
 
     @Override
@@ -127,6 +218,140 @@ class SyncRecycleMemoryManager implements MemoryManager {
         return allocator.allocated();
     }
 
+    /**
+     * Frees the release list of the calling thread, and the release lists handed off to the reclaimer.
+     */
+    @Override
+    public void flushReleaseList() {
+        List<SliceSyncRecycle> myReleaseList = releaseLists[threadIndexCalculator.getIndex()].takeAll();
+        if (myReleaseList != null) {
+            freeReleaseList(myReleaseList);
+        }
+        freeHandedOffBatches();
+    }
+
+    // The released slices are freed only after the global version is increased,
+    // so the reused cuts get a version different from the one the stale references hold.
+    // The slices must already be released, i.e., the list was taken from its release list.
+    private void freeReleaseList(List<SliceSyncRecycle> releaseList) {
+        increaseGlobalVersion();
+        for (SliceSyncRecycle allocToRelease : releaseList) {
+            allocator.free(allocToRelease);
+        }
+        pendingReleases.add(-releaseList.size());
+    }
+
+    // The released slices of all the lists are freed after a single increase of the global version
+    private void freeReleaseLists(List<List<SliceSyncRecycle>> releaseLists) {
+        increaseGlobalVersion();
+        for (List<SliceSyncRecycle> releaseList : releaseLists) {
+            for (SliceSyncRecycle allocToRelease : releaseList) {
+                allocator.free(allocToRelease);
+            }
+            pendingReleases.add(-releaseList.size());
+        }
+    }
+
+    // Passes a full release list to the reclaimer, unless the reclaimer lags too far behind, or stopped
+    private void handOff(List<SliceSyncRecycle> releaseList) {
+        if (!reclaimer.isRunning()) {
+            // the lists handed off before the reclaimer stopped are freed as well
+            freeReleaseList(releaseList);
+            freeHandedOffBatches();
+            return;
+        }
+        int handedOff = numOfHandedOffBatches.get();
+        if (handedOff >= MAX_HANDED_OFF_BATCHES) {
+            freeReleaseList(releaseList);
+            return;
+        }
+        if (handedOff > 0) {
+            // the reclaimer lags behind, bigger batches amortize its work
+            releaseBatchSize = Math.min(releaseBatchSize << 1, RELEASE_LIST_LIMIT);
+        }
+        numOfHandedOffBatches.incrementAndGet();
+        handedOffBatches.add(releaseList);
+        reclaimer.wakeUp();
+    }
+
+    // adds the handed off release lists to the given lists, and returns their number
+    private int takeHandedOffBatches(List<List<SliceSyncRecycle>> taken) {
+        int num = 0;
+        List<SliceSyncRecycle> releaseList;
+        while ((releaseList = handedOffBatches.poll()) != null) {
+            numOfHandedOffBatches.decrementAndGet();
+            taken.add(releaseList);
+            num++;
+        }
+        return num;
+    }
+
+    private void freeHandedOffBatches() {
+        List<List<SliceSyncRecycle>> batches = new ArrayList<>();
+        if (takeHandedOffBatches(batches) > 0) {
+            freeReleaseLists(batches);
+        }
+    }
+
+    /**
+     * A round of the background reclamation, called by the reclaimer while holding its lock: frees the handed off
+     * release lists, and the release lists holding a slice which was released before the maximal release delay.
+     * All of them are freed after a single increase of the global version.
+     */
+    void reclaim(long now) {
+        List<List<SliceSyncRecycle>> batches = new ArrayList<>();
+        if (takeHandedOffBatches(batches) <= 1) {
+            // the reclaimer keeps up, smaller batches reuse the released memory sooner
+            releaseBatchSize = Math.max(releaseBatchSize >> 1, MIN_RELEASE_BATCH);
+        }
+        for (ReleaseList releaseList : releaseLists) {
+            List<SliceSyncRecycle> slices = releaseList.tryTakeReleasedBefore(now - maxReleaseDelayNanos);
+            if (slices != null) {
+                batches.add(slices);
+            }
+        }
+        if (!batches.isEmpty()) {
+            freeReleaseLists(batches);
+        }
+    }
+
+    // drops the released slices without freeing them, as their memory was cleared
+    private void dropReleaseLists() {
+        for (ReleaseList releaseList : releaseLists) {
+            List<SliceSyncRecycle> slices = releaseList.takeAll();
+            if (slices != null) {
+                pendingReleases.add(-slices.size());
+            }
+        }
+        List<SliceSyncRecycle> slices;
+        while ((slices = handedOffBatches.poll()) != null) {
+            numOfHandedOffBatches.decrementAndGet();
+            pendingReleases.add(-slices.size());
+        }
+    }
+
+    // used only for testing
+    @VisibleForTesting
+    int getReleaseBatchSize() {
+        return releaseBatchSize;
+    }
+
+    // used only for testing
+    @VisibleForTesting
+    ReleaseListReclaimer getReclaimer() {
+        return reclaimer;
+    }
+
+    @Override
+    public long pendingReleases() {
+        return pendingReleases.sum();
+    }
+
+    @Override
+    public long globalVersionBumps() {
+        return globalVersionBumps.sum();
+    }
+
     // The version takes specific number of bits (including delete bit)
     // the version increasing needs to restart once the maximal number of bits is reached
     //
@@ -138,10 +363,9 @@ class SyncRecycleMemoryManager implements MemoryManager {
         // the version takes specific number of bits (including delete bit)
         // version increasing needs to restart once the maximal number of bits is reached
         int curVer = globalVersionNumber.get();
-        if (curVer == rc.LAST_VALID_VERSION) {
-            globalVersionNumber.compareAndSet(curVer, VERS_INIT_VALUE);
-        } else {
-            globalVersionNumber.compareAndSet(curVer, curVer + 1);
+        int newVer = curVer == rc.LAST_VALID_VERSION ? VERS_INIT_VALUE : curVer + 1;
+        if (globalVersionNumber.compareAndSet(curVer, newVer)) {
+            globalVersionBumps.increment();
         }
         // if CAS fails someone else updated the version, which is good enough
     }
@@ -186,8 +410,18 @@ class SyncRecycleMemoryManager implements MemoryManager {
          */
         @Override
         public void allocate(int size, boolean existing) {
-            boolean allocated = allocator.allocate(this, size + OFF_HEAP_HEADER_SIZE);
+            boolean allocated = allocator.allocate(this, getAllocationSize(size));
             assert allocated;
+            initAllocation(size, existing);
+        }
+
+        @Override
+        protected int getAllocationSize(int dataSize) {
+            return dataSize + OFF_HEAP_HEADER_SIZE;
+        }
+
+        @Override
+        protected void initAllocation(int size, boolean existing) {
             int allocationVersion = globalVersionNumber.get();
             version = allocationVersion;
             associated = true;
@@ -223,16 +457,25 @@ class SyncRecycleMemoryManager implements MemoryManager {
         public void release() {
             prefetchDataLength(); // this will set the length from off-heap header, if needed
             int idx = threadIndexCalculator.getIndex();
-            List<SliceSyncRecycle> myReleaseList = releaseLists.get(idx);
+            pendingReleases.increment();
+            int limit = isReclaimedInBackground() ? releaseBatchSize : RELEASE_LIST_LIMIT;
             // ensure the length of the slice is always set
-            myReleaseList.add(duplicate());
-            if (myReleaseList.size() >= RELEASE_LIST_LIMIT) {
-                increaseGlobalVersion();
-                for (SliceSyncRecycle allocToRelease : myReleaseList) {
-                    allocator.free(allocToRelease);
-                }
-                myReleaseList.clear();
+            List<SliceSyncRecycle> fullReleaseList = releaseLists[idx].add(duplicate(), limit);
+            if (fullReleaseList == null) {
+                return;
             }
+            if (reclaimer != null) {
+                // falls back to freeing the list inline if the reclaimer stopped
+                handOff(fullReleaseList);
+            } else {
+                freeReleaseList(fullReleaseList);
+            }
+        }
+
+        @Override
+        public void retire() {
+            prefetchDataLength(); // the length of the cut is read from the off-heap header, if needed
+            allocator.retire(this);
         }
 
         /**
@@ -302,6 +545,7 @@ class SyncRecycleMemoryManager implements MemoryManager {
             length      = UNDEFINED_LENGTH_OR_OFFSET_OR_ADDRESS;
             offset      = UNDEFINED_LENGTH_OR_OFFSET_OR_ADDRESS;
             memAddress  = UNDEFINED_LENGTH_OR_OFFSET_OR_ADDRESS;
+            blockLease  = null;
             associated  = false;
         }
 
@@ -470,4 +714,58 @@ class SyncRecycleMemoryManager implements MemoryManager {
             HEADER.markAsDeleted(getMetadataAddress());
         }
     }
+
+    /**
+     * The released slices of a thread, which are not freed yet. Taken as a whole by the thread once it fills up,
+     * or by the reclaimer once its oldest slice waits too long. The lock is contended only by the reclaimer,
+     * and by the threads sharing the slot when there are more live threads than slots (see ThreadIndexCalculator).
+     */
+    private static final class ReleaseList {
+        private final ReentrantLock lock = new ReentrantLock();
+        private List<SliceSyncRecycle> slices = new ArrayList<>();
+        private long firstReleaseNanos;
+
+        // Adds the slice, and returns the entire list if it reached the limit, otherwise null
+        List<SliceSyncRecycle> add(SliceSyncRecycle s, int limit) {
+            lock.lock();
+            try {
+                if (slices.isEmpty()) {
+                    firstReleaseNanos = System.nanoTime();
+                }
+                slices.add(s);
+                return slices.size() >= limit ? takeAllLocked() : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // returns the released slices, or null if there are none
+        List<SliceSyncRecycle> takeAll() {
+            lock.lock();
+            try {
+                return slices.isEmpty() ? null : takeAllLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Returns the released slices if the first of them was released before the given time, otherwise null.
+        // Does not wait for the owner thread.
+        List<SliceSyncRecycle> tryTakeReleasedBefore(long time) {
+            if (!lock.tryLock()) {
+                return null;
+            }
+            try {
+                return !slices.isEmpty() && firstReleaseNanos - time <= 0 ? takeAllLocked() : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private List<SliceSyncRecycle> takeAllLocked() {
+            List<SliceSyncRecycle> taken = slices;
+            slices = new ArrayList<>(taken.size());
+            return taken;
+        }
+    }
 }
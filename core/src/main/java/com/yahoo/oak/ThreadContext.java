@@ -62,6 +62,16 @@ class ThreadContext {
     final KeyBuffer tempKey;
     final ValueBuffer tempValue;
 
+    /*-----------------------------------------------------------
+     * Compaction Context
+     *-----------------------------------------------------------*/
+
+    /* The compaction epochs of the keys and the values allocators when the context was created. They are kept
+     * reachable by the context, so the blocks emptied meanwhile are not returned while the context is in use,
+     * see NativeMemoryAllocator.compact() */
+    private final Object keysCompactionEpoch;
+    private final Object valuesCompactionEpoch;
+
     ThreadContext(MemoryManager kmm, MemoryManager vmm) {
         entryIndex = EntryArray.INVALID_ENTRY_INDEX;
         entryState = EntryArray.EntryState.UNKNOWN;
@@ -74,6 +84,9 @@ class ThreadContext {
         this.tempKey = new KeyBuffer(kmm.getEmptySlice());
         this.tempValue = new ValueBuffer(vmm.getEmptySlice());
 
+        this.keysCompactionEpoch = getCompactionEpoch(kmm);
+        this.valuesCompactionEpoch = getCompactionEpoch(vmm);
+
         this.keyHashAndUpdateCnt = EntryHashSet.INVALID_KEY_HASH_AND_UPD_CNT;
         this.operationKeyHash = EntryHashSet.INVALID_KEY_HASH;
     }
@@ -90,6 +103,11 @@ class ThreadContext {
         // No need to invalidate the temporary buffers
     }
 
+    private static Object getCompactionEpoch(MemoryManager mm) {
+        BlockMemoryAllocator allocator = mm.getBlockMemoryAllocator();
+        return allocator != null ? allocator.getCompactionEpoch() : null;
+    }
+
     /**
      * Initialize the entry context index to be used by methods that manages the key/value of this context.
      * The entry index is stored in the context so it can be used later by other methods without passing the
@@ -6,68 +6,102 @@
 
 package com.yahoo.oak;
 
-import sun.misc.Unsafe;
-
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Maps the threads to a fixed number of slots, to index per-thread state (e.g., the release lists of
+ * SyncRecycleMemoryManager). The number of slots depends on the number of processors, not on the number of
+ * threads, so any number of threads (e.g., thousands of virtual threads) can be served:
+ * <ul>
+ * <li>A thread takes a free slot, and keeps it until it releases it (see releaseIndex()) or terminates.
+ * The slot of a terminated thread is taken over by a thread which needs a slot, once no slot is free.</li>
+ * <li>If all the slots are taken by live threads, the thread shares a slot with other threads.
+ * Thus, the state of a slot must be thread safe, and getIndex() never blocks.</li>
+ * </ul>
+ * The index of a thread is cached in a thread local, so finding it costs no search.
+ */
 final class ThreadIndexCalculator {
 
-    public static final int MAX_THREADS = 64;
-    private static final int INVALID_THREAD_ID = -1;
-    // Long for correctness and anti false-sharing
-    private final long[] indices = new long[MAX_THREADS];
+    // the number of slots, a power of two
+    static final int NUM_OF_SLOTS = numOfSlots();
 
-    private ThreadIndexCalculator() {
-        for (int i = 0; i < MAX_THREADS; ++i) {
-            indices[i] = INVALID_THREAD_ID;
+    private final AtomicReferenceArray<Thread> owners = new AtomicReferenceArray<>(NUM_OF_SLOTS);
+    // the slot of the thread, and whether the slot is shared with other threads
+    private final ThreadLocal<Slot> slots = new ThreadLocal<>();
+
+    private static final class Slot {
+        private final int index;
+        private final boolean shared;
+
+        Slot(int index, boolean shared) {
+            this.index = index;
+            this.shared = shared;
         }
     }
 
-    private int getExistingIndex(long threadID) {
-        int iterationCnt = 0;
-        int currentIndex = ((int) threadID) % MAX_THREADS;
-        while (indices[currentIndex] != threadID) {
-            if (indices[currentIndex] == INVALID_THREAD_ID) {
-                // negative output indicates that a new index need to be created for this thread id
-                return -1 * currentIndex;
-            }
-            currentIndex = (currentIndex + 1) % MAX_THREADS;
-            iterationCnt++;
-            assert iterationCnt < MAX_THREADS;
-        }
-        return currentIndex;
+    private ThreadIndexCalculator() {
+    }
+
+    // at least 64 slots, and enough for a few threads per processor (e.g., carrier threads)
+    private static int numOfSlots() {
+        int slots = Math.max(64, 4 * Runtime.getRuntime().availableProcessors());
+        return Integer.highestOneBit(slots - 1) << 1;
+    }
+
+    // spreads the thread ids, which are usually sequential, over the slots
+    private static int homeIndex(Thread thread) {
+        long h = thread.getId() * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (NUM_OF_SLOTS - 1);
     }
 
     public int getIndex() {
-        long tid = Thread.currentThread().getId();
-        int threadIdx = getExistingIndex(tid);
-        if (threadIdx > 0) {
-            return threadIdx;
+        Thread current = Thread.currentThread();
+        Slot slot = slots.get();
+        // an owned slot is verified, as it might have been released
+        if (slot != null && (slot.shared || owners.get(slot.index) == current)) {
+            return slot.index;
         }
-        if (threadIdx == 0) {
-            // due to multiplying by -1 check this special array element
-            if (tid == indices[0]) {
-                return threadIdx;
-            }
+        int home = homeIndex(current);
+        // a free slot is preferred, and the slot of a terminated thread is taken over only when there is none
+        int index = takeSlot(current, home, false);
+        if (index < 0) {
+            index = takeSlot(current, home, true);
+        }
+        if (index >= 0) {
+            slots.set(new Slot(index, false));
+            return index;
         }
-        int i = threadIdx * -1;
-        while (!UnsafeUtils.UNSAFE.compareAndSwapLong(indices,
-                Unsafe.ARRAY_LONG_BASE_OFFSET + i * Unsafe.ARRAY_LONG_INDEX_SCALE, INVALID_THREAD_ID, tid)) {
-            //TODO get out of loop sometime
-            i = (i + 1) % MAX_THREADS;
+        // all the slots are owned by live threads
+        slots.set(new Slot(home, true));
+        return home;
+    }
+
+    private int takeSlot(Thread current, int home, boolean takeOver) {
+        for (int i = 0; i < NUM_OF_SLOTS; i++) {
+            int index = (home + i) & (NUM_OF_SLOTS - 1);
+            Thread owner = owners.get(index);
+            // the slot of a terminated thread can be taken over, as it will never use it again
+            boolean available = takeOver ? owner != null && !owner.isAlive() : owner == null;
+            if (available && owners.compareAndSet(index, owner, current)) {
+                return index;
+            }
         }
-        return i;
+        return -1;
     }
 
     public void releaseIndex() {
-        long tid = Thread.currentThread().getId();
-        int index = getExistingIndex(tid);
-        if (index < 0) {
+        Thread current = Thread.currentThread();
+        Slot slot = slots.get();
+        if (slot == null) {
             // There is no such thread index in the calculator, so throw NoSuchElementException
             // Probably releasing the same thread twice
             throw new NoSuchElementException();
         }
-        indices[index] = INVALID_THREAD_ID;
+        slots.remove();
+        if (!slot.shared) {
+            owners.compareAndSet(slot.index, current, null);
+        }
     }
 
     public static ThreadIndexCalculator newInstance() {
@@ -9,9 +9,6 @@ package com.yahoo.oak;
 import sun.misc.Unsafe;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.nio.Buffer;
-import java.nio.ByteBuffer;
 
 final class UnsafeUtils {
 
@@ -31,10 +28,6 @@ final class UnsafeUtils {
     private UnsafeUtils() {
     }
 
-    static long allocateMemory(long capacity ) {
-        return UnsafeUtils.UNSAFE.allocateMemory(capacity);
-    }
-
     static void setMemory(long address, long bytes, byte value) {
         UNSAFE.setMemory(address, bytes, value);
     }
@@ -105,31 +98,65 @@ final class UnsafeUtils {
     public static void putDouble(long address, double value) {
         UNSAFE.putDouble(address, value);
     }
-    
 
-    /*-------------- Wrapping address with bytebuffer --------------*/
-    private static final Field ADDRESS;
-    private static final Field CAPACITY;
-    static {
-        try {
-            ADDRESS = Buffer.class.getDeclaredField("address");
-            CAPACITY = Buffer.class.getDeclaredField("capacity");
-            ADDRESS.setAccessible(true);
-            CAPACITY.setAccessible(true);
-        } catch (NoSuchFieldException e) {
-            throw new AssertionError(e);
-        }
+    /*
+     * Accessors of the data of a slice, which is either off-heap (the base is null and the offset is an address)
+     * or on-heap (see Slice.getBase()).
+     */
+
+    static byte get(Object base, long offset) {
+        return UNSAFE.getByte(base, offset);
     }
 
-    public static ByteBuffer wrapAddress(long memAddress, int capacity) {
-        ByteBuffer bb = ByteBuffer.allocateDirect(0);
-        try {
-            ADDRESS.setLong(bb, memAddress);
-            CAPACITY.setInt(bb, capacity);
-            bb.clear();
-        } catch (IllegalAccessException e) {
-            throw new AssertionError(e);
-        }
-        return bb;
+    static char getChar(Object base, long offset) {
+        return UNSAFE.getChar(base, offset);
+    }
+
+    static short getShort(Object base, long offset) {
+        return UNSAFE.getShort(base, offset);
+    }
+
+    static int getInt(Object base, long offset) {
+        return UNSAFE.getInt(base, offset);
+    }
+
+    static long getLong(Object base, long offset) {
+        return UNSAFE.getLong(base, offset);
+    }
+
+    static float getFloat(Object base, long offset) {
+        return UNSAFE.getFloat(base, offset);
+    }
+
+    static double getDouble(Object base, long offset) {
+        return UNSAFE.getDouble(base, offset);
+    }
+
+    static void put(Object base, long offset, byte value) {
+        UNSAFE.putByte(base, offset, value);
+    }
+
+    static void putChar(Object base, long offset, char value) {
+        UNSAFE.putChar(base, offset, value);
+    }
+
+    static void putShort(Object base, long offset, short value) {
+        UNSAFE.putShort(base, offset, value);
+    }
+
+    static void putInt(Object base, long offset, int value) {
+        UNSAFE.putInt(base, offset, value);
+    }
+
+    static void putLong(Object base, long offset, long value) {
+        UNSAFE.putLong(base, offset, value);
+    }
+
+    static void putFloat(Object base, long offset, float value) {
+        UNSAFE.putFloat(base, offset, value);
+    }
+
+    static void putDouble(Object base, long offset, double value) {
+        UNSAFE.putDouble(base, offset, value);
     }
 }
@@ -7,6 +7,7 @@
 package com.yahoo.oak;
 
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 class ValueUtils {
 
@@ -91,6 +92,57 @@ class ValueUtils {
         return ValueResult.TRUE;
     }
 
+    /**
+     * Moves the value of the entry to a newly allocated off-heap cut, as done when a value is enlarged,
+     * but the value data is copied as is. Used by the compaction to move values off the evacuated blocks.
+     * As for a move, the old cut is kept marked as moved for the readers holding its reference. It is retired,
+     * so it is never reused, but its block can be emptied and returned once no reader can access it.
+     *
+     * @param chunk the chunk of the entry
+     * @param ctx   holds the entry index and its value
+     * @return {@code TRUE} if the value was relocated,
+     * {@code FALSE} if the value is deleted,
+     * {@code RETRY} if the value was moved, or the entry was updated or its chunk is being rebalanced.
+     */
+    <V> ValueResult relocate(BasicChunk<?, V> chunk, ThreadContext ctx) {
+        ValueResult result = ctx.value.s.lockWrite();
+        if (result != ValueResult.TRUE) {
+            return result;
+        }
+        int length = ctx.value.getLength();
+        // the new cut is allocated locked, exactly as for a move
+        try {
+            ctx.newValue.s.allocate(length, true);
+        } catch (OakOutOfMemoryException e) {
+            ctx.value.s.unlockWrite();
+            throw e;
+        }
+        ctx.isNewValueForMove = true;
+        UnsafeUtils.UNSAFE.copyMemory(ctx.value.getAddress(), ctx.newValue.getAddress(), length);
+
+        if (!chunk.linkMovedValue(ctx)) {
+            ctx.value.s.unlockWrite();
+            return ValueResult.RETRY;
+        }
+        ctx.value.s.markAsMoved();
+        ctx.value.s.retire();
+        ctx.value.copyFrom(ctx.newValue);
+        ctx.value.s.unlockWrite();
+        return ValueResult.TRUE;
+    }
+
+    /**
+     * @param chunk    the chunk with the entry of the value
+     * @param ctx      has the entry index and its value
+     * @param computer the function to apply on the Slice
+     * @return {@code TRUE} if the function was applied successfully,
+     * {@code FAILURE} if the value is deleted,
+     * {@code RETRY} if the value was moved.
+     */
+    ValueResult compute(BasicChunk<?, ?> chunk, ThreadContext ctx, Consumer<OakScopedWriteBuffer> computer) {
+        return compute(ctx.value, computer);
+    }
+
     /**
      * @param value    the value's off-heap Slice object
      * @param computer the function to apply on the Slice
@@ -113,10 +165,51 @@ class ValueUtils {
         return ValueResult.TRUE;
     }
 
+    /**
+     * Replaces the value with the result of the given function, or marks it as deleted if the result is null,
+     * while the value is write locked. A deleted value is then finalized as for a remove.
+     *
+     * @param <V>        the type of the value
+     * @param chunk      the chunk with the entry of the value
+     * @param ctx        has the entry index and its value
+     * @param function   given a read only view of the current value, returns the new value, or null to remove it
+     * @param serializer value serializer to write the new value
+     * @return {@code TRUE} if the function was applied, the value of the returned Result is its result,
+     * {@code FALSE} if the value is deleted,
+     * {@code RETRY} if the value was moved, or if the chuck is frozen/released (prevents the moving of the value).
+     */
+    <V> Result compute(BasicChunk<?, V> chunk, ThreadContext ctx, Function<OakScopedReadBuffer, ? extends V> function,
+        OakSerializer<V> serializer) {
+
+        ValueResult result = ctx.value.s.lockWrite();
+        if (result != ValueResult.TRUE) {
+            return ctx.result.withFlag(result);
+        }
+        V newValue;
+        try {
+            newValue = function.apply(ctx.value);
+        } catch (RuntimeException e) {
+            ctx.value.s.unlockWrite();
+            throw e;
+        }
+        if (newValue == null) {
+            // the value is marked as deleted, which also releases the write lock
+            ctx.value.s.markAsDeleted();
+            return ctx.result.withValue(null);
+        }
+        result = innerPut(chunk, ctx, newValue, serializer);
+        // in case move happened: ctx.value might be set to a new slice.
+        // Alternatively, if returned result is RETRY, a rebalance might be needed
+        // or the entry might be updated by someone else, need to retry
+        ctx.value.s.unlockWrite();
+        return result == ValueResult.TRUE ? ctx.result.withValue(newValue) : ctx.result.withFlag(ValueResult.RETRY);
+    }
+
     /**
      * Marks a value as deleted and frees its slice (whether the header is freed or not is implementation dependant).
      *
      * @param <V>           the type of the value
+     * @param chunk         the chunk with the entry of the value
      * @param ctx           has the entry index and its value to be remove
      * @param oldValue      in case of a conditional remove, this is the value to which the actual value is compared to
      * @param transformer   value deserializer
@@ -126,41 +219,49 @@ class ValueUtils {
      * In case of success, the value of the returned Result is the value which was written in the off-heap before the
      * removal (if {@code transformer} is not null), otherwise, it is {@code null}.
      */
-    <V> Result remove(ThreadContext ctx, V oldValue, OakTransformer<V> transformer) {
-        // Not a conditional remove, so we can delete immediately
-        if (oldValue == null) {
+    <V> Result remove(BasicChunk<?, V> chunk, ThreadContext ctx, V oldValue, OakTransformer<V> transformer) {
+        // Not a conditional remove, and the old value is not read, so we can delete immediately
+        if (oldValue == null && transformer == null) {
             // try to delete
             ValueResult result = ctx.value.s.logicalDelete();
             if (result != ValueResult.TRUE) {
                 return ctx.result.withFlag(result);
             }
-            // Now the value is deleted, and all other threads will treat it as deleted,
-            // but it is not yet freed, so this thread can read from it.
-            // read the old value (the slice is not reclaimed yet)
-            V v = transformer != null ? transformer.apply(ctx.value) : null;
-            // return TRUE with the old value
-            return ctx.result.withValue(v);
-        } else {
-            // This is a conditional remove, so we first have to check whether the current value matches the expected
-            // one.
-            // We start by acquiring a write lock for reading since we do not want concurrent reads.
-            ValueResult result = ctx.value.s.lockWrite();
-            if (result != ValueResult.TRUE) {
-                return ctx.result.withFlag(result);
-            }
-            V v = transformer.apply(ctx.value);
-            // This is where we check the equality between the expected value and the actual value
-            if (!oldValue.equals(v)) {
-                ctx.value.s.unlockWrite();
-                return ctx.result.withFlag(ValueResult.FALSE);
-            }
-            // both values match so the value is marked as deleted.
-            // No need for a CAS since a write lock is exclusive
-            ctx.value.s.markAsDeleted();
-            // delete the value in the entry happens next and the slice will be released as part of it
-            // slice can be released only after the entry is marked appropriately
-            return ctx.result.withValue(v);
+            return ctx.result.withValue(null);
+        }
+        // The old value is read before the value is marked as deleted: once it is marked, other threads treat it
+        // as deleted, and any of them may complete the deletion and release the slice.
+        // We start by acquiring a write lock for reading since we do not want concurrent reads.
+        ValueResult result = ctx.value.s.lockWrite();
+        if (result != ValueResult.TRUE) {
+            return ctx.result.withFlag(result);
         }
+        V v = transformer.apply(ctx.value);
+        // In case of a conditional remove, this is where we check the equality between the expected value and
+        // the actual value
+        if (oldValue != null && !oldValue.equals(v)) {
+            ctx.value.s.unlockWrite();
+            return ctx.result.withFlag(ValueResult.FALSE);
+        }
+        // the value is marked as deleted.
+        // No need for a CAS since a write lock is exclusive
+        ctx.value.s.markAsDeleted();
+        // delete the value in the entry happens next and the slice will be released as part of it
+        // slice can be released only after the entry is marked appropriately
+        return ctx.result.withValue(v);
+    }
+
+    /**
+     * Marks the value of an entry of a dropped chunk as deleted (see OrderedChunk.releaseDroppedValues()).
+     * The entries of a dropped chunk are no longer updated, so the deletion is not finalized in the entry.
+     *
+     * @param ctx has the entry index and its value to be deleted
+     * @return {@code TRUE} if the value was marked as deleted,
+     * {@code FALSE} if the value is already marked as deleted,
+     * {@code RETRY} if the value was moved.
+     */
+    ValueResult deleteDropped(ThreadContext ctx) {
+        return ctx.value.s.logicalDelete();
     }
 
     /**
@@ -7,9 +7,12 @@
 package com.yahoo.oak;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 public interface ZeroCopyMap<K, V> {
     /**
@@ -47,6 +50,44 @@ public interface ZeroCopyMap<K, V> {
      */
     boolean remove(K key);
 
+    /**
+     * Sets the i-th element of the given array to a read only view of the value to which the
+     * i-th key is mapped, or to {@code null} if this map contains no mapping for the key.
+     * The keys are expected to be sorted in the order of the map (or, for a hash map, in any order),
+     * then the batch is looked up faster than key by key. The same array can be reused by consecutive batches.
+     *
+     * @param keys   the keys whose associated values are to be returned
+     * @param values the array to which the values are set
+     * @throws NullPointerException     if any of the keys is null
+     * @throws IllegalArgumentException if the array is shorter than the list of keys,
+     *                                  or if any of the keys is out of bounds
+     */
+    void multiGet(List<? extends K> keys, OakUnscopedBuffer[] values);
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * As in {@link #multiGet(List, OakUnscopedBuffer[])}, the mappings of a sorted map are put faster than
+     * one by one.
+     * Creates a copy of each value in the map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException     if any of the keys or values is null
+     * @throws IllegalArgumentException if any of the keys is out of bounds
+     */
+    void putAll(Map<? extends K, ? extends V> m);
+
+    /**
+     * Removes the mappings of all of the given keys from this map.
+     * As in {@link #multiGet(List, OakUnscopedBuffer[])}, a batch of sorted keys is removed faster than
+     * key by key.
+     *
+     * @param keys the keys whose mappings are to be removed from the map
+     * @return {@code true} if any of the mappings was removed
+     * @throws NullPointerException     if any of the keys is null
+     * @throws IllegalArgumentException if any of the keys is out of bounds
+     */
+    boolean removeAll(Collection<? extends K> keys);
+
     /**
      * If the specified key is not already associated
      * with a value, associate it with the given value.
@@ -87,6 +128,49 @@ public interface ZeroCopyMap<K, V> {
     boolean putIfAbsentComputeIfPresent(K key, V value, Consumer<OakScopedWriteBuffer> computer);
 
 
+    /**
+     * Atomically computes a new value for the specified key from a read only view of its current
+     * value (or {@code null} if there is no current mapping), and associates the key with the new value,
+     * or removes the mapping if the new value is {@code null}.
+     * The current value is deserialized only if the function does so, and it is write locked while the
+     * function is applied. The function may be applied more than once when the key is concurrently updated.
+     *
+     * @param key               key with which the specified value is to be associated
+     * @param remappingFunction the function to compute the new value
+     * @return {@code true} if the key is associated with a value after the computation
+     * @throws NullPointerException     if the specified key or the function is null
+     * @throws IllegalArgumentException if the specified key is out of bounds
+     */
+    boolean compute(K key, Function<OakScopedReadBuffer, ? extends V> remappingFunction);
+
+    /**
+     * If the specified key is not already associated with a value, computes its value using the given
+     * mapping function and associates it with the key, unless it is {@code null}.
+     * The function may be applied even if the key is concurrently inserted, then its value is not used.
+     *
+     * @param key             key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return {@code true} if the computed value was associated with the key
+     * @throws NullPointerException     if the specified key or the function is null
+     * @throws IllegalArgumentException if the specified key is out of bounds
+     */
+    boolean computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction);
+
+    /**
+     * If the specified key is not already associated with a value, associates it with the given value.
+     * Otherwise, replaces the value with the result of the given function, which is given a read only view
+     * of the current value, or removes the mapping if the result is {@code null}.
+     * See {@link #compute(Object, Function)} for the atomicity guarantees.
+     *
+     * @param key               key with which the resulting value is to be associated
+     * @param value             the value to be associated with the key if it is absent
+     * @param remappingFunction the function to recompute a value if present
+     * @return {@code true} if the key is associated with a value after the merge
+     * @throws NullPointerException     if any of the parameters is null
+     * @throws IllegalArgumentException if the specified key is out of bounds
+     */
+    boolean merge(K key, V value, BiFunction<OakScopedReadBuffer, ? super V, ? extends V> remappingFunction);
+
     /**
      * Returns a {@link Set} view of read only ByteBuffers containing the
      * serialized keys stored in this map.
@@ -35,6 +35,20 @@ public class OakByteArrayComparator implements OakComparator<byte[]> {
         );
     }
 
+    // The first 8 bytes. The bytes are compared as signed bytes, so flipping their sign bit orders them as
+    // unsigned bytes (and a missing byte is considered zero, which is not larger than any byte).
+    @Override
+    public long getKeyPrefix(byte[] key) {
+        long prefix = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            prefix <<= Byte.SIZE;
+            if (i < key.length) {
+                prefix |= (key[i] ^ Byte.MIN_VALUE) & 0xFF;
+            }
+        }
+        return prefix;
+    }
+
     public static int compare(OakScopedReadBuffer buff1, int pos1, int size1,
                               OakScopedReadBuffer buff2, int pos2, int size2) {
 
@@ -39,6 +39,11 @@ public class OakFloatSerializer implements OakSerializer<Float> {
         return size;
     }
 
+    @Override
+    public int getFixedSize() {
+        return size;
+    }
+
     @Override
     public int calculateHash(Float object) {
         byte[] byteArray = floatToByteArray(object);
@@ -24,4 +24,10 @@ public class OakIntComparator implements OakComparator<Integer> {
     public int compareKeyAndSerializedKey(Integer key, OakScopedReadBuffer serializedKey) {
         return Integer.compare(key, serializedKey.getInt(0));
     }
+
+    // flipping the sign bit orders the integers as unsigned numbers
+    @Override
+    public long getKeyPrefix(Integer key) {
+        return Integer.toUnsignedLong(key ^ Integer.MIN_VALUE);
+    }
 }
@@ -38,6 +38,11 @@ public class OakIntSerializer implements OakSerializer<Integer> {
         return size;
     }
 
+    @Override
+    public int getFixedSize() {
+        return size;
+    }
+
     @Override
     public int calculateHash(Integer object) {
         byte[] byteArray = intToByteArray(object);
@@ -55,4 +55,18 @@ public class OakStringComparator implements OakComparator<String> {
 
         return size1 - size2;
     }
+
+    // the first 4 characters (a missing character is considered zero, which is not larger than any character)
+    @Override
+    public long getKeyPrefix(String key) {
+        final int prefixChars = Long.BYTES / Character.BYTES;
+        long prefix = 0;
+        for (int i = 0; i < prefixChars; i++) {
+            prefix <<= Character.SIZE;
+            if (i < key.length()) {
+                prefix |= key.charAt(i);
+            }
+        }
+        return prefix;
+    }
 }
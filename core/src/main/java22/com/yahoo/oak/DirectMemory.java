@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+
+/**
+ * Allocates and releases the off-heap memory of the blocks, and wraps off-heap addresses as ByteBuffers.
+ * This is the Java 22 (and above) implementation of the multi-release jar, based on the Foreign Function and
+ * Memory API instead of the internal fields of java.nio.Buffer. It keeps the methods of the Java 8
+ * implementation (see src/main/java).
+ * <p>
+ * This is an allocation only shim: the accessors of the memory (e.g., getInt() and the CASes of UnsafeUtils)
+ * still use sun.misc.Unsafe, as does releaseBuffer() (a buffer that was not allocated by an Arena can be
+ * released only by its cleaner). Thus, Oak still requires the jdk.unsupported module on Java 22 as well.
+ * <p>
+ * The blocks are allocated with malloc() (as Unsafe.allocateMemory() does), rather than by an Arena,
+ * as an arena zeroes the memory, which would touch all the pages of a lazily zeroed block.
+ * Calling native functions is a restricted operation, so the JVM warns unless it runs with
+ * --enable-native-access (e.g., --enable-native-access=ALL-UNNAMED).
+ */
+final class DirectMemory {
+
+    private static final MethodHandle MALLOC;
+    private static final MethodHandle FREE;
+    static {
+        Linker linker = Linker.nativeLinker();
+        MALLOC = linker.downcallHandle(linker.defaultLookup().find("malloc").orElseThrow(),
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        FREE = linker.downcallHandle(linker.defaultLookup().find("free").orElseThrow(),
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+    }
+
+    private DirectMemory() {
+    }
+
+    // Allocates native memory, which is not zeroed. Should be released via free().
+    static long allocate(long bytes) {
+        MemorySegment segment;
+        try {
+            segment = (MemorySegment) MALLOC.invokeExact(bytes);
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+        if (segment.address() == 0) {
+            throw new OutOfMemoryError(String.format("Unable to allocate %d bytes", bytes));
+        }
+        return segment.address();
+    }
+
+    // Releases memory allocated by allocate()
+    static void free(long address) {
+        try {
+            FREE.invokeExact(MemorySegment.ofAddress(address));
+        } catch (Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+
+    // the address of a direct (or a memory mapped) byte buffer
+    static long getAddress(ByteBuffer bb) {
+        assert bb.isDirect();
+        // the segment of a buffer starts at its position
+        return MemorySegment.ofBuffer(bb.duplicate().clear()).address();
+    }
+
+    // Releases the memory of a direct (or a memory mapped) byte buffer, without waiting for it to be GCed.
+    // The buffer must not be accessed afterwards. The FFM API cannot release a buffer it did not allocate.
+    static void releaseBuffer(ByteBuffer bb) {
+        assert bb.isDirect();
+        UnsafeUtils.UNSAFE.invokeCleaner(bb);
+    }
+
+    // wraps the given memory as a direct ByteBuffer (which does not own the memory)
+    static ByteBuffer wrapAddress(long memAddress, int capacity) {
+        return MemorySegment.ofAddress(memAddress).reinterpret(capacity).asByteBuffer();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Views of Oak's buffers as MemorySegments (available on Java 22 and above only).
+ * Unlike the ByteBuffer of OakUnsafeDirectBuffer, which may expose data unrelated to the buffer, a segment
+ * spans exactly the data of the buffer, and any access out of it throws IndexOutOfBoundsException.
+ * For example:
+ * <pre>
+ * {@code
+ * int foo(OakScopedReadBuffer b) {
+ *     MemorySegment segment = OakMemorySegments.asReadOnlySegment((OakUnsafeDirectBuffer) b);
+ *     return segment.get(ValueLayout.JAVA_INT_UNALIGNED, 0);
+ * }
+ * }
+ * </pre>
+ * The segments are not bound to the lifetime of the underlying memory. Thus, as the buffer itself, a segment
+ * must be accessed only in the context the buffer was introduced in (see OakUnsafeDirectBuffer).
+ * Creating a segment of native memory is a restricted operation, so the JVM warns unless it runs with
+ * --enable-native-access (e.g., --enable-native-access=ALL-UNNAMED).
+ */
+public final class OakMemorySegments {
+
+    private OakMemorySegments() {
+    }
+
+    /**
+     * @param buffer an Oak buffer (e.g., OakScopedWriteBuffer cast to OakUnsafeDirectBuffer)
+     * @return a segment spanning the data of the buffer
+     */
+    public static MemorySegment asSegment(OakUnsafeDirectBuffer buffer) {
+        return MemorySegment.ofAddress(buffer.getAddress()).reinterpret(buffer.getLength());
+    }
+
+    /**
+     * @param buffer an Oak buffer (e.g., OakScopedReadBuffer cast to OakUnsafeDirectBuffer)
+     * @return a read only segment spanning the data of the buffer
+     */
+    public static MemorySegment asReadOnlySegment(OakUnsafeDirectBuffer buffer) {
+        return asSegment(buffer).asReadOnly();
+    }
+}
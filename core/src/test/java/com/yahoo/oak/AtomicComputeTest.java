@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import com.yahoo.oak.common.integer.OakIntSerializer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+@RunWith(Parameterized.class)
+public class AtomicComputeTest {
+    private static final int NUM_OF_KEYS = 1000;
+    private static final int NUM_THREADS = 4;
+    private static final int NUM_OF_INCREMENTS = 2000;
+    private static final OakIntSerializer SERIALIZER = new OakIntSerializer();
+
+    private final Supplier<ConcurrentZCMap<Integer, Integer>> supplier;
+    private ConcurrentZCMap<Integer, Integer> oak;
+
+    public AtomicComputeTest(Supplier<ConcurrentZCMap<Integer, Integer>> supplier) {
+        this.supplier = supplier;
+    }
+
+    @Parameterized.Parameters
+    public static Collection parameters() {
+        Supplier<ConcurrentZCMap<Integer, Integer>> ordered = () -> OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(64)
+                .buildOrderedMap();
+        Supplier<ConcurrentZCMap<Integer, Integer>> inline = () -> OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(64)
+                .setInlineValues(true)
+                .buildOrderedMap();
+        Supplier<ConcurrentZCMap<Integer, Integer>> hash = () -> OakCommonBuildersFactory.getDefaultIntBuilder()
+                .buildHashMap();
+        return Arrays.asList(new Object[][] {
+                { ordered },
+                { inline },
+                { hash }
+        });
+    }
+
+    @Before
+    public void init() {
+        oak = supplier.get();
+    }
+
+    @After
+    public void finish() {
+        oak.close();
+    }
+
+    @Test
+    public void compute() {
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertEquals(Integer.valueOf(i), oak.compute(i, (k, v) -> {
+                Assert.assertNull(v);
+                return k;
+            }));
+        }
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertEquals(Integer.valueOf(2 * i), oak.compute(i, (k, v) -> k + v));
+        }
+        // a null result removes the mapping
+        for (int i = 0; i < NUM_OF_KEYS; i += 2) {
+            Assert.assertNull(oak.compute(i, (k, v) -> null));
+        }
+        // a null result of an absent key inserts nothing
+        Assert.assertNull(oak.compute(-1, (k, v) -> null));
+        Assert.assertNull(oak.get(-1));
+
+        Assert.assertEquals(NUM_OF_KEYS / 2, oak.size());
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertEquals(i % 2 == 0 ? null : Integer.valueOf(2 * i), oak.get(i));
+        }
+    }
+
+    @Test
+    public void computeIfAbsent() {
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertEquals(Integer.valueOf(i), oak.computeIfAbsent(i, k -> k));
+        }
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertEquals(Integer.valueOf(i), oak.computeIfAbsent(i, k -> {
+                Assert.fail("The function is applied to a present key");
+                return null;
+            }));
+        }
+        Assert.assertNull(oak.computeIfAbsent(-1, k -> null));
+        Assert.assertNull(oak.get(-1));
+        Assert.assertEquals(NUM_OF_KEYS, oak.size());
+    }
+
+    @Test
+    public void merge() {
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertEquals(Integer.valueOf(1), oak.merge(i, 1, Integer::sum));
+        }
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertEquals(Integer.valueOf(1 + i), oak.merge(i, i, Integer::sum));
+        }
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertNull(oak.merge(i, i, (oldValue, value) -> null));
+        }
+        Assert.assertEquals(0, oak.size());
+    }
+
+    @Test
+    public void zeroCopy() {
+        ZeroCopyMap<Integer, Integer> zc = oak.zc();
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertTrue(zc.computeIfAbsent(i, k -> k));
+            Assert.assertFalse(zc.computeIfAbsent(i, k -> k + 1));
+        }
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertTrue(zc.compute(i, v -> SERIALIZER.deserialize(v) + 1));
+            Assert.assertTrue(zc.merge(i, 1, (v, value) -> SERIALIZER.deserialize(v) + value));
+        }
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertEquals(Integer.valueOf(i + 2), oak.get(i));
+        }
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertFalse(zc.compute(i, v -> null));
+        }
+        Assert.assertFalse(zc.compute(-1, v -> null));
+        Assert.assertEquals(0, oak.size());
+    }
+
+    @Test
+    public void concurrentMerges() throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < NUM_THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < NUM_OF_INCREMENTS; j++) {
+                    oak.merge(j % NUM_OF_KEYS, 1, Integer::sum);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // no increment is lost
+        int expected = NUM_THREADS * NUM_OF_INCREMENTS / NUM_OF_KEYS;
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            Assert.assertEquals(Integer.valueOf(expected), oak.get(i));
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import com.yahoo.oak.common.integer.OakIntSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class BatchOperationsTest {
+    private static final int NUM_OF_KEYS = 5000;
+    private static final int CHUNK_MAX_ITEMS = 64;
+    private static final OakIntSerializer SERIALIZER = new OakIntSerializer();
+
+    private static OakMap<Integer, Integer> buildOrderedMap() {
+        return OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(CHUNK_MAX_ITEMS)
+                .buildOrderedMap();
+    }
+
+    // the even keys, each mapped to its negation
+    private static Map<Integer, Integer> evenKeys() {
+        Map<Integer, Integer> m = new TreeMap<>();
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            m.put(2 * i, -2 * i);
+        }
+        return m;
+    }
+
+    // all the keys, odd and even, with some keys below and above the range of the map
+    private static List<Integer> allKeys() {
+        List<Integer> keys = new ArrayList<>();
+        for (int key = -3; key < 2 * NUM_OF_KEYS + 3; key++) {
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    private static Integer expectedValue(int key) {
+        return (key % 2 == 0 && key >= 0 && key < 2 * NUM_OF_KEYS) ? -key : null;
+    }
+
+    @Test
+    public void sortedBatches() {
+        try (OakMap<Integer, Integer> oak = buildOrderedMap()) {
+            oak.putAll(evenKeys());
+            Assert.assertEquals(NUM_OF_KEYS, oak.size());
+
+            List<Integer> keys = allKeys();
+            Integer[] values = new Integer[keys.size()];
+            oak.multiGet(keys, values);
+            for (int i = 0; i < keys.size(); i++) {
+                Assert.assertEquals(expectedValue(keys.get(i)), values[i]);
+            }
+
+            // remove the first half of the keys, the odd keys are absent anyway
+            Assert.assertTrue(oak.removeAll(keys.subList(0, keys.size() / 2)));
+            Assert.assertFalse(oak.removeAll(keys.subList(0, keys.size() / 2)));
+            oak.multiGet(keys, values);
+            for (int i = 0; i < keys.size(); i++) {
+                Integer expected = i < keys.size() / 2 ? null : expectedValue(keys.get(i));
+                Assert.assertEquals(expected, values[i]);
+            }
+        }
+    }
+
+    @Test
+    public void unsortedBatches() {
+        try (OakMap<Integer, Integer> oak = buildOrderedMap()) {
+            Map<Integer, Integer> m = new HashMap<>(evenKeys());
+            oak.putAll(m);
+            Assert.assertEquals(NUM_OF_KEYS, oak.size());
+
+            List<Integer> keys = allKeys();
+            Collections.shuffle(keys, new Random(0));
+            Integer[] values = new Integer[keys.size()];
+            oak.multiGet(keys, values);
+            for (int i = 0; i < keys.size(); i++) {
+                Assert.assertEquals(expectedValue(keys.get(i)), values[i]);
+            }
+
+            Assert.assertTrue(oak.removeAll(keys));
+            Assert.assertEquals(0, oak.size());
+        }
+    }
+
+    @Test
+    public void interleavedBatches() {
+        try (OakMap<Integer, Integer> oak = buildOrderedMap()) {
+            // the odd keys are put in a random order, so the chunks have unsorted entries
+            List<Integer> oddKeys = new ArrayList<>();
+            for (int i = 0; i < NUM_OF_KEYS; i++) {
+                oddKeys.add(2 * i + 1);
+            }
+            Collections.shuffle(oddKeys, new Random(0));
+            for (int key : oddKeys) {
+                oak.put(key, -key);
+            }
+            // the even keys are linked between them
+            oak.putAll(evenKeys());
+
+            Integer expectedKey = 0;
+            for (Map.Entry<Integer, Integer> e : oak.entrySet()) {
+                Assert.assertEquals(expectedKey, e.getKey());
+                Assert.assertEquals(Integer.valueOf(-expectedKey), e.getValue());
+                expectedKey++;
+            }
+            Assert.assertEquals(Integer.valueOf(2 * NUM_OF_KEYS), expectedKey);
+
+            List<Integer> keys = allKeys();
+            Integer[] values = new Integer[keys.size()];
+            oak.multiGet(keys, values);
+            for (int i = 0; i < keys.size(); i++) {
+                int key = keys.get(i);
+                Assert.assertEquals(key >= 0 && key < 2 * NUM_OF_KEYS ? Integer.valueOf(-key) : null, values[i]);
+            }
+        }
+    }
+
+    @Test
+    public void concurrentBatches() throws InterruptedException {
+        final int numOfThreads = 4;
+        try (OakMap<Integer, Integer> oak = buildOrderedMap()) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < numOfThreads; t++) {
+                final int thread = t;
+                threads.add(new Thread(() -> {
+                    // each thread puts the keys of its residue, and then removes half of them
+                    Map<Integer, Integer> m = new TreeMap<>();
+                    List<Integer> removed = new ArrayList<>();
+                    for (int key = thread; key < NUM_OF_KEYS; key += numOfThreads) {
+                        m.put(key, key);
+                        if (key % 2 == 0) {
+                            removed.add(key);
+                        }
+                    }
+                    oak.putAll(m);
+                    oak.removeAll(removed);
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            List<Integer> keys = new ArrayList<>();
+            for (int key = 0; key < NUM_OF_KEYS; key++) {
+                keys.add(key);
+            }
+            Integer[] values = new Integer[keys.size()];
+            oak.multiGet(keys, values);
+            for (int key = 0; key < NUM_OF_KEYS; key++) {
+                Assert.assertEquals(key % 2 == 0 ? null : Integer.valueOf(key), values[key]);
+            }
+            Assert.assertEquals(NUM_OF_KEYS / 2, oak.size());
+        }
+    }
+
+    @Test
+    public void zeroCopyBatches() {
+        try (OakMap<Integer, Integer> oak = buildOrderedMap();
+             OakHashMap<Integer, Integer> hash = OakCommonBuildersFactory.getDefaultIntBuilder().buildHashMap()) {
+            for (ZeroCopyMap<Integer, Integer> zc : new ZeroCopyMap[] {oak.zc(), hash.zc()}) {
+                zc.putAll(evenKeys());
+
+                List<Integer> keys = allKeys();
+                OakUnscopedBuffer[] values = new OakUnscopedBuffer[keys.size()];
+                zc.multiGet(keys, values);
+                for (int i = 0; i < keys.size(); i++) {
+                    Integer value = values[i] == null ? null : values[i].transform(SERIALIZER::deserialize);
+                    Assert.assertEquals(expectedValue(keys.get(i)), value);
+                }
+
+                Assert.assertTrue(zc.removeAll(keys));
+                zc.multiGet(keys, values);
+                for (OakUnscopedBuffer value : values) {
+                    Assert.assertNull(value);
+                }
+            }
+            Assert.assertEquals(0, oak.size());
+            Assert.assertEquals(0, hash.size());
+        }
+    }
+
+    @Test
+    public void hashBatches() {
+        try (OakHashMap<Integer, Integer> hash = OakCommonBuildersFactory.getDefaultIntBuilder().buildHashMap()) {
+            hash.putAll(evenKeys());
+            Assert.assertEquals(NUM_OF_KEYS, hash.size());
+
+            List<Integer> keys = allKeys();
+            Integer[] values = new Integer[keys.size()];
+            hash.multiGet(keys, values);
+            for (int i = 0; i < keys.size(); i++) {
+                Assert.assertEquals(expectedValue(keys.get(i)), values[i]);
+            }
+            Assert.assertTrue(hash.removeAll(keys));
+            Assert.assertEquals(0, hash.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shortResultsArray() {
+        try (OakMap<Integer, Integer> oak = buildOrderedMap()) {
+            oak.multiGet(allKeys(), new Integer[1]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keyOutOfSubMapBounds() {
+        try (OakMap<Integer, Integer> oak = buildOrderedMap()) {
+            oak.putAll(evenKeys());
+            oak.subMap(0, 100).removeAll(allKeys());
+        }
+    }
+}
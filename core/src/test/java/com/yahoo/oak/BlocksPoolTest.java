@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class BlocksPoolTest {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    @Test
+    public void preAllocateAndReserve() {
+        BlocksPool pool = new BlocksPool.Builder()
+                .setBlockSize(BLOCK_SIZE)
+                .setPreAllocSize(4L * BLOCK_SIZE, 2)
+                .setNewAllocMinSize(BLOCK_SIZE)
+                .setReservedSize(2L * BLOCK_SIZE, 6L * BLOCK_SIZE)
+                .build();
+        Assert.assertEquals(BLOCK_SIZE, pool.blockSize());
+        Assert.assertEquals(4, pool.numOfRemainingBlocks());
+
+        Block[] taken = new Block[7];
+        for (int i = 0; i < taken.length; i++) {
+            taken[i] = pool.getBlock();
+            Assert.assertTrue(taken[i].isZeroed());
+        }
+        Assert.assertEquals(0, pool.numOfRemainingBlocks());
+
+        // the most recently returned block is reused first
+        pool.returnBlock(taken[0]);
+        pool.returnBlock(taken[1]);
+        Assert.assertSame(taken[1], pool.getBlock());
+
+        // reaching the high watermark releases blocks down to the low watermark
+        for (int i = 1; i < taken.length; i++) {
+            pool.returnBlock(taken[i]);
+        }
+        Assert.assertEquals(2, pool.numOfRemainingBlocks());
+        pool.close();
+        Assert.assertEquals(0, pool.numOfRemainingBlocks());
+    }
+
+    @Test
+    public void releaseIdleBlocks() throws InterruptedException {
+        long idleReleaseMillis = 100;
+        BlocksPool pool = new BlocksPool.Builder()
+                .setBlockSize(BLOCK_SIZE)
+                .setPreAllocSize(BLOCK_SIZE, 1)
+                .setNewAllocMinSize(BLOCK_SIZE)
+                .setIdleReleaseTime(idleReleaseMillis, TimeUnit.MILLISECONDS)
+                .build();
+        Block[] taken = new Block[4];
+        for (int i = 0; i < taken.length; i++) {
+            taken[i] = pool.getBlock();
+        }
+        for (Block b : taken) {
+            pool.returnBlock(b);
+        }
+        Assert.assertEquals(taken.length, pool.numOfRemainingBlocks());
+
+        // the pre-allocated size remains in the pool
+        long deadline = System.currentTimeMillis() + 100 * idleReleaseMillis;
+        while (pool.numOfRemainingBlocks() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(idleReleaseMillis);
+        }
+        Assert.assertEquals(1, pool.numOfRemainingBlocks());
+        pool.close();
+    }
+
+    @Test
+    public void mapsWithDifferentBlockSizes() {
+        BlocksPool smallBlocksPool = new BlocksPool.Builder().setBlockSize(BLOCK_SIZE).build();
+        BlocksPool largeBlocksPool = new BlocksPool.Builder().setBlockSize(8 * BLOCK_SIZE).build();
+        OakMap<Integer, Integer> smallBlocksOak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setBlocksProvider(smallBlocksPool)
+                .buildOrderedMap();
+        OakHashMap<Integer, Integer> largeBlocksOak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setBlocksProvider(largeBlocksPool)
+                .buildHashMap();
+
+        int numOfEntries = 100000;
+        for (int i = 0; i < numOfEntries; i++) {
+            smallBlocksOak.zc().put(i, i);
+            largeBlocksOak.zc().put(i, -i);
+        }
+        for (int i = 0; i < numOfEntries; i++) {
+            Assert.assertEquals(i, (int) smallBlocksOak.get(i));
+            Assert.assertEquals(-i, (int) largeBlocksOak.get(i));
+        }
+
+        smallBlocksOak.close();
+        largeBlocksOak.close();
+        Assert.assertTrue(smallBlocksPool.numOfRemainingBlocks() > 1);
+        smallBlocksPool.close();
+        largeBlocksPool.close();
+    }
+}
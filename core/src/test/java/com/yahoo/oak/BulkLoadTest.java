@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+public class BulkLoadTest {
+    private static final int NUM_OF_KEYS = 10000;
+    private static final int CHUNK_MAX_ITEMS = 64;
+
+    private static OakMapBuilder<Integer, Integer> builder() {
+        return OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(CHUNK_MAX_ITEMS);
+    }
+
+    // the even keys, each mapped to its negation
+    private static TreeMap<Integer, Integer> evenKeys() {
+        TreeMap<Integer, Integer> m = new TreeMap<>();
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            m.put(2 * i, -2 * i);
+        }
+        return m;
+    }
+
+    private static void checkEvenKeys(OakMap<Integer, Integer> oak) {
+        Assert.assertEquals(NUM_OF_KEYS, oak.size());
+        Integer expectedKey = 0;
+        for (Map.Entry<Integer, Integer> e : oak.entrySet()) {
+            Assert.assertEquals(expectedKey, e.getKey());
+            Assert.assertEquals(Integer.valueOf(-expectedKey), e.getValue());
+            expectedKey += 2;
+        }
+        Assert.assertEquals(Integer.valueOf(2 * NUM_OF_KEYS), expectedKey);
+        for (int key = -1; key <= 2 * NUM_OF_KEYS; key++) {
+            Integer expected = key % 2 == 0 && key < 2 * NUM_OF_KEYS ? -key : null;
+            Assert.assertEquals(expected, oak.get(key));
+        }
+        Assert.assertEquals(Integer.valueOf(2 * NUM_OF_KEYS - 2), oak.descendingMap().firstKey());
+    }
+
+    // the loaded map is updated as any other map, the odd keys are inserted between the loaded keys
+    private static void checkUpdates(OakMap<Integer, Integer> oak) {
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            oak.put(2 * i + 1, -(2 * i + 1));
+        }
+        for (int i = 0; i < NUM_OF_KEYS; i += 2) {
+            oak.remove(2 * i);
+        }
+        Assert.assertEquals(NUM_OF_KEYS + NUM_OF_KEYS / 2, oak.size());
+        for (int key = 0; key < 2 * NUM_OF_KEYS; key++) {
+            Integer expected = key % 4 == 0 ? null : -key;
+            Assert.assertEquals(expected, oak.get(key));
+        }
+    }
+
+    @Test
+    public void sequentialLoad() {
+        try (OakMap<Integer, Integer> oak = builder().bulkLoad(evenKeys().entrySet().iterator())) {
+            checkEvenKeys(oak);
+            checkUpdates(oak);
+        }
+    }
+
+    @Test
+    public void parallelLoad() {
+        try (OakMap<Integer, Integer> oak = builder().bulkLoad(evenKeys().entrySet().spliterator())) {
+            checkEvenKeys(oak);
+            checkUpdates(oak);
+        }
+        try (OakMap<Integer, Integer> oak = builder().bulkLoad(IntStream.range(0, NUM_OF_KEYS)
+                .mapToObj(i -> new AbstractMap.SimpleEntry<>(2 * i, -2 * i)).spliterator())) {
+            checkEvenKeys(oak);
+        }
+    }
+
+    @Test
+    public void loadWithOptions() {
+        OakMapBuilder<Integer, Integer> b = builder()
+                .setKeyPrefixes(true)
+                .setOffHeapEntries(true)
+                .setColocateKeysAndValues(true);
+        try (OakMap<Integer, Integer> oak = b.bulkLoad(evenKeys().entrySet().iterator())) {
+            checkEvenKeys(oak);
+            checkUpdates(oak);
+        }
+        try (OakMap<Integer, Integer> oak = builder().setInlineValues(true)
+                .bulkLoad(evenKeys().entrySet().spliterator())) {
+            checkEvenKeys(oak);
+            checkUpdates(oak);
+        }
+    }
+
+    @Test
+    public void emptyLoad() {
+        try (OakMap<Integer, Integer> oak = builder().bulkLoad(Collections.<Integer, Integer>emptyMap()
+                .entrySet().iterator())) {
+            Assert.assertEquals(0, oak.size());
+            Assert.assertTrue(oak.isEmpty());
+            oak.put(1, 1);
+            Assert.assertEquals(Integer.valueOf(1), oak.get(1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsortedKeys() {
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(evenKeys().entrySet());
+        Collections.swap(entries, 10, 11);
+        builder().bulkLoad(entries.iterator());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateKeysInParallel() {
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(evenKeys().entrySet());
+        // the duplicate key may be loaded by a different task than the key it follows
+        entries.add(NUM_OF_KEYS / 2, entries.get(NUM_OF_KEYS / 2 - 1));
+        builder().bulkLoad(entries.spliterator());
+    }
+
+    @Test
+    public void failedParallelLoadWaitsForAllRanges() throws InterruptedException {
+        AtomicInteger readKeys = new AtomicInteger(0);
+        CountDownLatch firstRangeFailed = new CountDownLatch(1);
+        AtomicBoolean stopWaiting = new AtomicBoolean(false);
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> e : evenKeys().entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<Integer, Integer>(e) {
+                @Override
+                public Integer getKey() {
+                    readKeys.incrementAndGet();
+                    int key = super.getKey();
+                    if (key == 20) {
+                        // the key that follows a bigger key in the first range
+                        firstRangeFailed.countDown();
+                    } else if (key >= NUM_OF_KEYS) {
+                        // the later ranges are loaded by other tasks once the first range fails
+                        awaitFailure();
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+                    }
+                    return key;
+                }
+
+                private void awaitFailure() {
+                    try {
+                        if (!stopWaiting.get() && !firstRangeFailed.await(1, TimeUnit.SECONDS)) {
+                            stopWaiting.set(true);
+                        }
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        Collections.swap(entries, 10, 11);
+        try {
+            builder().bulkLoad(entries.spliterator());
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        // no range is loaded once the map was closed
+        int keysReadOnFailure = readKeys.get();
+        Thread.sleep(100);
+        Assert.assertEquals(keysReadOnFailure, readKeys.get());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class ColocatedKeysAndValuesTest {
+    private static final int NUM_OF_ENTRIES = 10000;
+
+    private OakMap<Integer, Integer> oak;
+
+    @Before
+    public void init() {
+        oak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(100)
+                .setColocateKeysAndValues(true)
+                .buildOrderedMap();
+    }
+
+    @After
+    public void finish() {
+        oak.close();
+    }
+
+    // the value (following its header) starts right where its key ends
+    private void assertValuesFollowKeys() {
+        int valueHeaderSize = oak.getValuesMemoryManager().getHeaderSize();
+        int count = 0;
+        for (Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer> entry : oak.zc().entrySet()) {
+            OakUnsafeDirectBuffer key = (OakUnsafeDirectBuffer) entry.getKey();
+            OakUnsafeDirectBuffer value = (OakUnsafeDirectBuffer) entry.getValue();
+            Assert.assertEquals(key.getAddress() + key.getLength() + valueHeaderSize, value.getAddress());
+            count++;
+        }
+        Assert.assertEquals(NUM_OF_ENTRIES, count);
+    }
+
+    @Test
+    public void valueFollowsKey() {
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            oak.zc().put(i, i);
+        }
+        assertValuesFollowKeys();
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            Assert.assertEquals(Integer.valueOf(i), oak.get(i));
+        }
+    }
+
+    @Test
+    public void valueStaysOnUpdate() {
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            oak.zc().putIfAbsent(i, i);
+        }
+        // updates in place, and inserts nothing new
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            oak.zc().put(i, -i);
+            Assert.assertFalse(oak.zc().putIfAbsent(i, i));
+        }
+        assertValuesFollowKeys();
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            Assert.assertEquals(Integer.valueOf(-i), oak.get(i));
+        }
+    }
+
+    @Test
+    public void reinsertAfterRemove() {
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            oak.zc().put(i, i);
+        }
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            oak.zc().remove(i);
+        }
+        Assert.assertEquals(0, oak.size());
+        // the entries of the removed keys are reused, so the values are allocated without the keys
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            oak.zc().put(i, i + 1);
+        }
+        Assert.assertEquals(NUM_OF_ENTRIES, oak.size());
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            Assert.assertEquals(Integer.valueOf(i + 1), oak.get(i));
+        }
+    }
+}
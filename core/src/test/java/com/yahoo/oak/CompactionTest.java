@@ -0,0 +1,263 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import com.yahoo.oak.common.integer.OakIntSerializer;
+import com.yahoo.oak.test_utils.ExecutorUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CompactionTest {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final long CAPACITY = 1024L * BLOCK_SIZE;
+    private static final int VALUE_SIZE = 1000;
+    private static final int NUM_OF_ENTRIES = 2000;
+    private static final int NUM_THREADS = 4;
+    private static final long TIME_LIMIT_IN_SECONDS = 60;
+    private static final int MAX_GC_ROUNDS = 20;
+
+    private static final MemoryManager VALUE_MEMORY_MANAGER = new SyncRecycleMemoryManager(null);
+
+    private BlocksPool pool;
+    private NativeMemoryAllocator allocator;
+
+    @Before
+    public void setup() {
+        pool = new BlocksPool.Builder().setBlockSize(BLOCK_SIZE).setPreAllocSize(0, 1).build();
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    private BlockAllocationSlice allocate(int size) {
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        allocator.allocate(s, size);
+        return s;
+    }
+
+    // The emptied blocks are returned by a compaction pass that follows a garbage collection
+    private void returnEmptiedBlocks(Runnable compaction, int expectedNumOfBlocks) {
+        for (int i = 0; i < MAX_GC_ROUNDS && allocator.numOfAllocatedBlocks() > expectedNumOfBlocks; i++) {
+            System.gc();
+            compaction.run();
+        }
+        Assert.assertEquals(expectedNumOfBlocks, allocator.numOfAllocatedBlocks());
+    }
+
+    // each map gets its own allocator, which is closed with the map
+    private ConcurrentZCMap<Integer, Integer> buildMap(boolean ordered) {
+        allocator = new NativeMemoryAllocator(CAPACITY, pool);
+        OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setMemoryAllocator(allocator)
+                .setOrderedChunkMaxItems(64)
+                .setValueSerializer(new OakIntSerializer(VALUE_SIZE));
+        return ordered ? builder.buildOrderedMap() : builder.buildHashMap();
+    }
+
+    @Test
+    public void emptiedBlocksAreReturned() {
+        allocator = new NativeMemoryAllocator(CAPACITY, pool);
+        int sliceSize = BLOCK_SIZE / 4;
+        List<BlockAllocationSlice> slices = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            slices.add(allocate(sliceSize));
+        }
+        int numOfBlocks = allocator.numOfAllocatedBlocks();
+        Assert.assertEquals(4, numOfBlocks);
+
+        // empty the first block, and keep a single slice of the second block
+        List<BlockAllocationSlice> live = new ArrayList<>();
+        for (BlockAllocationSlice s : slices) {
+            boolean firstBlock = s.getAllocatedBlockID() == 1;
+            boolean secondBlock = s.getAllocatedBlockID() == 2;
+            if (firstBlock || (secondBlock && s.getAllocatedOffset() != 0)) {
+                allocator.free(s);
+            } else {
+                live.add(s);
+            }
+        }
+
+        // the relocation re-allocates the live slices of the evacuating blocks
+        int emptied = allocator.compact(0.5, () -> {
+            for (int i = 0; i < live.size(); i++) {
+                BlockAllocationSlice s = live.get(i);
+                if (allocator.isEvacuating(s)) {
+                    // the free space of the evacuating blocks is not reused
+                    BlockAllocationSlice copy = allocate(sliceSize);
+                    Assert.assertFalse(allocator.isEvacuating(copy));
+                    allocator.free(s);
+                    live.set(i, copy);
+                }
+            }
+        });
+        Assert.assertEquals(2, emptied);
+        Assert.assertEquals(numOfBlocks + 1, allocator.numOfAllocatedBlocks());
+
+        // a slice associated with an emptied block keeps it from being returned
+        BlockAllocationSlice stale = slices.get(0);
+        Assert.assertEquals(1, stale.getAllocatedBlockID());
+        slices.clear();
+        returnEmptiedBlocks(() -> Assert.assertEquals(0, allocator.compact(0.5, () -> { })), numOfBlocks);
+        // the block was not reused
+        Assert.assertEquals(1, stale.getAllocatedBlockID());
+        stale = null;
+        returnEmptiedBlocks(() -> Assert.assertEquals(0, allocator.compact(0.5, () -> { })), numOfBlocks - 1);
+
+        // the ids of the returned blocks are reused
+        for (int i = 0; i < 8; i++) {
+            BlockAllocationSlice s = allocate(sliceSize);
+            Assert.assertTrue(s.getAllocatedBlockID() <= numOfBlocks + 1);
+        }
+        allocator.close();
+    }
+
+    @Test
+    public void compactAfterRemovals() {
+        for (boolean ordered : new boolean[]{true, false}) {
+            ConcurrentZCMap<Integer, Integer> oak = buildMap(ordered);
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                oak.zc().put(i, i);
+            }
+            int numOfBlocks = allocator.numOfAllocatedBlocks();
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                if (i % 10 != 0) {
+                    oak.zc().remove(i);
+                }
+            }
+
+            Assert.assertTrue(oak.compact() > 0);
+            for (int i = 0; i < MAX_GC_ROUNDS && allocator.numOfAllocatedBlocks() >= numOfBlocks / 2; i++) {
+                System.gc();
+                oak.compact();
+            }
+            Assert.assertTrue(allocator.numOfAllocatedBlocks() < numOfBlocks / 2);
+
+            Assert.assertEquals(NUM_OF_ENTRIES / 10, oak.size());
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                Integer value = oak.get(i);
+                Assert.assertEquals(i % 10 == 0 ? Integer.valueOf(i) : null, value);
+            }
+            if (ordered) {
+                int expected = 0;
+                for (Integer key : ((OakMap<Integer, Integer>) oak).keySet()) {
+                    Assert.assertEquals(expected, (int) key);
+                    expected += 10;
+                }
+                Assert.assertEquals(NUM_OF_ENTRIES, expected);
+            }
+
+            // the map keeps working as usual
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                oak.zc().put(i, -i);
+            }
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                Assert.assertEquals(-i, (int) oak.get(i));
+            }
+            oak.close();
+        }
+    }
+
+    @Test
+    public void relocatedKeysRemainReadable() {
+        for (boolean ordered : new boolean[]{true, false}) {
+            ConcurrentZCMap<Integer, Integer> oak = buildMap(ordered);
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                oak.zc().put(i, i);
+            }
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                if (i % 10 != 0) {
+                    oak.zc().remove(i);
+                }
+            }
+            // the keys are read before they are relocated
+            List<OakUnscopedBuffer> keys = new ArrayList<>();
+            for (OakUnscopedBuffer key : oak.zc().keySet()) {
+                keys.add(key);
+            }
+            Assert.assertEquals(NUM_OF_ENTRIES / 10, keys.size());
+
+            Assert.assertTrue(oak.compact() > 0);
+            for (int i = 0; i < MAX_GC_ROUNDS; i++) {
+                System.gc();
+                oak.compact();
+            }
+            // the memory which is released from now on is reused
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                if (i % 10 != 0) {
+                    oak.zc().put(-i, -i);
+                }
+            }
+            for (OakUnscopedBuffer key : keys) {
+                Assert.assertEquals(0, key.getInt(0) % 10);
+                Assert.assertTrue(key.getInt(0) >= 0);
+            }
+            oak.close();
+        }
+    }
+
+    @Test
+    public void compactConcurrently() throws ExecutorUtils.ExecutionError {
+        for (boolean ordered : new boolean[]{true, false}) {
+            ConcurrentZCMap<Integer, Integer> oak = buildMap(ordered);
+            AtomicBoolean stop = new AtomicBoolean(false);
+            CountDownLatch updatesDone = new CountDownLatch(NUM_THREADS);
+            ExecutorUtils<Void> executor = new ExecutorUtils<>(NUM_THREADS + 1);
+            int keysPerThread = NUM_OF_ENTRIES / NUM_THREADS;
+
+            executor.submitTasks(1, i -> () -> {
+                while (!stop.get()) {
+                    oak.compact();
+                }
+                return null;
+            });
+            // each thread updates its own keys, and verifies them
+            executor.submitTasks(NUM_THREADS, t -> () -> {
+                try {
+                    Random random = new Random(t);
+                    Integer[] model = new Integer[keysPerThread];
+                    for (int round = 0; round < 20 * keysPerThread; round++) {
+                        int k = random.nextInt(keysPerThread);
+                        int key = t * keysPerThread + k;
+                        if (random.nextInt(3) == 0) {
+                            oak.zc().remove(key);
+                            model[k] = null;
+                        } else {
+                            oak.zc().put(key, round);
+                            model[k] = round;
+                        }
+                        int other = random.nextInt(keysPerThread);
+                        Assert.assertEquals(model[other], oak.get(t * keysPerThread + other));
+                    }
+                } finally {
+                    updatesDone.countDown();
+                }
+                return null;
+            });
+            try {
+                Assert.assertTrue(updatesDone.await(TIME_LIMIT_IN_SECONDS, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Assert.fail();
+            } finally {
+                stop.set(true);
+            }
+            executor.shutdown(TIME_LIMIT_IN_SECONDS);
+            oak.close();
+        }
+    }
+}
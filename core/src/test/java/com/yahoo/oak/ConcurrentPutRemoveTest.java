@@ -95,7 +95,7 @@ public class ConcurrentPutRemoveTest {
 
             Random r = new Random();
 
-            int id = (int) Thread.currentThread().getId() % ThreadIndexCalculator.MAX_THREADS;
+            int id = (int) Thread.currentThread().getId() % ThreadIndexCalculator.NUM_OF_SLOTS;
 
             int[] puts = new int[NUM_OF_ENTRIES];
             int[] removes = new int[NUM_OF_ENTRIES];
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Runs (by the java22 profile, on JDK 22 and above) against the multi-release jar, where the Java 22 classes
+ * (see src/main/java22) replace the Java 8 ones. The classes are compiled for Java 8, so the Java 22 API is
+ * accessed reflectively.
+ */
+public class DirectMemoryIT {
+
+    @Test
+    public void multiReleaseImplementation() throws NoSuchFieldException {
+        // the malloc() downcall handle of the Foreign Function and Memory API implementation
+        Assert.assertNotNull(DirectMemory.class.getDeclaredField("MALLOC"));
+
+        int size = 1024;
+        long address = DirectMemory.allocate(size);
+        try {
+            ByteBuffer bb = DirectMemory.wrapAddress(address, size);
+            Assert.assertEquals(size, bb.capacity());
+            Assert.assertEquals(address, DirectMemory.getAddress(bb));
+            bb.putLong(8, 7L);
+            Assert.assertEquals(7L, bb.getLong(8));
+        } finally {
+            DirectMemory.free(address);
+        }
+    }
+
+    @Test
+    public void bufferSegment() throws ReflectiveOperationException {
+        OakMap<Integer, Integer> oak = OakCommonBuildersFactory.getDefaultIntBuilder().buildOrderedMap();
+        try {
+            oak.zc().put(1, 42);
+            OakUnsafeDirectBuffer value = (OakUnsafeDirectBuffer) oak.zc().get(1);
+
+            Class<?> segments = Class.forName("com.yahoo.oak.OakMemorySegments");
+            Object segment = segments.getMethod("asReadOnlySegment", OakUnsafeDirectBuffer.class)
+                    .invoke(null, value);
+            Class<?> memorySegment = Class.forName("java.lang.foreign.MemorySegment");
+            Method byteSize = memorySegment.getMethod("byteSize");
+            Method address = memorySegment.getMethod("address");
+            Assert.assertEquals((long) value.getLength(), byteSize.invoke(segment));
+            Assert.assertEquals(value.getAddress(), address.invoke(segment));
+        } finally {
+            oak.close();
+        }
+    }
+}
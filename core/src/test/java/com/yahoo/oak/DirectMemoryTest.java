@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class DirectMemoryTest {
+
+    @Test
+    public void wrapAllocatedMemory() {
+        int size = 1024;
+        long address = DirectMemory.allocate(size);
+        try {
+            UnsafeUtils.putInt(address + 4, 42);
+            ByteBuffer bb = DirectMemory.wrapAddress(address, size);
+            Assert.assertTrue(bb.isDirect());
+            Assert.assertEquals(size, bb.capacity());
+            Assert.assertEquals(0, bb.position());
+            Assert.assertEquals(address, DirectMemory.getAddress(bb));
+            Assert.assertEquals(42, bb.order(ByteOrder.nativeOrder()).getInt(4));
+
+            bb.putLong(8, 7L);
+            Assert.assertEquals(7L, bb.getLong(8));
+        } finally {
+            DirectMemory.free(address);
+        }
+    }
+
+    @Test
+    public void releaseBuffer() {
+        ByteBuffer bb = ByteBuffer.allocateDirect(1024);
+        long address = DirectMemory.getAddress(bb);
+        Assert.assertNotEquals(0, address);
+        UnsafeUtils.putInt(address, 42);
+        Assert.assertEquals(42, bb.order(ByteOrder.nativeOrder()).getInt(0));
+        DirectMemory.releaseBuffer(bb);
+    }
+}
@@ -267,7 +267,7 @@ public class EntryHashSetTest {
         // create EntryHashSet
         EntryHashSet ehs =
             new EntryHashSet(memoryManager, memoryManager, 100,
-                serializer, serializer, new OakIntComparator());
+                serializer, serializer, new OakIntComparator(), null);
 
         ThreadContext ctx = new ThreadContext(memoryManager, memoryManager);
 
@@ -95,7 +95,7 @@ public class FillTest {
             latch.await();
             Random r = new Random();
 
-            int id = (int) Thread.currentThread().getId() % ThreadIndexCalculator.MAX_THREADS;
+            int id = (int) Thread.currentThread().getId() % ThreadIndexCalculator.NUM_OF_SLOTS;
             int amount = (int) Math.round(NUM_OF_ENTRIES * 0.5) / NUM_THREADS;
             int start = id * amount + (int) Math.round(NUM_OF_ENTRIES * 0.5);
             int end = (id + 1) * amount + (int) Math.round(NUM_OF_ENTRIES * 0.5);
@@ -132,7 +132,7 @@ public class FillTest {
     public void testMain() throws ExecutorUtils.ExecutionError {
 
         int id = (int) Thread.currentThread().getId();
-        id = id % ThreadIndexCalculator.MAX_THREADS;
+        id = id % ThreadIndexCalculator.NUM_OF_SLOTS;
 
         oak = this.builder.get();
 
@@ -29,7 +29,7 @@ public class HashChunkNoSplitTest {
 
     private final HashChunk c = new HashChunk(
         MAX_ITEMS_PER_CHUNK, new AtomicInteger(0), memoryManager, memoryManager,
-        new OakIntComparator(), serializer, serializer, hashIndexCodec);
+        new OakIntComparator(), serializer, serializer, hashIndexCodec, null);
 
     // the put flow done by InternalOakHashMap
     private void putNotExisting(Integer key, ThreadContext ctx, boolean concurrent) {
@@ -58,9 +58,29 @@ public class HeapUsageTest {
                 .setValueSerializer(new OakIntSerializer(valSize));
             return builder.buildHashMap();
         };
+        Supplier<ConcurrentZCMap<Integer , Integer>> s3 = () -> {
+            int maxItemsPerChunk = 2048;
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(maxItemsPerChunk)
+                .setKeySerializer(new OakIntSerializer(keySize))
+                .setValueSerializer(new OakIntSerializer(valSize))
+                .setOffHeapEntries(true);
+            return builder.buildOrderedMap();
+        };
+        Supplier<ConcurrentZCMap<Integer , Integer>> s4 = () -> {
+            int maxItemsPerChunk = 512;
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setHashChunkMaxItems(maxItemsPerChunk)
+                .setKeySerializer(new OakIntSerializer(keySize))
+                .setValueSerializer(new OakIntSerializer(valSize))
+                .setOffHeapEntries(true);
+            return builder.buildHashMap();
+        };
         return Arrays.asList(new Object[][] {
             { s1 },
-            { s2 }
+            { s2 },
+            { s3 },
+            { s4 }
         });
     }
 
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import com.yahoo.oak.common.integer.OakIntSerializer;
+import com.yahoo.oak.common.string.OakStringSerializer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class InlineValuesTest {
+    private static final int NUM_OF_ENTRIES = 10000;
+    private static final int NUM_THREADS = 4;
+
+    private OakMap<Integer, Integer> oak;
+
+    @Before
+    public void init() {
+        oak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(100)
+                .setInlineValues(true)
+                .buildOrderedMap();
+    }
+
+    @After
+    public void finish() {
+        oak.close();
+    }
+
+    @Test
+    public void valuesTakeNoMemory() {
+        Assert.assertEquals(0, oak.getValuesMemoryManager().getHeaderSize());
+        long allocatedBefore = oak.getValuesMemoryManager().allocated();
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            oak.zc().put(i, 0);
+        }
+        long keysOnly = oak.getValuesMemoryManager().allocated() - allocatedBefore;
+        // updates allocate nothing
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            oak.zc().put(i, i);
+        }
+        Assert.assertEquals(keysOnly, oak.getValuesMemoryManager().allocated() - allocatedBefore);
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            Assert.assertEquals(Integer.valueOf(i), oak.get(i));
+        }
+    }
+
+    @Test
+    public void updateAndRemove() {
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            Assert.assertNull(oak.put(i, i));
+        }
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            Assert.assertEquals(Integer.valueOf(i), oak.replace(i, -i));
+            Assert.assertTrue(oak.replace(i, -i, i + 1));
+            Assert.assertFalse(oak.replace(i, -i, i + 2));
+            Assert.assertTrue(oak.zc().computeIfPresent(i, b -> b.putInt(0, b.getInt(0) * 2)));
+        }
+        for (int i = 0; i < NUM_OF_ENTRIES; i += 2) {
+            Assert.assertFalse(oak.remove(i, i));
+            Assert.assertEquals(Integer.valueOf((i + 1) * 2), oak.remove(i));
+            Assert.assertNull(oak.remove(i));
+            Assert.assertFalse(oak.zc().computeIfPresent(i, b -> b.putInt(0, 0)));
+        }
+        Assert.assertEquals(NUM_OF_ENTRIES / 2, oak.size());
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            Integer expected = i % 2 == 0 ? null : (i + 1) * 2;
+            Assert.assertEquals(expected, oak.get(i));
+        }
+        // the removed keys get values again
+        for (int i = 0; i < NUM_OF_ENTRIES; i += 2) {
+            Assert.assertTrue(oak.zc().putIfAbsent(i, i));
+        }
+        Assert.assertEquals(NUM_OF_ENTRIES, oak.size());
+        int expectedKey = 0;
+        for (Map.Entry<Integer, Integer> entry : oak.entrySet()) {
+            int i = expectedKey++;
+            Assert.assertEquals(Integer.valueOf(i), entry.getKey());
+            Assert.assertEquals(Integer.valueOf(i % 2 == 0 ? i : (i + 1) * 2), entry.getValue());
+        }
+        Assert.assertEquals(NUM_OF_ENTRIES, expectedKey);
+    }
+
+    @Test
+    public void unscopedBufferIsSnapshot() {
+        oak.put(1, 1);
+        OakUnscopedBuffer buffer = oak.zc().get(1);
+        oak.put(1, 2);
+        Assert.assertEquals(1, buffer.getInt(0));
+        Assert.assertEquals(2, oak.zc().get(1).getInt(0));
+    }
+
+    @Test
+    public void concurrentCompute() throws InterruptedException {
+        final int keys = 1000;
+        final int rounds = 20;
+        List<Thread> threads = new ArrayList<>(NUM_THREADS);
+        for (int t = 0; t < NUM_THREADS; t++) {
+            threads.add(new Thread(() -> {
+                for (int r = 0; r < rounds; r++) {
+                    for (int i = 0; i < keys; i++) {
+                        oak.zc().putIfAbsentComputeIfPresent(i, 1, b -> b.putInt(0, b.getInt(0) + 1));
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // no update is lost, although the computations are CASed into the entries, concurrently with rebalances
+        for (int i = 0; i < keys; i++) {
+            Assert.assertEquals(Integer.valueOf(NUM_THREADS * rounds), oak.get(i));
+        }
+    }
+
+    @Test
+    public void onlySmallFixedSizeValues() {
+        OakMapBuilder<Integer, Integer> longValues = new OakMapBuilder<>(
+                OakCommonBuildersFactory.DEFAULT_INT_COMPARATOR, new OakIntSerializer(),
+                new OakIntSerializer(Long.BYTES), Integer.MIN_VALUE)
+                .setInlineValues(true);
+        Assert.assertThrows(IllegalStateException.class, longValues::buildOrderedMap);
+
+        OakMapBuilder<Integer, String> stringValues = new OakMapBuilder<>(
+                OakCommonBuildersFactory.DEFAULT_INT_COMPARATOR, new OakIntSerializer(),
+                new OakStringSerializer(), Integer.MIN_VALUE)
+                .setInlineValues(true);
+        Assert.assertThrows(IllegalStateException.class, stringValues::buildOrderedMap);
+    }
+}
@@ -37,7 +37,7 @@ public class InternalOakHashTest {
 
         testMap = new InternalOakHash<Integer, Integer>(OakCommonBuildersFactory.DEFAULT_INT_SERIALIZER,
                 OakCommonBuildersFactory.DEFAULT_INT_SERIALIZER, OakCommonBuildersFactory.DEFAULT_INT_COMPARATOR,
-                memoryManager, memoryManager, new ValueUtils(), firstLevelBitSize, secondLevelBitSize);
+                memoryManager, memoryManager, new ValueUtils(), firstLevelBitSize, secondLevelBitSize, null);
     }
 
     private static Integer slowDeserialize(OakScopedReadBuffer bb) {
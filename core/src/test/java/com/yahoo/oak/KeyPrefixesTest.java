@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class KeyPrefixesTest {
+    private static final int NUM_OF_ENTRIES = 10000;
+
+    private OakMap<String, String> oak;
+
+    @Before
+    public void init() {
+        oak = OakCommonBuildersFactory.getDefaultStringBuilder()
+                .setOrderedChunkMaxItems(100)
+                .setKeyPrefixes(true)
+                .buildOrderedMap();
+    }
+
+    @After
+    public void finish() {
+        oak.close();
+    }
+
+    // the keys of every other group share their first (prefix) characters, so they are compared as a whole
+    private static String key(int i) {
+        return (i / 10 % 2 == 0 ? "" : "shared-") + String.format("%05d", i);
+    }
+
+    // sub maps do not support size(), so their keys are collected by iterating them
+    private static List<String> keysOf(OakMap<String, String> map) {
+        List<String> keys = new ArrayList<>();
+        for (String key : map.keySet()) {
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    private static void assertPrefixesPreserveOrder(OakComparator<String> comparator, List<String> keys) {
+        for (String k1 : keys) {
+            for (String k2 : keys) {
+                int prefixCmp = Long.compareUnsigned(comparator.getKeyPrefix(k1), comparator.getKeyPrefix(k2));
+                if (prefixCmp != 0) {
+                    Assert.assertEquals(Integer.signum(prefixCmp), Integer.signum(comparator.compareKeys(k1, k2)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void stringPrefixesPreserveOrder() {
+        List<String> keys = new ArrayList<>();
+        Collections.addAll(keys, "", "a", "a\u0000", "ab", "abcd", "abcde", "abce", "b", "\uffff", "\uffff\uffff");
+        Random random = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            char[] chars = new char[random.nextInt(6)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) random.nextInt(Character.MAX_VALUE + 1);
+            }
+            keys.add(new String(chars));
+        }
+        assertPrefixesPreserveOrder(OakCommonBuildersFactory.DEFAULT_STRING_COMPARATOR, keys);
+    }
+
+    @Test
+    public void byteArrayPrefixesPreserveOrder() {
+        OakComparator<byte[]> comparator = OakCommonBuildersFactory.DEFAULT_BYTE_ARRAY_COMPARATOR;
+        List<byte[]> keys = new ArrayList<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            byte[] key = new byte[random.nextInt(10)];
+            random.nextBytes(key);
+            keys.add(key);
+        }
+        keys.add(new byte[] {Byte.MIN_VALUE});
+        keys.add(new byte[] {-1});
+        keys.add(new byte[] {0});
+        keys.add(new byte[] {Byte.MAX_VALUE});
+        for (byte[] k1 : keys) {
+            for (byte[] k2 : keys) {
+                int prefixCmp = Long.compareUnsigned(comparator.getKeyPrefix(k1), comparator.getKeyPrefix(k2));
+                if (prefixCmp != 0) {
+                    Assert.assertEquals(Integer.signum(prefixCmp), Integer.signum(comparator.compareKeys(k1, k2)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void putGetRemove() {
+        List<Integer> order = new ArrayList<>(NUM_OF_ENTRIES);
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            order.add(i);
+        }
+        // inserted out of order, so keys are found both in the sorted and in the unsorted parts of the chunks
+        Collections.shuffle(order, new Random(0));
+        for (int i : order) {
+            Assert.assertTrue(oak.zc().putIfAbsent(key(i), String.valueOf(i)));
+        }
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            Assert.assertEquals(String.valueOf(i), oak.get(key(i)));
+            Assert.assertFalse(oak.zc().putIfAbsent(key(i), ""));
+            Assert.assertNull(oak.get(key(i) + "-"));
+        }
+        for (int i = 0; i < NUM_OF_ENTRIES; i += 2) {
+            Assert.assertEquals(String.valueOf(i), oak.remove(key(i)));
+        }
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            Assert.assertEquals(i % 2 == 0 ? null : String.valueOf(i), oak.get(key(i)));
+        }
+    }
+
+    @Test
+    public void iterateInOrder() {
+        List<String> keys = new ArrayList<>(NUM_OF_ENTRIES);
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            keys.add(key(i));
+        }
+        Collections.shuffle(keys, new Random(0));
+        for (String k : keys) {
+            oak.zc().put(k, k);
+        }
+        Collections.sort(keys);
+
+        Iterator<String> expected = keys.iterator();
+        for (Map.Entry<String, String> entry : oak.entrySet()) {
+            Assert.assertEquals(expected.next(), entry.getKey());
+        }
+        Assert.assertFalse(expected.hasNext());
+
+        // ranges starting at (and between) keys, with both shared and distinct prefixes
+        int from = NUM_OF_ENTRIES / 3;
+        int to = NUM_OF_ENTRIES / 2;
+        try (OakMap<String, String> sub = oak.subMap(keys.get(from), true, keys.get(to), false)) {
+            Assert.assertEquals(keys.subList(from, to), keysOf(sub));
+        }
+        try (OakMap<String, String> sub = oak.subMap(keys.get(from) + "-", true, keys.get(to), true)) {
+            Assert.assertEquals(keys.subList(from + 1, to + 1), keysOf(sub));
+        }
+        try (OakMap<String, String> sub = oak.subMap(keys.get(from), false, keys.get(to), true)
+                .descendingMap()) {
+            List<String> expectedDescending = new ArrayList<>(keys.subList(from + 1, to + 1));
+            Collections.reverse(expectedDescending);
+            Assert.assertEquals(expectedDescending, keysOf(sub));
+        }
+        Assert.assertEquals(keys.get(from - 1), oak.lowerKey(keys.get(from)));
+    }
+}
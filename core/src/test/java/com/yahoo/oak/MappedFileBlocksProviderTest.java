@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+public class MappedFileBlocksProviderTest {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("oak-mapped-test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory);
+    }
+
+    private long numOfFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void reuseReturnedBlocks() throws IOException {
+        MappedFileBlocksProvider provider = new MappedFileBlocksProvider(directory, BLOCK_SIZE);
+        Assert.assertEquals(1, numOfFiles());
+
+        Block b1 = provider.getBlock();
+        Block b2 = provider.getBlock();
+        Assert.assertEquals(2, provider.numOfMappedBlocks());
+        Assert.assertEquals(BLOCK_SIZE, b1.getCapacity());
+        Assert.assertNotEquals(b1.getStartMemAddress(), b2.getStartMemAddress());
+
+        // new regions of the file are zeroed
+        long lastByteAddress = b2.getStartMemAddress() + BLOCK_SIZE - 1;
+        Assert.assertEquals(0, UnsafeUtils.get(lastByteAddress));
+        UnsafeUtils.put(lastByteAddress, (byte) 7);
+        Assert.assertEquals(7, UnsafeUtils.get(lastByteAddress));
+
+        provider.returnBlock(b2);
+        Assert.assertSame(b2, provider.getBlock());
+        Assert.assertEquals(2, provider.numOfMappedBlocks());
+
+        provider.close();
+        Assert.assertEquals(0, numOfFiles());
+        Assert.assertThrows(IllegalStateException.class, provider::getBlock);
+    }
+
+    @Test
+    public void mapOverMappedBlocks() throws IOException {
+        MappedFileBlocksProvider provider =
+                new MappedFileBlocksProvider(directory, BlocksPool.getInstance().blockSize());
+        OakMap<Integer, Integer> oak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setBlocksProvider(provider)
+                .buildOrderedMap();
+        for (int i = 0; i < 10000; i++) {
+            oak.zc().put(i, i);
+        }
+        for (int i = 0; i < 10000; i += 2) {
+            oak.zc().remove(i);
+        }
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertEquals(i % 2 == 0 ? null : i, oak.get(i));
+        }
+        Assert.assertEquals(1, provider.numOfMappedBlocks());
+        oak.close();
+
+        provider.close();
+        Assert.assertEquals(0, numOfFiles());
+    }
+
+    @Test
+    public void smallMappedBlocks() throws IOException {
+        // the block size of a provider is independent of the shared pool's block size
+        MappedFileBlocksProvider provider = new MappedFileBlocksProvider(directory, BLOCK_SIZE);
+        OakMap<Integer, Integer> oak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setBlocksProvider(provider)
+                .buildOrderedMap();
+        int numOfEntries = 100000;
+        for (int i = 0; i < numOfEntries; i++) {
+            oak.zc().put(i, i);
+        }
+        for (int i = 0; i < numOfEntries; i++) {
+            Assert.assertEquals(i, (int) oak.get(i));
+        }
+        Assert.assertTrue(provider.numOfMappedBlocks() > 1);
+        oak.close();
+        provider.close();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import com.yahoo.oak.common.integer.OakIntSerializer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MemoryLimitTest {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final long CAPACITY = 16L * BLOCK_SIZE;
+    private static final int VALUE_SIZE = 1000;
+    private static final long TIME_LIMIT_IN_SECONDS = 60;
+    private static final int GC_ROUNDS = 5;
+
+    private BlocksPool pool;
+    private OakMap<Integer, Integer> oak;
+
+    @Before
+    public void setup() {
+        pool = new BlocksPool.Builder().setBlockSize(BLOCK_SIZE).setPreAllocSize(0, 1).build();
+    }
+
+    @After
+    public void tearDown() {
+        if (oak != null) {
+            oak.close();
+        }
+        pool.close();
+    }
+
+    private OakMapBuilder<Integer, Integer> getBuilder() {
+        return getBuilder(CAPACITY);
+    }
+
+    private OakMapBuilder<Integer, Integer> getBuilder(long capacity) {
+        return OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setBlocksProvider(pool)
+                .setMemoryCapacity(capacity)
+                .setValueSerializer(new OakIntSerializer(VALUE_SIZE));
+    }
+
+    // puts new keys (starting from the given one) until the capacity is exhausted, returns the next key
+    private int fill(int fromKey) {
+        int key = fromKey;
+        try {
+            while (true) {
+                oak.zc().put(key, key);
+                key++;
+            }
+        } catch (OakOutOfMemoryException e) {
+            return key;
+        }
+    }
+
+    @Test
+    public void softLimitListenerIsNotifiedOncePerCrossing() throws InterruptedException {
+        AtomicInteger notifications = new AtomicInteger(0);
+        Semaphore notified = new Semaphore(0);
+        oak = getBuilder().setMemorySoftLimit(0.5, (allocatedBytes, capacity) -> {
+            Assert.assertTrue(allocatedBytes > capacity / 2);
+            Assert.assertEquals(CAPACITY, capacity);
+            notifications.incrementAndGet();
+            notified.release();
+        }).buildOrderedMap();
+
+        int numOfKeys = (int) (CAPACITY / 2 / VALUE_SIZE);
+        for (int i = 0; i < numOfKeys; i++) {
+            oak.zc().put(i, i);
+        }
+        Assert.assertTrue(notified.tryAcquire(TIME_LIMIT_IN_SECONDS, TimeUnit.SECONDS));
+        // still above the soft limit
+        for (int i = numOfKeys; i < numOfKeys + 100; i++) {
+            oak.zc().put(i, i);
+        }
+        Assert.assertFalse(notified.tryAcquire(100, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, notifications.get());
+
+        // drop below the soft limit (the compaction frees the released values), and exceed it again
+        for (int i = 0; i < numOfKeys + 100; i++) {
+            oak.zc().remove(i);
+        }
+        // the blocks emptied by the first pass are returned by a later pass, after the garbage collection
+        oak.compact();
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            oak.compact();
+        }
+        Assert.assertTrue(oak.memorySize() < CAPACITY / 2);
+        for (int i = 0; i < numOfKeys + 100; i++) {
+            oak.zc().put(i, i);
+        }
+        Assert.assertTrue(notified.tryAcquire(TIME_LIMIT_IN_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(2, notifications.get());
+    }
+
+    @Test
+    public void writerWaitsForMemory() throws InterruptedException {
+        oak = getBuilder().setMaxAllocationBlockingTime(100, TimeUnit.MILLISECONDS).buildOrderedMap();
+        // the writer waits, but no memory is released
+        long start = System.nanoTime();
+        int numOfKeys = fill(0);
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+        NativeMemoryAllocator allocator =
+                (NativeMemoryAllocator) oak.getValuesMemoryManager().getBlockMemoryAllocator();
+        allocator.setMaxBlockingTime(TIME_LIMIT_IN_SECONDS, TimeUnit.SECONDS);
+        CountDownLatch writerStarted = new CountDownLatch(1);
+        Thread resizer = new Thread(() -> {
+            try {
+                writerStarted.await();
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            oak.setMemoryCapacity(2 * CAPACITY);
+        });
+        resizer.start();
+        writerStarted.countDown();
+        // the writer is released once the capacity grows
+        for (int i = numOfKeys; i < 2 * numOfKeys; i++) {
+            oak.zc().put(i, i);
+        }
+        resizer.join();
+        Assert.assertEquals(2 * numOfKeys, oak.size());
+    }
+
+    @Test
+    public void capacityIsChangedAtRuntime() {
+        oak = getBuilder().buildOrderedMap();
+        int numOfKeys = fill(0);
+
+        oak.setMemoryCapacity(4 * CAPACITY);
+        int moreKeys = fill(numOfKeys);
+        Assert.assertTrue(moreKeys > 3 * numOfKeys);
+        Assert.assertTrue(oak.memorySize() > CAPACITY);
+        for (int i = 0; i < moreKeys; i++) {
+            Assert.assertEquals(i, (int) oak.get(i));
+        }
+
+        // the memory is not released, but no new memory is taken
+        oak.setMemoryCapacity(CAPACITY);
+        Assert.assertEquals(moreKeys, fill(moreKeys));
+        Assert.assertEquals(moreKeys, oak.size());
+    }
+}
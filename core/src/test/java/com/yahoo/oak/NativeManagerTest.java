@@ -9,7 +9,31 @@ package com.yahoo.oak;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
 public class NativeManagerTest {
+    private static final long TIME_LIMIT_IN_MILLIS = 10000;
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIME_LIMIT_IN_MILLIS;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static BlockAllocationSlice[] allocateAndRelease(SyncRecycleMemoryManager memoryManager, int num) {
+        BlockAllocationSlice[] slices = new BlockAllocationSlice[num];
+        for (int i = 0; i < num; i++) {
+            slices[i] = memoryManager.getEmptySlice();
+            slices[i].allocate(i + 5, false);
+        }
+        for (BlockAllocationSlice s : slices) {
+            s.release();
+        }
+        return slices;
+    }
 
     @Test
     public void reuseTest() {
@@ -36,4 +60,84 @@ public class NativeManagerTest {
             Assert.assertEquals(allocatedSlices[i].getAllocatedOffset(), s.getAllocatedOffset());
         }
     }
+
+    @Test
+    public void idleReleaseListIsFreedInBackground() throws InterruptedException {
+        final NativeMemoryAllocator allocator = new NativeMemoryAllocator(128 * 1024);
+        SyncRecycleMemoryManager memoryManager =
+                new SyncRecycleMemoryManager(allocator, TimeUnit.MILLISECONDS.toNanos(200));
+        long oldVersion = memoryManager.getCurrentVersion();
+        int num = SyncRecycleMemoryManager.MIN_RELEASE_BATCH / 2;
+        allocateAndRelease(memoryManager, num);
+        // the released slices are kept aside until the delay passes, although this thread no longer releases
+        Assert.assertEquals(num, memoryManager.pendingReleases());
+        Assert.assertEquals(0, allocator.getFreeListLength());
+
+        waitFor(() -> memoryManager.pendingReleases() == 0);
+        Assert.assertEquals(num, allocator.getFreeListLength());
+        Assert.assertTrue(memoryManager.getCurrentVersion() > oldVersion);
+        memoryManager.close();
+    }
+
+    @Test
+    public void fullReleaseListsAreFreedInBackground() throws InterruptedException {
+        final NativeMemoryAllocator allocator = new NativeMemoryAllocator(1024 * 1024);
+        SyncRecycleMemoryManager memoryManager =
+                new SyncRecycleMemoryManager(allocator, TimeUnit.MINUTES.toNanos(1));
+        int num = SyncRecycleMemoryManager.RELEASE_LIST_LIMIT;
+        BlockAllocationSlice[] released = allocateAndRelease(memoryManager, num);
+        // full release lists were handed off in batches, and freed long before the delay passes
+        waitFor(() -> allocator.getFreeListLength() >= SyncRecycleMemoryManager.MIN_RELEASE_BATCH);
+        int batchSize = memoryManager.getReleaseBatchSize();
+        Assert.assertTrue(batchSize >= SyncRecycleMemoryManager.MIN_RELEASE_BATCH);
+        Assert.assertTrue(batchSize <= SyncRecycleMemoryManager.RELEASE_LIST_LIMIT);
+
+        // the freed memory is reused
+        memoryManager.flushReleaseList();
+        Assert.assertEquals(0, memoryManager.pendingReleases());
+        Assert.assertEquals(num, allocator.getFreeListLength());
+        BlockAllocationSlice s = memoryManager.getEmptySlice();
+        s.allocate(num - 1 + 5, false);
+        Assert.assertEquals(released[num - 1].getAllocatedOffset(), s.getAllocatedOffset());
+        memoryManager.close();
+    }
+
+    @Test
+    public void reclaimerIsStoppedOnClose() {
+        final NativeMemoryAllocator allocator = new NativeMemoryAllocator(128 * 1024);
+        // the background reclamation is disabled by default
+        Assert.assertNull(new SyncRecycleMemoryManager(allocator).getReclaimer());
+
+        SyncRecycleMemoryManager memoryManager =
+                new SyncRecycleMemoryManager(allocator, TimeUnit.MINUTES.toNanos(1));
+        SyncRecycleMemoryManager otherMemoryManager =
+                new SyncRecycleMemoryManager(allocator, TimeUnit.MINUTES.toNanos(1));
+        ReleaseListReclaimer reclaimer = memoryManager.getReclaimer();
+        Assert.assertSame(reclaimer, otherMemoryManager.getReclaimer());
+        Assert.assertTrue(reclaimer.isRunning());
+
+        memoryManager.close();
+        Assert.assertFalse(reclaimer.isRunning());
+        // closing the other manager (of the same allocator) has no further effect
+        otherMemoryManager.close();
+    }
+
+    @Test
+    public void clearDropsReleaseLists() {
+        final NativeMemoryAllocator allocator = new NativeMemoryAllocator(128 * 1024);
+        SyncRecycleMemoryManager memoryManager =
+                new SyncRecycleMemoryManager(allocator, TimeUnit.MINUTES.toNanos(1));
+        SyncRecycleMemoryManager otherMemoryManager =
+                new SyncRecycleMemoryManager(allocator, TimeUnit.MINUTES.toNanos(1));
+        allocateAndRelease(memoryManager, 10);
+        allocateAndRelease(otherMemoryManager, 10);
+
+        // the released memory was cleared along with the allocator, and must not be freed again
+        memoryManager.clear(true);
+        Assert.assertEquals(0, memoryManager.pendingReleases());
+        Assert.assertEquals(0, otherMemoryManager.pendingReleases());
+        otherMemoryManager.flushReleaseList();
+        Assert.assertEquals(0, allocator.getFreeListLength());
+        memoryManager.close();
+    }
 }
@@ -18,6 +18,7 @@ import org.mockito.Mockito;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
@@ -82,6 +83,48 @@ public class NativeMemoryAllocatorTest {
     }
 
 
+    @Test
+    public void threadLocalBuffersContention() throws ExecutorUtils.ExecutionError {
+        int blockSize = BlocksPool.getInstance().blockSize();
+        int threadLocalBufferSize = 1024;
+        int allocationSize = 100;
+        int allocationsPerThread = 1000;
+        NativeMemoryAllocator allocator =
+                new NativeMemoryAllocator(blockSize * 3L, BlocksPool.getInstance(), threadLocalBufferSize);
+        List<BlockAllocationSlice> slices = Collections.synchronizedList(new ArrayList<>());
+
+        executor.submitTasks(NUM_THREADS, i -> () -> {
+            for (int j = 0; j < allocationsPerThread; j++) {
+                slices.add(allocate(allocator, allocationSize));
+            }
+            return null;
+        });
+        executor.shutdown(TIME_LIMIT_IN_SECONDS);
+
+        Assert.assertEquals(NUM_THREADS * allocationsPerThread * allocationSize, allocator.allocated());
+        // every full buffer leaves a tail that is not enough for another allocation
+        Assert.assertTrue(allocator.getFreeListLength() > 0);
+
+        // no two allocations overlap
+        slices.sort(Comparator.comparingInt(BlockAllocationSlice::getAllocatedBlockID)
+                .thenComparingInt(BlockAllocationSlice::getAllocatedOffset));
+        for (int i = 1; i < slices.size(); i++) {
+            BlockAllocationSlice prev = slices.get(i - 1);
+            BlockAllocationSlice cur = slices.get(i);
+            if (prev.getAllocatedBlockID() == cur.getAllocatedBlockID()) {
+                Assert.assertTrue(prev.getAllocatedOffset() + prev.getAllocatedLength() <= cur.getAllocatedOffset());
+            }
+        }
+
+        // the tails are reused
+        int freeListLength = allocator.getFreeListLength();
+        int tailSize = threadLocalBufferSize % allocationSize;
+        BlockAllocationSlice s = allocate(allocator, tailSize);
+        Assert.assertEquals(tailSize, s.getAllocatedLength());
+        Assert.assertEquals(freeListLength - 1, allocator.getFreeListLength());
+        allocator.close();
+    }
+
     @Test
     public void checkCapacity() {
 
@@ -284,11 +327,114 @@ public class NativeMemoryAllocatorTest {
         oak.close();
     }
 
+    @Test
+    public void lazyMemoryZeroing() {
+        int blockSize = 1024 * 1024;
+        BlocksPool lazyPool = new BlocksPool.Builder().setBlockSize(blockSize).setPreAllocSize(0, 1)
+                .setLazyZeroing(true).build();
+        BlocksPool eagerPool = new BlocksPool.Builder().setBlockSize(blockSize).setPreAllocSize(0, 1).build();
+        try {
+            Block block = lazyPool.getBlock();
+            Assert.assertFalse(block.isZeroed());
+            UnsafeUtils.UNSAFE.putByte(block.getStartMemAddress(), (byte) 1);
+            lazyPool.returnBlock(block);
+            Assert.assertFalse(block.isZeroed());
+
+            // the values are written correctly on a memory that was not zeroed
+            OakMap<Integer, Integer> oak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setMemoryCapacity(16L * blockSize)
+                    .setBlocksProvider(lazyPool)
+                    .buildOrderedMap();
+            for (int i = 0; i < 1000; i++) {
+                oak.zc().put(i, i);
+            }
+            for (int i = 0; i < 1000; i += 2) {
+                oak.zc().remove(i);
+            }
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(i % 2 == 0 ? null : i, oak.get(i));
+            }
+            oak.close();
+
+            // the lazy zeroing of one pool does not affect the blocks of another pool
+            block = eagerPool.getBlock();
+            Assert.assertTrue(block.isZeroed());
+            UnsafeUtils.UNSAFE.putByte(block.getStartMemAddress(), (byte) 1);
+            eagerPool.returnBlock(block);
+            block = eagerPool.getBlock();
+            Assert.assertTrue(block.isZeroed());
+            Assert.assertEquals(0, UnsafeUtils.UNSAFE.getByte(block.getStartMemAddress()));
+            eagerPool.returnBlock(block);
+        } finally {
+            lazyPool.close();
+            eagerPool.close();
+        }
+    }
+
+    @Test
+    public void largeObjects() {
+        int blockSize = BlocksPool.getInstance().blockSize();
+        NativeMemoryAllocator ma = new NativeMemoryAllocator(blockSize * 8L);
+        int largeSize = 3 * blockSize;
+
+        BlockAllocationSlice large = allocate(ma, largeSize);
+        Assert.assertEquals(largeSize, large.getAllocatedLength());
+        Assert.assertEquals(0, large.getAllocatedOffset());
+        Assert.assertEquals(2, ma.numOfAllocatedBlocks());
+        // the entire object is addressable
+        UnsafeUtils.putInt(large.getAddress() + largeSize - Integer.BYTES, 42);
+        Assert.assertEquals(42, UnsafeUtils.getInt(large.getAddress() + largeSize - Integer.BYTES));
+
+        // a released large object is reused only by another large object
+        int largeBlockID = large.getAllocatedBlockID();
+        ma.free(large);
+        Assert.assertEquals(0, ma.allocated());
+        BlockAllocationSlice small = allocate(ma, 100);
+        Assert.assertNotEquals(largeBlockID, small.getAllocatedBlockID());
+        large = allocate(ma, largeSize - 100);
+        Assert.assertEquals(largeBlockID, large.getAllocatedBlockID());
+        Assert.assertEquals(100 + largeSize, ma.allocated());
+
+        // the large objects consume the capacity
+        allocate(ma, largeSize);
+        Assert.assertThrows(OakOutOfMemoryException.class, () -> allocate(ma, largeSize));
+        ma.close();
+    }
+
+    @Test
+    public void largeValuesInMaps() {
+        int blockSize = BlocksPool.getInstance().blockSize();
+        int valueSize = 2 * blockSize;
+        int lastIndex = valueSize - Integer.BYTES;
+        for (int mapType = 0; mapType < 2; mapType++) {
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setValueSerializer(new OakIntSerializer(valueSize));
+            ConcurrentZCMap<Integer, Integer> oak = mapType == 0 ? builder.buildOrderedMap() : builder.buildHashMap();
+            for (int i = 0; i < 3; i++) {
+                oak.zc().put(i, i);
+                Assert.assertTrue(oak.zc().computeIfPresent(i, buffer -> buffer.putInt(lastIndex, -1)));
+            }
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(i, (int) oak.get(i));
+                Assert.assertEquals(-1, oak.zc().get(i).getInt(lastIndex));
+            }
+            // released values go through the regular release lists
+            oak.zc().remove(0);
+            oak.zc().put(0, 7);
+            Assert.assertEquals(7, (int) oak.get(0));
+            oak.close();
+        }
+
+        // keys of an ordered map cannot be larger than a block (the minimal key is written on creation)
+        OakMapBuilder<Integer, Integer> largeKeysBuilder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setKeySerializer(new OakIntSerializer(valueSize));
+        Assert.assertThrows(IllegalArgumentException.class, largeKeysBuilder::buildOrderedMap);
+    }
+
     @Test
     public void checkFreelistOrdering() {
         long capacity = 100;
         NativeMemoryAllocator allocator = new NativeMemoryAllocator(capacity);
-        allocator.collectStats();
 
         // Order is important here!
         int[] sizes = new int[]{4 + VALUE_MEMORY_MANAGER.getHeaderSize(),
@@ -306,13 +452,13 @@ public class NativeMemoryAllocatorTest {
         allocated.forEach(allocator::free);
 
         NativeMemoryAllocator.Stats stats = allocator.getStats();
-        Assert.assertEquals(sizes.length, stats.releasedBuffers);
-        Assert.assertEquals(bytesAllocated, stats.releasedBytes);
+        Assert.assertEquals(sizes.length, stats.getReleasedBuffers());
+        Assert.assertEquals(bytesAllocated, stats.getReleasedBytes());
 
         // Requesting a small buffer should not reclaim existing buffers
         allocate(allocator, 1);
         stats = allocator.getStats();
-        Assert.assertEquals(0, stats.reclaimedBuffers);
+        Assert.assertEquals(0, stats.getReclaimedBuffers());
 
         // Verify free list ordering
         BlockAllocationSlice bb = allocate(allocator, 4);
@@ -321,16 +467,16 @@ public class NativeMemoryAllocatorTest {
         Assert.assertEquals(4, ((BlockAllocationSlice) bb).getAllocatedLength());
 
         stats = allocator.getStats();
-        Assert.assertEquals(0, stats.reclaimedBuffers);
-        Assert.assertEquals(0, stats.reclaimedBytes);
+        Assert.assertEquals(0, stats.getReclaimedBuffers());
+        Assert.assertEquals(0, stats.getReclaimedBytes());
 
         bb = allocate(allocator, 32);
         Assert.assertEquals(44, bb.getAllocatedLength());
         bb = allocate(allocator, 16);
         Assert.assertEquals(16, bb.getAllocatedLength());
 
-        //Assert.assertEquals(sizes.length, stats.reclaimedBuffers);
+        //Assert.assertEquals(sizes.length, stats.getReclaimedBuffers());
         // We lost 4 bytes recycling an 8-byte buffer for a 4-byte allocation
-        //Assert.assertEquals(bytesAllocated - 4, stats.reclaimedBytes);
+        //Assert.assertEquals(bytesAllocated - 4, stats.getReclaimedBytes());
     }
 }
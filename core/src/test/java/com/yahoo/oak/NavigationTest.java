@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import com.yahoo.oak.common.integer.OakIntSerializer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class NavigationTest {
+    private static final int NUM_OF_KEYS = 2000;
+    private static final int CHUNK_MAX_ITEMS = 64;
+    private static final OakIntSerializer SERIALIZER = new OakIntSerializer();
+
+    private OakMap<Integer, Integer> oak;
+    // the expected content of oak, after some of the keys are removed
+    private NavigableMap<Integer, Integer> expected;
+
+    @Before
+    public void init() {
+        oak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(CHUNK_MAX_ITEMS)
+                .buildOrderedMap();
+        expected = new TreeMap<>();
+
+        // the even keys are inserted in a random order, so the chunks have sorted and unsorted entries
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            keys.add(2 * i);
+        }
+        Collections.shuffle(keys, new Random(0));
+        for (int key : keys) {
+            oak.put(key, -key);
+            expected.put(key, -key);
+        }
+        // remove whole ranges of keys (which are probably whole chunks), and scattered keys
+        Random r = new Random(1);
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            int key = 2 * i;
+            if ((key > 1000 && key < 1600) || r.nextInt(4) == 0) {
+                oak.remove(key);
+                expected.remove(key);
+            }
+        }
+    }
+
+    @After
+    public void finish() {
+        oak.close();
+    }
+
+    private static void assertEntry(Map.Entry<Integer, Integer> expectedEntry, Map.Entry<Integer, Integer> entry) {
+        if (expectedEntry == null) {
+            Assert.assertNull(entry);
+            return;
+        }
+        Assert.assertNotNull(entry);
+        Assert.assertEquals(expectedEntry.getKey(), entry.getKey());
+        Assert.assertEquals(expectedEntry.getValue(), entry.getValue());
+    }
+
+    private static Integer deserialize(OakUnscopedBuffer buffer) {
+        return buffer == null ? null : buffer.transform(SERIALIZER::deserialize);
+    }
+
+    private static void assertBufferEntry(Map.Entry<Integer, Integer> expectedEntry,
+                                          Map.Entry<OakUnscopedBuffer, OakUnscopedBuffer> entry) {
+        if (expectedEntry == null) {
+            Assert.assertNull(entry);
+            return;
+        }
+        Assert.assertNotNull(entry);
+        Assert.assertEquals(expectedEntry.getKey(), deserialize(entry.getKey()));
+        Assert.assertEquals(expectedEntry.getValue(), deserialize(entry.getValue()));
+    }
+
+    @Test
+    public void navigateFromEachKey() {
+        for (int key = -2; key <= 2 * NUM_OF_KEYS + 1; key++) {
+            assertEntry(expected.lowerEntry(key), oak.lowerEntry(key));
+            assertEntry(expected.floorEntry(key), oak.floorEntry(key));
+            assertEntry(expected.ceilingEntry(key), oak.ceilingEntry(key));
+            assertEntry(expected.higherEntry(key), oak.higherEntry(key));
+
+            Assert.assertEquals(expected.lowerKey(key), oak.lowerKey(key));
+            Assert.assertEquals(expected.floorKey(key), oak.floorKey(key));
+            Assert.assertEquals(expected.ceilingKey(key), oak.ceilingKey(key));
+            Assert.assertEquals(expected.higherKey(key), oak.higherKey(key));
+        }
+        assertEntry(expected.firstEntry(), oak.firstEntry());
+        assertEntry(expected.lastEntry(), oak.lastEntry());
+        Assert.assertEquals(expected.firstKey(), oak.firstKey());
+        Assert.assertEquals(expected.lastKey(), oak.lastKey());
+    }
+
+    @Test
+    public void navigateZeroCopy() {
+        OakMap.OakZeroCopyMap<Integer, Integer> zc = oak.zc();
+        for (int key = -2; key <= 2 * NUM_OF_KEYS + 1; key++) {
+            assertBufferEntry(expected.lowerEntry(key), zc.lowerEntry(key));
+            assertBufferEntry(expected.floorEntry(key), zc.floorEntry(key));
+            assertBufferEntry(expected.ceilingEntry(key), zc.ceilingEntry(key));
+            assertBufferEntry(expected.higherEntry(key), zc.higherEntry(key));
+
+            Assert.assertEquals(expected.lowerKey(key), deserialize(zc.lowerKey(key)));
+            Assert.assertEquals(expected.floorKey(key), deserialize(zc.floorKey(key)));
+            Assert.assertEquals(expected.ceilingKey(key), deserialize(zc.ceilingKey(key)));
+            Assert.assertEquals(expected.higherKey(key), deserialize(zc.higherKey(key)));
+        }
+        assertBufferEntry(expected.firstEntry(), zc.firstEntry());
+        assertBufferEntry(expected.lastEntry(), zc.lastEntry());
+        Assert.assertEquals(expected.firstKey(), deserialize(zc.firstKey()));
+        Assert.assertEquals(expected.lastKey(), deserialize(zc.lastKey()));
+    }
+
+    @Test
+    public void navigateDescending() {
+        OakMap<Integer, Integer> descending = oak.descendingMap();
+        NavigableMap<Integer, Integer> expectedDescending = expected.descendingMap();
+        for (int key = -2; key <= 2 * NUM_OF_KEYS + 1; key += 3) {
+            assertEntry(expectedDescending.lowerEntry(key), descending.lowerEntry(key));
+            assertEntry(expectedDescending.floorEntry(key), descending.floorEntry(key));
+            assertEntry(expectedDescending.ceilingEntry(key), descending.ceilingEntry(key));
+            assertEntry(expectedDescending.higherEntry(key), descending.higherEntry(key));
+        }
+        assertEntry(expectedDescending.firstEntry(), descending.firstEntry());
+        assertEntry(expectedDescending.lastEntry(), descending.lastEntry());
+        assertEntry(expectedDescending.pollFirstEntry(), descending.pollFirstEntry());
+        assertEntry(expectedDescending.pollLastEntry(), descending.pollLastEntry());
+    }
+
+    @Test
+    public void pollAll() {
+        while (!expected.isEmpty()) {
+            assertEntry(expected.pollFirstEntry(), oak.pollFirstEntry());
+            if (!expected.isEmpty()) {
+                assertEntry(expected.pollLastEntry(), oak.pollLastEntry());
+            }
+        }
+        Assert.assertNull(oak.pollFirstEntry());
+        Assert.assertNull(oak.pollLastEntry());
+        Assert.assertNull(oak.firstEntry());
+        Assert.assertNull(oak.lastEntry());
+        Assert.assertEquals(0, oak.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void navigateSubMap() {
+        oak.subMap(0, 10).floorEntry(5);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void navigateFromNull() {
+        oak.ceilingKey(null);
+    }
+
+    @Test
+    public void concurrentPolls() throws InterruptedException {
+        final int numOfThreads = 4;
+        Map<Integer, Integer> polled = new ConcurrentHashMap<>();
+        AtomicBoolean duplicate = new AtomicBoolean(false);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numOfThreads; t++) {
+            final boolean first = t % 2 == 0;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Map.Entry<Integer, Integer> entry;
+                while ((entry = first ? oak.pollFirstEntry() : oak.pollLastEntry()) != null) {
+                    if (polled.put(entry.getKey(), entry.getValue()) != null) {
+                        duplicate.set(true);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertFalse("An entry was polled more than once", duplicate.get());
+        Assert.assertEquals(expected, new TreeMap<>(polled));
+        Assert.assertEquals(0, oak.size());
+    }
+}
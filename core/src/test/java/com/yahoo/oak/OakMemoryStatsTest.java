@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import com.yahoo.oak.common.integer.OakIntSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+public class OakMemoryStatsTest {
+    private static final int VALUE_SIZE = 1000;
+    private static final int NUM_OF_ENTRIES = 1000;
+
+    private static final MemoryManager VALUE_MEMORY_MANAGER = new SyncRecycleMemoryManager(null);
+
+    private static OakMapBuilder<Integer, Integer> builder() {
+        return OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(64)
+                .setValueSerializer(new OakIntSerializer(VALUE_SIZE));
+    }
+
+    private static BlockAllocationSlice allocate(NativeMemoryAllocator allocator, int size) {
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        allocator.allocate(s, size);
+        return s;
+    }
+
+    @Test
+    public void allocatorCounters() {
+        NativeMemoryAllocator allocator = new NativeMemoryAllocator(1024 * 1024);
+        NativeMemoryAllocator.Stats stats = allocator.getStats();
+        BlockAllocationSlice s1 = allocate(allocator, 100);
+        BlockAllocationSlice s2 = allocate(allocator, 200);
+        Assert.assertEquals(2, stats.getAllocations());
+        Assert.assertEquals(0, stats.getReclaimedBuffers());
+        Assert.assertEquals(0, allocator.freeBytes());
+
+        allocator.free(s1);
+        allocator.free(s2);
+        Assert.assertEquals(2, stats.getReleasedBuffers());
+        Assert.assertEquals(300, stats.getReleasedBytes());
+        Assert.assertEquals(300, allocator.freeBytes());
+
+        // reuses the freed cut
+        allocate(allocator, 200);
+        Assert.assertEquals(3, stats.getAllocations());
+        Assert.assertEquals(1, stats.getReclaimedBuffers());
+        Assert.assertEquals(200, stats.getReclaimedBytes());
+        Assert.assertEquals(100, allocator.freeBytes());
+        Assert.assertEquals(allocator.blockSize(), allocator.footprint());
+        allocator.close();
+        Assert.assertEquals(0, allocator.freeBytes());
+    }
+
+    @Test
+    public void releaseListCounters() {
+        // without background reclamation, so the releases wait for the flush
+        OakHashMap<Integer, Integer> oak = builder().setMaxReleaseDelay(0, TimeUnit.MILLISECONDS).buildHashMap();
+        OakMemoryStatsMBean stats = oak.getMemoryStats();
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            oak.zc().put(i, i);
+        }
+        Assert.assertEquals(0, stats.getPendingReleases());
+        Assert.assertEquals(0, stats.getReuseHits());
+        Assert.assertEquals(2 * NUM_OF_ENTRIES, stats.getAllocations());
+
+        // the released keys and values wait in the release list of this thread
+        for (int i = 0; i < NUM_OF_ENTRIES / 10; i++) {
+            oak.zc().remove(i);
+        }
+        Assert.assertEquals(2 * NUM_OF_ENTRIES / 10, stats.getPendingReleases());
+        Assert.assertEquals(0, stats.getFrees());
+        Assert.assertEquals(0, stats.getGlobalVersionBumps());
+
+        // compaction flushes the release lists
+        oak.compact();
+        Assert.assertEquals(0, stats.getPendingReleases());
+        Assert.assertEquals(2 * NUM_OF_ENTRIES / 10, stats.getFrees());
+        Assert.assertTrue(stats.getGlobalVersionBumps() > 0);
+        Assert.assertTrue(stats.getFreeBytes() > 0);
+        Assert.assertTrue(stats.getFragmentation() > 0);
+
+        for (int i = 0; i < NUM_OF_ENTRIES / 10; i++) {
+            oak.zc().put(i, i);
+        }
+        Assert.assertTrue(stats.getReuseHits() > 0);
+        Assert.assertEquals(stats.getAllocations(), stats.getReuseHits() + stats.getReuseMisses());
+        oak.close();
+    }
+
+    @Test
+    public void registeredThroughJmx() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = OakMemoryStats.objectName("statsTest");
+        OakMap<Integer, Integer> oak = builder().setMBeanName("statsTest").buildOrderedMap();
+        Assert.assertTrue(server.isRegistered(name));
+        for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+            oak.zc().put(i, i);
+        }
+        Assert.assertEquals(oak.memorySize(), server.getAttribute(name, "AllocatedBytes"));
+        Assert.assertEquals(oak.getMemoryStats().getBlocksInUse(), server.getAttribute(name, "BlocksInUse"));
+
+        // the name is taken
+        OakMapBuilder<Integer, Integer> other = builder().setMBeanName("statsTest");
+        Assert.assertThrows(IllegalArgumentException.class, other::buildOrderedMap);
+
+        oak.close();
+        Assert.assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class OffHeapEntriesTest {
+    private static final int NUM_OF_ENTRIES = 10000;
+    private static final int CHUNK_MAX_ITEMS = 100;
+
+    private static OakMapBuilder<Integer, Integer> builder(boolean offHeapEntries) {
+        return OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(CHUNK_MAX_ITEMS)
+                .setHashChunkMaxItems(CHUNK_MAX_ITEMS)
+                .setOffHeapEntries(offHeapEntries);
+    }
+
+    @Test
+    public void entriesAreAllocatedOffHeap() {
+        try (OakMap<Integer, Integer> onHeap = builder(false).buildOrderedMap();
+             OakMap<Integer, Integer> offHeap = builder(true).buildOrderedMap()) {
+            // the entries of the first chunk: key and value references, and next (an int)
+            long entriesSize = CHUNK_MAX_ITEMS * (2 * Long.BYTES + Integer.BYTES);
+            Assert.assertTrue(offHeap.memorySize() >= onHeap.memorySize() + entriesSize);
+        }
+    }
+
+    @Test
+    public void putGetRemoveWithRebalance() {
+        try (OakMap<Integer, Integer> oak = builder(true).buildOrderedMap()) {
+            List<Integer> order = new ArrayList<>(NUM_OF_ENTRIES);
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                order.add(i);
+            }
+            Collections.shuffle(order, new Random(0));
+            for (int i : order) {
+                Assert.assertTrue(oak.zc().putIfAbsent(i, i));
+            }
+            for (int i = 0; i < NUM_OF_ENTRIES; i += 2) {
+                Assert.assertEquals(Integer.valueOf(i), oak.remove(i));
+            }
+            // the removed entries are dropped by the rebalances of these insertions
+            for (int i = NUM_OF_ENTRIES; i < 2 * NUM_OF_ENTRIES; i++) {
+                oak.zc().put(i, i);
+            }
+
+            int expected = 1;
+            for (Map.Entry<Integer, Integer> entry : oak.entrySet()) {
+                Assert.assertEquals(Integer.valueOf(expected), entry.getKey());
+                Assert.assertEquals(Integer.valueOf(expected), entry.getValue());
+                expected += expected < NUM_OF_ENTRIES - 1 ? 2 : 1;
+            }
+            Assert.assertEquals(2 * NUM_OF_ENTRIES, expected);
+        }
+    }
+
+    @Test
+    public void hashMapClear() {
+        try (OakHashMap<Integer, Integer> oak = builder(true).buildHashMap()) {
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                oak.zc().put(i, i);
+            }
+            oak.clear();
+            Assert.assertEquals(0, oak.size());
+            // the entries are reallocated after the memory of the map was released
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                Assert.assertNull(oak.get(i));
+                oak.zc().put(i, -i);
+            }
+            for (int i = 0; i < NUM_OF_ENTRIES; i++) {
+                Assert.assertEquals(Integer.valueOf(-i), oak.get(i));
+            }
+        }
+    }
+}
@@ -51,9 +51,49 @@ public class ParametrizedMapApiTest {
                     .setHashChunkMaxItems(maxItemsPerChunk);
             return builder.buildHashMap();
         };
+        Supplier<ConcurrentZCMap<Integer , Integer>> s3 = () -> {
+            int maxItemsPerChunk = 2048;
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setOrderedChunkMaxItems(maxItemsPerChunk)
+                    .setColocateKeysAndValues(true);
+            return builder.buildOrderedMap();
+        };
+        Supplier<ConcurrentZCMap<Integer , Integer>> s4 = () -> {
+            int maxItemsPerChunk = 2048;
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setOrderedChunkMaxItems(maxItemsPerChunk)
+                    .setInlineValues(true);
+            return builder.buildOrderedMap();
+        };
+        Supplier<ConcurrentZCMap<Integer , Integer>> s5 = () -> {
+            int maxItemsPerChunk = 2048;
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setOrderedChunkMaxItems(maxItemsPerChunk)
+                    .setKeyPrefixes(true);
+            return builder.buildOrderedMap();
+        };
+        Supplier<ConcurrentZCMap<Integer , Integer>> s6 = () -> {
+            int maxItemsPerChunk = 2048;
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setOrderedChunkMaxItems(maxItemsPerChunk)
+                    .setOffHeapEntries(true);
+            return builder.buildOrderedMap();
+        };
+        Supplier<ConcurrentZCMap<Integer , Integer>> s7 = () -> {
+            int maxItemsPerChunk = 512;
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setHashChunkMaxItems(maxItemsPerChunk)
+                    .setOffHeapEntries(true);
+            return builder.buildHashMap();
+        };
         return Arrays.asList(new Object[][] {
                 { s1 },
-                { s2 }
+                { s2 },
+                { s3 },
+                { s4 },
+                { s5 },
+                { s6 },
+                { s7 }
         });
     }
 
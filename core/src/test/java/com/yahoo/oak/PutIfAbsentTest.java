@@ -53,8 +53,20 @@ public class PutIfAbsentTest {
             OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder();
             return builder.buildHashMap();
         };
+        Supplier<ConcurrentZCMap<Integer, Integer>> s3 = () -> {
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setColocateKeysAndValues(true);
+            return builder.buildOrderedMap();
+        };
+        Supplier<ConcurrentZCMap<Integer, Integer>> s4 = () -> {
+            OakMapBuilder<Integer, Integer> builder = OakCommonBuildersFactory.getDefaultIntBuilder()
+                    .setInlineValues(true);
+            return builder.buildOrderedMap();
+        };
         return Arrays.asList(new Object[][] {
-                { s1 }
+                { s1 },
+                { s3 },
+                { s4 }
             // TODO: return when concurrent same key insertion is supported by OakHash's PutIfAbsent
                 /*, { s2 }*/
         });
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class RangeDeletionTest {
+    private static final int NUM_OF_KEYS = 10000;
+    private static final int CHUNK_MAX_ITEMS = 64;
+
+    private static OakMapBuilder<Integer, Integer> builder() {
+        return OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(CHUNK_MAX_ITEMS);
+    }
+
+    private static OakMap<Integer, Integer> fill(OakMap<Integer, Integer> oak) {
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            oak.put(i, -i);
+        }
+        return oak;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+
+    // the map holds exactly the keys of [0, NUM_OF_KEYS) that are not in [from, to)
+    private static void checkRemoved(OakMap<Integer, Integer> oak, int from, int to) {
+        List<Integer> expected = range(0, from);
+        expected.addAll(range(to, NUM_OF_KEYS));
+        Assert.assertEquals(expected, new ArrayList<>(oak.keySet()));
+        Assert.assertEquals(expected.size(), oak.size());
+        for (int key = -1; key <= NUM_OF_KEYS; key++) {
+            boolean present = key >= 0 && key < NUM_OF_KEYS && (key < from || key >= to);
+            Assert.assertEquals(present ? Integer.valueOf(-key) : null, oak.get(key));
+        }
+    }
+
+    @Test
+    public void removeRange() {
+        try (OakMap<Integer, Integer> oak = fill(builder().buildOrderedMap())) {
+            oak.removeRange(1234, 8765);
+            checkRemoved(oak, 1234, 8765);
+
+            // the range is emptied again, with its boundaries
+            oak.removeRange(1000, 9000);
+            checkRemoved(oak, 1000, 9000);
+            oak.removeRange(5000, 5000);
+            checkRemoved(oak, 1000, 9000);
+
+            // the keys are put again in the empty chunk that replaced the dropped chunks
+            for (int i = 1000; i < 9000; i++) {
+                oak.put(i, -i);
+            }
+            checkRemoved(oak, 0, 0);
+        }
+    }
+
+    @Test
+    public void keysRemainReadableAfterRemoval() {
+        try (OakMap<Integer, Integer> oak = fill(builder().buildOrderedMap())) {
+            // the keys of the range are read before it is removed
+            List<OakUnscopedBuffer> keys = new ArrayList<>();
+            for (OakUnscopedBuffer key : oak.subMap(2000, true, 7000, false).zc().keySet()) {
+                keys.add(key);
+            }
+            oak.removeRange(1000, 9000);
+            checkRemoved(oak, 1000, 9000);
+
+            // the memory which is released from now on is reused
+            for (int i = 1; i <= NUM_OF_KEYS; i++) {
+                oak.put(-i, i);
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                Assert.assertEquals(2000 + i, keys.get(i).getInt(0));
+            }
+        }
+    }
+
+    @Test
+    public void subMapClear() {
+        try (OakMap<Integer, Integer> oak = fill(builder().buildOrderedMap())) {
+            try (OakMap<Integer, Integer> sub = oak.subMap(2000, true, 7000, false)) {
+                sub.clear();
+                Assert.assertFalse(sub.keySet().iterator().hasNext());
+            }
+            checkRemoved(oak, 2000, 7000);
+
+            // removeRange is bounded by the range of the SubMap
+            try (OakMap<Integer, Integer> sub = oak.subMap(1000, false, 7500, true)) {
+                sub.removeRange(0, 8000);
+            }
+            Assert.assertEquals(Integer.valueOf(-1000), oak.get(1000));
+            Assert.assertNull(oak.get(1001));
+            Assert.assertNull(oak.get(7500));
+            Assert.assertEquals(Integer.valueOf(-7501), oak.get(7501));
+            Assert.assertEquals(NUM_OF_KEYS - 6500, oak.size());
+
+            try (OakMap<Integer, Integer> sub = oak.descendingMap().subMap(1000, true, 1000, true)) {
+                sub.clear();
+            }
+            checkRemoved(oak, 1000, 7501);
+        }
+    }
+
+    @Test
+    public void headAndTailClear() {
+        try (OakMap<Integer, Integer> oak = fill(builder().buildOrderedMap())) {
+            try (OakMap<Integer, Integer> head = oak.headMap(3000, false)) {
+                head.clear();
+            }
+            try (OakMap<Integer, Integer> tail = oak.tailMap(7000, true)) {
+                tail.clear();
+            }
+            List<Integer> expected = range(3000, 7000);
+            Assert.assertEquals(expected, new ArrayList<>(oak.keySet()));
+            Assert.assertEquals(expected.size(), oak.size());
+
+            oak.clear();
+            Assert.assertTrue(oak.isEmpty());
+            Assert.assertEquals(0, oak.size());
+            Assert.assertNull(oak.get(5000));
+
+            fill(oak);
+            checkRemoved(oak, 0, 0);
+        }
+    }
+
+    @Test
+    public void removeRangeWithOptions() {
+        OakMapBuilder<Integer, Integer> b = builder()
+                .setKeyPrefixes(true)
+                .setOffHeapEntries(true)
+                .setColocateKeysAndValues(true);
+        try (OakMap<Integer, Integer> oak = fill(b.buildOrderedMap())) {
+            oak.removeRange(100, 9900);
+            checkRemoved(oak, 100, 9900);
+        }
+        try (OakMap<Integer, Integer> oak = fill(builder().setInlineValues(true).buildOrderedMap())) {
+            // some of the values are deleted before the range is removed
+            for (int i = 100; i < 9900; i += 3) {
+                oak.remove(i);
+            }
+            oak.removeRange(100, 9900);
+            checkRemoved(oak, 100, 9900);
+        }
+    }
+
+    @Test
+    public void concurrentUpdates() throws InterruptedException {
+        try (OakMap<Integer, Integer> oak = fill(builder().buildOrderedMap())) {
+            // the keys outside the range are updated while it is removed
+            Thread updater = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    oak.remove(i);
+                    oak.put(NUM_OF_KEYS + i, -(NUM_OF_KEYS + i));
+                }
+            });
+            updater.start();
+            oak.removeRange(1000, NUM_OF_KEYS);
+            updater.join();
+
+            Assert.assertEquals(range(NUM_OF_KEYS, NUM_OF_KEYS + 1000), new ArrayList<>(oak.keySet()));
+            Assert.assertEquals(1000, oak.size());
+        }
+    }
+}
@@ -44,9 +44,16 @@ public class ResizeValueTest {
                     .setOrderedChunkMaxItems(100);
             return builder.buildHashMap();
         };
+        Supplier<ConcurrentZCMap<String, String>> s3 = () -> {
+            OakMapBuilder<String, String> builder = OakCommonBuildersFactory.getDefaultStringBuilder()
+                    .setOrderedChunkMaxItems(100)
+                    .setColocateKeysAndValues(true);
+            return builder.buildOrderedMap();
+        };
         return Arrays.asList(new Object[][] {
                 { s1 },
-                { s2 }
+                { s2 },
+                { s3 }
         });
     }
 
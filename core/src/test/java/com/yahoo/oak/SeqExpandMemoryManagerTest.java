@@ -6,6 +6,7 @@
 
 package com.yahoo.oak;
 
+import com.yahoo.oak.common.OakCommonBuildersFactory;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,4 +36,118 @@ public class SeqExpandMemoryManagerTest {
         Assert.assertEquals(4, s.getAllocatedLength());
         Assert.assertEquals(8, seqExpandMemoryManager.allocated());
     }
+
+    @Test
+    public void allocateExtended() {
+        BlockMemoryAllocator allocator = new NativeMemoryAllocator(128);
+        SeqExpandMemoryManager mm = new SeqExpandMemoryManager(allocator, true);
+        SeqExpandMemoryManager.SliceSeqExpand s = mm.getEmptySlice();
+
+        // the length is kept in the header
+        s.allocate(4, false);
+        Assert.assertEquals(4 + SeqExpandMemoryManager.LENGTH_HEADER_SIZE, s.getAllocatedLength());
+        Assert.assertEquals(4, s.getLength());
+        Assert.assertEquals(4 + SeqExpandMemoryManager.LENGTH_HEADER_SIZE, mm.allocated());
+        UnsafeUtils.putInt(s.getAddress(), 42);
+
+        SeqExpandMemoryManager.SliceSeqExpand other = mm.getEmptySlice();
+        other.allocate(8, false);
+        Assert.assertTrue(other.decodeReference(s.getReference()));
+        Assert.assertEquals(4, other.getLength());
+        Assert.assertEquals(s.getAddress(), other.getAddress());
+        Assert.assertEquals(42, UnsafeUtils.getInt(other.getAddress()));
+        allocator.close();
+    }
+
+    @Test
+    public void releaseReusedCutExtended() {
+        NativeMemoryAllocator allocator = new NativeMemoryAllocator(128);
+        SeqExpandMemoryManager mm = new SeqExpandMemoryManager(allocator, true);
+        SeqExpandMemoryManager.SliceSeqExpand s = mm.getEmptySlice();
+        s.allocate(12, false);
+        int cutLength = s.getAllocatedLength();
+        s.release();
+        Assert.assertEquals(0, mm.allocated());
+
+        // the released cut is reused for a smaller key
+        s.allocate(8, false);
+        Assert.assertEquals(cutLength, s.getAllocatedLength());
+        Assert.assertEquals(cutLength, mm.allocated());
+
+        // the entire cut is released via a decoded reference
+        SeqExpandMemoryManager.SliceSeqExpand decoded = mm.getEmptySlice();
+        Assert.assertTrue(decoded.decodeReference(s.getReference()));
+        Assert.assertEquals(cutLength, decoded.getAllocatedLength());
+        decoded.release();
+        Assert.assertEquals(0, mm.allocated());
+        Assert.assertEquals(0, allocator.getCurrentBlock().getLiveBytes());
+        allocator.close();
+    }
+
+    @Test
+    public void requiresExtendedReferences() {
+        long blockSize = BlocksPool.getInstance().blockSize();
+        // the remaining bits of the compact encoding (after the offset and the length) encode the block id
+        long compactBlocks = 1L << (Long.SIZE - 2 * ReferenceCodec.requiredBits(blockSize));
+        Assert.assertFalse(SeqExpandMemoryManager.requiresExtendedReferences(
+                new NativeMemoryAllocator(compactBlocks / 2 * blockSize)));
+        Assert.assertTrue(SeqExpandMemoryManager.requiresExtendedReferences(
+                new NativeMemoryAllocator(2 * compactBlocks * blockSize)));
+    }
+
+    @Test
+    public void setCapacityBeyondCompactReferences() {
+        long blockSize = BlocksPool.getInstance().blockSize();
+        long compactBlocks = 1L << (Long.SIZE - 2 * ReferenceCodec.requiredBits(blockSize));
+        long capacity = 2 * compactBlocks * blockSize;
+
+        OakMap<Integer, Integer> compactOak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setMemoryCapacity(128L * 1024 * 1024)
+                .buildOrderedMap();
+        try {
+            compactOak.zc().put(1, 1);
+            Assert.assertThrows(IllegalArgumentException.class, () -> compactOak.setMemoryCapacity(capacity));
+            compactOak.zc().put(2, 2);
+            Assert.assertEquals(Integer.valueOf(1), compactOak.get(1));
+            Assert.assertEquals(Integer.valueOf(2), compactOak.get(2));
+        } finally {
+            compactOak.close();
+        }
+
+        OakMap<Integer, Integer> extendedOak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setMemoryCapacity(128L * 1024 * 1024)
+                .setExtendedReferences(true)
+                .buildOrderedMap();
+        try {
+            extendedOak.setMemoryCapacity(capacity);
+            extendedOak.zc().put(1, 1);
+            Assert.assertEquals(Integer.valueOf(1), extendedOak.get(1));
+        } finally {
+            extendedOak.close();
+        }
+    }
+
+    @Test
+    public void mapWithExtendedReferences() {
+        OakMap<Integer, Integer> oak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setMemoryCapacity(128L * 1024 * 1024)
+                .setOrderedChunkMaxItems(64)
+                .setExtendedReferences(true)
+                .buildOrderedMap();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                oak.zc().put(i, i);
+            }
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(Integer.valueOf(i), oak.get(i));
+            }
+            int expected = 0;
+            for (Integer key : oak.keySet()) {
+                Assert.assertEquals(Integer.valueOf(expected++), key);
+            }
+            Assert.assertEquals(1000, expected);
+        } finally {
+            oak.close();
+        }
+    }
 }
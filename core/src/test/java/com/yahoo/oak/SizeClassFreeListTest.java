@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SizeClassFreeListTest {
+
+    private static final MemoryManager VALUE_MEMORY_MANAGER = new SyncRecycleMemoryManager(null);
+
+    @Test
+    public void sizeClassBounds() {
+        for (int c = 0; c < SizeClassFreeList.NUM_OF_CLASSES; c++) {
+            int lowerBound = SizeClassFreeList.classLowerBound(c);
+            Assert.assertEquals(c, SizeClassFreeList.sizeClass(lowerBound));
+            if (c > 0) {
+                Assert.assertEquals(c - 1, SizeClassFreeList.sizeClass(lowerBound - 1));
+            }
+        }
+        Assert.assertEquals(SizeClassFreeList.NUM_OF_CLASSES - 1, SizeClassFreeList.sizeClass(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void removeRespectsLengthRange() {
+        SizeClassFreeList freeList = new SizeClassFreeList();
+        freeList.add(1, 0, 100);
+        freeList.add(1, 100, 300);
+        Assert.assertEquals(2, freeList.size());
+
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        // too small for the request
+        Assert.assertFalse(freeList.remove(s, 101, 202));
+        // too big for the request
+        Assert.assertFalse(freeList.remove(s, 40, 80));
+
+        Assert.assertTrue(freeList.remove(s, 90, 180));
+        Assert.assertEquals(1, s.getAllocatedBlockID());
+        Assert.assertEquals(0, s.getAllocatedOffset());
+        Assert.assertEquals(100, s.length);
+
+        Assert.assertTrue(freeList.remove(s, 200, 400));
+        Assert.assertEquals(100, s.getAllocatedOffset());
+        Assert.assertEquals(300, s.length);
+        Assert.assertEquals(0, freeList.size());
+    }
+
+    @Test
+    public void growAndClear() {
+        SizeClassFreeList freeList = new SizeClassFreeList();
+        int numOfCuts = 1000;
+        for (int i = 0; i < numOfCuts; i++) {
+            freeList.add(1, i * 64, 64);
+        }
+        Assert.assertEquals(numOfCuts, freeList.size());
+
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        // stacks are LIFO
+        Assert.assertTrue(freeList.remove(s, 64, 64));
+        Assert.assertEquals((numOfCuts - 1) * 64, s.getAllocatedOffset());
+
+        freeList.clear();
+        Assert.assertEquals(0, freeList.size());
+        Assert.assertFalse(freeList.remove(s, 64, 128));
+    }
+
+    @Test
+    public void removeBlock() {
+        SizeClassFreeList freeList = new SizeClassFreeList();
+        SizeClassFreeList target = new SizeClassFreeList();
+        for (int i = 0; i < 100; i++) {
+            freeList.add(1 + i % 2, i * 64, 64);
+        }
+        freeList.removeBlock(1, target);
+        Assert.assertEquals(50, freeList.size());
+        Assert.assertEquals(50, target.size());
+
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        while (freeList.remove(s, 64, 64)) {
+            Assert.assertEquals(2, s.getAllocatedBlockID());
+        }
+        while (target.remove(s, 64, 64)) {
+            Assert.assertEquals(1, s.getAllocatedBlockID());
+        }
+
+        // the cuts can be dropped as well
+        freeList.add(3, 0, 64);
+        freeList.removeBlock(3, null);
+        Assert.assertEquals(0, freeList.size());
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import com.yahoo.oak.common.OakCommonBuildersFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+public class SpliteratorTest {
+    private static final int NUM_OF_KEYS = 10000;
+    private static final int CHUNK_MAX_ITEMS = 64;
+
+    private static OakMap<Integer, Integer> buildOrderedMap() {
+        OakMap<Integer, Integer> oak = OakCommonBuildersFactory.getDefaultIntBuilder()
+                .setOrderedChunkMaxItems(CHUNK_MAX_ITEMS)
+                .buildOrderedMap();
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            oak.put(i, -i);
+        }
+        return oak;
+    }
+
+    private static OakHashMap<Integer, Integer> buildHashMap() {
+        OakHashMap<Integer, Integer> hash = OakCommonBuildersFactory.getDefaultIntBuilder().buildHashMap();
+        for (int i = 0; i < NUM_OF_KEYS; i++) {
+            hash.put(i, -i);
+        }
+        return hash;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+
+    // splits the spliterator as much as possible, and traverses each part
+    private static <T> List<List<T>> splitAndTraverse(Spliterator<T> spliterator) {
+        List<Spliterator<T>> parts = new ArrayList<>();
+        parts.add(spliterator);
+        for (int i = 0; i < parts.size(); i++) {
+            Spliterator<T> prefix;
+            while ((prefix = parts.get(i).trySplit()) != null) {
+                parts.add(i, prefix);
+            }
+        }
+        List<List<T>> elements = new ArrayList<>();
+        for (Spliterator<T> part : parts) {
+            List<T> partElements = new ArrayList<>();
+            part.forEachRemaining(partElements::add);
+            elements.add(partElements);
+        }
+        return elements;
+    }
+
+    @Test
+    public void orderedMapSplits() {
+        try (OakMap<Integer, Integer> oak = buildOrderedMap()) {
+            Spliterator<Integer> spliterator = oak.keySet().spliterator();
+            Assert.assertTrue(spliterator.hasCharacteristics(
+                    Spliterator.ORDERED | Spliterator.SORTED | Spliterator.CONCURRENT | Spliterator.NONNULL));
+            Assert.assertEquals(oak.comparator(), spliterator.getComparator());
+
+            // each part covers whole chunks, and the parts are in the order of the keys
+            List<List<Integer>> parts = splitAndTraverse(spliterator);
+            Assert.assertTrue(parts.size() > NUM_OF_KEYS / CHUNK_MAX_ITEMS / 2);
+            List<Integer> keys = new ArrayList<>();
+            parts.forEach(keys::addAll);
+            Assert.assertEquals(range(0, NUM_OF_KEYS), keys);
+
+            // a started traversal is not split
+            spliterator = oak.keySet().spliterator();
+            Assert.assertTrue(spliterator.tryAdvance(key -> Assert.assertEquals(Integer.valueOf(0), key)));
+            Assert.assertNull(spliterator.trySplit());
+        }
+    }
+
+    @Test
+    public void orderedMapParallelStreams() {
+        try (OakMap<Integer, Integer> oak = buildOrderedMap()) {
+            Assert.assertEquals(range(0, NUM_OF_KEYS), oak.keySet().parallelStream().collect(Collectors.toList()));
+            Assert.assertEquals(NUM_OF_KEYS, oak.entrySet().parallelStream()
+                    .filter(e -> e.getKey() == -e.getValue()).count());
+            Assert.assertEquals(-(long) NUM_OF_KEYS * (NUM_OF_KEYS - 1) / 2,
+                    oak.values().parallelStream().mapToLong(Integer::longValue).sum());
+
+            try (OakMap<Integer, Integer> sub = oak.subMap(1000, true, 5000, false)) {
+                Assert.assertEquals(range(1000, 5000),
+                        sub.keySet().parallelStream().collect(Collectors.toList()));
+                try (OakMap<Integer, Integer> descending = sub.descendingMap()) {
+                    List<Integer> expected = range(1000, 5000);
+                    expected.sort(oak.comparator().reversed());
+                    Assert.assertEquals(expected,
+                            descending.keySet().parallelStream().collect(Collectors.toList()));
+                    Assert.assertEquals(expected, descending.entrySet().parallelStream()
+                            .map(Map.Entry::getKey).collect(Collectors.toList()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void orderedMapZeroCopyStreams() {
+        try (OakMap<Integer, Integer> oak = buildOrderedMap()) {
+            ZeroCopyMap<Integer, Integer> zc = oak.zc();
+            Assert.assertEquals(range(0, NUM_OF_KEYS), zc.keySet().parallelStream()
+                    .map(b -> b.getInt(0)).collect(Collectors.toList()));
+            Assert.assertEquals(range(0, NUM_OF_KEYS), zc.keyStreamSet().parallelStream()
+                    .map(b -> b.getInt(0)).collect(Collectors.toList()));
+            Assert.assertEquals(NUM_OF_KEYS, zc.entryStreamSet().parallelStream()
+                    .filter(e -> e.getKey().getInt(0) == -e.getValue().getInt(0)).count());
+            Assert.assertEquals(-(long) NUM_OF_KEYS * (NUM_OF_KEYS - 1) / 2,
+                    zc.valuesStream().parallelStream().mapToLong(b -> b.getInt(0)).sum());
+            Assert.assertFalse(zc.keySet().spliterator().hasCharacteristics(Spliterator.SORTED));
+        }
+    }
+
+    @Test
+    public void hashMapSplits() {
+        try (OakHashMap<Integer, Integer> hash = buildHashMap()) {
+            Spliterator<Integer> spliterator = hash.keySet().spliterator();
+            Assert.assertTrue(spliterator.hasCharacteristics(
+                    Spliterator.DISTINCT | Spliterator.CONCURRENT | Spliterator.NONNULL));
+            Assert.assertFalse(spliterator.hasCharacteristics(Spliterator.ORDERED));
+
+            // the parts are disjoint and cover all the keys
+            Set<Integer> keys = new HashSet<>();
+            int count = 0;
+            for (List<Integer> part : splitAndTraverse(spliterator)) {
+                keys.addAll(part);
+                count += part.size();
+            }
+            Assert.assertEquals(NUM_OF_KEYS, count);
+            Assert.assertEquals(new HashSet<>(range(0, NUM_OF_KEYS)), keys);
+        }
+    }
+
+    @Test
+    public void hashMapStreams() {
+        try (OakHashMap<Integer, Integer> hash = buildHashMap()) {
+            for (int i = 0; i < NUM_OF_KEYS; i += 2) {
+                hash.remove(i);
+            }
+            Set<Integer> oddKeys = range(0, NUM_OF_KEYS).stream().filter(key -> key % 2 == 1)
+                    .collect(Collectors.toSet());
+
+            Assert.assertEquals(oddKeys, hash.keySet().stream().collect(Collectors.toSet()));
+            Assert.assertEquals(oddKeys, hash.keySet().parallelStream().collect(Collectors.toSet()));
+            Assert.assertEquals(NUM_OF_KEYS / 2, hash.entrySet().parallelStream()
+                    .filter(e -> e.getKey() == -e.getValue()).count());
+            Collection<Integer> values = hash.values();
+            Assert.assertEquals(-oddKeys.stream().mapToLong(Integer::longValue).sum(),
+                    values.parallelStream().mapToLong(Integer::longValue).sum());
+
+            ZeroCopyMap<Integer, Integer> zc = hash.zc();
+            Assert.assertEquals(oddKeys, zc.keySet().parallelStream()
+                    .map(b -> b.getInt(0)).collect(Collectors.toSet()));
+            Assert.assertEquals(oddKeys, zc.keyStreamSet().parallelStream()
+                    .map(b -> b.getInt(0)).collect(Collectors.toSet()));
+            Assert.assertEquals(NUM_OF_KEYS / 2, zc.entrySet().parallelStream()
+                    .filter(e -> e.getKey().getInt(0) == -e.getValue().getInt(0)).count());
+            Assert.assertEquals(NUM_OF_KEYS / 2, zc.entryStreamSet().parallelStream()
+                    .filter(e -> e.getKey().getInt(0) == -e.getValue().getInt(0)).count());
+            Assert.assertEquals(NUM_OF_KEYS / 2, zc.valuesStream().parallelStream().count());
+        }
+    }
+
+    @Test
+    public void concurrentRemovals() throws InterruptedException {
+        try (OakMap<Integer, Integer> oak = buildOrderedMap()) {
+            Thread remover = new Thread(() -> {
+                for (int i = 0; i < NUM_OF_KEYS; i += 2) {
+                    oak.remove(i);
+                }
+            });
+            remover.start();
+            // the odd keys are never removed, so each of them is traversed exactly once
+            List<Integer> keys = StreamSupport.stream(oak.keySet().spliterator(), true)
+                    .collect(Collectors.toList());
+            remover.join();
+            Assert.assertEquals(range(0, NUM_OF_KEYS).stream().filter(key -> key % 2 == 1)
+                    .collect(Collectors.toList()),
+                    keys.stream().filter(key -> key % 2 == 1).collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020, Verizon Media.
+ * Licensed under the terms of the Apache 2.0 license.
+ * Please see LICENSE file in the project root for terms.
+ */
+
+package com.yahoo.oak;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SplittingFreeListTest {
+
+    private static final MemoryManager VALUE_MEMORY_MANAGER = new SyncRecycleMemoryManager(null);
+
+    @Test
+    public void splitFreeRegion() {
+        SplittingFreeList freeList = new SplittingFreeList();
+        freeList.add(1, 0, 1000);
+
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        Assert.assertTrue(freeList.remove(s, 100, 200));
+        Assert.assertEquals(1, s.getAllocatedBlockID());
+        Assert.assertEquals(0, s.getAllocatedOffset());
+        Assert.assertEquals(100, s.length);
+        Assert.assertEquals(1, freeList.size());
+
+        Assert.assertTrue(freeList.remove(s, 890, 890));
+        Assert.assertEquals(100, s.getAllocatedOffset());
+        // the remainder is too small to be split
+        Assert.assertEquals(900, s.length);
+        Assert.assertEquals(0, freeList.size());
+        Assert.assertFalse(freeList.remove(s, 1, 1));
+    }
+
+    @Test
+    public void adjacentCutsAreNotMerged() {
+        SplittingFreeList freeList = new SplittingFreeList();
+        freeList.add(1, 0, 100);
+        freeList.add(1, 100, 100);
+        freeList.add(1, 200, 100);
+        Assert.assertEquals(3, freeList.size());
+
+        // a cut spanning the released cuts would place their headers inside its data
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        Assert.assertFalse(freeList.remove(s, 300, 300));
+        Assert.assertEquals(3, freeList.size());
+    }
+
+    @Test
+    public void adjacentUnversionedCutsAreMerged() {
+        SplittingFreeList freeList = new SplittingFreeList();
+        freeList.addUnversioned(1, 100, 100);
+        freeList.addUnversioned(1, 300, 100);
+        freeList.addUnversioned(1, 200, 100);
+        Assert.assertEquals(1, freeList.size());
+        // a cut is merged into a preceding value cut, as the value header stays at the start of the merged cut
+        freeList.add(1, 0, 100);
+        Assert.assertEquals(1, freeList.size());
+        // but a value cut is not merged into a preceding cut
+        freeList.addUnversioned(2, 0, 100);
+        freeList.add(2, 100, 100);
+        Assert.assertEquals(3, freeList.size());
+
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        Assert.assertTrue(freeList.remove(s, 400, 400));
+        Assert.assertEquals(1, s.getAllocatedBlockID());
+        Assert.assertEquals(0, s.getAllocatedOffset());
+        Assert.assertEquals(400, s.length);
+        Assert.assertFalse(freeList.remove(s, 200, 200));
+    }
+
+    @Test
+    public void splitRemainderIsMerged() {
+        SplittingFreeList freeList = new SplittingFreeList();
+        freeList.add(1, 0, 100);
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        Assert.assertTrue(freeList.remove(s, 50, 50));
+        Assert.assertEquals(0, s.getAllocatedOffset());
+
+        // the remainder starts within the released value, where no reference pointed to
+        freeList.addUnversioned(1, 100, 100);
+        Assert.assertEquals(1, freeList.size());
+        Assert.assertTrue(freeList.remove(s, 150, 150));
+        Assert.assertEquals(50, s.getAllocatedOffset());
+        Assert.assertEquals(0, freeList.size());
+    }
+
+    @Test
+    public void reuseMergedKeyCutsAfterDrift() {
+        int blockSize = 64 * 1024;
+        BlocksPool pool = new BlocksPool.Builder().setBlockSize(blockSize).setPreAllocSize(0, 1).build();
+        NativeMemoryAllocator allocator = new NativeMemoryAllocator(16L * blockSize, pool,
+                NativeMemoryAllocator.NO_THREAD_LOCAL_BUFFERS, new SplittingFreeList());
+        SeqExpandMemoryManager keysMemoryManager = new SeqExpandMemoryManager(allocator, false);
+        try {
+            int keySize = 32;
+            Slice[] keys = new Slice[blockSize / keySize];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = keysMemoryManager.getEmptySlice();
+                keys[i].allocate(keySize, false);
+            }
+            Assert.assertEquals(1, allocator.numOfAllocatedBlocks());
+
+            // the keys grow, and are allocated from the merged released keys instead of from new blocks
+            for (int round = 0; round < 8; round++) {
+                int numOfKeys = blockSize / keySize;
+                // released out of order, so the cuts are merged with both the preceding and following cuts
+                for (int i = 0; i < numOfKeys; i += 2) {
+                    keys[i].release();
+                }
+                for (int i = 1; i < numOfKeys; i += 2) {
+                    keys[i].release();
+                }
+                Assert.assertEquals(0, allocator.allocated());
+
+                keySize += 8;
+                numOfKeys = blockSize / keySize;
+                for (int i = 0; i < numOfKeys; i++) {
+                    keys[i].allocate(keySize, false);
+                }
+                Assert.assertEquals(1, allocator.numOfAllocatedBlocks());
+                Assert.assertEquals((long) numOfKeys * keySize, allocator.allocated());
+            }
+        } finally {
+            allocator.close();
+            pool.close();
+        }
+    }
+
+    @Test
+    public void reuseAfterDrift() {
+        SplittingFreeList freeList = new SplittingFreeList();
+        int numOfCuts = 1000;
+        for (int i = 0; i < numOfCuts; i++) {
+            freeList.add(1, i * 256, 256);
+        }
+        Assert.assertEquals(numOfCuts, freeList.size());
+
+        // smaller cuts fit in the released memory, each taken from the start of a released cut or a remainder
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        for (int i = 0; i < numOfCuts * 2; i++) {
+            Assert.assertTrue(freeList.remove(s, 128, 128));
+            Assert.assertEquals(0, s.getAllocatedOffset() % 128);
+            Assert.assertEquals(128, s.length);
+        }
+        Assert.assertEquals(0, freeList.size());
+
+        freeList.add(1, 0, 64);
+        freeList.clear();
+        Assert.assertEquals(0, freeList.size());
+        Assert.assertFalse(freeList.remove(s, 64, 64));
+    }
+
+    @Test
+    public void removeBlockKeepsUnversionedCuts() {
+        SplittingFreeList freeList = new SplittingFreeList();
+        SplittingFreeList target = new SplittingFreeList();
+        freeList.addUnversioned(1, 100, 100);
+        target.add(1, 0, 100);
+
+        // the moved cut is still merged into the preceding cut
+        freeList.removeBlock(1, target);
+        Assert.assertEquals(0, freeList.size());
+        Assert.assertEquals(1, target.size());
+    }
+
+    @Test
+    public void removeBlock() {
+        SplittingFreeList freeList = new SplittingFreeList();
+        SizeClassFreeList target = new SizeClassFreeList();
+        freeList.add(1, 0, 100);
+        freeList.add(2, 0, 100);
+        freeList.add(1, 200, 100);
+
+        freeList.removeBlock(1, target);
+        Assert.assertEquals(1, freeList.size());
+        Assert.assertEquals(2, target.size());
+
+        BlockAllocationSlice s = (BlockAllocationSlice) VALUE_MEMORY_MANAGER.getEmptySlice();
+        Assert.assertTrue(freeList.remove(s, 100, 100));
+        Assert.assertEquals(2, s.getAllocatedBlockID());
+        Assert.assertEquals(0, freeList.size());
+        Assert.assertFalse(freeList.remove(s, 100, 100));
+    }
+}
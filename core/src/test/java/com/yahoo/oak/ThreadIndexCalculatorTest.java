@@ -20,19 +20,20 @@ public class ThreadIndexCalculatorTest {
     @Test
     public void testReuseIndices() throws InterruptedException {
 
-        Thread[] threads = new Thread[ThreadIndexCalculator.MAX_THREADS];
-        Thread[] threadsSecondBatch = new Thread[ThreadIndexCalculator.MAX_THREADS];
+        Thread[] threads = new Thread[ThreadIndexCalculator.NUM_OF_SLOTS];
+        Thread[] threadsSecondBatch = new Thread[ThreadIndexCalculator.NUM_OF_SLOTS];
         CountDownLatch firstRoundLatch = new CountDownLatch(1);
-        CountDownLatch doneFirstRoundLatch = new CountDownLatch(ThreadIndexCalculator.MAX_THREADS);
+        CountDownLatch doneFirstRoundLatch = new CountDownLatch(ThreadIndexCalculator.NUM_OF_SLOTS);
         CountDownLatch secondRoundLatch = new CountDownLatch(1);
-        CountDownLatch doneSecondRoundLatch = new CountDownLatch(ThreadIndexCalculator.MAX_THREADS);
+        CountDownLatch doneSecondRoundLatch = new CountDownLatch(ThreadIndexCalculator.NUM_OF_SLOTS);
         CountDownLatch firstBatchWait = new CountDownLatch(1);
         CountDownLatch firstBatchRelease = new CountDownLatch(1);
+        CountDownLatch doneFirstBatchRelease = new CountDownLatch(ThreadIndexCalculator.NUM_OF_SLOTS);
 
         ThreadIndexCalculator indexCalculator = ThreadIndexCalculator.newInstance();
         ConcurrentSkipListSet<Integer> uniqueIndices = new ConcurrentSkipListSet<>();
 
-        for (int i = 0; i < ThreadIndexCalculator.MAX_THREADS; ++i) {
+        for (int i = 0; i < ThreadIndexCalculator.NUM_OF_SLOTS; ++i) {
 
             Thread thread = new Thread(() -> {
                 try {
@@ -60,6 +61,7 @@ public class ThreadIndexCalculatorTest {
                 try {
                     firstBatchRelease.await();
                     indexCalculator.releaseIndex();
+                    doneFirstBatchRelease.countDown();
                     firstBatchWait.await();
                 } catch (InterruptedException e) {
                     e.printStackTrace();
@@ -72,18 +74,20 @@ public class ThreadIndexCalculatorTest {
 
         firstRoundLatch.countDown();
         doneFirstRoundLatch.await();
-        Assert.assertEquals(ThreadIndexCalculator.MAX_THREADS, uniqueIndices.size());
+        Assert.assertEquals(ThreadIndexCalculator.NUM_OF_SLOTS, uniqueIndices.size());
         uniqueIndices.clear();
 
         secondRoundLatch.countDown();
         doneSecondRoundLatch.await();
-        Assert.assertEquals(ThreadIndexCalculator.MAX_THREADS, uniqueIndices.size());
+        Assert.assertEquals(ThreadIndexCalculator.NUM_OF_SLOTS, uniqueIndices.size());
         uniqueIndices.clear();
         firstBatchRelease.countDown();
+        // a thread does not wait for a free slot, so the second batch starts once the slots are released
+        doneFirstBatchRelease.await();
 
         CountDownLatch secondBatchStart = new CountDownLatch(1);
-        CountDownLatch doneSecondBatch = new CountDownLatch(ThreadIndexCalculator.MAX_THREADS);
-        for (int i = 0; i < ThreadIndexCalculator.MAX_THREADS; ++i) {
+        CountDownLatch doneSecondBatch = new CountDownLatch(ThreadIndexCalculator.NUM_OF_SLOTS);
+        for (int i = 0; i < ThreadIndexCalculator.NUM_OF_SLOTS; ++i) {
 
             Thread thread = new Thread(() -> {
                 try {
@@ -102,11 +106,11 @@ public class ThreadIndexCalculatorTest {
 
         secondBatchStart.countDown();
         doneSecondBatch.await();
-        Assert.assertEquals(ThreadIndexCalculator.MAX_THREADS, uniqueIndices.size());
+        Assert.assertEquals(ThreadIndexCalculator.NUM_OF_SLOTS, uniqueIndices.size());
 
 
         firstBatchWait.countDown();
-        for (int i = 0; i < ThreadIndexCalculator.MAX_THREADS; i++) {
+        for (int i = 0; i < ThreadIndexCalculator.NUM_OF_SLOTS; i++) {
             threads[i].join();
             threadsSecondBatch[i].join();
         }
@@ -115,14 +119,14 @@ public class ThreadIndexCalculatorTest {
     @Test(timeout = 10000)
     public void testThreadIDCollision() throws InterruptedException {
         CountDownLatch threadsStart = new CountDownLatch(1);
-        CountDownLatch threadsFinished = new CountDownLatch(ThreadIndexCalculator.MAX_THREADS);
+        CountDownLatch threadsFinished = new CountDownLatch(ThreadIndexCalculator.NUM_OF_SLOTS);
 
         ThreadIndexCalculator indexCalculator = ThreadIndexCalculator.newInstance();
         ConcurrentSkipListSet<Integer> uniqueIndices = new ConcurrentSkipListSet<>();
 
-        List<Thread> threads = new ArrayList<>(ThreadIndexCalculator.MAX_THREADS);
+        List<Thread> threads = new ArrayList<>(ThreadIndexCalculator.NUM_OF_SLOTS);
 
-        while (threads.size() < ThreadIndexCalculator.MAX_THREADS) {
+        while (threads.size() < ThreadIndexCalculator.NUM_OF_SLOTS) {
 
             Thread thread = new Thread(() -> {
                 try {
@@ -135,7 +139,7 @@ public class ThreadIndexCalculatorTest {
                 uniqueIndices.add(index);
                 threadsFinished.countDown();
             });
-            if (thread.getId() % ThreadIndexCalculator.MAX_THREADS == 0) {
+            if (thread.getId() % ThreadIndexCalculator.NUM_OF_SLOTS == 0) {
                 threads.add(thread);
                 thread.start();
             }
@@ -143,7 +147,48 @@ public class ThreadIndexCalculatorTest {
 
         threadsStart.countDown();
         threadsFinished.await();
-        Assert.assertEquals(ThreadIndexCalculator.MAX_THREADS, uniqueIndices.size());
+        Assert.assertEquals(ThreadIndexCalculator.NUM_OF_SLOTS, uniqueIndices.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testMoreThreadsThanSlots() throws InterruptedException {
+        int numThreads = 4 * ThreadIndexCalculator.NUM_OF_SLOTS;
+        CountDownLatch threadsStart = new CountDownLatch(1);
+        CountDownLatch threadsFinished = new CountDownLatch(numThreads);
+        CountDownLatch threadsExit = new CountDownLatch(1);
+
+        ThreadIndexCalculator indexCalculator = ThreadIndexCalculator.newInstance();
+        ConcurrentSkipListSet<Integer> uniqueIndices = new ConcurrentSkipListSet<>();
+        List<Thread> threads = new ArrayList<>(numThreads);
+
+        for (int i = 0; i < numThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    threadsStart.await();
+                    int index = indexCalculator.getIndex();
+                    uniqueIndices.add(index);
+                    threadsFinished.countDown();
+                    threadsExit.await();
+                    // a thread keeps its index, even if it shares it with other threads
+                    Assert.assertEquals(index, indexCalculator.getIndex());
+                    indexCalculator.releaseIndex();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // getIndex() does not block, even though there are more live threads than slots
+        threadsStart.countDown();
+        threadsFinished.await();
+        Assert.assertEquals(ThreadIndexCalculator.NUM_OF_SLOTS, uniqueIndices.size());
+
+        threadsExit.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
     }
 
 }